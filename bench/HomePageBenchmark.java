@@ -0,0 +1,138 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures throughput and latency of the home page of a running app.
+ * This is a single file program, run it with:
+ *
+ *   java bench/HomePageBenchmark.java http://localhost:8081 danand password 64 30
+ *
+ * Arguments are the base URL, the username and password to log in with,
+ * the number of concurrent clients and the duration in seconds.
+ * Each client logs in once and then requests / back to back.
+ * See bench/virtual-threads.sh to compare platform and virtual threads.
+ */
+public class HomePageBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8081";
+        String username = args.length > 1 ? args[1] : "danand";
+        String password = args.length > 2 ? args[2] : "password";
+        int clients = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+        int seconds = args.length > 4 ? Integer.parseInt(args[4]) : 30;
+        int warmupSeconds = Math.max(1, seconds / 5);
+
+        List<long[]> latencies = new ArrayList<>();
+        AtomicLong errors = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(clients);
+        long warmupEnd = System.nanoTime() + Duration.ofSeconds(warmupSeconds).toNanos();
+        long end = warmupEnd + Duration.ofSeconds(seconds).toNanos();
+
+        for (int i = 0; i < clients; i++) {
+            int index = i;
+            latencies.add(new long[0]);
+            Thread client = new Thread(() -> {
+                // samples[0] holds the count, latencies follow.
+                long[] samples = new long[1024];
+                try {
+                    HttpClient http = login(baseUrl, username, password);
+                    HttpRequest home = HttpRequest.newBuilder(URI.create(baseUrl + "/")).build();
+                    int count = 0;
+                    while (true) {
+                        long start = System.nanoTime();
+                        if (start >= end) {
+                            break;
+                        }
+                        HttpResponse<Void> response = http.send(home, HttpResponse.BodyHandlers.discarding());
+                        long elapsed = System.nanoTime() - start;
+                        if (response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                        } else if (start >= warmupEnd) {
+                            if (count == samples.length - 1) {
+                                samples = Arrays.copyOf(samples, samples.length * 2);
+                            }
+                            samples[++count] = elapsed;
+                        }
+                    }
+                    samples[0] = count;
+                    synchronized (latencies) {
+                        latencies.set(index, samples);
+                    }
+                } catch (Exception e) {
+                    errors.incrementAndGet();
+                } finally {
+                    done.countDown();
+                }
+            });
+            client.start();
+        }
+        done.await();
+
+        long total = 0;
+        for (long[] samples : latencies) {
+            total += samples.length == 0 ? 0 : samples[0];
+        }
+        long[] all = new long[(int) total];
+        int at = 0;
+        for (long[] samples : latencies) {
+            if (samples.length == 0) {
+                continue;
+            }
+            System.arraycopy(samples, 1, all, at, (int) samples[0]);
+            at += (int) samples[0];
+        }
+        Arrays.sort(all);
+
+        System.out.printf("clients=%d duration=%ds requests=%d errors=%d%n",
+                clients, seconds, total, errors.get());
+        System.out.printf("throughput=%.1f req/s%n", total / (double) seconds);
+        System.out.printf("p50=%.2f ms p90=%.2f ms p99=%.2f ms max=%.2f ms%n",
+                percentile(all, 50), percentile(all, 90), percentile(all, 99), percentile(all, 100));
+    }
+
+    /**
+     * Logs in through the login form and returns a client that keeps the session cookie.
+     */
+    private static HttpClient login(String baseUrl, String username, String password) throws Exception {
+        HttpClient http = HttpClient.newBuilder()
+                .cookieHandler(new java.net.CookieManager())
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        String form = "username=" + URLEncoder.encode(username, StandardCharsets.UTF_8)
+                + "&password=" + URLEncoder.encode(password, StandardCharsets.UTF_8);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/login"))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form))
+                .build();
+        HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+        String location = response.headers().firstValue("Location").orElse("");
+        if (location.contains("/login")) {
+            throw new IllegalStateException("Login failed for " + username);
+        }
+        return http;
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,430 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Puts a realistic mix of traffic on a running app and reports latency
+ * per endpoint. This is a single file program, run it with:
+ *
+ *   java bench/LoadDriver.java url=http://localhost:8081 users=1000 rate=200 duration=60
+ *
+ * Every session logs in through the /login form like a browser and keeps its
+ * session cookie. Sessions then send requests on a fixed schedule: with
+ * rate=200 and sessions=50 each session sends one request every 250 ms.
+ * Latency is measured from when a request was scheduled, not from when it was
+ * sent. A slow response delays the following requests of the session, and
+ * that delay counts against them. Otherwise a stall would only show up as
+ * one slow request (coordinated omission).
+ *
+ * All arguments are optional key=value pairs:
+ * url=URL          Base URL of the app. (http://localhost:8081)
+ * users=N          Log in as user1..userN, see SyntheticDataGenerator.java. (0)
+ * user=NAME        Log in as this user when users=0. (danand)
+ * password=TEXT    Password to log in with. (password)
+ * sessions=N       Number of concurrent logged in sessions. (50)
+ * rate=N           Total requests per second across all sessions. (100)
+ * duration=N       Seconds to measure. (60)
+ * warmup=N         Seconds to run before measuring. (10)
+ * mix=...          Relative share of each operation.
+ *                  (home=50,heart=15,hashtag=10,people=10,post=5,login=10)
+ * posts=N          Hearts go to post IDs 1..N. (1000)
+ * hashtags=N       Searches and new posts use #tag1..#tagN. (5000)
+ * out=FILE         JSON report. (bench/results/load-TIMESTAMP.json)
+ */
+public class LoadDriver {
+
+    private static final String[] OPERATIONS = { "home", "heart", "hashtag", "people", "post", "login" };
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                System.err.println("Arguments are key=value pairs, see LoadDriver.java. Got: " + arg);
+                System.exit(1);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        Config config = new Config(options);
+
+        long start = System.nanoTime() + Duration.ofSeconds(1).toNanos();
+        long measureFrom = start + Duration.ofSeconds(config.warmup).toNanos();
+        long end = measureFrom + Duration.ofSeconds(config.duration).toNanos();
+        long interval = (long) (1e9 * config.sessions / config.rate);
+
+        List<Session> sessions = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < config.sessions; i++) {
+            // Stagger sessions so requests are spread over the interval.
+            Session session = new Session(config, i, start + interval * i / config.sessions,
+                    interval, measureFrom, end);
+            sessions.add(session);
+            Thread thread = new Thread(session, "session-" + i);
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Map<String, Histogram> latencies = new LinkedHashMap<>();
+        Map<String, Long> errors = new LinkedHashMap<>();
+        for (String operation : OPERATIONS) {
+            latencies.put(operation, new Histogram());
+            errors.put(operation, 0L);
+        }
+        for (Session session : sessions) {
+            for (String operation : OPERATIONS) {
+                latencies.get(operation).add(session.latencies.get(operation));
+                errors.merge(operation, session.errors.get(operation), Long::sum);
+            }
+        }
+
+        String text = textReport(config, latencies, errors);
+        System.out.print(text);
+        Path out = Paths.get(options.getOrDefault("out", "bench/results/load-"
+                + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json"));
+        if (out.getParent() != null) {
+            Files.createDirectories(out.getParent());
+        }
+        Files.writeString(out, jsonReport(config, latencies, errors));
+        System.out.println("JSON report written to " + out);
+    }
+
+    /**
+     * Settings from the command line.
+     */
+    private static class Config {
+        final String url;
+        final int users;
+        final String user;
+        final String password;
+        final int sessions;
+        final double rate;
+        final int duration;
+        final int warmup;
+        final int posts;
+        final int hashtags;
+        // Cumulative weights in the order of OPERATIONS.
+        final int[] mix = new int[OPERATIONS.length];
+        final String mixText;
+
+        Config(Map<String, String> options) {
+            url = options.getOrDefault("url", "http://localhost:8081");
+            users = Integer.parseInt(options.getOrDefault("users", "0"));
+            user = options.getOrDefault("user", "danand");
+            password = options.getOrDefault("password", "password");
+            sessions = Integer.parseInt(options.getOrDefault("sessions", "50"));
+            rate = Double.parseDouble(options.getOrDefault("rate", "100"));
+            duration = Integer.parseInt(options.getOrDefault("duration", "60"));
+            warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+            posts = Integer.parseInt(options.getOrDefault("posts", "1000"));
+            hashtags = Integer.parseInt(options.getOrDefault("hashtags", "5000"));
+            mixText = options.getOrDefault("mix", "home=50,heart=15,hashtag=10,people=10,post=5,login=10");
+
+            Map<String, Integer> weights = new LinkedHashMap<>();
+            for (String part : mixText.split(",")) {
+                String[] pair = part.split("=");
+                weights.put(pair[0].trim(), Integer.parseInt(pair[1].trim()));
+            }
+            int total = 0;
+            for (int i = 0; i < OPERATIONS.length; i++) {
+                total += weights.getOrDefault(OPERATIONS[i], 0);
+                mix[i] = total;
+            }
+            if (total == 0) {
+                throw new IllegalArgumentException("mix has no known operation: " + mixText);
+            }
+        }
+    }
+
+    /**
+     * One logged in user sending requests on a fixed schedule.
+     */
+    private static class Session implements Runnable {
+
+        final Config config;
+        final Random random;
+        final long firstStart;
+        final long interval;
+        final long measureFrom;
+        final long end;
+        final Map<String, Histogram> latencies = new LinkedHashMap<>();
+        final Map<String, Long> errors = new LinkedHashMap<>();
+        HttpClient http;
+
+        Session(Config config, int index, long firstStart, long interval, long measureFrom, long end) {
+            this.config = config;
+            this.random = new Random(index);
+            this.firstStart = firstStart;
+            this.interval = interval;
+            this.measureFrom = measureFrom;
+            this.end = end;
+            for (String operation : OPERATIONS) {
+                latencies.put(operation, new Histogram());
+                errors.put(operation, 0L);
+            }
+        }
+
+        @Override
+        public void run() {
+            long scheduled = firstStart;
+            String operation = "login";
+            while (scheduled < end) {
+                long now = System.nanoTime();
+                if (now < scheduled) {
+                    LockSupport.parkNanos(scheduled - now);
+                }
+                boolean ok;
+                try {
+                    if (http == null) {
+                        operation = "login";
+                    }
+                    ok = "login".equals(operation) ? login() : send(operation);
+                } catch (IOException e) {
+                    ok = false;
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long latency = System.nanoTime() - scheduled;
+                if (scheduled >= measureFrom) {
+                    latencies.get(operation).record(latency / 1000);
+                    if (!ok) {
+                        errors.merge(operation, 1L, Long::sum);
+                    }
+                }
+                scheduled += interval;
+                operation = nextOperation();
+            }
+        }
+
+        String nextOperation() {
+            int pick = random.nextInt(config.mix[config.mix.length - 1]);
+            for (int i = 0; i < OPERATIONS.length; i++) {
+                if (pick < config.mix[i]) {
+                    return OPERATIONS[i];
+                }
+            }
+            return OPERATIONS[0];
+        }
+
+        /**
+         * Starts a new session through the login form.
+         */
+        boolean login() throws IOException, InterruptedException {
+            http = HttpClient.newBuilder()
+                    .cookieHandler(new CookieManager())
+                    .followRedirects(HttpClient.Redirect.NEVER)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            String username = config.users > 0 ? "user" + (1 + random.nextInt(config.users)) : config.user;
+            HttpResponse<Void> response = http.send(post("/login", "username=" + encode(username)
+                    + "&password=" + encode(config.password)), HttpResponse.BodyHandlers.discarding());
+            if (response.headers().firstValue("Location").orElse("/login").contains("/login")) {
+                // Try again on the next scheduled request.
+                http = null;
+                return false;
+            }
+            return true;
+        }
+
+        boolean send(String operation) throws IOException, InterruptedException {
+            HttpRequest request;
+            switch (operation) {
+                case "heart":
+                    request = get("/post/" + (1 + random.nextInt(config.posts)) + "/heart/" + random.nextBoolean());
+                    break;
+                case "hashtag":
+                    request = get("/hashtagsearch?hashtags=" + encode(hashtag()));
+                    break;
+                case "people":
+                    request = get("/people");
+                    break;
+                case "post":
+                    request = post("/createpost", "posttext=" + encode("load test post " + hashtag()));
+                    break;
+                default:
+                    request = get("/");
+                    break;
+            }
+            HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+            int status = response.statusCode();
+            if (status >= 300 && status < 400) {
+                // Being sent back to the login page means the session was lost.
+                return !response.headers().firstValue("Location").orElse("").contains("/login");
+            }
+            return status == 200;
+        }
+
+        /**
+         * Picks popular hashtags more often, like SyntheticDataGenerator does.
+         */
+        String hashtag() {
+            int rank = (int) Math.pow(config.hashtags + 1, random.nextDouble());
+            return "#tag" + Math.max(1, Math.min(config.hashtags, rank));
+        }
+
+        HttpRequest get(String path) {
+            return HttpRequest.newBuilder(URI.create(config.url + path))
+                    .timeout(Duration.ofSeconds(30))
+                    .build();
+        }
+
+        HttpRequest post(String path, String form) {
+            return HttpRequest.newBuilder(URI.create(config.url + path))
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Content-Type", "application/x-www-form-urlencoded")
+                    .POST(HttpRequest.BodyPublishers.ofString(form))
+                    .build();
+        }
+
+        static String encode(String value) {
+            return URLEncoder.encode(value, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * A latency histogram in the style of HdrHistogram with about 1% precision.
+     * Values are microseconds. Buckets double in width, each split into 128
+     * sub buckets, so recording is a few shifts and an array increment.
+     */
+    private static class Histogram {
+
+        private static final int SUB_BUCKET_BITS = 7;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+        private final long[] counts = new long[(40 + 1) * SUB_BUCKETS];
+        private long total;
+        private long max;
+
+        void record(long value) {
+            value = Math.max(0, value);
+            int bucket = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+            int index = bucket * SUB_BUCKETS + (int) (value >>> bucket);
+            counts[Math.min(index, counts.length - 1)]++;
+            total++;
+            max = Math.max(max, value);
+        }
+
+        void add(Histogram other) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+            total += other.total;
+            max = Math.max(max, other.max);
+        }
+
+        long count() {
+            return total;
+        }
+
+        /**
+         * Returns the highest value of the bucket holding the given percentile.
+         */
+        long percentile(double percentile) {
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    int bucket = Math.max(0, i / SUB_BUCKETS - 1);
+                    long sub = i - (long) bucket * SUB_BUCKETS;
+                    return Math.min(max, ((sub + 1) << bucket) - 1);
+                }
+            }
+            return max;
+        }
+
+        long max() {
+            return max;
+        }
+    }
+
+    private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+    private static String textReport(Config config, Map<String, Histogram> latencies, Map<String, Long> errors) {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("url=%s sessions=%d rate=%.0f/s duration=%ds mix=%s%n",
+                config.url, config.sessions, config.rate, config.duration, config.mixText));
+        out.append(String.format("%-8s %9s %7s %9s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        Histogram all = new Histogram();
+        long allErrors = 0;
+        for (Map.Entry<String, Histogram> entry : latencies.entrySet()) {
+            Histogram histogram = entry.getValue();
+            long errorCount = errors.get(entry.getKey());
+            all.add(histogram);
+            allErrors += errorCount;
+            appendRow(out, entry.getKey(), histogram, errorCount, config.duration);
+        }
+        appendRow(out, "all", all, allErrors, config.duration);
+        return out.toString();
+    }
+
+    private static void appendRow(StringBuilder out, String name, Histogram histogram, long errors, int duration) {
+        if (histogram.count() == 0) {
+            return;
+        }
+        out.append(String.format("%-8s %9d %7d %9.1f", name, histogram.count(), errors,
+                histogram.count() / (double) duration));
+        for (double percentile : PERCENTILES) {
+            out.append(String.format(" %9.2f", histogram.percentile(percentile) / 1000.0));
+        }
+        out.append(String.format(" %9.2f%n", histogram.max() / 1000.0));
+    }
+
+    private static String jsonReport(Config config, Map<String, Histogram> latencies, Map<String, Long> errors) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append(String.format("  \"url\": \"%s\",%n", config.url));
+        json.append(String.format("  \"sessions\": %d,%n", config.sessions));
+        json.append(String.format("  \"rate\": %.1f,%n", config.rate));
+        json.append(String.format("  \"durationSeconds\": %d,%n", config.duration));
+        json.append(String.format("  \"mix\": \"%s\",%n", config.mixText));
+        json.append("  \"endpoints\": {");
+        boolean first = true;
+        for (Map.Entry<String, Histogram> entry : latencies.entrySet()) {
+            Histogram histogram = entry.getValue();
+            json.append(first ? "\n" : ",\n");
+            first = false;
+            json.append(String.format("    \"%s\": {\"requests\": %d, \"errors\": %d, \"throughput\": %.2f, \"latencyMs\": {",
+                    entry.getKey(), histogram.count(), errors.get(entry.getKey()),
+                    histogram.count() / (double) config.duration));
+            for (double percentile : PERCENTILES) {
+                json.append(String.format("\"p%s\": %.3f, ", percentile == (int) percentile
+                        ? String.valueOf((int) percentile) : String.valueOf(percentile),
+                        histogram.percentile(percentile) / 1000.0));
+            }
+            json.append(String.format("\"max\": %.3f}}", histogram.max() / 1000.0));
+        }
+        json.append("\n  }\n}\n");
+        return json.toString();
+    }
+}
@@ -0,0 +1,244 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * An in-memory H2 database in MySQL mode standing in for the real database.
+ * Tables come from sql_files/database_setup.sql so benchmarks always run
+ * against the app's schema. Rows are generated from a fixed seed so every
+ * run sees the same data.
+ *
+ * Queries still go through JDBC and a Hikari pool like in the app, but there
+ * is no network round trip. Numbers measure the Java side of each hot path,
+ * compare them between commits rather than with production latencies.
+ */
+public class BenchmarkDatabase implements AutoCloseable {
+
+    private static final AtomicInteger databaseCount = new AtomicInteger();
+
+    private final HikariDataSource pool;
+    private final DataSource dataSource;
+
+    /**
+     * Creates and fills a new database.
+     *
+     * @param users Number of users.
+     * @param followsPerUser Number of users each user follows.
+     * @param postsPerUser Number of posts each user wrote.
+     */
+    public BenchmarkDatabase(int users, int followsPerUser, int postsPerUser) throws SQLException, IOException {
+        HikariConfig config = new HikariConfig();
+        // USER is a keyword in H2, MySQL lets the app use it as a table name.
+        config.setJdbcUrl("jdbc:h2:mem:bench" + databaseCount.incrementAndGet()
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1");
+        config.setMaximumPoolSize(32);
+        this.pool = new HikariDataSource(config);
+        this.dataSource = ignoreStreamingFetchSize(pool);
+
+        try (Connection conn = pool.getConnection()) {
+            createTables(conn);
+            fill(conn, users, followsPerUser, postsPerUser);
+        }
+    }
+
+    /**
+     * Returns the data source services should be constructed with.
+     */
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+
+    /**
+     * Runs the CREATE TABLE statements of database_setup.sql.
+     * The sample rows and the MySQL only statements are skipped.
+     */
+    private static void createTables(Connection conn) throws SQLException, IOException {
+        String script;
+        try (InputStream in = BenchmarkDatabase.class.getResourceAsStream("/database_setup.sql")) {
+            if (in == null) {
+                throw new IOException("database_setup.sql is not on the classpath.");
+            }
+            script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : script.split(";")) {
+                String statement = sql.replaceAll("(?m)^\\s*--.*$", "").trim();
+                if (statement.startsWith("CREATE TABLE")) {
+                    stmt.execute(statement);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds users, follows, posts with hashtags, hearts, bookmarks and comments.
+     * User 1 is the viewer used by the benchmarks.
+     */
+    private static void fill(Connection conn, int users, int followsPerUser, int postsPerUser)
+            throws SQLException {
+        Random random = new Random(4370);
+        conn.setAutoCommit(false);
+
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "INSERT INTO user (userId, username, password, firstName, lastName) VALUES (?, ?, ?, ?, ?)")) {
+            for (int userId = 1; userId <= users; userId++) {
+                pstmt.setInt(1, userId);
+                pstmt.setString(2, "user" + userId);
+                pstmt.setString(3, "$2a$10$eIupKX/NgHShRW8lsmQg4uahoopBBU0WXVTL/CS0NOcUytAs9h30S");
+                pstmt.setString(4, "First" + userId);
+                pstmt.setString(5, "Last" + userId);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "INSERT INTO follow (followerUserId, followeeUserId) VALUES (?, ?)")) {
+            for (int userId = 1; userId <= users; userId++) {
+                for (int i = 1; i <= Math.min(followsPerUser, users - 1); i++) {
+                    pstmt.setInt(1, userId);
+                    pstmt.setInt(2, (userId + i - 1) % users + 1);
+                    pstmt.addBatch();
+                }
+            }
+            pstmt.executeBatch();
+        }
+
+        long now = System.currentTimeMillis();
+        int posts = users * postsPerUser;
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "INSERT INTO post (postId, userId, postDate, postText) VALUES (?, ?, ?, ?)")) {
+            for (int postId = 1; postId <= posts; postId++) {
+                pstmt.setInt(1, postId);
+                pstmt.setInt(2, (postId - 1) % users + 1);
+                pstmt.setTimestamp(3, new Timestamp(now - postId * 60_000L));
+                pstmt.setString(4, postText(random));
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+
+        try (PreparedStatement hearts = conn.prepareStatement(
+                    "INSERT INTO heart (postId, userId) VALUES (?, ?)");
+             PreparedStatement bookmarks = conn.prepareStatement(
+                    "INSERT INTO bookmark (postId, userId) VALUES (?, ?)");
+             PreparedStatement comments = conn.prepareStatement(
+                    "INSERT INTO comment (postId, userId, commentDate, commentText) VALUES (?, ?, ?, ?)")) {
+            for (int postId = 1; postId <= posts; postId++) {
+                int heartCount = random.nextInt(Math.min(users, 8));
+                for (int i = 0; i < heartCount; i++) {
+                    hearts.setInt(1, postId);
+                    hearts.setInt(2, (postId + i) % users + 1);
+                    hearts.addBatch();
+                }
+                if (random.nextInt(4) == 0) {
+                    bookmarks.setInt(1, postId);
+                    bookmarks.setInt(2, 1);
+                    bookmarks.addBatch();
+                }
+                int commentCount = random.nextInt(4);
+                for (int i = 0; i < commentCount; i++) {
+                    comments.setInt(1, postId);
+                    comments.setInt(2, random.nextInt(users) + 1);
+                    comments.setTimestamp(3, new Timestamp(now));
+                    comments.setString(4, "comment " + i);
+                    comments.addBatch();
+                }
+            }
+            hearts.executeBatch();
+            bookmarks.executeBatch();
+            comments.executeBatch();
+        }
+
+        conn.commit();
+        conn.setAutoCommit(true);
+    }
+
+    /**
+     * Returns a post text with a few words and hashtags.
+     */
+    public static String postText(Random random) {
+        StringBuilder text = new StringBuilder();
+        int words = 5 + random.nextInt(20);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            if (random.nextInt(6) == 0) {
+                text.append("#tag").append(random.nextInt(50));
+            } else {
+                text.append("word").append(random.nextInt(1000));
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * The services ask MySQL to stream rows with a fetch size of
+     * Integer.MIN_VALUE. H2 rejects negative fetch sizes, so this wraps the
+     * pool and drops those calls. H2 reads results lazily on its own.
+     */
+    private static DataSource ignoreStreamingFetchSize(DataSource target) {
+        return proxy(DataSource.class, target, (method, args, result) -> {
+            if (result instanceof Connection) {
+                return proxy(Connection.class, (Connection) result, (m, a, r) -> {
+                    if (r instanceof PreparedStatement) {
+                        return proxy(PreparedStatement.class, (PreparedStatement) r, null);
+                    }
+                    return r;
+                });
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Maps the result of a call on a proxied JDBC object.
+     */
+    private interface ResultMapper {
+        Object map(java.lang.reflect.Method method, Object[] args, Object result);
+    }
+
+    private static <T> T proxy(Class<T> type, T target, ResultMapper mapper) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getName().equals("setFetchSize") && (int) args[0] < 0) {
+                return null;
+            }
+            try {
+                Object result = method.invoke(target, args);
+                return mapper == null ? result : mapper.map(method, args, result);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return type.cast(Proxy.newProxyInstance(BenchmarkDatabase.class.getClassLoader(),
+                new Class<?>[] { type }, handler));
+    }
+}
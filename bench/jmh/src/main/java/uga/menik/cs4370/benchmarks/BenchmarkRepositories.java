@@ -0,0 +1,129 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+
+import javax.sql.DataSource;
+
+import uga.menik.cs4370.components.ExistenceFilters;
+import uga.menik.cs4370.components.HashtagAutocomplete;
+import uga.menik.cs4370.components.MetricsRegistry;
+import uga.menik.cs4370.components.PeopleSearchIndex;
+import uga.menik.cs4370.components.PostFragmentCache;
+import uga.menik.cs4370.config.ShardMap;
+import uga.menik.cs4370.repositories.jdbc.HotDataCache;
+import uga.menik.cs4370.repositories.jdbc.JdbcBookmarkRepository;
+import uga.menik.cs4370.repositories.jdbc.JdbcCommentRepository;
+import uga.menik.cs4370.repositories.jdbc.JdbcFollowRepository;
+import uga.menik.cs4370.repositories.jdbc.JdbcHashtagRepository;
+import uga.menik.cs4370.repositories.jdbc.JdbcHeartRepository;
+import uga.menik.cs4370.repositories.jdbc.JdbcPostRepository;
+import uga.menik.cs4370.repositories.jdbc.JdbcUserRepository;
+import uga.menik.cs4370.repositories.jdbc.PostArchive;
+import uga.menik.cs4370.repositories.jdbc.ShardRouter;
+import uga.menik.cs4370.services.PostHydrator;
+import uga.menik.cs4370.services.PostService;
+
+/**
+ * The JDBC repositories over a BenchmarkDatabase, wired the way Spring wires
+ * them for an unsharded app. The database is both primary and read replica.
+ */
+public class BenchmarkRepositories {
+
+    private final JdbcUserRepository userRepository;
+    private final JdbcFollowRepository followRepository;
+    private final JdbcPostRepository postRepository;
+    private final JdbcHeartRepository heartRepository;
+    private final JdbcCommentRepository commentRepository;
+    private final JdbcBookmarkRepository bookmarkRepository;
+    private final JdbcHashtagRepository hashtagRepository;
+
+    /**
+     * @param database The database to read and write.
+     * @param executor Runs shard queries in parallel, may be null.
+     * @param metrics Receives the query metrics.
+     */
+    public BenchmarkRepositories(BenchmarkDatabase database, ExecutorService executor, MetricsRegistry metrics)
+            throws IOException {
+        DataSource dataSource = database.getDataSource();
+        ShardRouter shardRouter = new ShardRouter(ShardMap.single(dataSource, dataSource), executor, metrics, 2000);
+        // Benchmarks read only the post table.
+        PostArchive postArchive = new PostArchive("");
+        // The benchmarks measure the database queries, so the cache is off.
+        HotDataCache cache = new HotDataCache(false, 1, 0);
+        this.userRepository = new JdbcUserRepository(dataSource, dataSource, cache);
+        this.followRepository = new JdbcFollowRepository(dataSource, dataSource, cache);
+        this.postRepository = new JdbcPostRepository(dataSource, shardRouter, followRepository, postArchive, cache);
+        this.heartRepository = new JdbcHeartRepository(shardRouter, cache);
+        this.commentRepository = new JdbcCommentRepository(shardRouter);
+        this.bookmarkRepository = new JdbcBookmarkRepository(shardRouter, cache);
+        this.hashtagRepository = new JdbcHashtagRepository(shardRouter, postArchive, cache);
+    }
+
+    /**
+     * Creates a PostHydrator over these repositories with batches of 50.
+     */
+    public PostHydrator newPostHydrator(ExecutorService executor, MetricsRegistry metrics, boolean enabled,
+            long deadlineMillis, int maxConcurrentLookups) {
+        return new PostHydrator(userRepository, postRepository, heartRepository, commentRepository,
+                bookmarkRepository, executor, metrics, enabled, deadlineMillis, 50, maxConcurrentLookups);
+    }
+
+    /**
+     * Creates a PostService over these repositories.
+     */
+    public PostService newPostService(PostFragmentCache postFragmentCache, PostHydrator postHydrator) {
+        return new PostService(postRepository, commentRepository, heartRepository, bookmarkRepository,
+                hashtagRepository, postFragmentCache, postHydrator, new HashtagAutocomplete(hashtagRepository, 0, 0, 10),
+                newExistenceFilters());
+    }
+
+    /**
+     * Creates a PeopleSearchIndex over these repositories without rebuilds.
+     * Call rebuild to index the users of the database.
+     */
+    public PeopleSearchIndex newPeopleSearchIndex() {
+        return new PeopleSearchIndex(userRepository, followRepository, postRepository, 20, 30, 0);
+    }
+
+    /**
+     * Creates ExistenceFilters over these repositories without rebuilds,
+     * so nothing counts as missing and every lookup reads the database.
+     */
+    public ExistenceFilters newExistenceFilters() {
+        return new ExistenceFilters(userRepository, postRepository, 0.01, 0);
+    }
+
+    public JdbcUserRepository getUserRepository() {
+        return userRepository;
+    }
+
+    public JdbcFollowRepository getFollowRepository() {
+        return followRepository;
+    }
+
+    public JdbcPostRepository getPostRepository() {
+        return postRepository;
+    }
+
+    public JdbcHeartRepository getHeartRepository() {
+        return heartRepository;
+    }
+
+    public JdbcCommentRepository getCommentRepository() {
+        return commentRepository;
+    }
+
+    public JdbcBookmarkRepository getBookmarkRepository() {
+        return bookmarkRepository;
+    }
+
+    public JdbcHashtagRepository getHashtagRepository() {
+        return hashtagRepository;
+    }
+}
@@ -0,0 +1,32 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.benchmarks;
+
+import java.io.IOException;
+
+import org.springframework.boot.autoconfigure.mustache.MustacheResourceTemplateLoader;
+
+import com.samskivert.mustache.Mustache;
+
+import uga.menik.cs4370.components.AssetManifest;
+import uga.menik.cs4370.config.MustacheConfig;
+
+/**
+ * Builds the Mustache compiler the app uses, without starting Spring.
+ */
+public final class BenchmarkTemplates {
+
+    private BenchmarkTemplates() {
+    }
+
+    /**
+     * Returns a compiler that loads the app's templates from the classpath.
+     */
+    public static Mustache.Compiler compiler() throws IOException {
+        MustacheResourceTemplateLoader loader = new MustacheResourceTemplateLoader("classpath:/templates/", ".mustache");
+        return new MustacheConfig().mustacheCompiler(loader, new AssetManifest());
+    }
+}
@@ -0,0 +1,81 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.benchmarks;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parses a MySQL DATETIME string and formats it for display, once per row
+ * like the services do. perRowSimpleDateFormat is what the services do today,
+ * the other two are candidates to replace it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateFormatBenchmark {
+
+    private static final DateTimeFormatter INPUT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter OUTPUT = DateTimeFormatter.ofPattern("MMM dd, yyyy, hh:mm a", Locale.getDefault());
+
+    private final String[] dates = new String[1024];
+    private final SimpleDateFormat sharedInput = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    private final SimpleDateFormat sharedOutput = new SimpleDateFormat("MMM dd, yyyy, hh:mm a");
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(4370);
+        for (int i = 0; i < dates.length; i++) {
+            dates[i] = String.format("2024-%02d-%02d %02d:%02d:%02d", 1 + random.nextInt(12),
+                    1 + random.nextInt(28), random.nextInt(24), random.nextInt(60), random.nextInt(60));
+        }
+    }
+
+    private String nextDate() {
+        next = (next + 1) & (dates.length - 1);
+        return dates[next];
+    }
+
+    @Benchmark
+    public String perRowSimpleDateFormat() throws ParseException {
+        SimpleDateFormat inputFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        SimpleDateFormat outputFormat = new SimpleDateFormat("MMM dd, yyyy, hh:mm a");
+        Date postDate = inputFormat.parse(nextDate());
+        return outputFormat.format(postDate);
+    }
+
+    @Benchmark
+    public String sharedSimpleDateFormat() throws ParseException {
+        return sharedOutput.format(sharedInput.parse(nextDate()));
+    }
+
+    @Benchmark
+    public void dateTimeFormatter(Blackhole blackhole) {
+        blackhole.consume(OUTPUT.format(LocalDateTime.parse(nextDate(), INPUT)));
+    }
+}
@@ -0,0 +1,81 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uga.menik.cs4370.components.MetricsRegistry;
+import uga.menik.cs4370.components.PostFragmentCache;
+import uga.menik.cs4370.models.Post;
+import uga.menik.cs4370.models.User;
+import uga.menik.cs4370.services.PostHydrator;
+import uga.menik.cs4370.services.PostService;
+import uga.menik.cs4370.services.UserService;
+
+/**
+ * Assembles the home feed of a user who follows 50 users with 10 posts each.
+ * hydration=false runs the batched lookups of PostHydrator one after the other,
+ * hydration=true runs them in parallel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FeedHydrationBenchmark {
+
+    @Param({ "false", "true" })
+    public boolean hydration;
+
+    private BenchmarkDatabase database;
+    private ExecutorService executor;
+    private PostService postService;
+    private UserService userService;
+    private User viewer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = new BenchmarkDatabase(200, 50, 10);
+        executor = Executors.newFixedThreadPool(16);
+        MetricsRegistry metrics = new MetricsRegistry();
+        BenchmarkRepositories repositories = new BenchmarkRepositories(database, executor, metrics);
+        PostHydrator postHydrator = repositories.newPostHydrator(executor, metrics, hydration, 1000, 32);
+        PostFragmentCache postFragmentCache = new PostFragmentCache(BenchmarkTemplates.compiler(), 10000);
+        postService = repositories.newPostService(postFragmentCache, postHydrator);
+        userService = new UserService(repositories.getUserRepository(), repositories.newPeopleSearchIndex(),
+                repositories.newExistenceFilters());
+        viewer = new User("1", "First1", "Last1");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdown();
+        database.close();
+    }
+
+    @Benchmark
+    public List<Post> followingPosts() {
+        return postService.getFollowingPosts(viewer, userService);
+    }
+}
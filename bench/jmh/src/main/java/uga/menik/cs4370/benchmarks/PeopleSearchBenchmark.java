@@ -0,0 +1,104 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.benchmarks;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uga.menik.cs4370.components.PeopleSearchIndex;
+import uga.menik.cs4370.repositories.memory.InMemoryDatabase;
+import uga.menik.cs4370.repositories.memory.InMemoryFollowRepository;
+import uga.menik.cs4370.repositories.memory.InMemoryPostRepository;
+import uga.menik.cs4370.repositories.memory.InMemoryUserRepository;
+
+/**
+ * Finds the first page of people for searches of different kinds: a single
+ * letter, a name start, a full name and a misspelled name.
+ *
+ * Users get common first and last names, so every name is shared by many
+ * users, and a few users have most of the followers. The data is in the
+ * in-memory engine because H2 takes minutes to load millions of users.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = { "-Xmx3g" })
+public class PeopleSearchBenchmark {
+
+    private static final String[] FIRST_NAMES = { "james", "mary", "robert", "patricia", "john", "jennifer",
+            "michael", "linda", "david", "elizabeth", "william", "barbara", "richard", "susan", "joseph", "jessica",
+            "thomas", "sarah", "charles", "karen", "christopher", "lisa", "daniel", "nancy", "matthew", "betty",
+            "anthony", "margaret", "mark", "sandra", "donald", "ashley", "steven", "kimberly", "paul", "emily",
+            "andrew", "donna", "joshua", "michelle", "kenneth", "carol", "kevin", "amanda", "brian", "dorothy",
+            "george", "melissa", "timothy", "deborah" };
+    private static final String[] LAST_NAMES = { "smith", "johnson", "williams", "brown", "jones", "garcia",
+            "miller", "davis", "rodriguez", "martinez", "hernandez", "lopez", "gonzalez", "wilson", "anderson",
+            "thomas", "taylor", "moore", "jackson", "martin", "lee", "perez", "thompson", "white", "harris",
+            "sanchez", "clark", "ramirez", "lewis", "robinson", "walker", "young", "allen", "king", "wright",
+            "scott", "torres", "nguyen", "hill", "flores", "green", "adams", "nelson", "baker", "hall", "rivera",
+            "campbell", "mitchell", "carter", "roberts" };
+
+    @Param({ "1000000" })
+    public int users;
+
+    @Param({ "m", "mar", "mary garcia", "micheal", "jennifer rodrigues", "zzzz" })
+    public String query;
+
+    private PeopleSearchIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Random random = new Random(4370);
+        InMemoryDatabase database = new InMemoryDatabase("", false, 0);
+        InMemoryUserRepository userRepository = new InMemoryUserRepository(database);
+        InMemoryFollowRepository followRepository = new InMemoryFollowRepository(database);
+        InMemoryPostRepository postRepository = new InMemoryPostRepository(database);
+        for (int user = 1; user <= users; user++) {
+            String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+            String lastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            userRepository.insert(firstName + "." + lastName + user, "", capitalize(firstName),
+                    capitalize(lastName));
+        }
+        for (int user = 1; user <= users; user++) {
+            for (int i = 0; i < 3; i++) {
+                // Cubing skews the follows towards the first users.
+                double r = random.nextDouble();
+                followRepository.add(Integer.toString(user), Integer.toString(1 + (int) (users * r * r * r)));
+            }
+            if (random.nextInt(10) == 0) {
+                postRepository.insert(Integer.toString(user), "Benchmark post");
+            }
+        }
+        index = new PeopleSearchIndex(userRepository, followRepository, postRepository, 20, 30, 0);
+        index.rebuild();
+    }
+
+    @Benchmark
+    public List<String> firstPage() {
+        // One more than a page, like the people page asks for.
+        return index.search(query, "1", 0, 21);
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+}
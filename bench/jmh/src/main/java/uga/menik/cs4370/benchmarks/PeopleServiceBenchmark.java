@@ -0,0 +1,69 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uga.menik.cs4370.components.MetricsRegistry;
+import uga.menik.cs4370.models.FollowableUser;
+import uga.menik.cs4370.services.PeopleService;
+
+/**
+ * Builds the people page list: every other user with their follow status
+ * and last active date.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PeopleServiceBenchmark {
+
+    @Param({ "200" })
+    public int users;
+
+    private BenchmarkDatabase database;
+    private PeopleService peopleService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = new BenchmarkDatabase(users, 20, 5);
+        BenchmarkRepositories repositories = new BenchmarkRepositories(database, null, new MetricsRegistry());
+        peopleService = new PeopleService(repositories.getUserRepository(), repositories.getFollowRepository(),
+                repositories.getPostRepository(), repositories.newPeopleSearchIndex());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<FollowableUser> followableUsers() {
+        return peopleService.getFollowableUsers("1");
+    }
+
+    @Benchmark
+    public boolean isUserFollowed() {
+        return peopleService.isUserFollowed("1", "2");
+    }
+}
@@ -0,0 +1,81 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.benchmarks;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.samskivert.mustache.Mustache;
+import com.samskivert.mustache.Template;
+
+import uga.menik.cs4370.components.MetricsRegistry;
+import uga.menik.cs4370.components.PostFragmentCache;
+import uga.menik.cs4370.models.Post;
+import uga.menik.cs4370.models.User;
+import uga.menik.cs4370.services.PostHydrator;
+import uga.menik.cs4370.services.PostService;
+import uga.menik.cs4370.services.UserService;
+
+/**
+ * Renders fragments/posts_container for a 500 post feed, once by running
+ * the post partial for every post and once through PostFragmentCache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PostsContainerRenderBenchmark {
+
+    private Template postsContainer;
+    private PostFragmentCache postFragmentCache;
+    private List<Post> posts;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Mustache.Compiler compiler = BenchmarkTemplates.compiler();
+        postsContainer = compiler.loadTemplate("fragments/posts_container");
+        postFragmentCache = new PostFragmentCache(compiler, 10000);
+        try (BenchmarkDatabase database = new BenchmarkDatabase(200, 50, 10)) {
+            MetricsRegistry metrics = new MetricsRegistry();
+            BenchmarkRepositories repositories = new BenchmarkRepositories(database, null, metrics);
+            PostHydrator postHydrator = repositories.newPostHydrator(null, metrics, false, 0, 1);
+            PostService postService = repositories.newPostService(postFragmentCache, postHydrator);
+            posts = postService.getFollowingPosts(new User("1", "First1", "Last1"),
+                    new UserService(repositories.getUserRepository(), repositories.newPeopleSearchIndex(),
+                            repositories.newExistenceFilters()));
+        }
+    }
+
+    @Benchmark
+    public String template() {
+        Map<String, Object> model = new HashMap<>();
+        model.put("posts", posts);
+        return postsContainer.execute(model);
+    }
+
+    @Benchmark
+    public String fragmentCache() {
+        Map<String, Object> model = new HashMap<>();
+        model.put("postsHtml", postFragmentCache.renderPosts(posts));
+        return postsContainer.execute(model);
+    }
+}
@@ -0,0 +1,85 @@
+#!/usr/bin/env bash
+# Compares time to first request of a plain start (App.main with defaults),
+# the fast-startup profile and the fast-startup profile with an AppCDS archive.
+#
+# Time to first request is measured from launching the JVM until /login
+# answers 200. The app does not need a database for that. Usage:
+#
+#   bench/startup.sh [runs] [extra app arguments...]
+#
+# The AppCDS archive is made by a training run of the app that serves its
+# first request and is then stopped. It is written to target/app-cds.jsa and
+# can be used to start the app the same way, see FAST STARTUP in README.md.
+# Results are printed and also written to bench/results/startup-<timestamp>.txt.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+RUNS="${1:-5}"
+shift || true
+PORT="${BENCH_PORT:-8092}"
+ARCHIVE="target/app-cds.jsa"
+RESULTS="bench/results/startup-$(date +%Y%m%d-%H%M%S).txt"
+
+mkdir -p bench/results
+# Class data sharing only archives classes loaded from jar files.
+mvn -B -q package -DskipTests
+mvn -B -q dependency:build-classpath -Dmdep.outputFile=target/classpath.txt
+JAR="$(ls target/dr-meniks-web-starter-*.jar | head -1)"
+CLASSPATH="$JAR:$(cat target/classpath.txt)"
+
+# Starts the app with the given JVM options, separated from app options by --,
+# and prints the milliseconds until /login answered 200.
+time_to_first_request() {
+    local jvm=()
+    while [ "$1" != "--" ]; do
+        jvm+=("$1")
+        shift
+    done
+    shift
+    local start
+    start=$(date +%s%N)
+    java "${jvm[@]}" -cp "$CLASSPATH" uga.menik.cs4370.App \
+        --server.port="$PORT" "$@" > target/bench-startup.log 2>&1 &
+    local app=$!
+    trap 'kill $app 2>/dev/null || true' EXIT
+    until [ "$(curl -s -o /dev/null -w '%{http_code}' "http://localhost:$PORT/login")" = "200" ]; do
+        if ! kill -0 "$app" 2>/dev/null; then
+            echo "The app exited, see target/bench-startup.log" >&2
+            exit 1
+        fi
+        sleep 0.02
+    done
+    local end
+    end=$(date +%s%N)
+    # Stopped normally so a training run writes its archive.
+    kill "$app"
+    wait "$app" 2>/dev/null || true
+    trap - EXIT
+    echo $(( (end - start) / 1000000 ))
+}
+
+# Runs a mode RUNS times and prints the median and the fastest run.
+run() {
+    local mode="$1"
+    shift
+    local times=()
+    for _ in $(seq 1 "$RUNS"); do
+        times+=("$(time_to_first_request "$@")")
+    done
+    local sorted
+    sorted=$(printf '%s\n' "${times[@]}" | sort -n)
+    printf '%-28s median %6d ms   min %6d ms   (%s)\n' "$mode" \
+        "$(echo "$sorted" | sed -n "$(( (RUNS + 1) / 2 ))p")" "$(echo "$sorted" | head -1)" \
+        "$(echo "${times[@]}")" | tee -a "$RESULTS"
+}
+
+java -version 2>&1 | head -1 | tee "$RESULTS"
+echo "Training run for $ARCHIVE" | tee -a "$RESULTS"
+rm -f "$ARCHIVE"
+time_to_first_request -XX:ArchiveClassesAtExit="$ARCHIVE" -- --spring.profiles.active=fast-startup "$@" > /dev/null
+
+run "baseline" -- "$@"
+run "fast-startup" -- --spring.profiles.active=fast-startup "$@"
+run "fast-startup + AppCDS" -XX:SharedArchiveFile="$ARCHIVE" -- --spring.profiles.active=fast-startup "$@"
+echo "Results written to $RESULTS"
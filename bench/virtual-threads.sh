@@ -0,0 +1,54 @@
+#!/usr/bin/env bash
+# Compares throughput and latency of / with platform threads and virtual threads.
+#
+# Needs Java 21 (for virtual threads), a MySQL set up with sql_files/database_setup.sql
+# and a user to log in with. Usage:
+#
+#   BENCH_USER=danand BENCH_PASSWORD=secret bench/virtual-threads.sh [clients] [seconds]
+#
+# Both runs use the same build, data, client count and duration. Results are printed
+# and also written to bench/results/virtual-threads-<timestamp>.txt.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+CLIENTS="${1:-200}"
+SECONDS_PER_RUN="${2:-30}"
+PORT="${BENCH_PORT:-8091}"
+USER_NAME="${BENCH_USER:-danand}"
+USER_PASSWORD="${BENCH_PASSWORD:?set BENCH_PASSWORD to the password of BENCH_USER}"
+RESULTS="bench/results/virtual-threads-$(date +%Y%m%d-%H%M%S).txt"
+
+mkdir -p bench/results
+mvn -B -q process-classes
+mvn -B -q dependency:build-classpath -Dmdep.outputFile=target/classpath.txt
+CLASSPATH="target/classes:$(cat target/classpath.txt)"
+
+run() {
+    local mode="$1"
+    local virtual="$2"
+    java -cp "$CLASSPATH" uga.menik.cs4370.App \
+        --server.port="$PORT" \
+        --app.threads.virtual.enabled="$virtual" > "target/bench-$mode.log" 2>&1 &
+    local app=$!
+    trap 'kill $app 2>/dev/null || true' EXIT
+
+    # Wait for the app to accept connections.
+    for _ in $(seq 1 60); do
+        curl -s -o /dev/null "http://localhost:$PORT/login" && break
+        sleep 1
+    done
+
+    echo "== $mode threads" | tee -a "$RESULTS"
+    java bench/HomePageBenchmark.java "http://localhost:$PORT" "$USER_NAME" "$USER_PASSWORD" \
+        "$CLIENTS" "$SECONDS_PER_RUN" | tee -a "$RESULTS"
+
+    kill "$app"
+    wait "$app" 2>/dev/null || true
+    trap - EXIT
+}
+
+java -version 2>&1 | head -1 | tee "$RESULTS"
+run platform false
+run virtual true
+echo "Results written to $RESULTS"
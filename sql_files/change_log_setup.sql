@@ -0,0 +1,63 @@
+-- Prepares a database for the hot data cache, see app.cache.hot-data.enabled.
+-- Run it on the main database and on every shard listed in
+-- app.sharding.shards. The triggers record which rows changed so every app
+-- instance can drop them from its cache, whoever changed them. instanceId
+-- is the @app_instance_id session variable app connections set, see
+-- HotDataCache.INSTANCE_ID, and NULL for changes made outside the app.
+-- Each trigger is a single statement, so no DELIMITER is needed.
+
+CREATE TABLE IF NOT EXISTS change_log (
+    changeId BIGINT AUTO_INCREMENT PRIMARY KEY,
+    tableName VARCHAR(32) NOT NULL,
+    rowKey VARCHAR(255) NOT NULL,
+    instanceId CHAR(36) NULL,
+    changedAt TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    INDEX (changedAt)
+);
+-- For a change_log table created before instanceId existed:
+-- ALTER TABLE change_log ADD COLUMN instanceId CHAR(36) NULL AFTER rowKey;
+
+DROP TRIGGER IF EXISTS user_change_insert;
+CREATE TRIGGER user_change_insert AFTER INSERT ON user FOR EACH ROW
+    INSERT INTO change_log (tableName, rowKey, instanceId) VALUES ('user', NEW.userId, @app_instance_id);
+DROP TRIGGER IF EXISTS user_change_update;
+CREATE TRIGGER user_change_update AFTER UPDATE ON user FOR EACH ROW
+    INSERT INTO change_log (tableName, rowKey, instanceId) VALUES ('user', NEW.userId, @app_instance_id);
+DROP TRIGGER IF EXISTS user_change_delete;
+CREATE TRIGGER user_change_delete AFTER DELETE ON user FOR EACH ROW
+    INSERT INTO change_log (tableName, rowKey, instanceId) VALUES ('user', OLD.userId, @app_instance_id);
+
+DROP TRIGGER IF EXISTS follow_change_insert;
+CREATE TRIGGER follow_change_insert AFTER INSERT ON follow FOR EACH ROW
+    INSERT INTO change_log (tableName, rowKey, instanceId) VALUES ('follow', NEW.followerUserId, @app_instance_id);
+DROP TRIGGER IF EXISTS follow_change_delete;
+CREATE TRIGGER follow_change_delete AFTER DELETE ON follow FOR EACH ROW
+    INSERT INTO change_log (tableName, rowKey, instanceId) VALUES ('follow', OLD.followerUserId, @app_instance_id);
+
+DROP TRIGGER IF EXISTS post_change_insert;
+CREATE TRIGGER post_change_insert AFTER INSERT ON post FOR EACH ROW
+    INSERT INTO change_log (tableName, rowKey, instanceId) VALUES ('post', NEW.userId, @app_instance_id);
+DROP TRIGGER IF EXISTS post_change_delete;
+CREATE TRIGGER post_change_delete AFTER DELETE ON post FOR EACH ROW
+    INSERT INTO change_log (tableName, rowKey, instanceId) VALUES ('post', OLD.userId, @app_instance_id);
+
+DROP TRIGGER IF EXISTS hashtag_change_insert;
+CREATE TRIGGER hashtag_change_insert AFTER INSERT ON hashtag FOR EACH ROW
+    INSERT INTO change_log (tableName, rowKey, instanceId) VALUES ('hashtag', NEW.hashTag, @app_instance_id);
+DROP TRIGGER IF EXISTS hashtag_change_delete;
+CREATE TRIGGER hashtag_change_delete AFTER DELETE ON hashtag FOR EACH ROW
+    INSERT INTO change_log (tableName, rowKey, instanceId) VALUES ('hashtag', OLD.hashTag, @app_instance_id);
+
+DROP TRIGGER IF EXISTS heart_change_insert;
+CREATE TRIGGER heart_change_insert AFTER INSERT ON heart FOR EACH ROW
+    INSERT INTO change_log (tableName, rowKey, instanceId) VALUES ('heart', NEW.userId, @app_instance_id);
+DROP TRIGGER IF EXISTS heart_change_delete;
+CREATE TRIGGER heart_change_delete AFTER DELETE ON heart FOR EACH ROW
+    INSERT INTO change_log (tableName, rowKey, instanceId) VALUES ('heart', OLD.userId, @app_instance_id);
+
+DROP TRIGGER IF EXISTS bookmark_change_insert;
+CREATE TRIGGER bookmark_change_insert AFTER INSERT ON bookmark FOR EACH ROW
+    INSERT INTO change_log (tableName, rowKey, instanceId) VALUES ('bookmark', NEW.userId, @app_instance_id);
+DROP TRIGGER IF EXISTS bookmark_change_delete;
+CREATE TRIGGER bookmark_change_delete AFTER DELETE ON bookmark FOR EACH ROW
+    INSERT INTO change_log (tableName, rowKey, instanceId) VALUES ('bookmark', OLD.userId, @app_instance_id);
@@ -0,0 +1,11 @@
+-- Prepares a database for the post archive, see app.archive.dir. Run it on
+-- the main database, or on every shard listed in app.sharding.shards.
+-- Archived posts leave the post table but keep their comments, hearts,
+-- bookmarks and hashtags, so those tables can no longer reference post.
+-- The names are the ones MySQL gives the constraints in database_setup.sql
+-- and shard_setup.sql, the postId key is the first of each table.
+
+ALTER TABLE comment DROP FOREIGN KEY comment_ibfk_1;
+ALTER TABLE heart DROP FOREIGN KEY heart_ibfk_1;
+ALTER TABLE bookmark DROP FOREIGN KEY bookmark_ibfk_1;
+ALTER TABLE hashtag DROP FOREIGN KEY hashtag_ibfk_1;
@@ -0,0 +1,56 @@
+-- Creates the tables of one post shard. Run it on every database listed in
+-- app.sharding.shards. The user and follow tables stay in the main database
+-- from database_setup.sql, so userId columns here have no foreign keys.
+
+-- Create the database if it doesn't exist
+CREATE DATABASE IF NOT EXISTS cs4370_mb_shard;
+
+-- Use the created database
+USE cs4370_mb_shard;
+
+-- Create the post table
+CREATE TABLE IF NOT EXISTS post (
+    postId INT AUTO_INCREMENT PRIMARY KEY,
+    userId INT NOT NULL,
+    postDate DATETIME NOT NULL,
+    postText TEXT NOT NULL,
+    INDEX post_user_date (userId, postDate)
+);
+
+-- Create the comment table
+CREATE TABLE IF NOT EXISTS comment (
+    commentId INT AUTO_INCREMENT PRIMARY KEY,
+    postId INT NOT NULL,
+    userId INT NOT NULL,
+    commentDate DATETIME NOT NULL,
+    commentText TEXT NOT NULL,
+    FOREIGN KEY (postId) REFERENCES post(postId)
+);
+
+-- Create the heart table
+CREATE TABLE IF NOT EXISTS heart (
+    postId INT,
+    userId INT,
+    PRIMARY KEY (postId, userId),
+    -- Lets the hot data cache read all hearts of a user.
+    INDEX (userId),
+    FOREIGN KEY (postId) REFERENCES post(postId)
+);
+
+-- Create the bookmark table
+CREATE TABLE IF NOT EXISTS bookmark (
+    postId INT,
+    userId INT,
+    PRIMARY KEY (postId, userId),
+    -- Lets the hot data cache read all bookmarks of a user.
+    INDEX (userId),
+    FOREIGN KEY (postId) REFERENCES post(postId)
+);
+
+-- Create the hashtag table
+CREATE TABLE IF NOT EXISTS hashtag (
+    hashTag VARCHAR(255),
+    postId INT,
+    PRIMARY KEY (hashTag, postId),
+    FOREIGN KEY (postId) REFERENCES post(postId)
+);
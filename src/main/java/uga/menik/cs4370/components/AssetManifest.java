@@ -0,0 +1,69 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.components;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import com.samskivert.mustache.Mustache;
+
+/**
+ * This class maps static file paths like /css/styles.css to their
+ * fingerprinted copies like /assets/css/styles-1a2b3c4d5e.css.
+ * The mapping is produced at build time by utility/AssetPipeline.java.
+ * If the build step did not run, paths are returned unchanged.
+ *
+ * Templates use it through the asset lambda. See MustacheConfig.java.
+ * Example: {{#asset}}/css/styles.css{{/asset}}
+ */
+@Component
+public class AssetManifest {
+
+    // Original path to fingerprinted path.
+    private final Map<String, String> paths = new HashMap<>();
+
+    // Template helper that rewrites the path inside the section.
+    private final Mustache.Lambda lambda = (fragment, out) -> out.write(url(fragment.execute().trim()));
+
+    /**
+     * Loads asset-manifest.properties from the classpath if it exists.
+     */
+    public AssetManifest() throws IOException {
+        ClassPathResource manifest = new ClassPathResource("asset-manifest.properties");
+        if (manifest.exists()) {
+            Properties properties = new Properties();
+            try (InputStream in = manifest.getInputStream()) {
+                properties.load(in);
+            }
+            for (String path : properties.stringPropertyNames()) {
+                paths.put(path, properties.getProperty(path));
+            }
+        }
+    }
+
+    /**
+     * Returns the fingerprinted URL of a static file.
+     *
+     * @param path The path of the file, e.g. /css/styles.css.
+     * @return The fingerprinted path or the given path if there is none.
+     */
+    public String url(String path) {
+        return paths.getOrDefault(path, path);
+    }
+
+    /**
+     * Returns the mustache lambda that calls url on its content.
+     */
+    public Mustache.Lambda getLambda() {
+        return lambda;
+    }
+}
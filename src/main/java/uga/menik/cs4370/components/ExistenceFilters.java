@@ -0,0 +1,270 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.components;
+
+import java.io.Closeable;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import uga.menik.cs4370.repositories.PostRepository;
+import uga.menik.cs4370.repositories.UserRepository;
+import uga.menik.cs4370.utility.BloomFilter;
+
+/**
+ * This component answers whether a username, user or post certainly does
+ * not exist without asking the database. Profile and post pages requested
+ * for IDs that do not exist, e.g. by crawlers, and registrations with a
+ * taken username then cost no queries.
+ *
+ * Usernames, user IDs and post IDs are kept in Bloom filters built in the
+ * background from the user and post tables on startup and every
+ * app.existence-filter.rebuild-minutes. A filter can only answer "maybe"
+ * or "certainly not", and is only trusted where it is complete:
+ *
+ * - IDs are handed out in increasing order, so a user or post with an ID
+ *   well below the newest one read during the build was read too. Newer
+ *   IDs, from this or any other instance, are always "maybe".
+ * - Usernames have no order. Usernames registered through this instance
+ *   are added right away, but those registered through other instances are
+ *   missing until the next build. A "certainly not" for a username is only
+ *   a hint; the unique key on user.username stays the authority.
+ *
+ * Nothing is "certainly not" before the first build or with rebuilds off.
+ */
+@Component
+public class ExistenceFilters implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(ExistenceFilters.class);
+
+    // IDs this close to the newest one read may belong to rows committed
+    // after the build read the table, e.g. by a slow transaction.
+    private static final long IN_FLIGHT_IDS = 1_000;
+    // Headroom for usernames registered through this instance between builds.
+    private static final int MIN_USERNAMES = 1_024;
+
+    private final UserRepository userRepository;
+    private final PostRepository postRepository;
+    private final double falsePositiveRate;
+    // Rebuilds the filters, or null without rebuilds.
+    private final ScheduledExecutorService scheduler;
+
+    private volatile Filters filters = new Filters(null, null, -1, null, -1);
+    // Usernames registered while the filters are built, or null when they
+    // are not. Guarded by this.
+    private List<String> addedDuringBuild = null;
+
+    /**
+     * See AuthInterceptor notes regarding dependency injection and
+     * inversion of control.
+     */
+    @Autowired
+    public ExistenceFilters(UserRepository userRepository, PostRepository postRepository,
+            @Value("${app.existence-filter.false-positive-rate:0.01}") double falsePositiveRate,
+            @Value("${app.existence-filter.rebuild-minutes:10}") long rebuildMinutes) {
+        this.userRepository = userRepository;
+        this.postRepository = postRepository;
+        this.falsePositiveRate = falsePositiveRate;
+        if (rebuildMinutes <= 0) {
+            this.scheduler = null;
+            return;
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "existence-filters");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::rebuild, 0, rebuildMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Returns true if no user has the given ID, false if one may have.
+     */
+    public boolean isUserMissing(String userId) {
+        Filters current = filters;
+        return isMissing(current.userIds, current.userIdsUpTo, userId);
+    }
+
+    /**
+     * Returns true if no post has the given ID, false if one may have.
+     */
+    public boolean isPostMissing(String postId) {
+        Filters current = filters;
+        return isMissing(current.postIds, current.postIdsUpTo, postId);
+    }
+
+    /**
+     * Returns false if no user had the given username when the filters
+     * were built and none registered it through this instance since.
+     */
+    public boolean mightHaveUsername(String username) {
+        BloomFilter usernames = filters.usernames;
+        return usernames == null || usernames.mightContain(usernameKey(username));
+    }
+
+    /**
+     * Adds a username just registered through this instance.
+     */
+    public synchronized void addUsername(String username) {
+        String key = usernameKey(username);
+        if (filters.usernames != null) {
+            filters.usernames.add(key);
+        }
+        if (addedDuringBuild != null) {
+            addedDuringBuild.add(key);
+        }
+    }
+
+    /**
+     * Builds new filters from the user and post tables and swaps them in.
+     */
+    public void rebuild() {
+        long start = System.nanoTime();
+        synchronized (this) {
+            addedDuringBuild = new ArrayList<>();
+        }
+        try {
+            List<String> usernames = new ArrayList<>();
+            LongList userIds = new LongList();
+            userRepository.forEachUser(user -> {
+                usernames.add(usernameKey(user.getUsername()));
+                userIds.addIfNumber(user.getUserId());
+            });
+            LongList postIds = new LongList();
+            long postIdsUpTo = postRepository.forEachPostId(postIds::addIfNumber);
+
+            BloomFilter usernameFilter = new BloomFilter(
+                    usernames.size() + Math.max(MIN_USERNAMES, usernames.size() / 4), falsePositiveRate);
+            for (String username : usernames) {
+                usernameFilter.add(username);
+            }
+            Filters built = new Filters(usernameFilter, userIds.toFilter(falsePositiveRate), userIds.max,
+                    postIds.toFilter(falsePositiveRate), postIdsUpTo);
+            synchronized (this) {
+                for (String username : addedDuringBuild) {
+                    usernameFilter.add(username);
+                }
+                filters = built;
+            }
+            log.atInfo().addKeyValue("users", userIds.size)
+                    .addKeyValue("posts", postIds.size)
+                    .addKeyValue("bytes", built.sizeInBytes())
+                    .addKeyValue("millis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                    .log("Built existence filters");
+        } catch (SQLException e) {
+            // The old filters stay until the next rebuild works.
+            log.atWarn().setCause(e).log("Could not build existence filters");
+        } finally {
+            synchronized (this) {
+                addedDuringBuild = null;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns true if the filter certainly does not contain the ID.
+     * IDs that are not numbers may still match a row, MySQL compares
+     * '7abc' to an INT column as 7, so they are never missing.
+     */
+    private static boolean isMissing(BloomFilter filter, long upTo, String id) {
+        if (filter == null || id == null) {
+            return false;
+        }
+        long number;
+        try {
+            number = Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        if (number > upTo - IN_FLIGHT_IDS) {
+            return false;
+        }
+        return !filter.mightContain(Long.toString(number));
+    }
+
+    /**
+     * Usernames differing only in case are the same to MySQL.
+     */
+    private static String usernameKey(String username) {
+        return username == null ? "" : username.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The filters of one build. The username filter grows with
+     * registrations, the ID filters never change.
+     */
+    private static class Filters {
+        final BloomFilter usernames;
+        final BloomFilter userIds;
+        // Every user with an ID up to this one was read for the build.
+        final long userIdsUpTo;
+        final BloomFilter postIds;
+        // Every post with an ID up to this one was read for the build.
+        final long postIdsUpTo;
+
+        Filters(BloomFilter usernames, BloomFilter userIds, long userIdsUpTo,
+                BloomFilter postIds, long postIdsUpTo) {
+            this.usernames = usernames;
+            this.userIds = userIds;
+            this.userIdsUpTo = userIdsUpTo;
+            this.postIds = postIds;
+            this.postIdsUpTo = postIdsUpTo;
+        }
+
+        long sizeInBytes() {
+            return usernames.sizeInBytes() + userIds.sizeInBytes() + postIds.sizeInBytes();
+        }
+    }
+
+    /**
+     * A growing array of IDs, so millions of them are not kept as strings
+     * while the filters are built.
+     */
+    private static class LongList {
+        long[] values = new long[1024];
+        int size = 0;
+        long max = 0;
+
+        void addIfNumber(String id) {
+            long value;
+            try {
+                value = Long.parseLong(id);
+            } catch (NumberFormatException e) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+            max = Math.max(max, value);
+        }
+
+        BloomFilter toFilter(double falsePositiveRate) {
+            BloomFilter filter = new BloomFilter(size, falsePositiveRate);
+            for (int i = 0; i < size; i++) {
+                filter.add(Long.toString(values[i]));
+            }
+            return filter;
+        }
+    }
+}
@@ -0,0 +1,299 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.components;
+
+import java.io.Closeable;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import uga.menik.cs4370.repositories.HashtagRepository;
+
+/**
+ * This component suggests hashtags for what a user has typed so far.
+ *
+ * All hashtags are kept in a prefix trie in memory. Every node keeps the
+ * top few hashtags below it, ranked by how many posts used them in the last
+ * app.autocomplete.hashtags.recent-days, so a suggestion is one walk down
+ * the trie with no search below the prefix. Readers never lock. Writers
+ * replace a node's arrays instead of changing them.
+ *
+ * The trie is built from the hashtag table on startup, in the background,
+ * and rebuilt every app.autocomplete.hashtags.rebuild-minutes so old uses
+ * stop counting and hashtags used through other instances show up. Posts
+ * made through this instance are added right away. Hashtags are compared
+ * without regard to case, like the hashtag search does.
+ */
+@Component
+public class HashtagAutocomplete implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(HashtagAutocomplete.class);
+
+    // Dates are compared the way post.postDate is stored.
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final HashtagRepository hashtagRepository;
+    private final long recentDays;
+    private final int topK;
+    // Rebuilds the trie, or null without rebuilds.
+    private final ScheduledExecutorService scheduler;
+
+    private volatile Trie trie;
+    // Hashtags used while a rebuild runs, added to the new trie. Guarded by this.
+    private List<String> usedDuringRebuild;
+
+    /**
+     * See AuthInterceptor notes regarding dependency injection and
+     * inversion of control.
+     */
+    @Autowired
+    public HashtagAutocomplete(HashtagRepository hashtagRepository,
+            @Value("${app.autocomplete.hashtags.recent-days:30}") long recentDays,
+            @Value("${app.autocomplete.hashtags.rebuild-minutes:60}") long rebuildMinutes,
+            @Value("${app.autocomplete.hashtags.top-k:10}") int topK) {
+        this.hashtagRepository = hashtagRepository;
+        this.recentDays = recentDays;
+        this.topK = Math.max(1, topK);
+        this.trie = new Trie(this.topK);
+        if (rebuildMinutes <= 0) {
+            this.scheduler = null;
+            return;
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hashtag-autocomplete");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::rebuild, 0, rebuildMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Returns the most used hashtags starting with the given text, most used
+     * first. The # may be left out.
+     *
+     * @param prefix What the user typed so far.
+     * @param limit The most hashtags to return, at most app.autocomplete.hashtags.top-k.
+     */
+    public List<String> complete(String prefix, int limit) {
+        String key = prefix.trim().toLowerCase(Locale.ROOT);
+        if (!key.startsWith("#")) {
+            key = "#" + key;
+        }
+        Trie.Entry[] top = trie.top(key);
+        List<String> hashtags = new ArrayList<>(Math.min(limit, top.length));
+        for (int i = 0; i < top.length && i < limit; i++) {
+            hashtags.add(top[i].hashtag);
+        }
+        return hashtags;
+    }
+
+    /**
+     * Counts one more use of each hashtag, e.g. of a post just made.
+     */
+    public synchronized void record(Collection<String> hashtags) {
+        for (String hashtag : hashtags) {
+            String key = hashtag.toLowerCase(Locale.ROOT);
+            trie.add(key, 1);
+            if (usedDuringRebuild != null) {
+                usedDuringRebuild.add(key);
+            }
+        }
+    }
+
+    /**
+     * Builds a new trie from the hashtag table and swaps it in.
+     */
+    public void rebuild() {
+        long start = System.nanoTime();
+        synchronized (this) {
+            usedDuringRebuild = new ArrayList<>();
+        }
+        try {
+            String since = LocalDateTime.now().minusDays(recentDays).format(DATE_FORMAT);
+            Map<String, Long> uses = new HashMap<>();
+            hashtagRepository.forEachHashtagUsage(since,
+                    (hashtag, count) -> uses.merge(hashtag.toLowerCase(Locale.ROOT), (long) count, Long::sum));
+            Trie built = new Trie(topK);
+            for (Map.Entry<String, Long> hashtag : uses.entrySet()) {
+                built.add(hashtag.getKey(), hashtag.getValue());
+            }
+            synchronized (this) {
+                // Some of these may be counted in the table already, which
+                // only makes them a little more likely to be suggested.
+                for (String hashtag : usedDuringRebuild) {
+                    built.add(hashtag, 1);
+                }
+                trie = built;
+            }
+            log.atInfo().addKeyValue("hashtags", uses.size())
+                    .addKeyValue("millis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                    .log("Built hashtag autocomplete");
+        } catch (SQLException e) {
+            // The old trie stays until the next rebuild works.
+            log.atWarn().setCause(e).log("Could not build hashtag autocomplete");
+        } finally {
+            synchronized (this) {
+                usedDuringRebuild = null;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * A prefix trie of lower case hashtags where every node knows the
+     * topK most used hashtags below it. Uses only ever grow, so a hashtag
+     * whose count grows can only move up in, or into, a node's top list.
+     * add is not thread safe, top may run during add.
+     */
+    static class Trie {
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private static final Entry[] NO_ENTRIES = new Entry[0];
+
+        private final int topK;
+        private final Node root = new Node('\0');
+        // Uses of every hashtag.
+        private final Map<String, Long> uses = new HashMap<>();
+
+        Trie(int topK) {
+            this.topK = topK;
+        }
+
+        /**
+         * Returns the top hashtags starting with the prefix, best first.
+         */
+        Entry[] top(String prefix) {
+            Node node = root;
+            for (int i = 0; i < prefix.length() && node != null; i++) {
+                node = node.child(prefix.charAt(i));
+            }
+            return node == null ? NO_ENTRIES : node.top;
+        }
+
+        /**
+         * Adds uses to a hashtag, adding the hashtag if it is new.
+         */
+        void add(String hashtag, long count) {
+            Entry entry = new Entry(hashtag, uses.merge(hashtag, count, Long::sum));
+            Node node = root;
+            for (int i = 0; i < hashtag.length(); i++) {
+                node = node.childOrAdd(hashtag.charAt(i));
+                node.offer(entry, topK);
+            }
+        }
+
+        /**
+         * A hashtag and its uses.
+         */
+        static class Entry {
+            final String hashtag;
+            final long uses;
+
+            Entry(String hashtag, long uses) {
+                this.hashtag = hashtag;
+                this.uses = uses;
+            }
+
+            /**
+             * Most used first, then alphabetically.
+             */
+            boolean isBefore(Entry other) {
+                return uses != other.uses ? uses > other.uses : hashtag.compareTo(other.hashtag) < 0;
+            }
+        }
+
+        private static class Node {
+            final char c;
+            // Sorted by c, replaced as a whole when a child is added.
+            volatile Node[] children = NO_CHILDREN;
+            // Best first, replaced as a whole when it changes.
+            volatile Entry[] top = NO_ENTRIES;
+
+            Node(char c) {
+                this.c = c;
+            }
+
+            Node child(char c) {
+                Node[] nodes = children;
+                int low = 0;
+                int high = nodes.length - 1;
+                while (low <= high) {
+                    int middle = (low + high) >>> 1;
+                    char found = nodes[middle].c;
+                    if (found < c) {
+                        low = middle + 1;
+                    } else if (found > c) {
+                        high = middle - 1;
+                    } else {
+                        return nodes[middle];
+                    }
+                }
+                return null;
+            }
+
+            Node childOrAdd(char c) {
+                Node child = child(c);
+                if (child != null) {
+                    return child;
+                }
+                Node[] nodes = children;
+                int at = 0;
+                while (at < nodes.length && nodes[at].c < c) {
+                    at++;
+                }
+                Node[] grown = new Node[nodes.length + 1];
+                System.arraycopy(nodes, 0, grown, 0, at);
+                grown[at] = new Node(c);
+                System.arraycopy(nodes, at, grown, at + 1, nodes.length - at);
+                children = grown;
+                return grown[at];
+            }
+
+            /**
+             * Puts the entry in the top list if it belongs there, in place
+             * of an older entry of the same hashtag.
+             */
+            void offer(Entry entry, int topK) {
+                Entry[] current = top;
+                if (current.length == topK && !entry.isBefore(current[topK - 1])
+                        && !current[topK - 1].hashtag.equals(entry.hashtag)) {
+                    return;
+                }
+                List<Entry> entries = new ArrayList<>(Arrays.asList(current));
+                entries.removeIf(other -> other.hashtag.equals(entry.hashtag));
+                int at = 0;
+                while (at < entries.size() && entries.get(at).isBefore(entry)) {
+                    at++;
+                }
+                entries.add(at, entry);
+                if (entries.size() > topK) {
+                    entries.remove(topK);
+                }
+                top = entries.toArray(NO_ENTRIES);
+            }
+        }
+    }
+}
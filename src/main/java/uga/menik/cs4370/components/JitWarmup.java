@@ -0,0 +1,294 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.components;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.ModelAndView;
+
+import com.samskivert.mustache.Mustache;
+
+import jakarta.servlet.http.HttpServletResponse;
+import uga.menik.cs4370.controllers.HashtagSearchController;
+import uga.menik.cs4370.controllers.HomeController;
+import uga.menik.cs4370.controllers.PeopleController;
+import uga.menik.cs4370.controllers.PostController;
+import uga.menik.cs4370.repositories.memory.InMemoryBookmarkRepository;
+import uga.menik.cs4370.repositories.memory.InMemoryCommentRepository;
+import uga.menik.cs4370.repositories.memory.InMemoryDatabase;
+import uga.menik.cs4370.repositories.memory.InMemoryFollowRepository;
+import uga.menik.cs4370.repositories.memory.InMemoryHashtagRepository;
+import uga.menik.cs4370.repositories.memory.InMemoryHeartRepository;
+import uga.menik.cs4370.repositories.memory.InMemoryPostRepository;
+import uga.menik.cs4370.repositories.memory.InMemoryUserRepository;
+import uga.menik.cs4370.services.HashtagService;
+import uga.menik.cs4370.services.PeopleService;
+import uga.menik.cs4370.services.PostHydrator;
+import uga.menik.cs4370.services.PostService;
+import uga.menik.cs4370.services.UserService;
+
+/**
+ * This component warms up the JIT compiler before the app takes traffic.
+ *
+ * Right after a start every page runs in the interpreter, so the first
+ * requests of a new instance are slow. When app.warmup.enabled is set this
+ * renders the home, post, people and hashtag search pages over and over
+ * until the JIT compiler has little left to compile. The pages run through
+ * their own controller, service and hydrator instances over a throwaway
+ * in-memory database with synthetic data, so no real data is read or
+ * changed and no real cache is filled with synthetic posts. Settings such
+ * as streaming and parallel hydration are the app's, so the same code is
+ * compiled that real requests run.
+ *
+ * Spring Boot reports the app ready only after all ApplicationRunners are
+ * done, so /health/ready answers 503 until the warm-up is over. See
+ * HealthController.java. The warm-up time is exported in /metrics.
+ */
+@Component
+public class JitWarmup implements ApplicationRunner {
+    private static final Logger log = LoggerFactory.getLogger(JitWarmup.class);
+
+    // Size of the synthetic data set. Feeds are about as long as real ones.
+    private static final int USERS = 30;
+    private static final int FOLLOWS_PER_USER = 10;
+    private static final int POSTS_PER_USER = 8;
+    private static final String PASSWORD = "warmup";
+    // Every page is rendered this many times per round.
+    private static final int REQUESTS_PER_ROUND = 20;
+    // Rounds in a row that have to compile little before the warm-up stops.
+    private static final int SETTLED_ROUNDS = 3;
+
+    private final Mustache.Compiler compiler;
+    private final ExecutorService serviceExecutor;
+    private final MetricsRegistry metrics;
+    private final boolean enabled;
+    private final long maxMillis;
+    private final long settledCompileMillis;
+    private final boolean parallelHydration;
+    private final long hydrationDeadlineMillis;
+    private final int hydrationBatchSize;
+    private final boolean streaming;
+    private final int streamingChunkSize;
+
+    /**
+     * See AuthInterceptor notes regarding dependency injection and
+     * inversion of control.
+     */
+    @Autowired
+    public JitWarmup(Mustache.Compiler compiler,
+            @Qualifier("serviceExecutor") ExecutorService serviceExecutor,
+            MetricsRegistry metrics,
+            @Value("${app.warmup.enabled:false}") boolean enabled,
+            @Value("${app.warmup.max-seconds:30}") long maxSeconds,
+            @Value("${app.warmup.settled-compile-ms:5}") long settledCompileMillis,
+            @Value("${app.hydration.parallel.enabled:false}") boolean parallelHydration,
+            @Value("${app.hydration.deadline-ms:250}") long hydrationDeadlineMillis,
+            @Value("${app.hydration.batch-size:50}") int hydrationBatchSize,
+            @Value("${app.render.streaming.enabled:false}") boolean streaming,
+            @Value("${app.render.streaming.chunk-size:20}") int streamingChunkSize) {
+        this.compiler = compiler;
+        this.serviceExecutor = serviceExecutor;
+        this.metrics = metrics;
+        this.enabled = enabled;
+        this.maxMillis = TimeUnit.SECONDS.toMillis(maxSeconds);
+        this.settledCompileMillis = settledCompileMillis;
+        this.parallelHydration = parallelHydration;
+        this.hydrationDeadlineMillis = hydrationDeadlineMillis;
+        this.hydrationBatchSize = hydrationBatchSize;
+        this.streaming = streaming;
+        this.streamingChunkSize = streamingChunkSize;
+    }
+
+    /**
+     * Runs the warm-up. Called by Spring Boot once the context is up and
+     * before the app is reported ready.
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        try (InMemoryDatabase database = new InMemoryDatabase("", false, 0)) {
+            Pages pages = new Pages(database);
+            CompilationMXBean jit = ManagementFactory.getCompilationMXBean();
+            boolean canTell = jit != null && jit.isCompilationTimeMonitoringSupported();
+            long deadline = start + TimeUnit.MILLISECONDS.toNanos(maxMillis);
+            int rounds = 0;
+            int settled = 0;
+            long compileMillis = canTell ? jit.getTotalCompilationTime() : 0;
+            while (settled < SETTLED_ROUNDS && System.nanoTime() < deadline) {
+                for (int i = 0; i < REQUESTS_PER_ROUND; i++) {
+                    pages.renderAll();
+                }
+                rounds++;
+                if (canTell) {
+                    long total = jit.getTotalCompilationTime();
+                    settled = total - compileMillis < settledCompileMillis ? settled + 1 : 0;
+                    compileMillis = total;
+                }
+            }
+            long nanos = System.nanoTime() - start;
+            metrics.recordWarmup(nanos, rounds);
+            log.atInfo().addKeyValue("rounds", rounds)
+                    .addKeyValue("millis", TimeUnit.NANOSECONDS.toMillis(nanos))
+                    .addKeyValue("settled", settled >= SETTLED_ROUNDS)
+                    .log("JIT warm-up finished");
+        } catch (IOException | SQLException | RuntimeException e) {
+            // A failed warm-up only makes the first requests slower.
+            metrics.recordWarmup(System.nanoTime() - start, 0);
+            log.atWarn().setCause(e).log("JIT warm-up failed");
+        }
+    }
+
+    /**
+     * The pages to warm up, wired like the app wires them but over the
+     * synthetic data. Not Spring beans, so nothing else can use them.
+     */
+    private class Pages {
+        private final HomeController homeController;
+        private final PostController postController;
+        private final PeopleController peopleController;
+        private final HashtagSearchController hashtagSearchController;
+        private final HttpServletResponse response = discardingResponse();
+        private final List<String> hashtags = new ArrayList<>();
+
+        Pages(InMemoryDatabase database) throws SQLException {
+            InMemoryUserRepository userRepository = new InMemoryUserRepository(database);
+            InMemoryFollowRepository followRepository = new InMemoryFollowRepository(database);
+            InMemoryPostRepository postRepository = new InMemoryPostRepository(database);
+            InMemoryCommentRepository commentRepository = new InMemoryCommentRepository(database);
+            InMemoryHeartRepository heartRepository = new InMemoryHeartRepository(database);
+            InMemoryBookmarkRepository bookmarkRepository = new InMemoryBookmarkRepository(database);
+            InMemoryHashtagRepository hashtagRepository = new InMemoryHashtagRepository(database);
+
+            PostFragmentCache postFragmentCache = new PostFragmentCache(compiler, USERS * POSTS_PER_USER);
+            PostHydrator postHydrator = new PostHydrator(userRepository, postRepository, heartRepository,
+                    commentRepository, bookmarkRepository, serviceExecutor, metrics, parallelHydration,
+                    hydrationDeadlineMillis, hydrationBatchSize, Integer.MAX_VALUE);
+            // Without rebuilds it only knows the hashtags of the synthetic posts.
+            HashtagAutocomplete hashtagAutocomplete = new HashtagAutocomplete(hashtagRepository, 0, 0, 10);
+            // Without rebuilds nothing is missing, so every page reads the data.
+            ExistenceFilters existenceFilters = new ExistenceFilters(userRepository, postRepository, 0.01, 0);
+            PostService postService = new PostService(postRepository, commentRepository, heartRepository,
+                    bookmarkRepository, hashtagRepository, postFragmentCache, postHydrator, hashtagAutocomplete,
+                    existenceFilters);
+            // Without rebuilds it only knows the users registered below, until rebuild is called.
+            PeopleSearchIndex peopleSearchIndex = new PeopleSearchIndex(userRepository, followRepository,
+                    postRepository, 20, 30, 0);
+            PeopleService peopleService = new PeopleService(userRepository, followRepository, postRepository,
+                    peopleSearchIndex);
+            UserService userService = new UserService(userRepository, peopleSearchIndex, existenceFilters);
+            StreamingPageRenderer streamingPageRenderer = new StreamingPageRenderer(compiler, postFragmentCache,
+                    streaming, streamingChunkSize);
+
+            // Users, follows, posts with hashtags, hearts, bookmarks and comments.
+            for (int user = 1; user <= USERS; user++) {
+                userService.registerUser("warmup" + user, PASSWORD, "Warm" + user, "Up" + user);
+            }
+            for (int user = 1; user <= USERS; user++) {
+                for (int i = 1; i <= FOLLOWS_PER_USER; i++) {
+                    peopleService.followUser(Integer.toString(user), Integer.toString((user + i) % USERS + 1));
+                }
+            }
+            for (int user = 1; user <= USERS; user++) {
+                userService.authenticate("warmup" + user, PASSWORD);
+                for (int i = 0; i < POSTS_PER_USER; i++) {
+                    String hashtag = "#warmup" + (user * i % 7);
+                    if (!hashtags.contains(hashtag)) {
+                        hashtags.add(hashtag);
+                    }
+                    postService.addPost(userService.getLoggedInUser(), "Warming up post " + i + " " + hashtag);
+                }
+            }
+            int postCount = USERS * POSTS_PER_USER;
+            for (int post = 1; post <= postCount; post += 3) {
+                String postId = Integer.toString(post);
+                postService.addHeart(postId, userService.getLoggedInUser());
+                postService.addComment(postId, "Warming up comment", userService.getLoggedInUser());
+                if (post % 2 == 0) {
+                    postService.addBookmark(postId, userService.getLoggedInUser());
+                }
+            }
+
+            peopleSearchIndex.rebuild();
+
+            HashtagService hashtagService = new HashtagService(hashtagRepository, userService);
+            this.homeController = new HomeController(userService, postService, postFragmentCache,
+                    streamingPageRenderer);
+            this.postController = new PostController(userService, postService);
+            this.peopleController = new PeopleController(userService, peopleService);
+            this.hashtagSearchController = new HashtagSearchController(hashtagService, postFragmentCache,
+                    streamingPageRenderer, hashtagAutocomplete);
+        }
+
+        /**
+         * Renders each page once.
+         */
+        void renderAll() throws IOException {
+            render(homeController.webpage(null, response));
+            render(postController.webpage("1", null));
+            render(peopleController.webpage(null, null, 0));
+            render(peopleController.webpage(null, "warm up1", 0));
+            render(peopleController.webpage(null, "wram", 1));
+            render(hashtagSearchController.webpage(hashtags.subList(0, 2).toArray(new String[0]), response));
+            hashtagSearchController.autocomplete("#warm", 10);
+        }
+
+        /**
+         * Renders the view the way the Mustache view resolver does.
+         * Streamed pages were written to the response already and have no view.
+         */
+        private void render(ModelAndView mv) {
+            if (mv != null) {
+                compiler.loadTemplate(mv.getViewName()).execute(mv.getModel(), Writer.nullWriter());
+            }
+        }
+    }
+
+    /**
+     * Returns a response that throws away what is written to it.
+     * Only the methods StreamingPageRenderer calls do something.
+     */
+    private static HttpServletResponse discardingResponse() {
+        PrintWriter out = new PrintWriter(Writer.nullWriter());
+        return (HttpServletResponse) Proxy.newProxyInstance(JitWarmup.class.getClassLoader(),
+                new Class<?>[] { HttpServletResponse.class }, (proxy, method, methodArgs) -> {
+                    if ("getWriter".equals(method.getName())) {
+                        return out;
+                    }
+                    Class<?> type = method.getReturnType();
+                    if (type == boolean.class) {
+                        return false;
+                    }
+                    if (type == int.class) {
+                        return 0;
+                    }
+                    if (type == long.class) {
+                        return 0L;
+                    }
+                    return null;
+                });
+    }
+}
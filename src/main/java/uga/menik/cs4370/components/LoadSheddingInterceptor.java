@@ -0,0 +1,144 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.components;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import uga.menik.cs4370.utility.AdaptiveConcurrencyLimit;
+import uga.menik.cs4370.utility.LogSampler;
+
+/**
+ * This class turns requests away while the app is overloaded instead of
+ * letting them wait. When the database slows down, requests pile up
+ * waiting for connections and every page gets slow. Answering some of them
+ * right away with 503 Service Unavailable keeps the rest fast.
+ *
+ * How many requests may run at once is learned from their latency. See
+ * AdaptiveConcurrencyLimit.java. Handlers are sorted in three groups:
+ * critical ones, like login, may use the whole limit,
+ * expensive ones listed in app.concurrency-limit.expensive, like the feed
+ * and searches, only app.concurrency-limit.expensive-share of it and all
+ * others app.concurrency-limit.normal-share. Expensive requests are
+ * therefore turned away first. The limit and the number of turned away
+ * requests are in /metrics.
+ *
+ * It is registered right after RequestMetricsInterceptor so turned away
+ * requests are timed too. Static files are never turned away, they skip
+ * all interceptors. See WebConfig.java.
+ */
+@Component
+public class LoadSheddingInterceptor implements HandlerInterceptor {
+    private static final Logger log = LoggerFactory.getLogger(LoadSheddingInterceptor.class);
+    // An overloaded app turns away many requests a second.
+    private static final LogSampler shedLog = LogSampler.limitPerSecond(1);
+
+    // Request attribute holding the start time of an admitted request.
+    private static final String START_ATTRIBUTE = LoadSheddingInterceptor.class.getName() + ".start";
+
+    private final MetricsRegistry metrics;
+    private final boolean enabled;
+    private final AdaptiveConcurrencyLimit limit;
+    private final double normalShare;
+    private final double expensiveShare;
+    // Handler names and controller names, e.g. LoginController.login or LoginController.
+    private final Set<String> critical = new HashSet<>();
+    private final Set<String> expensive = new HashSet<>();
+
+    /**
+     * See AuthInterceptor notes regarding dependency injection and
+     * inversion of control.
+     *
+     * @param critical Handlers as Handler.method or Handler separated by commas.
+     * @param expensive Handlers as Handler.method or Handler separated by commas.
+     */
+    @Autowired
+    public LoadSheddingInterceptor(MetricsRegistry metrics,
+            @Value("${app.concurrency-limit.enabled:false}") boolean enabled,
+            @Value("${app.concurrency-limit.initial:20}") int initialLimit,
+            @Value("${app.concurrency-limit.min:4}") int minLimit,
+            @Value("${app.concurrency-limit.max:200}") int maxLimit,
+            @Value("${app.concurrency-limit.normal-share:0.85}") double normalShare,
+            @Value("${app.concurrency-limit.expensive-share:0.6}") double expensiveShare,
+            @Value("${app.concurrency-limit.critical:LoginController,RegistrationController}") String critical,
+            @Value("${app.concurrency-limit.expensive:}") String expensive) {
+        this.metrics = metrics;
+        this.enabled = enabled;
+        this.limit = new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit);
+        this.normalShare = normalShare;
+        this.expensiveShare = expensiveShare;
+        for (String name : critical.split(",")) {
+            this.critical.add(name.trim());
+        }
+        for (String name : expensive.split(",")) {
+            this.expensive.add(name.trim());
+        }
+        if (enabled) {
+            metrics.setConcurrencyLimit(limit);
+        }
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request,
+            HttpServletResponse response, Object handler) throws Exception {
+        if (!enabled) {
+            return true;
+        }
+        if (limit.tryAcquire(shareOf(handler))) {
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+            return true;
+        }
+
+        String handlerName = RequestMetricsInterceptor.nameOf(handler);
+        metrics.recordLoadShed(handlerName);
+        if (shedLog.sample()) {
+            log.atWarn().addKeyValue("handler", handlerName)
+                    .addKeyValue("limit", limit.getLimit())
+                    .addKeyValue("suppressed", shedLog.drainSuppressed())
+                    .log("Overloaded. Answering 503.");
+        }
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader("Retry-After", "1");
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write("The site is busy. Please try again in a moment.\n");
+        return false;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request,
+            HttpServletResponse response, Object handler, Exception ex) throws Exception {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (start != null) {
+            // Handlers other than controllers are too quick to say anything about the load.
+            limit.release(handler instanceof HandlerMethod ? System.nanoTime() - (Long) start : -1);
+        }
+    }
+
+    private double shareOf(Object handler) {
+        if (!(handler instanceof HandlerMethod)) {
+            return 1.0;
+        }
+        String handlerName = RequestMetricsInterceptor.nameOf(handler);
+        String controllerName = ((HandlerMethod) handler).getBeanType().getSimpleName();
+        if (critical.contains(handlerName) || critical.contains(controllerName)) {
+            return 1.0;
+        }
+        if (expensive.contains(handlerName) || expensive.contains(controllerName)) {
+            return expensiveShare;
+        }
+        return normalShare;
+    }
+}
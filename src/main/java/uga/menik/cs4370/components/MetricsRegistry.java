@@ -0,0 +1,414 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.components;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.stereotype.Component;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import uga.menik.cs4370.utility.AdaptiveConcurrencyLimit;
+
+/**
+ * This component collects latency, count, error and row metrics for SQL
+ * statements and controller handlers. It renders them in the Prometheus
+ * text format for the /metrics endpoint. See MetricsController.java.
+ *
+ * SQL statements are recorded by config/InstrumentedDataSource.java and are
+ * named after the repository method that prepared them, e.g.
+ * JdbcHeartRepository.exists. Handlers are recorded by
+ * RequestMetricsInterceptor.java and are named after the controller method,
+ * e.g. HomeController.webpage. Queries run while a handler is active are
+ * also added up per handler, so it is visible which query dominates a page.
+ */
+@Component
+public class MetricsRegistry {
+
+    // Upper bounds of the latency histogram buckets in seconds.
+    private static final double[] BUCKETS = {
+        0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    // The request the current thread is working on.
+    private static final ThreadLocal<RequestQueries> currentRequest = new ThreadLocal<>();
+
+    private final Map<String, Timer> queries = new ConcurrentHashMap<>();
+    private final Map<String, Timer> handlers = new ConcurrentHashMap<>();
+    // Keyed by handler and query, only sums and counts.
+    private final Map<String, Timer> handlerQueries = new ConcurrentHashMap<>();
+    // Keyed by shard name. See ShardMap.java.
+    private final Map<String, Timer> shards = new ConcurrentHashMap<>();
+    // Keyed by shard name and reason, results left out. See ShardRouter.java.
+    private final Map<String, LongAdder> shardFailures = new ConcurrentHashMap<>();
+    private final Timer poolWait = new Timer();
+    // Keyed by handler and limit, requests turned away. See RateLimitInterceptor.java.
+    private final Map<String, LongAdder> rateLimited = new ConcurrentHashMap<>();
+    // Keyed by handler, requests turned away. See LoadSheddingInterceptor.java.
+    private final Map<String, LongAdder> shed = new ConcurrentHashMap<>();
+    private volatile AdaptiveConcurrencyLimit concurrencyLimit;
+    private volatile HikariDataSource pool;
+    // How long the JIT warm-up took, or -1 if it did not run. See JitWarmup.java.
+    private volatile long warmupNanos = -1;
+    private volatile int warmupRounds;
+
+    /**
+     * Records one execution of a SQL statement.
+     *
+     * @param query The name of the statement.
+     * @param nanos How long it took.
+     * @param failed Whether it threw an exception.
+     */
+    public void recordQuery(String query, long nanos, boolean failed) {
+        queries.computeIfAbsent(query, name -> new Timer()).record(nanos, failed);
+        RequestQueries request = currentRequest.get();
+        if (request != null) {
+            request.record(query);
+            handlerQueries.computeIfAbsent(request.handler + '\n' + query, name -> new Timer()).record(nanos, failed);
+        }
+    }
+
+    /**
+     * Records one execution of a SQL statement on a shard, in addition to recordQuery.
+     */
+    public void recordShardQuery(String shard, long nanos, boolean failed) {
+        shards.computeIfAbsent(shard, name -> new Timer()).record(nanos, failed);
+    }
+
+    /**
+     * Records one shard whose results a query left out.
+     *
+     * @param shard The name of the shard.
+     * @param reason error or timeout.
+     */
+    public void recordShardFailure(String shard, String reason) {
+        shardFailures.computeIfAbsent(shard + '\n' + reason, name -> new LongAdder()).increment();
+    }
+
+    /**
+     * Records rows read from the result of a SQL statement.
+     */
+    public void recordRows(String query, long rows) {
+        queries.computeIfAbsent(query, name -> new Timer()).rows.add(rows);
+    }
+
+    /**
+     * Records how long it took to get a connection from the pool.
+     */
+    public void recordPoolWait(long nanos) {
+        poolWait.record(nanos, false);
+    }
+
+    /**
+     * Records one handled request.
+     */
+    public void recordHandler(String handler, long nanos, boolean failed) {
+        handlers.computeIfAbsent(handler, name -> new Timer()).record(nanos, failed);
+    }
+
+    /**
+     * Records one request turned away by a rate limit.
+     *
+     * @param handler The controller method that was not run.
+     * @param limit The limit that was hit, user or ip.
+     */
+    public void recordRateLimited(String handler, String limit) {
+        rateLimited.computeIfAbsent(handler + '\n' + limit, name -> new LongAdder()).increment();
+    }
+
+    /**
+     * Records one request turned away because the app was overloaded.
+     */
+    public void recordLoadShed(String handler) {
+        shed.computeIfAbsent(handler, name -> new LongAdder()).increment();
+    }
+
+    /**
+     * Sets the concurrency limit whose gauges are reported.
+     */
+    public void setConcurrencyLimit(AdaptiveConcurrencyLimit concurrencyLimit) {
+        this.concurrencyLimit = concurrencyLimit;
+    }
+
+    /**
+     * Marks the current thread as working on a request for the given handler.
+     * Queries run until endRequest are counted for that request.
+     *
+     * @return The queries of the new request.
+     */
+    public RequestQueries startRequest(String handler) {
+        RequestQueries request = new RequestQueries(handler);
+        currentRequest.set(request);
+        return request;
+    }
+
+    /**
+     * Marks the current thread as done with its request.
+     */
+    public void endRequest() {
+        currentRequest.remove();
+    }
+
+    /**
+     * Returns the queries of the request the current thread is working on or null.
+     */
+    public RequestQueries currentRequest() {
+        return currentRequest.get();
+    }
+
+    /**
+     * Lets a background thread count its queries for a request.
+     * Call with the result of currentRequest() taken on the request thread,
+     * and call endRequest once the background work is done.
+     */
+    public void attach(RequestQueries request) {
+        if (request != null) {
+            currentRequest.set(request);
+        }
+    }
+
+    /**
+     * Records the JIT warm-up that ran before the app took traffic.
+     *
+     * @param nanos How long it took.
+     * @param rounds How many rounds of pages it rendered.
+     */
+    public void recordWarmup(long nanos, int rounds) {
+        this.warmupRounds = rounds;
+        this.warmupNanos = nanos;
+    }
+
+    /**
+     * Sets the connection pool whose gauges are reported.
+     */
+    public void setPool(HikariDataSource pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Renders all metrics in the Prometheus text exposition format.
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder();
+
+        header(out, "sql_query_seconds", "histogram", "Time spent executing SQL statements.");
+        for (Map.Entry<String, Timer> entry : new TreeMap<>(queries).entrySet()) {
+            entry.getValue().writeHistogram(out, "sql_query_seconds", "query=\"" + escape(entry.getKey()) + "\"");
+        }
+        header(out, "sql_query_errors_total", "counter", "SQL statements that threw an exception.");
+        for (Map.Entry<String, Timer> entry : new TreeMap<>(queries).entrySet()) {
+            sample(out, "sql_query_errors_total", "query=\"" + escape(entry.getKey()) + "\"", entry.getValue().errors.sum());
+        }
+        header(out, "sql_query_rows_total", "counter", "Rows read from SQL statement results.");
+        for (Map.Entry<String, Timer> entry : new TreeMap<>(queries).entrySet()) {
+            sample(out, "sql_query_rows_total", "query=\"" + escape(entry.getKey()) + "\"", entry.getValue().rows.sum());
+        }
+
+        if (!shards.isEmpty()) {
+            header(out, "sql_shard_query_seconds", "histogram", "Time spent executing SQL statements per shard.");
+            for (Map.Entry<String, Timer> entry : new TreeMap<>(shards).entrySet()) {
+                entry.getValue().writeHistogram(out, "sql_shard_query_seconds", "shard=\"" + escape(entry.getKey()) + "\"");
+            }
+            header(out, "sql_shard_query_errors_total", "counter", "SQL statements that threw an exception per shard.");
+            for (Map.Entry<String, Timer> entry : new TreeMap<>(shards).entrySet()) {
+                sample(out, "sql_shard_query_errors_total", "shard=\"" + escape(entry.getKey()) + "\"",
+                        entry.getValue().errors.sum());
+            }
+        }
+        if (!shardFailures.isEmpty()) {
+            header(out, "shard_results_missing_total", "counter",
+                    "Queries that left out the results of a failed or late shard.");
+            for (Map.Entry<String, LongAdder> entry : new TreeMap<>(shardFailures).entrySet()) {
+                int split = entry.getKey().indexOf('\n');
+                sample(out, "shard_results_missing_total", "shard=\"" + escape(entry.getKey().substring(0, split))
+                        + "\",reason=\"" + entry.getKey().substring(split + 1) + "\"", entry.getValue().sum());
+            }
+        }
+
+        header(out, "http_handler_seconds", "histogram", "Time spent handling requests per controller method.");
+        for (Map.Entry<String, Timer> entry : new TreeMap<>(handlers).entrySet()) {
+            entry.getValue().writeHistogram(out, "http_handler_seconds", "handler=\"" + escape(entry.getKey()) + "\"");
+        }
+        header(out, "http_handler_errors_total", "counter", "Requests that failed with an exception or a 5xx status.");
+        for (Map.Entry<String, Timer> entry : new TreeMap<>(handlers).entrySet()) {
+            sample(out, "http_handler_errors_total", "handler=\"" + escape(entry.getKey()) + "\"", entry.getValue().errors.sum());
+        }
+
+        if (!rateLimited.isEmpty()) {
+            header(out, "http_rate_limited_total", "counter", "Requests answered with 429 by a rate limit.");
+            for (Map.Entry<String, LongAdder> entry : new TreeMap<>(rateLimited).entrySet()) {
+                int split = entry.getKey().indexOf('\n');
+                sample(out, "http_rate_limited_total", "handler=\"" + escape(entry.getKey().substring(0, split))
+                        + "\",limit=\"" + entry.getKey().substring(split + 1) + "\"", entry.getValue().sum());
+            }
+        }
+
+        AdaptiveConcurrencyLimit limit = concurrencyLimit;
+        if (limit != null) {
+            header(out, "http_concurrency_limit", "gauge", "Requests that may run at once, learned from their latency.");
+            sample(out, "http_concurrency_limit", "", limit.getLimit());
+            header(out, "http_concurrency_inflight", "gauge", "Requests running.");
+            sample(out, "http_concurrency_inflight", "", limit.getInflight());
+            header(out, "http_load_shed_total", "counter", "Requests answered with 503 because the app was overloaded.");
+            for (Map.Entry<String, LongAdder> entry : new TreeMap<>(shed).entrySet()) {
+                sample(out, "http_load_shed_total", "handler=\"" + escape(entry.getKey()) + "\"", entry.getValue().sum());
+            }
+        }
+
+        header(out, "http_handler_sql_seconds_total", "counter", "Time spent in each SQL statement per controller method.");
+        for (Map.Entry<String, Timer> entry : new TreeMap<>(handlerQueries).entrySet()) {
+            sample(out, "http_handler_sql_seconds_total", handlerQueryLabels(entry.getKey()),
+                    entry.getValue().sumNanos.sum() / 1e9);
+        }
+        header(out, "http_handler_sql_queries_total", "counter", "Executions of each SQL statement per controller method.");
+        for (Map.Entry<String, Timer> entry : new TreeMap<>(handlerQueries).entrySet()) {
+            sample(out, "http_handler_sql_queries_total", handlerQueryLabels(entry.getKey()),
+                    entry.getValue().count.sum());
+        }
+
+        header(out, "db_pool_wait_seconds", "histogram", "Time spent waiting for a connection from the pool.");
+        poolWait.writeHistogram(out, "db_pool_wait_seconds", "");
+        HikariDataSource hikari = pool;
+        HikariPoolMXBean mxBean = hikari == null ? null : hikari.getHikariPoolMXBean();
+        if (mxBean != null) {
+            header(out, "db_pool_connections", "gauge", "Connections in the pool by state.");
+            sample(out, "db_pool_connections", "state=\"active\"", mxBean.getActiveConnections());
+            sample(out, "db_pool_connections", "state=\"idle\"", mxBean.getIdleConnections());
+            sample(out, "db_pool_connections", "state=\"pending\"", mxBean.getThreadsAwaitingConnection());
+            sample(out, "db_pool_connections", "state=\"total\"", mxBean.getTotalConnections());
+        }
+
+        long warmup = warmupNanos;
+        if (warmup >= 0) {
+            header(out, "app_warmup_seconds", "gauge", "Time spent warming up the JIT compiler before taking traffic.");
+            sample(out, "app_warmup_seconds", "", warmup / 1e9);
+            header(out, "app_warmup_rounds", "gauge", "Rounds of pages rendered during the warm-up.");
+            sample(out, "app_warmup_rounds", "", warmupRounds);
+        }
+        return out.toString();
+    }
+
+    private static String handlerQueryLabels(String key) {
+        int split = key.indexOf('\n');
+        return "handler=\"" + escape(key.substring(0, split)) + "\",query=\"" + escape(key.substring(split + 1)) + "\"";
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ');
+        if (value == Math.rint(value)) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * The statements run on behalf of one request, by query name.
+     * Safe to update from background threads working for the request.
+     */
+    public static class RequestQueries {
+        private final String handler;
+        private final AtomicInteger total = new AtomicInteger();
+        private final Map<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+
+        private RequestQueries(String handler) {
+            this.handler = handler;
+        }
+
+        private void record(String query) {
+            total.incrementAndGet();
+            counts.computeIfAbsent(query, name -> new AtomicInteger()).incrementAndGet();
+        }
+
+        /**
+         * Returns the handler the request went to, e.g. HomeController.webpage.
+         */
+        public String getHandler() {
+            return handler;
+        }
+
+        /**
+         * Returns the number of statements run so far.
+         */
+        public int getTotal() {
+            return total.get();
+        }
+
+        /**
+         * Returns how often each statement ran so far.
+         */
+        public Map<String, Integer> getCounts() {
+            Map<String, Integer> snapshot = new TreeMap<>();
+            counts.forEach((query, count) -> snapshot.put(query, count.get()));
+            return snapshot;
+        }
+    }
+
+    /**
+     * Count, error count, total time, rows and a latency histogram.
+     * LongAdders keep recording cheap when many threads record at once.
+     */
+    private static class Timer {
+        final LongAdder count = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder sumNanos = new LongAdder();
+        final LongAdder rows = new LongAdder();
+        final LongAdder[] buckets = new LongAdder[BUCKETS.length];
+
+        Timer() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long nanos, boolean failed) {
+            count.increment();
+            sumNanos.add(nanos);
+            if (failed) {
+                errors.increment();
+            }
+            double seconds = nanos / 1e9;
+            for (int i = 0; i < BUCKETS.length; i++) {
+                if (seconds <= BUCKETS[i]) {
+                    buckets[i].increment();
+                    break;
+                }
+            }
+        }
+
+        void writeHistogram(StringBuilder out, String name, String labels) {
+            String prefix = labels.isEmpty() ? "" : labels + ",";
+            long cumulative = 0;
+            for (int i = 0; i < BUCKETS.length; i++) {
+                cumulative += buckets[i].sum();
+                sample(out, name + "_bucket", prefix + "le=\"" + BUCKETS[i] + "\"", cumulative);
+            }
+            long total = count.sum();
+            sample(out, name + "_bucket", prefix + "le=\"+Inf\"", total);
+            sample(out, name + "_sum", labels, sumNanos.sum() / 1e9);
+            sample(out, name + "_count", labels, total);
+        }
+    }
+}
@@ -0,0 +1,626 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.components;
+
+import java.io.Closeable;
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import uga.menik.cs4370.repositories.FollowRepository;
+import uga.menik.cs4370.repositories.PostRepository;
+import uga.menik.cs4370.repositories.UserRepository;
+import uga.menik.cs4370.repositories.UserRow;
+import uga.menik.cs4370.utility.LogSampler;
+
+/**
+ * This component finds people by first name, last name or username.
+ *
+ * Every word of a name is indexed in memory under its first one to three
+ * letters, so short searches are prefix matches. Longer searches allow a
+ * typo or two: words are also indexed under their first four letters with
+ * each letter left out in turn, so a search finds words whose start differs
+ * by a swapped, missing, extra or wrong letter. Candidates are then checked
+ * against the whole search, and exact matches come before typo matches.
+ *
+ * Users are numbered by rank when the index is built, more followers and
+ * a more recent post first, and each list of users is kept in that order.
+ * A search walks the lists of all its words together from the front,
+ * skipping to users found for every word, and stops once it has a page, so
+ * the first page costs about the same for a thousand users as for millions.
+ *
+ * The index is built on startup, in the background, and rebuilt every
+ * app.search.people.rebuild-minutes. That is when new follows and posts
+ * change the ranking. Users registered through this instance are found
+ * right away, after the users of the index.
+ */
+@Component
+public class PeopleSearchIndex implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(PeopleSearchIndex.class);
+    // One bad date format makes every user's date unreadable.
+    private static final LogSampler dateLog = LogSampler.limitPerSecond(1);
+
+    // Dates are parsed the way post.postDate is stored.
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final Pattern NOT_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    // Search words this long or shorter are matched by prefix only.
+    private static final int PREFIX_LENGTH = 3;
+    // Typo keys are made from this many first letters of a word.
+    private static final int TYPO_LENGTH = 4;
+    // Once a page of typo matches is found, a search takes at most this many
+    // more steps through its lists looking for exact matches.
+    private static final int MAX_STEPS = 2_000;
+
+    private final UserRepository userRepository;
+    private final FollowRepository followRepository;
+    private final PostRepository postRepository;
+    private final int pageSize;
+    private final double activityDays;
+    // Rebuilds the index, or null without rebuilds.
+    private final ScheduledExecutorService scheduler;
+
+    private volatile Index index = new Index(new String[0], new String[0][], Map.of(), -1);
+    // Users registered since the index was built, oldest first.
+    // Replaced as a whole under this.
+    private volatile List<Person> recent = List.of();
+
+    /**
+     * See AuthInterceptor notes regarding dependency injection and
+     * inversion of control.
+     */
+    @Autowired
+    public PeopleSearchIndex(UserRepository userRepository, FollowRepository followRepository,
+            PostRepository postRepository,
+            @Value("${app.search.people.page-size:20}") int pageSize,
+            @Value("${app.search.people.activity-days:30}") double activityDays,
+            @Value("${app.search.people.rebuild-minutes:30}") long rebuildMinutes) {
+        this.userRepository = userRepository;
+        this.followRepository = followRepository;
+        this.postRepository = postRepository;
+        this.pageSize = Math.max(1, pageSize);
+        this.activityDays = Math.max(1, activityDays);
+        if (rebuildMinutes <= 0) {
+            this.scheduler = null;
+            return;
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "people-search-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::rebuild, 0, rebuildMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Returns the number of people shown per page of results.
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Finds the people whose names or usernames match every word of the
+     * search. A word matches a word of a name it starts. Words of four
+     * letters or more may also be one letter off, of eight or more two.
+     *
+     * @param query What the user searched for.
+     * @param excludeUserId A user to leave out, e.g. the one searching.
+     * @param offset How many matches to skip.
+     * @param limit The most user IDs to return.
+     * @return The IDs of the matching users, exact matches first, then by rank.
+     */
+    public List<String> search(String query, String excludeUserId, int offset, int limit) {
+        Query search = new Query(words(query));
+        if (search.words.length == 0 || limit <= 0) {
+            return List.of();
+        }
+        int wanted = offset + limit;
+        List<String> exact = new ArrayList<>();
+        List<String> typos = new ArrayList<>();
+        index.scan(search, excludeUserId, wanted, exact, typos);
+        for (Person person : recent) {
+            if (exact.size() >= wanted) {
+                break;
+            }
+            if (person.userId.equals(excludeUserId)) {
+                continue;
+            }
+            int match = search.match(person.words, typos.size() < wanted);
+            if (match == 0) {
+                exact.add(person.userId);
+            } else if (match == 1) {
+                typos.add(person.userId);
+            }
+        }
+        List<String> userIds = exact;
+        for (int i = 0; i < typos.size() && userIds.size() < wanted; i++) {
+            userIds.add(typos.get(i));
+        }
+        if (offset >= userIds.size()) {
+            return List.of();
+        }
+        return new ArrayList<>(userIds.subList(offset, Math.min(userIds.size(), wanted)));
+    }
+
+    /**
+     * Makes a user just registered through this instance searchable.
+     */
+    public synchronized void add(UserRow user) {
+        List<Person> grown = new ArrayList<>(recent);
+        grown.add(new Person(user.getUserId(), nameWords(user)));
+        recent = List.copyOf(grown);
+    }
+
+    /**
+     * Builds a new index from the user, follow and post tables and swaps it in.
+     */
+    public void rebuild() {
+        long start = System.nanoTime();
+        try {
+            List<Person> people = new ArrayList<>();
+            userRepository.forEachUser(user -> people.add(new Person(user.getUserId(), nameWords(user))));
+            Map<String, Integer> followers = new HashMap<>();
+            followRepository.forEachFollowerCount(followers::put);
+            Map<String, String> lastPostDates = new HashMap<>();
+            postRepository.forEachLastPostDate(lastPostDates::put);
+
+            LocalDateTime now = LocalDateTime.now();
+            double[] scores = new double[people.size()];
+            Integer[] order = new Integer[people.size()];
+            for (int i = 0; i < people.size(); i++) {
+                String userId = people.get(i).userId;
+                scores[i] = score(followers.getOrDefault(userId, 0), lastPostDates.get(userId), now);
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> scores[a] != scores[b] ? Double.compare(scores[b], scores[a])
+                    : Long.compare(numericId(people.get(a).userId), numericId(people.get(b).userId)));
+            Index built = Index.build(people, order);
+
+            synchronized (this) {
+                // Users registered while the tables were read may be in both.
+                List<Person> newer = new ArrayList<>();
+                for (Person person : recent) {
+                    if (numericId(person.userId) > built.maxUserId) {
+                        newer.add(person);
+                    }
+                }
+                index = built;
+                recent = List.copyOf(newer);
+            }
+            log.atInfo().addKeyValue("users", people.size())
+                    .addKeyValue("keys", built.postings.size())
+                    .addKeyValue("millis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                    .log("Built people search index");
+        } catch (SQLException e) {
+            // The old index stays until the next rebuild works.
+            log.atWarn().setCause(e).log("Could not build people search index");
+        }
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Ranks by the log of the followers, plus up to 2 for posting recently.
+     * Posting today counts as much as having about seven times the followers,
+     * and the bonus halves about every 0.7 * app.search.people.activity-days.
+     */
+    private double score(int followers, String lastPostDate, LocalDateTime now) {
+        double score = Math.log1p(followers);
+        if (lastPostDate != null && lastPostDate.length() >= 19) {
+            try {
+                LocalDateTime posted = LocalDateTime.parse(lastPostDate.substring(0, 19), DATE_FORMAT);
+                double days = Math.max(0, Duration.between(posted, now).toMinutes() / (24.0 * 60));
+                score += 2 * Math.exp(-days / activityDays);
+            } catch (DateTimeParseException e) {
+                if (dateLog.sample()) {
+                    log.atWarn().setCause(e).addKeyValue("suppressed", dateLog.drainSuppressed())
+                            .log("Could not parse a last post date. Ranking without it.");
+                }
+            }
+        }
+        return score;
+    }
+
+    private static long numericId(String userId) {
+        try {
+            return Long.parseLong(userId);
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static String[] nameWords(UserRow user) {
+        return words(user.getFirstName() + " " + user.getLastName() + " " + user.getUsername());
+    }
+
+    /**
+     * Splits text into lower case words without accents, each word once.
+     */
+    static String[] words(String text) {
+        if (text == null) {
+            return new String[0];
+        }
+        String plain = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        Set<String> words = new LinkedHashSet<>();
+        for (String word : NOT_WORD.split(plain.toLowerCase(Locale.ROOT))) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words.toArray(new String[0]);
+    }
+
+    /**
+     * The keys a name word is indexed under: its first one to three letters,
+     * and its first four letters with and without each of them.
+     */
+    private static List<String> nameKeys(String nameWord) {
+        List<String> keys = new ArrayList<>();
+        for (int length = 1; length <= Math.min(PREFIX_LENGTH, nameWord.length()); length++) {
+            keys.add("p:" + nameWord.substring(0, length));
+        }
+        if (nameWord.length() >= TYPO_LENGTH - 1) {
+            // A three letter word is a four letter start with a letter left out.
+            keys.addAll(typoKeys(nameWord.substring(0, Math.min(TYPO_LENGTH, nameWord.length()))));
+        }
+        return keys;
+    }
+
+    /**
+     * The keys a search word reads. Every name word the search word can
+     * match is under one of them.
+     */
+    private static List<String> searchKeys(String searchWord) {
+        if (searchWord.length() <= PREFIX_LENGTH) {
+            return List.of("p:" + searchWord);
+        }
+        return typoKeys(searchWord.substring(0, TYPO_LENGTH));
+    }
+
+    /**
+     * The key every name word the search word starts is under.
+     */
+    private static String exactKey(String searchWord) {
+        if (searchWord.length() <= PREFIX_LENGTH) {
+            return "p:" + searchWord;
+        }
+        return "t:" + searchWord.substring(0, TYPO_LENGTH);
+    }
+
+    private static List<String> typoKeys(String start) {
+        List<String> keys = new ArrayList<>();
+        keys.add("t:" + start);
+        if (start.length() == TYPO_LENGTH) {
+            for (int i = 0; i < start.length(); i++) {
+                String key = "t:" + start.substring(0, i) + start.substring(i + 1);
+                if (!keys.contains(key)) {
+                    keys.add(key);
+                }
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * A user and the words of their name and username.
+     */
+    private static class Person {
+        final String userId;
+        final String[] words;
+
+        Person(String userId, String[] words) {
+            this.userId = userId;
+            this.words = words;
+        }
+    }
+
+    /**
+     * Users numbered by rank, best first, and the users under every key in
+     * that order. Never changed once built.
+     */
+    private static class Index {
+        final String[] userIds;
+        final String[][] words;
+        final Map<String, int[]> postings;
+        // The largest numeric user ID in the index.
+        final long maxUserId;
+
+        Index(String[] userIds, String[][] words, Map<String, int[]> postings, long maxUserId) {
+            this.userIds = userIds;
+            this.words = words;
+            this.postings = postings;
+            this.maxUserId = maxUserId;
+        }
+
+        /**
+         * Builds the index with the people in the given order.
+         */
+        static Index build(List<Person> people, Integer[] order) {
+            String[] userIds = new String[order.length];
+            String[][] words = new String[order.length][];
+            Map<String, IntList> lists = new HashMap<>();
+            long maxUserId = -1;
+            for (int rank = 0; rank < order.length; rank++) {
+                Person person = people.get(order[rank]);
+                userIds[rank] = person.userId;
+                words[rank] = person.words;
+                maxUserId = Math.max(maxUserId, numericId(person.userId));
+                for (String word : person.words) {
+                    for (String key : nameKeys(word)) {
+                        // Users are added in rank order, so a repeat is last.
+                        lists.computeIfAbsent(key, k -> new IntList()).addIfNotLast(rank);
+                    }
+                }
+            }
+            Map<String, int[]> postings = new HashMap<>(lists.size() * 4 / 3 + 1);
+            for (Map.Entry<String, IntList> list : lists.entrySet()) {
+                postings.put(list.getKey(), list.getValue().toArray());
+            }
+            return new Index(userIds, words, postings, maxUserId);
+        }
+
+        /**
+         * Reads the users under the keys of every search word in rank order,
+         * stepping only to users found under the keys of all of them, checks
+         * them against the search and collects up to wanted exact and wanted
+         * typo matches.
+         */
+        void scan(Query search, String excludeUserId, int wanted, List<String> exact, List<String> typos) {
+            Cursor[] cursors = cursors(search, false);
+            boolean exactOnly = false;
+            int steps = 0;
+            int rank = 0;
+            while (exact.size() < wanted) {
+                if (!exactOnly && typos.size() >= wanted) {
+                    // Only exact matches can still make the page, and they
+                    // are all under one key per word.
+                    cursors = cursors(search, true);
+                    exactOnly = true;
+                }
+                // Moves every cursor to the first user at or after rank
+                // until they all point at the same user.
+                boolean aligned = false;
+                while (!aligned) {
+                    aligned = true;
+                    for (Cursor cursor : cursors) {
+                        if (exactOnly && ++steps > MAX_STEPS) {
+                            return;
+                        }
+                        int found = cursor.advanceTo(rank);
+                        if (found == Integer.MAX_VALUE) {
+                            return;
+                        }
+                        if (found > rank) {
+                            rank = found;
+                            aligned = false;
+                        }
+                    }
+                }
+                int candidate = rank++;
+                if (userIds[candidate].equals(excludeUserId)) {
+                    continue;
+                }
+                int match = search.match(words[candidate], !exactOnly);
+                if (match == 0) {
+                    exact.add(userIds[candidate]);
+                } else if (match == 1) {
+                    typos.add(userIds[candidate]);
+                }
+            }
+        }
+
+        /**
+         * Returns a cursor per search word over the keys its matches are under.
+         */
+        private Cursor[] cursors(Query search, boolean exactOnly) {
+            Cursor[] cursors = new Cursor[search.words.length];
+            for (int i = 0; i < cursors.length; i++) {
+                String word = search.words[i];
+                List<int[]> lists = new ArrayList<>();
+                for (String key : exactOnly ? List.of(exactKey(word)) : searchKeys(word)) {
+                    int[] list = postings.get(key);
+                    if (list != null) {
+                        lists.add(list);
+                    }
+                }
+                cursors[i] = new Cursor(lists.toArray(new int[0][]));
+            }
+            return cursors;
+        }
+    }
+
+    /**
+     * The users under all keys of one search word, in rank order.
+     */
+    private static class Cursor {
+        private final int[][] lists;
+        private final int[] positions;
+
+        Cursor(int[][] lists) {
+            this.lists = lists;
+            this.positions = new int[lists.length];
+        }
+
+        /**
+         * Skips the users before the given rank and returns the next one,
+         * or Integer.MAX_VALUE if there is none.
+         */
+        int advanceTo(int rank) {
+            int next = Integer.MAX_VALUE;
+            for (int i = 0; i < lists.length; i++) {
+                int[] list = lists[i];
+                int position = positions[i];
+                if (position < list.length && list[position] < rank) {
+                    // Gallops ahead, since the next user is usually close.
+                    int low = position;
+                    int step = 1;
+                    while (low + step < list.length && list[low + step] < rank) {
+                        low += step;
+                        step <<= 1;
+                    }
+                    position = Arrays.binarySearch(list, low + 1, Math.min(list.length, low + step + 1), rank);
+                    if (position < 0) {
+                        position = -position - 1;
+                    }
+                    positions[i] = position;
+                }
+                if (position < list.length) {
+                    next = Math.min(next, list[position]);
+                }
+            }
+            return next;
+        }
+    }
+
+    /**
+     * The words of a search and the rows its typo checks reuse.
+     * Used by one thread at a time.
+     */
+    private static class Query {
+        final String[] words;
+        private final int[] allowed;
+        private int[] previous;
+        private int[] current;
+        private int[] next;
+
+        Query(String[] words) {
+            this.words = words;
+            this.allowed = new int[words.length];
+            int longest = 0;
+            for (int i = 0; i < words.length; i++) {
+                allowed[i] = words[i].length() >= 8 ? 2 : words[i].length() > PREFIX_LENGTH ? 1 : 0;
+                longest = Math.max(longest, words[i].length() + allowed[i]);
+            }
+            this.previous = new int[longest + 1];
+            this.current = new int[longest + 1];
+            this.next = new int[longest + 1];
+        }
+
+        /**
+         * Returns 0 if every search word starts a name word, 1 if every
+         * search word is within its typos of the start of a name word, or -1.
+         * Without typos only the first is checked, which is much cheaper.
+         */
+        int match(String[] nameWords, boolean typos) {
+            int match = 0;
+            for (int w = 0; w < words.length; w++) {
+                String searchWord = words[w];
+                int best = allowed[w] + 1;
+                for (String nameWord : nameWords) {
+                    if (nameWord.startsWith(searchWord)) {
+                        best = 0;
+                        break;
+                    }
+                }
+                if (best > 0 && typos && allowed[w] > 0) {
+                    for (String nameWord : nameWords) {
+                        best = Math.min(best, prefixDistance(searchWord, nameWord, allowed[w]));
+                    }
+                }
+                if (best > allowed[w]) {
+                    return -1;
+                }
+                if (best > 0) {
+                    match = 1;
+                }
+            }
+            return match;
+        }
+
+        /**
+         * Returns the fewest letters that must be added, removed, changed or
+         * swapped with the next one to turn the search word into the start
+         * of the name word, or more than max if that takes more than max.
+         */
+        private int prefixDistance(String searchWord, String nameWord, int max) {
+            int n = searchWord.length();
+            int m = Math.min(nameWord.length(), n + max);
+            if (m < n - max) {
+                return max + 1;
+            }
+            for (int j = 0; j <= m; j++) {
+                current[j] = j;
+            }
+            for (int i = 1; i <= n; i++) {
+                // next holds the row before previous, for swapped letters.
+                int[] older = next;
+                next = previous;
+                previous = current;
+                current = older;
+                current[0] = i;
+                int rowMin = i;
+                char a = searchWord.charAt(i - 1);
+                for (int j = 1; j <= m; j++) {
+                    char b = nameWord.charAt(j - 1);
+                    int distance = Math.min(Math.min(current[j - 1], previous[j]) + 1,
+                            previous[j - 1] + (a == b ? 0 : 1));
+                    if (i > 1 && j > 1 && a == nameWord.charAt(j - 2) && searchWord.charAt(i - 2) == b) {
+                        distance = Math.min(distance, next[j - 2] + 1);
+                    }
+                    current[j] = distance;
+                    rowMin = Math.min(rowMin, distance);
+                }
+                if (rowMin > max) {
+                    return max + 1;
+                }
+            }
+            int best = max + 1;
+            for (int j = Math.max(0, n - max); j <= m; j++) {
+                best = Math.min(best, current[j]);
+            }
+            return best;
+        }
+    }
+
+    /**
+     * A growable list of ints without boxing.
+     */
+    private static class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void addIfNotLast(int value) {
+            if (size > 0 && values[size - 1] == value) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.components;
+
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.samskivert.mustache.Mustache;
+import com.samskivert.mustache.Template;
+
+import uga.menik.cs4370.models.ExpandedPost;
+import uga.menik.cs4370.models.Post;
+import uga.menik.cs4370.models.User;
+
+/**
+ * This class keeps pre-rendered html of fragments/post.mustache.
+ * The author, date and content of a post look the same to every viewer,
+ * so that part is rendered once per post version and reused.
+ * Only the heart and bookmark actions depend on the viewer. Every variant
+ * of each, on, off and unknown, is rendered up front and the right ones
+ * are spliced in, which makes rendering a cached post plain string copying.
+ *
+ * The markers contain NUL characters, which are dropped from post text and
+ * names, so user content cannot be mistaken for a marker. A post whose
+ * rendered html lacks a marker is rendered in full every time instead.
+ */
+@Component
+public class PostFragmentCache {
+
+    // Partials that hold the viewer specific parts of fragments/post.mustache.
+    private static final String HEART_PARTIAL = "fragments/post_heart_action";
+    private static final String BOOKMARK_PARTIAL = "fragments/post_bookmark_action";
+
+    // Markers rendered in place of the viewer specific partials.
+    private static final String HEART_MARKER = "\u0000heart\u0000";
+    private static final String BOOKMARK_MARKER = "\u0000bookmark\u0000";
+
+    // Cached fragments keyed by postId.
+    private final Map<String, Fragment> fragments = new ConcurrentHashMap<>();
+    // Held by the thread making room in fragments.
+    private final ReentrantLock evictLock = new ReentrantLock();
+
+    // fragments/post as is and with the viewer specific partials replaced by markers.
+    private final Template postTemplate;
+    private final Template sharedTemplate;
+    private final Template heartTemplate;
+    private final Template bookmarkTemplate;
+
+    // Upper bound on the number of cached posts.
+    private final int maxEntries;
+
+    /**
+     * The Mustache compiler is the one Spring Boot configures for the
+     * templates folder. See AuthInterceptor notes regarding dependency
+     * injection and inversion of control.
+     */
+    @Autowired
+    public PostFragmentCache(Mustache.Compiler compiler,
+            @Value("${app.cache.post-fragments.max-entries:10000}") int maxEntries) {
+        Mustache.TemplateLoader loader = compiler.loader;
+        Mustache.Escaper escaper = compiler.escaper;
+        Mustache.Compiler markerCompiler = compiler.withEscaper(
+                raw -> escaper.escape(raw.indexOf('\u0000') < 0 ? raw : raw.replace("\u0000", "")));
+        markerCompiler = markerCompiler.withLoader(name -> {
+            if (HEART_PARTIAL.equals(name)) {
+                return new StringReader(HEART_MARKER);
+            }
+            if (BOOKMARK_PARTIAL.equals(name)) {
+                return new StringReader(BOOKMARK_MARKER);
+            }
+            return loader.getTemplate(name);
+        });
+        this.postTemplate = compiler.loadTemplate("fragments/post");
+        this.sharedTemplate = markerCompiler.loadTemplate("fragments/post");
+        this.heartTemplate = compiler.loadTemplate(HEART_PARTIAL);
+        this.bookmarkTemplate = compiler.loadTemplate(BOOKMARK_PARTIAL);
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    /**
+     * Renders the given posts one after another the same way
+     * fragments/posts_container.mustache would.
+     *
+     * @param posts The posts to render.
+     * @return The html of all posts.
+     */
+    public String renderPosts(List<? extends Post> posts) {
+        StringBuilder html = new StringBuilder();
+        for (Post post : posts) {
+            renderPost(post, html);
+        }
+        return html.toString();
+    }
+
+    /**
+     * Renders a single post into the given builder.
+     * Expanded posts show comments so they are not cached.
+     *
+     * @param post The post to render.
+     * @param html The builder the html is appended to.
+     */
+    public void renderPost(Post post, StringBuilder html) {
+        if (post instanceof ExpandedPost) {
+            html.append(postTemplate.execute(post));
+            return;
+        }
+
+        long version = versionOf(post);
+        Fragment fragment = fragments.get(post.getPostId());
+        if (fragment == null || fragment.version != version) {
+            fragment = render(post, version);
+            if (fragment == null) {
+                html.append(postTemplate.execute(post));
+                return;
+            }
+            if (fragments.size() >= maxEntries) {
+                evict();
+            }
+            fragments.put(post.getPostId(), fragment);
+        } else if (!fragment.used) {
+            fragment.used = true;
+        }
+
+        html.append(fragment.head)
+            .append(post.isHeartedUnknown() ? fragment.heartUnknown
+                    : post.getHearted() ? fragment.hearted : fragment.notHearted)
+            .append(fragment.middle)
+            .append(post.isBookmarkedUnknown() ? fragment.bookmarkUnknown
+                    : post.isBookmarked() ? fragment.bookmarked : fragment.notBookmarked)
+            .append(fragment.tail);
+    }
+
+    /**
+     * Drops the cached fragment of a post.
+     * Call this when a post is edited or its hearts or comments change.
+     *
+     * @param postId The ID of the post to invalidate.
+     */
+    public void invalidate(String postId) {
+        fragments.remove(postId);
+    }
+
+    /**
+     * Makes room for a tenth of maxEntries. Fragments reused since they
+     * were rendered or last swept get a second chance, so hot posts stay
+     * cached while posts shown once go first. Threads that find another
+     * one sweeping just go on.
+     */
+    private void evict() {
+        if (!evictLock.tryLock()) {
+            return;
+        }
+        try {
+            int target = maxEntries - Math.max(1, maxEntries / 10);
+            Iterator<Fragment> sweep = fragments.values().iterator();
+            while (fragments.size() > target) {
+                if (!sweep.hasNext()) {
+                    sweep = fragments.values().iterator();
+                    if (!sweep.hasNext()) {
+                        return;
+                    }
+                }
+                Fragment fragment = sweep.next();
+                if (fragment.used) {
+                    fragment.used = false;
+                } else {
+                    sweep.remove();
+                }
+            }
+        } finally {
+            evictLock.unlock();
+        }
+    }
+
+    /**
+     * Computes the content version of a post.
+     * Anything that shows up in the shared part of the fragment
+     * has to be a part of this.
+     */
+    private static long versionOf(Post post) {
+        long version = post.getContent() == null ? 0 : post.getContent().hashCode();
+        version = version * 31 + (post.getPostDate() == null ? 0 : post.getPostDate().hashCode());
+        version = version * 31 + post.getHeartsCount();
+        version = version * 31 + post.getCommentsCount();
+        User user = post.getUser();
+        if (user != null) {
+            version = version * 31 + Objects.hash(user.getUserId(), user.getFirstName(), user.getLastName(),
+                    user.getProfileImagePath());
+        }
+        return version;
+    }
+
+    /**
+     * Renders all pieces of a post fragment.
+     * Returns null if a marker is missing, e.g. after a template change.
+     */
+    private Fragment render(Post post, long version) {
+        String shared = sharedTemplate.execute(post);
+        int heartAt = shared.indexOf(HEART_MARKER);
+        int bookmarkAt = heartAt < 0 ? -1 : shared.indexOf(BOOKMARK_MARKER, heartAt + HEART_MARKER.length());
+        if (bookmarkAt < 0) {
+            return null;
+        }
+
+        return new Fragment(version,
+                shared.substring(0, heartAt),
+                renderAction(heartTemplate, post, "isHearted", true, false),
+                renderAction(heartTemplate, post, "isHearted", false, false),
+                renderAction(heartTemplate, post, "isHearted", false, true),
+                shared.substring(heartAt + HEART_MARKER.length(), bookmarkAt),
+                renderAction(bookmarkTemplate, post, "isBookmarked", true, false),
+                renderAction(bookmarkTemplate, post, "isBookmarked", false, false),
+                renderAction(bookmarkTemplate, post, "isBookmarked", false, true),
+                shared.substring(bookmarkAt + BOOKMARK_MARKER.length()));
+    }
+
+    /**
+     * Renders one variant of a viewer specific partial.
+     *
+     * @param unknown Renders the variant for a flag that could not be looked up.
+     */
+    private static String renderAction(Template template, Post post, String flag, boolean value,
+            boolean unknown) {
+        Map<String, Object> context = new HashMap<>();
+        context.put("postId", post.getPostId());
+        context.put("heartsCountText", post.getHeartsCountText());
+        context.put(flag, value);
+        context.put(flag + "Unknown", unknown);
+        return template.execute(context);
+    }
+
+    /**
+     * Pre-rendered pieces of a single post.
+     */
+    private static class Fragment {
+        private final long version;
+        private final String head;
+        private final String hearted;
+        private final String notHearted;
+        private final String heartUnknown;
+        private final String middle;
+        private final String bookmarked;
+        private final String notBookmarked;
+        private final String bookmarkUnknown;
+        private final String tail;
+        // Set when reused, cleared by evict.
+        private volatile boolean used = false;
+
+        private Fragment(long version, String head, String hearted, String notHearted, String heartUnknown,
+                String middle, String bookmarked, String notBookmarked, String bookmarkUnknown, String tail) {
+            this.version = version;
+            this.head = head;
+            this.hearted = hearted;
+            this.notHearted = notHearted;
+            this.heartUnknown = heartUnknown;
+            this.middle = middle;
+            this.bookmarked = bookmarked;
+            this.notBookmarked = notBookmarked;
+            this.bookmarkUnknown = bookmarkUnknown;
+            this.tail = tail;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.components;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import uga.menik.cs4370.utility.LogSampler;
+
+/**
+ * This class checks how many SQL statements each request runs.
+ * It catches N+1 query patterns, where a page runs one query per listed
+ * item, before they reach production.
+ *
+ * Each handler can have a budget, the most statements one request may run,
+ * set with app.query-budget.endpoints. A request over its budget is logged
+ * together with the statements it ran. A statement that runs more than
+ * app.query-budget.repeat-threshold times in one request is logged as a
+ * likely N+1 even without a budget.
+ *
+ * With app.query-budget.fail-on-violation=true a request over its budget
+ * fails with a 500 error instead, so integration tests and load runs notice.
+ * The statement count is also sent in the X-Query-Count response header.
+ *
+ * Statements are counted by RequestMetricsInterceptor and MetricsRegistry,
+ * which must run first. See WebConfig.java.
+ */
+@Component
+public class QueryBudgetInterceptor implements HandlerInterceptor {
+    private static final Logger log = LoggerFactory.getLogger(QueryBudgetInterceptor.class);
+    // Every request to a slow page would otherwise log the same thing.
+    private static final LogSampler violationLog = LogSampler.limitPerSecond(1);
+
+    // Response header holding the number of statements the request ran.
+    public static final String QUERY_COUNT_HEADER = "X-Query-Count";
+
+    private final MetricsRegistry metrics;
+    private final boolean enabled;
+    private final boolean failOnViolation;
+    private final int repeatThreshold;
+    // Handler name to the most statements one request may run.
+    private final Map<String, Integer> budgets = new HashMap<>();
+
+    /**
+     * See AuthInterceptor notes regarding dependency injection and
+     * inversion of control.
+     *
+     * @param endpoints Budgets as Handler.method=count pairs separated by commas,
+     *                  e.g. HomeController.webpage=8,PeopleController.webpage=3.
+     */
+    @Autowired
+    public QueryBudgetInterceptor(MetricsRegistry metrics,
+            @Value("${app.query-budget.enabled:false}") boolean enabled,
+            @Value("${app.query-budget.fail-on-violation:false}") boolean failOnViolation,
+            @Value("${app.query-budget.repeat-threshold:10}") int repeatThreshold,
+            @Value("${app.query-budget.endpoints:}") String endpoints) {
+        this.metrics = metrics;
+        this.enabled = enabled;
+        this.failOnViolation = failOnViolation;
+        this.repeatThreshold = repeatThreshold;
+        for (String entry : endpoints.split(",")) {
+            int eq = entry.lastIndexOf('=');
+            if (eq > 0) {
+                budgets.put(entry.substring(0, eq).trim(), Integer.parseInt(entry.substring(eq + 1).trim()));
+            }
+        }
+    }
+
+    /**
+     * Runs after the controller method and before the view is rendered,
+     * so the response can still be changed.
+     */
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response,
+            Object handler, ModelAndView modelAndView) throws Exception {
+        MetricsRegistry.RequestQueries queries = metrics.currentRequest();
+        if (!enabled || queries == null || response.isCommitted()) {
+            return;
+        }
+        response.setIntHeader(QUERY_COUNT_HEADER, queries.getTotal());
+        if (failOnViolation && isOverBudget(queries)) {
+            throw new IllegalStateException(describe(queries, request));
+        }
+    }
+
+    /**
+     * Logs violations once the request is done. Streamed pages run their
+     * queries while writing the response, so they are only checked here.
+     */
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+            Object handler, Exception ex) throws Exception {
+        MetricsRegistry.RequestQueries queries = metrics.currentRequest();
+        if (!enabled || queries == null) {
+            return;
+        }
+        if (isOverBudget(queries)) {
+            if (violationLog.sample()) {
+                log.atWarn().addKeyValue("handler", queries.getHandler())
+                        .addKeyValue("queries", queries.getTotal())
+                        .addKeyValue("suppressed", violationLog.drainSuppressed())
+                        .log(describe(queries, request));
+            }
+            return;
+        }
+        for (Map.Entry<String, Integer> count : queries.getCounts().entrySet()) {
+            if (count.getValue() > repeatThreshold) {
+                if (violationLog.sample()) {
+                    log.atWarn().addKeyValue("handler", queries.getHandler())
+                            .addKeyValue("query", count.getKey())
+                            .addKeyValue("count", count.getValue())
+                            .addKeyValue("suppressed", violationLog.drainSuppressed())
+                            .log("Possible N+1 query: {} ran {} times in one request to {} ({}).",
+                                    count.getKey(), count.getValue(), queries.getHandler(), request.getRequestURI());
+                }
+            }
+        }
+    }
+
+    private boolean isOverBudget(MetricsRegistry.RequestQueries queries) {
+        Integer budget = budgets.get(queries.getHandler());
+        return budget != null && queries.getTotal() > budget;
+    }
+
+    private static String describe(MetricsRegistry.RequestQueries queries, HttpServletRequest request) {
+        return "Query budget exceeded: " + queries.getHandler() + " (" + request.getRequestURI() + ") ran "
+                + queries.getTotal() + " statements: " + queries.getCounts();
+    }
+}
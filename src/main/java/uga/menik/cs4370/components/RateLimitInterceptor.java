@@ -0,0 +1,137 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.components;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import uga.menik.cs4370.models.User;
+import uga.menik.cs4370.services.UserService;
+import uga.menik.cs4370.utility.LogSampler;
+import uga.menik.cs4370.utility.RateLimiter;
+
+/**
+ * This class limits how often a user and an IP address may call the
+ * handlers that write, e.g. creating posts, hearts and follows. One client
+ * sending them in a loop would otherwise keep the connection pool busy for
+ * everyone.
+ *
+ * Each handler listed in app.rate-limit.endpoints gets a token bucket per
+ * logged in user and a bucket per IP address that allows
+ * app.rate-limit.ip-factor times as much, for users sharing an address.
+ * A request over either limit is answered with 429 Too Many Requests and a
+ * Retry-After header before the controller runs, so it costs no database
+ * work. See RateLimiter.java.
+ *
+ * It is registered after AuthInterceptor so the user is known. See WebConfig.java.
+ */
+@Component
+public class RateLimitInterceptor implements HandlerInterceptor {
+    private static final Logger log = LoggerFactory.getLogger(RateLimitInterceptor.class);
+    // A client over its limit usually keeps trying.
+    private static final LogSampler limitedLog = LogSampler.limitPerSecond(1);
+
+    private final UserService userService;
+    private final MetricsRegistry metrics;
+    private final boolean enabled;
+    // Handler name to the limits of its callers.
+    private final Map<String, Limits> limits = new HashMap<>();
+
+    /**
+     * See AuthInterceptor notes regarding dependency injection and
+     * inversion of control.
+     *
+     * @param endpoints Limits as Handler.method=perSecond:burst pairs separated
+     *                  by commas, e.g. HomeController.createPost=1:10.
+     */
+    @Autowired
+    public RateLimitInterceptor(UserService userService, MetricsRegistry metrics,
+            @Value("${app.rate-limit.enabled:true}") boolean enabled,
+            @Value("${app.rate-limit.endpoints:}") String endpoints,
+            @Value("${app.rate-limit.ip-factor:20}") int ipFactor,
+            @Value("${app.rate-limit.max-keys:100000}") int maxKeys) {
+        this.userService = userService;
+        this.metrics = metrics;
+        this.enabled = enabled;
+        for (String entry : endpoints.split(",")) {
+            int eq = entry.lastIndexOf('=');
+            int colon = entry.lastIndexOf(':');
+            if (eq > 0 && colon > eq) {
+                double perSecond = Double.parseDouble(entry.substring(eq + 1, colon).trim());
+                int burst = Integer.parseInt(entry.substring(colon + 1).trim());
+                limits.put(entry.substring(0, eq).trim(), new Limits(
+                        new RateLimiter(perSecond, burst, maxKeys),
+                        new RateLimiter(perSecond * ipFactor, burst * ipFactor, maxKeys)));
+            }
+        }
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request,
+            HttpServletResponse response, Object handler) throws Exception {
+        if (!enabled) {
+            return true;
+        }
+        String handlerName = RequestMetricsInterceptor.nameOf(handler);
+        Limits handlerLimits = limits.get(handlerName);
+        if (handlerLimits == null) {
+            return true;
+        }
+        User user = userService.getLoggedInUser();
+        String limit = "user";
+        long waitNanos = user == null ? 0 : handlerLimits.perUser.tryAcquire(user.getUserId());
+        if (waitNanos == 0) {
+            limit = "ip";
+            waitNanos = handlerLimits.perIp.tryAcquire(request.getRemoteAddr());
+            if (waitNanos != 0 && user != null) {
+                // Users behind a busy address keep their own tokens for later.
+                handlerLimits.perUser.refund(user.getUserId());
+            }
+        }
+        if (waitNanos == 0) {
+            return true;
+        }
+
+        long retryAfterSeconds = TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1);
+        metrics.recordRateLimited(handlerName, limit);
+        if (limitedLog.sample()) {
+            log.atWarn().addKeyValue("handler", handlerName)
+                    .addKeyValue("limit", limit)
+                    .addKeyValue("userId", user == null ? null : user.getUserId())
+                    .addKeyValue("ip", request.getRemoteAddr())
+                    .addKeyValue("suppressed", limitedLog.drainSuppressed())
+                    .log("Rate limit hit. Answering 429.");
+        }
+        response.setStatus(429);
+        response.setHeader("Retry-After", Long.toString(retryAfterSeconds));
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write("Too many requests. Please try again in " + retryAfterSeconds + " seconds.\n");
+        return false;
+    }
+
+    /**
+     * The buckets of one handler.
+     */
+    private static class Limits {
+        private final RateLimiter perUser;
+        private final RateLimiter perIp;
+
+        private Limits(RateLimiter perUser, RateLimiter perIp) {
+            this.perUser = perUser;
+            this.perIp = perIp;
+        }
+    }
+}
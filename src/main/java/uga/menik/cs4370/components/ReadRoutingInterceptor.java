@@ -0,0 +1,64 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.components;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import uga.menik.cs4370.config.ReadReplicaDataSource;
+
+/**
+ * This class makes users read their own writes when reads go to replicas.
+ * A request that writes, e.g. adding a heart, remembers the time in the
+ * session. Reads of the following requests of that session go to the primary
+ * until app.datasource.read-your-writes-ms passed, which is enough for the
+ * replicas to catch up. Usually the next request is the redirect back to the
+ * page the user came from. See ReadReplicaDataSource.java.
+ */
+@Component
+public class ReadRoutingInterceptor implements HandlerInterceptor {
+
+    // Session attribute holding the time of the session's last write.
+    private static final String LAST_WRITE_ATTRIBUTE = ReadRoutingInterceptor.class.getName() + ".lastWrite";
+
+    private final long readYourWritesMillis;
+
+    /**
+     * See AuthInterceptor notes regarding dependency injection and
+     * inversion of control.
+     */
+    @Autowired
+    public ReadRoutingInterceptor(@Value("${app.datasource.read-your-writes-ms:5000}") long readYourWritesMillis) {
+        this.readYourWritesMillis = readYourWritesMillis;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request,
+            HttpServletResponse response, Object handler) throws Exception {
+        HttpSession session = request.getSession(false);
+        Object lastWrite = session == null ? null : session.getAttribute(LAST_WRITE_ATTRIBUTE);
+        boolean wroteRecently = lastWrite != null
+                && System.currentTimeMillis() - (Long) lastWrite < readYourWritesMillis;
+        ReadReplicaDataSource.startRequest(wroteRecently);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request,
+            HttpServletResponse response, Object handler, Exception ex) throws Exception {
+        ReadReplicaDataSource.Routing routing = ReadReplicaDataSource.currentRouting();
+        HttpSession session = request.getSession(false);
+        if (routing != null && routing.hasWritten() && session != null) {
+            session.setAttribute(LAST_WRITE_ATTRIBUTE, System.currentTimeMillis());
+        }
+        ReadReplicaDataSource.endRequest();
+    }
+}
@@ -0,0 +1,68 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.components;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * This class times every request that goes into a controller and reports
+ * it to the MetricsRegistry under the name of the controller method,
+ * e.g. HomeController.webpage. It is registered before AuthInterceptor
+ * so redirected requests are counted too. See WebConfig.java.
+ */
+@Component
+public class RequestMetricsInterceptor implements HandlerInterceptor {
+
+    // Request attribute holding the start time of the request.
+    private static final String START_ATTRIBUTE = RequestMetricsInterceptor.class.getName() + ".start";
+
+    private final MetricsRegistry metrics;
+
+    /**
+     * See AuthInterceptor notes regarding dependency injection and
+     * inversion of control.
+     */
+    @Autowired
+    public RequestMetricsInterceptor(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request,
+            HttpServletResponse response, Object handler) throws Exception {
+        request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        metrics.startRequest(nameOf(handler));
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request,
+            HttpServletResponse response, Object handler, Exception ex) throws Exception {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (start != null) {
+            boolean failed = ex != null || response.getStatus() >= 500;
+            metrics.recordHandler(nameOf(handler), System.nanoTime() - (Long) start, failed);
+        }
+        metrics.endRequest();
+    }
+
+    /**
+     * Returns ControllerClass.method for controller methods.
+     */
+    static String nameOf(Object handler) {
+        if (handler instanceof HandlerMethod) {
+            HandlerMethod method = (HandlerMethod) handler;
+            return method.getBeanType().getSimpleName() + "." + method.getMethod().getName();
+        }
+        return handler.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,192 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.components;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.samskivert.mustache.Mustache;
+import com.samskivert.mustache.Template;
+
+import jakarta.servlet.http.HttpServletResponse;
+import uga.menik.cs4370.models.Post;
+
+/**
+ * This class renders pages that list posts without waiting for all posts.
+ * The page is rendered once with markers in place of the posts in
+ * fragments/posts_container and of fragments/no_content_message. Everything
+ * in front of the no content message is written and flushed right away.
+ * Posts are then written as they are read from the database and flushed in
+ * chunks, followed by the rest of the page. The part between the two
+ * markers waits for the first post, or the end of the list, since only
+ * then it is known whether the no content message belongs in front of it.
+ * Controllers use this instead of a ModelAndView when it is enabled.
+ */
+@Component
+public class StreamingPageRenderer {
+
+    private static final String NO_CONTENT_PARTIAL = "fragments/no_content_message";
+
+    // Markers rendered in place of the posts and of the no content message.
+    private static final String POSTS_MARKER = "\u0000posts\u0000";
+    private static final String NO_CONTENT_MARKER = "\u0000no-content\u0000";
+
+    // Compiler that renders a marker in place of the no content message.
+    private final Mustache.Compiler pageCompiler;
+    private final Template noContentTemplate;
+    private final PostFragmentCache postFragmentCache;
+    private final boolean enabled;
+    private final int chunkSize;
+
+    // Pages with the no content marker, keyed by template name.
+    private final Map<String, Template> pages = new ConcurrentHashMap<>();
+
+    /**
+     * See AuthInterceptor notes regarding dependency injection and
+     * inversion of control.
+     */
+    @Autowired
+    public StreamingPageRenderer(Mustache.Compiler compiler, PostFragmentCache postFragmentCache,
+            @Value("${app.render.streaming.enabled:false}") boolean enabled,
+            @Value("${app.render.streaming.chunk-size:20}") int chunkSize) {
+        Mustache.TemplateLoader loader = compiler.loader;
+        Mustache.Escaper escaper = compiler.escaper;
+        // Model values lose NUL characters so they cannot pass for a marker.
+        this.pageCompiler = compiler.withEscaper(
+                raw -> escaper.escape(raw.indexOf('\u0000') < 0 ? raw : raw.replace("\u0000", ""))
+        ).withLoader(name -> {
+            if (NO_CONTENT_PARTIAL.equals(name)) {
+                // Whether there is content is only known once posts are read.
+                return new StringReader(NO_CONTENT_MARKER);
+            }
+            return loader.getTemplate(name);
+        });
+        this.noContentTemplate = compiler.loadTemplate(NO_CONTENT_PARTIAL);
+        this.postFragmentCache = postFragmentCache;
+        this.enabled = enabled;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Returns true if pages should be streamed.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Writes and flushes the part of the page in front of the posts.
+     * The returned writer takes posts one at a time and has to be closed
+     * to write the rest of the page.
+     *
+     * @param page The name of the page template, e.g. home_page.
+     * @param model Values used by the page other than the posts.
+     * @param response The response the page is written to.
+     * @return A writer that accepts the posts of the page.
+     * @throws IOException If writing to the response fails or the page
+     *                     has no posts container or no content message.
+     */
+    public PostWriter start(String page, Map<String, Object> model,
+            HttpServletResponse response) throws IOException {
+        Map<String, Object> context = new HashMap<>(model);
+        // posts_container writes postsHtml as is. See PostFragmentCache.java.
+        context.put("postsHtml", POSTS_MARKER);
+        context.remove("isNoContent");
+        String html = pages.computeIfAbsent(page, pageCompiler::loadTemplate).execute(context);
+        int noContentAt = html.indexOf(NO_CONTENT_MARKER);
+        int postsAt = noContentAt < 0 ? -1 : html.indexOf(POSTS_MARKER, noContentAt);
+        if (postsAt < 0) {
+            throw new IOException("Page " + page + " lacks the no content message or the posts container.");
+        }
+
+        response.setContentType("text/html;charset=UTF-8");
+        PrintWriter out = response.getWriter();
+        out.write(html, 0, noContentAt);
+        response.flushBuffer();
+
+        context.put("isNoContent", false);
+        String withContent = noContentTemplate.execute(context);
+        context.put("isNoContent", true);
+        String withoutContent = noContentTemplate.execute(context);
+        String middle = html.substring(noContentAt + NO_CONTENT_MARKER.length(), postsAt);
+        return new PostWriter(out, response, withContent + middle, withoutContent + middle,
+                html.substring(postsAt + POSTS_MARKER.length()));
+    }
+
+    /**
+     * Writes posts of a streamed page and flushes them in chunks.
+     */
+    public class PostWriter implements Consumer<Post>, AutoCloseable {
+
+        private final PrintWriter out;
+        private final HttpServletResponse response;
+        // The page from the no content message to the posts, with and
+        // without the message shown.
+        private final String withContent;
+        private final String withoutContent;
+        private final String tail;
+        private final StringBuilder chunk = new StringBuilder();
+        private int count = 0;
+
+        private PostWriter(PrintWriter out, HttpServletResponse response, String withContent,
+                String withoutContent, String tail) {
+            this.out = out;
+            this.response = response;
+            this.withContent = withContent;
+            this.withoutContent = withoutContent;
+            this.tail = tail;
+        }
+
+        /**
+         * Adds a post to the page. Every chunkSize posts are flushed together.
+         */
+        @Override
+        public void accept(Post post) {
+            if (count == 0) {
+                chunk.append(withContent);
+            }
+            postFragmentCache.renderPost(post, chunk);
+            count++;
+            if (count % chunkSize == 0) {
+                flush();
+            }
+        }
+
+        /**
+         * Writes what is left of the page.
+         */
+        @Override
+        public void close() {
+            if (count == 0) {
+                out.write(withoutContent);
+            }
+            out.append(chunk);
+            chunk.setLength(0);
+            out.write(tail);
+            out.flush();
+        }
+        private void flush() {
+            out.append(chunk);
+            chunk.setLength(0);
+            try {
+                response.flushBuffer();
+            } catch (IOException e) {
+                // The client went away. This stops reading further rows.
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
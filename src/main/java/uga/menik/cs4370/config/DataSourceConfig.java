@@ -0,0 +1,117 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import uga.menik.cs4370.components.MetricsRegistry;
+import uga.menik.cs4370.repositories.jdbc.HotDataCache;
+
+/**
+ * This configuration creates the two DataSources services use.
+ *
+ * dataSource talks to the primary database from spring.datasource.*. It is
+ * injected wherever no qualifier is given and is used for writes and for
+ * reads that have to see the latest writes, e.g. logging in.
+ *
+ * readDataSource is injected with @Qualifier("readDataSource") and is used
+ * by service methods that only read. It spreads connections over the
+ * replicas in app.datasource.replicas. See ReadReplicaDataSource.java.
+ * Without replicas it simply hands out primary connections.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    /**
+     * The primary connection pool, configured like the one Spring Boot
+     * would create, including spring.datasource.hikari.* settings.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties, Environment environment,
+            @Value("${app.datasource.replicas:}") List<String> replicaUrls) {
+        HikariDataSource pool = createPool(properties, environment, properties.determineUrl());
+        if (replicaUrls.isEmpty()) {
+            return pool;
+        }
+        // Only needed to keep users reading their own writes from the primary.
+        return ReadReplicaDataSource.trackWrites(pool);
+    }
+
+    /**
+     * The DataSource for queries that only read.
+     * Replica pools use the primary's credentials and pool settings.
+     */
+    @Bean(destroyMethod = "close")
+    public ReadReplicaDataSource readDataSource(@Qualifier("dataSource") DataSource primary,
+            DataSourceProperties properties, Environment environment, MetricsRegistry metrics,
+            @Value("${app.datasource.replicas:}") List<String> replicaUrls,
+            @Value("${app.datasource.replica-connection-timeout-ms:1000}") long connectionTimeoutMillis,
+            @Value("${app.datasource.replica-health-check-ms:5000}") long healthCheckMillis,
+            @Value("${app.datasource.replica-max-lag-seconds:5}") long maxLagSeconds) {
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : replicaUrls) {
+            if (url.isBlank()) {
+                continue;
+            }
+            HikariDataSource pool = createPool(properties, environment, url.trim());
+            pool.setPoolName("replica-" + (replicas.size() + 1));
+            // Give up on a replica quickly and read from another one instead.
+            pool.setConnectionTimeout(connectionTimeoutMillis);
+            // Start even if the replica is down. The health checks notice when it is up.
+            pool.setInitializationFailTimeout(-1);
+            // Replica pools are not beans, so they are instrumented here.
+            // See MetricsConfig.java.
+            replicas.add(InstrumentedDataSource.wrap(pool, metrics));
+        }
+        return new ReadReplicaDataSource(primary, replicas, healthCheckMillis, maxLagSeconds);
+    }
+
+    /**
+     * Creates a pool for the given URL with the spring.datasource credentials
+     * and hikari settings. Also used by ShardingConfig.java.
+     */
+    static HikariDataSource createPool(DataSourceProperties properties, Environment environment,
+            String url) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(url)
+                .build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        if (environment.getProperty("app.cache.hot-data.enabled", Boolean.class, false)) {
+            // Recorded by the change_log triggers so HotDataWarmup can tell
+            // this instance's writes apart. See HotDataCache.INSTANCE_ID.
+            addSessionVariables(pool, "@app_instance_id = '" + HotDataCache.INSTANCE_ID + "'");
+        }
+        return pool;
+    }
+
+    /**
+     * Adds assignments to the SET statement the pool runs on every new
+     * connection. A spring.datasource.hikari.connection-init-sql of its own
+     * has to be a SET statement too.
+     */
+    static void addSessionVariables(HikariDataSource pool, String assignments) {
+        String initSql = pool.getConnectionInitSql();
+        pool.setConnectionInitSql(initSql == null || initSql.isBlank()
+                ? "SET " + assignments : initSql + ", " + assignments);
+    }
+}
@@ -0,0 +1,90 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.resource.HttpResource;
+import org.springframework.web.servlet.resource.ResourceResolver;
+import org.springframework.web.servlet.resource.ResourceResolverChain;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * This resource resolver reads static files into memory once.
+ * It sits behind Spring's caching resolver, so the in-memory copy is what
+ * gets cached and later requests never touch the classpath again.
+ * Headers added by other resolvers, e.g. Content-Encoding for .gz files,
+ * are kept. See WebConfig.java.
+ */
+public class InMemoryResourceResolver implements ResourceResolver {
+
+    @Override
+    public Resource resolveResource(HttpServletRequest request, String requestPath,
+            List<? extends Resource> locations, ResourceResolverChain chain) {
+        Resource resource = chain.resolveResource(request, requestPath, locations);
+        if (resource == null || resource instanceof InMemoryResource) {
+            return resource;
+        }
+        try {
+            return new InMemoryResource(resource);
+        } catch (IOException e) {
+            // Fall back to serving it from where it is.
+            return resource;
+        }
+    }
+
+    @Override
+    public String resolveUrlPath(String resourcePath, List<? extends Resource> locations,
+            ResourceResolverChain chain) {
+        return chain.resolveUrlPath(resourcePath, locations);
+    }
+
+    /**
+     * Static file content held in memory.
+     */
+    private static class InMemoryResource extends ByteArrayResource implements HttpResource {
+
+        private final String filename;
+        private final long lastModified;
+        private final HttpHeaders headers;
+
+        private InMemoryResource(Resource resource) throws IOException {
+            super(readAll(resource), resource.getDescription());
+            this.filename = resource.getFilename();
+            this.lastModified = resource.lastModified();
+            this.headers = resource instanceof HttpResource
+                    ? ((HttpResource) resource).getResponseHeaders()
+                    : new HttpHeaders();
+        }
+
+        private static byte[] readAll(Resource resource) throws IOException {
+            try (InputStream in = resource.getInputStream()) {
+                return in.readAllBytes();
+            }
+        }
+
+        @Override
+        public String getFilename() {
+            return filename;
+        }
+
+        @Override
+        public long lastModified() {
+            return lastModified;
+        }
+
+        @Override
+        public HttpHeaders getResponseHeaders() {
+            return headers;
+        }
+    }
+}
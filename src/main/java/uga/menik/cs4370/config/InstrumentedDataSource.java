@@ -0,0 +1,188 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.config;
+
+import java.io.Closeable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.sql.DataSource;
+
+import uga.menik.cs4370.components.MetricsRegistry;
+
+/**
+ * Wraps the application's DataSource so every SQL statement reports its
+ * latency, errors and rows read to the MetricsRegistry. Time spent in
+ * getConnection is reported as pool wait time. See MetricsConfig.java.
+ *
+ * Statements are named after the repository method that prepared them, found
+ * once per distinct SQL string by walking the stack. Repositories do not have
+ * to change to be measured.
+ *
+ * The wrapped DataSource is also Closeable and closes the target, so Spring
+ * still closes a wrapped pool bean on shutdown.
+ */
+public final class InstrumentedDataSource {
+
+    // Prefix of the classes statements are named after. Only classes whose
+    // name ends with Repository count, so shared helpers are skipped.
+    private static final String REPOSITORIES_PACKAGE = "uga.menik.cs4370.repositories.";
+    // Bounds the name cache. SQL built with a varying number of placeholders
+    // only adds a handful of entries per call site.
+    private static final int MAX_CACHED_NAMES = 2000;
+
+    private static final StackWalker stackWalker = StackWalker.getInstance();
+    private static final Map<String, String> names = new ConcurrentHashMap<>();
+
+    private InstrumentedDataSource() {
+    }
+
+    /**
+     * Returns a DataSource that reports to the given registry and otherwise
+     * behaves exactly like the target.
+     */
+    public static DataSource wrap(DataSource target, MetricsRegistry metrics) {
+        return wrap(target, metrics, null);
+    }
+
+    /**
+     * Like wrap, and additionally reports every statement's latency under the
+     * given shard name. See ShardMap.java.
+     */
+    public static DataSource wrap(DataSource target, MetricsRegistry metrics, String shard) {
+        return proxy(DataSource.class, target, (method, args) -> {
+            if (method.getDeclaringClass() == Closeable.class) {
+                if (target instanceof AutoCloseable) {
+                    ((AutoCloseable) target).close();
+                }
+                return null;
+            }
+            if (!method.getName().equals("getConnection")) {
+                return method.invoke(target, args);
+            }
+            long start = System.nanoTime();
+            try {
+                return wrapConnection((Connection) method.invoke(target, args), metrics, shard);
+            } finally {
+                metrics.recordPoolWait(System.nanoTime() - start);
+            }
+        });
+    }
+
+    private static Connection wrapConnection(Connection target, MetricsRegistry metrics, String shard) {
+        return proxy(Connection.class, target, (method, args) -> {
+            Object result = method.invoke(target, args);
+            if (result instanceof PreparedStatement && args != null && args[0] instanceof String) {
+                return wrapStatement((PreparedStatement) result, nameOf((String) args[0]), metrics, shard);
+            }
+            return result;
+        });
+    }
+
+    private static PreparedStatement wrapStatement(PreparedStatement target, String name, MetricsRegistry metrics,
+            String shard) {
+        return proxy(PreparedStatement.class, target, (method, args) -> {
+            if (!method.getName().startsWith("execute")) {
+                return method.invoke(target, args);
+            }
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                Object result = method.invoke(target, args);
+                failed = false;
+                if (result instanceof ResultSet) {
+                    return wrapResultSet((ResultSet) result, name, metrics);
+                }
+                return result;
+            } finally {
+                long nanos = System.nanoTime() - start;
+                metrics.recordQuery(name, nanos, failed);
+                if (shard != null) {
+                    metrics.recordShardQuery(shard, nanos, failed);
+                }
+            }
+        });
+    }
+
+    private static ResultSet wrapResultSet(ResultSet target, String name, MetricsRegistry metrics) {
+        long[] rows = new long[1];
+        return proxy(ResultSet.class, target, (method, args) -> {
+            if (method.getName().equals("close")) {
+                metrics.recordRows(name, rows[0]);
+                rows[0] = 0;
+                return method.invoke(target, args);
+            }
+            Object result = method.invoke(target, args);
+            if (Boolean.TRUE.equals(result) && method.getName().equals("next")) {
+                rows[0]++;
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Returns the name of the repository method preparing the given SQL,
+     * e.g. JdbcHeartRepository.exists, or the SQL itself if it is not
+     * prepared by a repository.
+     */
+    private static String nameOf(String sql) {
+        String name = names.get(sql);
+        if (name != null) {
+            return name;
+        }
+        name = stackWalker.walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith(REPOSITORIES_PACKAGE)
+                        && frame.getClassName().endsWith("Repository"))
+                .findFirst()
+                .map(frame -> frame.getClassName().substring(frame.getClassName().lastIndexOf('.') + 1)
+                        + "." + methodName(frame.getMethodName()))
+                .orElse(sql.replaceAll("\\s+", " ").trim()));
+        if (names.size() < MAX_CACHED_NAMES) {
+            names.put(sql, name);
+        }
+        return name;
+    }
+
+    /**
+     * Returns the method a lambda was written in, e.g. getPosts for
+     * lambda$getPosts$2, so queries run by shard tasks are named like the others.
+     */
+    private static String methodName(String name) {
+        if (name.startsWith("lambda$")) {
+            int end = name.indexOf('$', 7);
+            return end > 7 ? name.substring(7, end) : name;
+        }
+        return name;
+    }
+
+    /**
+     * A method call on a wrapped JDBC object.
+     */
+    private interface Call {
+        Object invoke(Method method, Object[] args) throws Throwable;
+    }
+
+    private static <T> T proxy(Class<T> type, T target, Call call) {
+        Class<?>[] interfaces = type == DataSource.class ? new Class<?>[] { type, Closeable.class }
+                : new Class<?>[] { type };
+        InvocationHandler handler = (proxy, method, args) -> {
+            try {
+                return call.invoke(method, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return type.cast(Proxy.newProxyInstance(InstrumentedDataSource.class.getClassLoader(),
+                interfaces, handler));
+    }
+}
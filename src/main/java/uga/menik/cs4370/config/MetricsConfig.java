@@ -0,0 +1,68 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.config;
+
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import uga.menik.cs4370.components.MetricsRegistry;
+
+/**
+ * This configuration wraps the DataSource Spring Boot creates so that every
+ * service gets an instrumented one injected. See InstrumentedDataSource.java.
+ */
+@Configuration
+public class MetricsConfig {
+    private static final Logger log = LoggerFactory.getLogger(MetricsConfig.class);
+
+    /**
+     * Replaces DataSource beans with instrumented ones as they are created.
+     * Static so it is registered before the DataSource bean is created.
+     */
+    @Bean
+    public static BeanPostProcessor instrumentedDataSourcePostProcessor(ObjectProvider<MetricsRegistry> metrics) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // The read DataSource hands out connections of the primary
+                // and replica DataSources, which are instrumented already.
+                if (!(bean instanceof DataSource) || bean instanceof ReadReplicaDataSource) {
+                    return bean;
+                }
+                MetricsRegistry registry = metrics.getObject();
+                HikariDataSource pool = poolOf((DataSource) bean);
+                if (pool != null) {
+                    registry.setPool(pool);
+                }
+                return InstrumentedDataSource.wrap((DataSource) bean, registry);
+            }
+        };
+    }
+
+    /**
+     * Returns the connection pool behind a possibly wrapped DataSource or null.
+     */
+    private static HikariDataSource poolOf(DataSource dataSource) {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class);
+            }
+        } catch (SQLException e) {
+            log.atWarn().setCause(e).log("Cannot find the connection pool, pool metrics are off");
+        }
+        return null;
+    }
+}
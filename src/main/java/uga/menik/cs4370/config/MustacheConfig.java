@@ -0,0 +1,46 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.samskivert.mustache.DefaultCollector;
+import com.samskivert.mustache.Mustache;
+
+import uga.menik.cs4370.components.AssetManifest;
+
+/**
+ * This configuration replaces the Mustache compiler Spring Boot sets up.
+ * It is the same compiler except that a few helpers can be used
+ * from any template without adding them to every model.
+ */
+@Configuration
+public class MustacheConfig {
+
+    /**
+     * The compiler used by Spring's Mustache views, PostFragmentCache
+     * and StreamingPageRenderer.
+     * Available helpers:
+     * asset - See AssetManifest.java.
+     */
+    @Bean
+    public Mustache.Compiler mustacheCompiler(Mustache.TemplateLoader mustacheTemplateLoader,
+            AssetManifest assetManifest) {
+        Mustache.VariableFetcher assetFetcher = (ctx, name) -> assetManifest.getLambda();
+        return Mustache.compiler()
+                .withLoader(mustacheTemplateLoader)
+                .withCollector(new DefaultCollector() {
+                    @Override
+                    public Mustache.VariableFetcher createFetcher(Object ctx, String name) {
+                        if ("asset".equals(name)) {
+                            return assetFetcher;
+                        }
+                        return super.createFetcher(ctx, name);
+                    }
+                });
+    }
+}
@@ -0,0 +1,407 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.config;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The DataSource services use for queries that only read. Connections come
+ * from the read replicas in turn, skipping replicas that failed their last
+ * health check or are too far behind the primary. Without a healthy replica
+ * connections come from the primary. See DataSourceConfig.java.
+ *
+ * Users expect to see their own changes right away, e.g. the heart they just
+ * added. Replicas may not have them yet, so the current thread is sent to the
+ * primary once it wrote something, and ReadRoutingInterceptor.java sends
+ * every request of a session that wrote recently to the primary.
+ * Writes are noticed by the primary DataSource returned by trackWrites.
+ */
+public class ReadReplicaDataSource implements DataSource, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadReplicaDataSource.class);
+
+    // The routing of the request the current thread is working on.
+    private static final ThreadLocal<Routing> currentRouting = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final long maxLagSeconds;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final ScheduledExecutorService healthChecker;
+
+    /**
+     * Creates a DataSource that reads from the given replicas.
+     * Replicas are used once they passed their first health check.
+     *
+     * @param primary Used when no replica is healthy or the thread is routed to the primary.
+     * @param replicas The replicas, in the order they are used.
+     * @param healthCheckMillis How often replicas are checked.
+     * @param maxLagSeconds Replicas further behind the primary than this are not used.
+     */
+    public ReadReplicaDataSource(DataSource primary, List<DataSource> replicas,
+            long healthCheckMillis, long maxLagSeconds) {
+        this.primary = primary;
+        this.maxLagSeconds = maxLagSeconds;
+        for (int i = 0; i < replicas.size(); i++) {
+            this.replicas.add(new Replica("replica-" + (i + 1), replicas.get(i)));
+        }
+        if (this.replicas.isEmpty()) {
+            this.healthChecker = null;
+            return;
+        }
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecker.scheduleWithFixedDelay(this::checkReplicas, 0, Math.max(100, healthCheckMillis),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns a connection to a healthy replica or to the primary.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        Routing routing = currentRouting.get();
+        if (routing != null && routing.usePrimary()) {
+            return primary.getConnection();
+        }
+        int count = replicas.size();
+        for (int i = 0; i < count; i++) {
+            Replica replica = replicas.get(Math.floorMod(nextReplica.getAndIncrement(), count));
+            if (!replica.healthy) {
+                continue;
+            }
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException e) {
+                // Stays out of rotation until the next health check passes.
+                markUnhealthy(replica, e.getMessage());
+            }
+        }
+        return primary.getConnection();
+    }
+
+    /**
+     * Connections for other credentials always come from the primary.
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    /**
+     * Returns the number of replicas currently used for reads.
+     */
+    public int getHealthyReplicaCount() {
+        int healthy = 0;
+        for (Replica replica : replicas) {
+            if (replica.healthy) {
+                healthy++;
+            }
+        }
+        return healthy;
+    }
+
+    /**
+     * Checks that every replica answers and is not too far behind.
+     */
+    void checkReplicas() {
+        for (Replica replica : replicas) {
+            try (Connection conn = replica.dataSource.getConnection()) {
+                if (!conn.isValid(1)) {
+                    markUnhealthy(replica, "connection is not valid");
+                    continue;
+                }
+                Long lag = replicationLag(conn);
+                if (lag == null) {
+                    markUnhealthy(replica, "replication is not running");
+                } else if (lag > maxLagSeconds) {
+                    markUnhealthy(replica, lag + " seconds behind the primary");
+                } else if (!replica.healthy) {
+                    replica.healthy = true;
+                    log.atInfo().addKeyValue("replica", replica.name).log("Read replica is healthy");
+                }
+            } catch (SQLException e) {
+                markUnhealthy(replica, e.getMessage());
+            }
+            replica.checked = true;
+        }
+    }
+
+    /**
+     * Returns how many seconds the replica is behind the primary, null if
+     * replication is stopped, and 0 if the database is not a replica at all,
+     * e.g. a second standalone instance used for testing.
+     *
+     * @throws SQLException If the lag cannot be read, e.g. by a user without
+     *         REPLICATION CLIENT. The replica then counts as unhealthy.
+     */
+    private static Long replicationLag(Connection conn) throws SQLException {
+        try {
+            return replicationLag(conn, "SHOW REPLICA STATUS", "Seconds_Behind_Source");
+        } catch (SQLException e) {
+            // Servers before MySQL 8.0.22 only know the old names.
+            return replicationLag(conn, "SHOW SLAVE STATUS", "Seconds_Behind_Master");
+        }
+    }
+
+    private static Long replicationLag(Connection conn, String sql, String column) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql);
+                ResultSet rs = pstmt.executeQuery()) {
+            if (!rs.next()) {
+                return 0L;
+            }
+            long lag = rs.getLong(column);
+            return rs.wasNull() ? null : lag;
+        }
+    }
+
+    private static void markUnhealthy(Replica replica, String reason) {
+        // Logged when a replica goes down and when it is down from the start.
+        if (replica.healthy || !replica.checked) {
+            replica.healthy = false;
+            log.atWarn().addKeyValue("replica", replica.name)
+                    .addKeyValue("reason", reason)
+                    .log("Read replica is unhealthy. Reading from the other replicas or the primary.");
+        }
+    }
+
+    /**
+     * Stops the health checks and closes the replica pools.
+     */
+    @Override
+    public void close() throws IOException {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+        for (Replica replica : replicas) {
+            try {
+                if (replica.dataSource.isWrapperFor(Closeable.class)) {
+                    replica.dataSource.unwrap(Closeable.class).close();
+                }
+            } catch (SQLException e) {
+                log.atWarn().setCause(e).addKeyValue("replica", replica.name)
+                        .log("Cannot close the read replica connection pool");
+            }
+        }
+    }
+
+    /**
+     * Returns a DataSource that behaves exactly like the given primary and
+     * additionally marks the current thread's routing as having written once
+     * a statement other than a SELECT is prepared or run through a plain
+     * Statement. It is Closeable and
+     * closes the primary, so Spring still closes the pool on shutdown.
+     */
+    public static DataSource trackWrites(DataSource primary) {
+        return (DataSource) Proxy.newProxyInstance(ReadReplicaDataSource.class.getClassLoader(),
+                new Class<?>[] { DataSource.class, Closeable.class }, (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Closeable.class) {
+                        if (primary instanceof AutoCloseable) {
+                            ((AutoCloseable) primary).close();
+                        }
+                        return null;
+                    }
+                    Object result = invoke(primary, method, args);
+                    if (result instanceof Connection) {
+                        return trackWrites((Connection) result);
+                    }
+                    return result;
+                });
+    }
+
+    private static Connection trackWrites(Connection conn) {
+        return (Connection) Proxy.newProxyInstance(ReadReplicaDataSource.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                    if (method.getName().startsWith("prepare")) {
+                        noteWrite(args);
+                    }
+                    Object result = invoke(conn, method, args);
+                    if (method.getName().equals("createStatement")) {
+                        return trackWrites((Statement) result);
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * Notices writes run through a plain Statement, e.g. executeUpdate(sql).
+     */
+    private static Statement trackWrites(Statement statement) {
+        return (Statement) Proxy.newProxyInstance(ReadReplicaDataSource.class.getClassLoader(),
+                new Class<?>[] { Statement.class }, (proxy, method, args) -> {
+                    if (method.getName().startsWith("execute") || method.getName().equals("addBatch")) {
+                        noteWrite(args);
+                    }
+                    return invoke(statement, method, args);
+                });
+    }
+
+    /**
+     * Marks the current routing as having written if the SQL in the first
+     * argument is not a SELECT.
+     */
+    private static void noteWrite(Object[] args) {
+        if (args != null && args.length > 0 && args[0] instanceof String && !isRead((String) args[0])) {
+            Routing routing = currentRouting.get();
+            if (routing != null) {
+                routing.wrote = true;
+            }
+        }
+    }
+
+    private static boolean isRead(String sql) {
+        String trimmed = sql.stripLeading();
+        return trimmed.regionMatches(true, 0, "SELECT", 0, 6);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Marks the current thread as working on a request.
+     *
+     * @param wroteRecently Whether the request's session wrote recently and
+     *        should read from the primary.
+     * @return The routing of the new request.
+     */
+    public static Routing startRequest(boolean wroteRecently) {
+        Routing routing = new Routing(wroteRecently);
+        currentRouting.set(routing);
+        return routing;
+    }
+
+    /**
+     * Returns the routing of the request the current thread is working on or null.
+     */
+    public static Routing currentRouting() {
+        return currentRouting.get();
+    }
+
+    /**
+     * Lets a background thread read like the request it works for.
+     * Call with the result of currentRouting() taken on the request thread,
+     * and call endRequest once the background work is done.
+     */
+    public static void attach(Routing routing) {
+        if (routing != null) {
+            currentRouting.set(routing);
+        }
+    }
+
+    /**
+     * Marks the current thread as done with its request.
+     */
+    public static void endRequest() {
+        currentRouting.remove();
+    }
+
+    /**
+     * Where the reads of one request go.
+     */
+    public static class Routing {
+        private final boolean wroteRecently;
+        private volatile boolean wrote;
+
+        private Routing(boolean wroteRecently) {
+            this.wroteRecently = wroteRecently;
+        }
+
+        /**
+         * Returns true if the request wrote something itself.
+         */
+        public boolean hasWritten() {
+            return wrote;
+        }
+
+        boolean usePrimary() {
+            return wroteRecently || wrote;
+        }
+    }
+
+    /**
+     * One replica and whether it is used for reads.
+     */
+    private static class Replica {
+        final String name;
+        final DataSource dataSource;
+        volatile boolean healthy;
+        // Only written by the health check thread.
+        boolean checked;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return primary.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        primary.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        primary.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return primary.getLoginTimeout();
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return primary.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
@@ -0,0 +1,165 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.config;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class knows which database holds which posts.
+ *
+ * The post, heart, comment, bookmark and hashtag tables are partitioned by
+ * the author of the post. A user's posts and everything attached to them are
+ * on shard userId mod N, so a profile page only needs one shard. The user
+ * and follow tables stay on the primary database.
+ *
+ * Post IDs tell which shard they are on without a lookup: shard k hands out
+ * IDs k + 1, k + 1 + N, k + 1 + 2N and so on (auto_increment_offset and
+ * auto_increment_increment are set on every shard connection), so a post is
+ * on shard (postId - 1) mod N. Hearts, comments and bookmarks go to the
+ * shard of their post. Changing N therefore means moving rows and
+ * renumbering posts, which is done offline.
+ *
+ * Without app.sharding.shards there is a single shard backed by the primary
+ * and read DataSources and everything works as before. See ShardingConfig.java.
+ */
+public class ShardMap implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(ShardMap.class);
+
+    private final List<Shard> shards;
+
+    /**
+     * @param shards The shards, index k at position k.
+     */
+    public ShardMap(List<Shard> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is needed.");
+        }
+        this.shards = Collections.unmodifiableList(new ArrayList<>(shards));
+    }
+
+    /**
+     * Returns a map with one shard holding everything.
+     */
+    public static ShardMap single(DataSource dataSource, DataSource readDataSource) {
+        return new ShardMap(List.of(new Shard(0, "main", dataSource, readDataSource)));
+    }
+
+    /**
+     * Returns true if posts are spread over more than one database.
+     */
+    public boolean isSharded() {
+        return shards.size() > 1;
+    }
+
+    /**
+     * Returns all shards in index order.
+     */
+    public List<Shard> getShards() {
+        return shards;
+    }
+
+    /**
+     * Returns the shard holding the posts of the given user.
+     */
+    public Shard forUser(String userId) {
+        return shards.get(Math.floorMod(parseId(userId), shards.size()));
+    }
+
+    /**
+     * Returns the shard holding the given post and its hearts, comments,
+     * bookmarks and hashtags.
+     */
+    public Shard forPost(String postId) {
+        return shards.get(Math.floorMod(parseId(postId) - 1, shards.size()));
+    }
+
+    /**
+     * IDs that are not numbers cannot be in the database. They are sent to
+     * the first shard, where the query finds nothing.
+     */
+    private static long parseId(String id) {
+        try {
+            return Long.parseLong(id.trim());
+        } catch (NumberFormatException | NullPointerException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Closes the shard connection pools that belong to this map.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!isSharded()) {
+            // The single shard uses the application's DataSources.
+            return;
+        }
+        for (Shard shard : shards) {
+            try {
+                if (shard.dataSource.isWrapperFor(Closeable.class)) {
+                    shard.dataSource.unwrap(Closeable.class).close();
+                }
+            } catch (SQLException e) {
+                log.atWarn().setCause(e).addKeyValue("shard", shard.name)
+                        .log("Cannot close the shard connection pool");
+            }
+        }
+    }
+
+    /**
+     * One database holding a part of the posts.
+     */
+    public static class Shard {
+        private final int index;
+        private final String name;
+        private final DataSource dataSource;
+        private final DataSource readDataSource;
+
+        /**
+         * @param index The position of the shard in the map.
+         * @param name The name the shard is reported under in /metrics.
+         * @param dataSource Used for writes.
+         * @param readDataSource Used for queries that only read.
+         */
+        public Shard(int index, String name, DataSource dataSource, DataSource readDataSource) {
+            this.index = index;
+            this.name = name;
+            this.dataSource = dataSource;
+            this.readDataSource = readDataSource;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public DataSource getDataSource() {
+            return dataSource;
+        }
+
+        public DataSource getReadDataSource() {
+            return readDataSource;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
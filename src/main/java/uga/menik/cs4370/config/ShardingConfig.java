@@ -0,0 +1,69 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import uga.menik.cs4370.components.MetricsRegistry;
+
+/**
+ * This configuration creates the ShardMap services use to find the database
+ * of a post. Shards are listed in app.sharding.shards as JDBC URLs, shard 0
+ * first. Each shard has the tables from sql_files/shard_setup.sql.
+ */
+@Configuration
+public class ShardingConfig {
+
+    /**
+     * The shards, each with its own connection pool that uses the
+     * spring.datasource credentials and hikari settings.
+     * Without shards configured, the single shard is the primary database.
+     */
+    @Bean(destroyMethod = "close")
+    public ShardMap shardMap(DataSource dataSource,
+            @Qualifier("readDataSource") DataSource readDataSource,
+            DataSourceProperties properties, Environment environment, MetricsRegistry metrics,
+            @Value("${app.sharding.shards:}") List<String> shardUrls) {
+        List<String> urls = new ArrayList<>();
+        for (String url : shardUrls) {
+            if (!url.isBlank()) {
+                urls.add(url.trim());
+            }
+        }
+        if (urls.size() < 2) {
+            return ShardMap.single(dataSource, readDataSource);
+        }
+
+        List<ShardMap.Shard> shards = new ArrayList<>();
+        for (int index = 0; index < urls.size(); index++) {
+            String name = "shard-" + index;
+            HikariDataSource pool = DataSourceConfig.createPool(properties, environment, urls.get(index));
+            pool.setPoolName(name);
+            // Makes post IDs tell their shard. See ShardMap.java.
+            DataSourceConfig.addSessionVariables(pool, "auto_increment_increment = " + urls.size()
+                    + ", auto_increment_offset = " + (index + 1));
+            // Start even if a shard is down. Its posts are missing until it is up.
+            pool.setInitializationFailTimeout(-1);
+            // Shard pools are not beans, so they are instrumented here.
+            // See MetricsConfig.java.
+            DataSource shardDataSource = InstrumentedDataSource.wrap(pool, metrics, name);
+            shards.add(new ShardMap.Shard(index, name, shardDataSource, shardDataSource));
+        }
+        return new ShardMap(shards);
+    }
+}
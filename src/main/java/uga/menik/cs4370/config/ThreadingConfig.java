@@ -0,0 +1,116 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * This configuration decides which threads run requests and background work.
+ * By default Tomcat uses its own pool of platform threads.
+ * With app.threads.virtual.enabled=true every request and every task
+ * handed to serviceExecutor runs on its own virtual thread, so blocking
+ * JDBC calls no longer tie up a scarce pool thread.
+ * Virtual threads need Java 21. On older runtimes the setting is ignored.
+ */
+@Configuration
+public class ThreadingConfig {
+    private static final Logger log = LoggerFactory.getLogger(ThreadingConfig.class);
+
+    // Whether virtual threads were asked for and are available.
+    private final boolean virtual;
+    // Size of serviceExecutor when platform threads are used.
+    private final int servicePoolSize;
+
+    /**
+     * See AuthInterceptor notes regarding dependency injection and
+     * inversion of control.
+     */
+    @Autowired
+    public ThreadingConfig(@Value("${app.threads.virtual.enabled:false}") boolean virtualEnabled,
+            @Value("${app.threads.service-pool-size:16}") int servicePoolSize) {
+        boolean available = virtualThreadsAvailable();
+        if (virtualEnabled && !available) {
+            log.warn("Virtual threads need Java 21 or newer. Using platform threads.");
+        }
+        this.virtual = virtualEnabled && available;
+        this.servicePoolSize = servicePoolSize;
+    }
+
+    /**
+     * Runs Tomcat requests on virtual threads when enabled.
+     */
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> {
+            if (virtual) {
+                protocolHandler.setExecutor(newVirtualThreadExecutor());
+            }
+        };
+    }
+
+    /**
+     * Executor for work services run off the request thread.
+     * Services that fan out should bound how much they submit at once.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService serviceExecutor() {
+        if (virtual) {
+            return newVirtualThreadExecutor();
+        }
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "service-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(servicePoolSize, threadFactory);
+    }
+
+    /**
+     * Returns true if requests run on virtual threads.
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Returns true if the runtime supports virtual threads.
+     */
+    private static boolean virtualThreadsAvailable() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Creates a virtual thread per task executor.
+     * This is looked up reflectively so the project still builds for Java 17.
+     *
+     * @return The executor or null if the runtime has no virtual threads.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
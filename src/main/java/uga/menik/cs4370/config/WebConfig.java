@@ -5,12 +5,22 @@ This is a project developed by Dr. Menik to give the students an opportunity to
 */
 package uga.menik.cs4370.config;
 
+import java.util.concurrent.TimeUnit;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
 
 import uga.menik.cs4370.components.AuthInterceptor;
+import uga.menik.cs4370.components.LoadSheddingInterceptor;
+import uga.menik.cs4370.components.QueryBudgetInterceptor;
+import uga.menik.cs4370.components.RateLimitInterceptor;
+import uga.menik.cs4370.components.ReadRoutingInterceptor;
+import uga.menik.cs4370.components.RequestMetricsInterceptor;
 
 /**
  * This is a configuration class. See comments in AuthInterceptor.java
@@ -19,16 +29,41 @@ import uga.menik.cs4370.components.AuthInterceptor;
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    // Static files are served without any interceptor.
+    private static final String[] STATIC_PATHS = { "/css/**", "/js/**", "/avatars/**", "/assets/**" };
+    // Neither are metrics and health checks, which are polled constantly.
+    private static final String[] MONITORING_PATHS = { "/metrics", "/health/**" };
+
     // This is an object that allows redirection if user is logged in.
     private final AuthInterceptor authInterceptor;
+    // This is an object that times requests to controllers.
+    private final RequestMetricsInterceptor requestMetricsInterceptor;
+    // This is an object that turns requests away while the app is overloaded.
+    private final LoadSheddingInterceptor loadSheddingInterceptor;
+    // This is an object that checks how many queries requests run.
+    private final QueryBudgetInterceptor queryBudgetInterceptor;
+    // This is an object that sends reads to the primary after a user wrote.
+    private final ReadRoutingInterceptor readRoutingInterceptor;
+    // This is an object that limits how often users may write.
+    private final RateLimitInterceptor rateLimitInterceptor;
 
     /**
      * An AuthInterceptor will be initialized and provided
      * when a WebConfig is initalized by Spring Boot.
      */
     @Autowired
-    public WebConfig(AuthInterceptor authInterceptor) {
+    public WebConfig(AuthInterceptor authInterceptor,
+            RequestMetricsInterceptor requestMetricsInterceptor,
+            LoadSheddingInterceptor loadSheddingInterceptor,
+            QueryBudgetInterceptor queryBudgetInterceptor,
+            ReadRoutingInterceptor readRoutingInterceptor,
+            RateLimitInterceptor rateLimitInterceptor) {
         this.authInterceptor = authInterceptor;
+        this.requestMetricsInterceptor = requestMetricsInterceptor;
+        this.loadSheddingInterceptor = loadSheddingInterceptor;
+        this.queryBudgetInterceptor = queryBudgetInterceptor;
+        this.readRoutingInterceptor = readRoutingInterceptor;
+        this.rateLimitInterceptor = rateLimitInterceptor;
     }
 
     /**
@@ -37,14 +72,58 @@ public class WebConfig implements WebMvcConfigurer {
      */
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
+        // Registered first so it also times requests the auth check redirects.
+        registry.addInterceptor(requestMetricsInterceptor)
+                .addPathPatterns("/**")
+                .excludePathPatterns(MONITORING_PATHS)
+                .excludePathPatterns(STATIC_PATHS);
+        // Registered early so turned away requests cost little, but after
+        // requestMetricsInterceptor so they are still timed.
+        registry.addInterceptor(loadSheddingInterceptor)
+                .addPathPatterns("/**")
+                .excludePathPatterns(MONITORING_PATHS)
+                .excludePathPatterns(STATIC_PATHS);
+        // Registered after requestMetricsInterceptor, which counts the queries it checks.
+        registry.addInterceptor(queryBudgetInterceptor)
+                .addPathPatterns("/**")
+                .excludePathPatterns(MONITORING_PATHS)
+                .excludePathPatterns(STATIC_PATHS);
+        // Sends the reads of a session to the primary for a while after it wrote.
+        registry.addInterceptor(readRoutingInterceptor)
+                .addPathPatterns("/**")
+                .excludePathPatterns(MONITORING_PATHS)
+                .excludePathPatterns(STATIC_PATHS);
         registry.addInterceptor(authInterceptor)
                 // Apply to all paths.
                 .addPathPatterns("/**")
                 // Exclude login and register paths.
                 .excludePathPatterns("/login")
                 .excludePathPatterns("/register")
-                .excludePathPatterns("/css/**")
-                .excludePathPatterns("/js/**");
+                .excludePathPatterns(MONITORING_PATHS)
+                .excludePathPatterns(STATIC_PATHS);
+        // Registered after authInterceptor, which makes sure the user is known.
+        registry.addInterceptor(rateLimitInterceptor)
+                .addPathPatterns("/**")
+                .excludePathPatterns(MONITORING_PATHS)
+                .excludePathPatterns(STATIC_PATHS);
+    }
+
+    /**
+     * This is where static files are served from.
+     * /assets holds the fingerprinted copies made by utility/AssetPipeline.java.
+     * Their names change whenever their content changes, so browsers may
+     * keep them forever. Precompressed .gz copies are sent to browsers that
+     * accept them and files are kept in memory after the first request.
+     * The original /css, /js and /avatars paths keep Spring Boot's defaults.
+     */
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        registry.addResourceHandler("/assets/**")
+                .addResourceLocations("classpath:/static/assets/")
+                .setCacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                .resourceChain(true)
+                .addResolver(new InMemoryResourceResolver())
+                .addResolver(new EncodedResourceResolver());
     }
 
 }
@@ -13,6 +13,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.servlet.ModelAndView;
 
+import uga.menik.cs4370.components.PostFragmentCache;
 import uga.menik.cs4370.models.Post;
 import uga.menik.cs4370.models.User;
 import uga.menik.cs4370.services.PostService;
@@ -33,15 +34,19 @@ public class BookmarksController {
     // UserService and PostService has user webpage related functions.
     private final UserService userService;
     private final PostService postService;
+    // PostFragmentCache renders posts from pre-rendered fragments.
+    private final PostFragmentCache postFragmentCache;
 
     /**
      * See notes in AuthInterceptor.java regarding how this works 
      * through dependency injection and inversion of control.
      */
     @Autowired
-    public BookmarksController(UserService userService, PostService postService) {
+    public BookmarksController(UserService userService, PostService postService,
+            PostFragmentCache postFragmentCache) {
         this.userService = userService;
         this.postService = postService;
+        this.postFragmentCache = postFragmentCache;
     }
 
     /**
@@ -64,6 +69,7 @@ public class BookmarksController {
 
         // Adds the bookmarked posts to the model
         mv.addObject("posts", bookmarkedPosts);
+        mv.addObject("postsHtml", postFragmentCache.renderPosts(bookmarkedPosts));
 
         // If there aren't bookmarked posts, indicate no content
         if (bookmarkedPosts.isEmpty()){
@@ -7,16 +7,26 @@
  */
 package uga.menik.cs4370.controllers;
 
+import java.io.IOException;
 import java.util.Arrays;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.servlet.ModelAndView;
+
+import jakarta.servlet.http.HttpServletResponse;
+import uga.menik.cs4370.components.HashtagAutocomplete;
+import uga.menik.cs4370.components.PostFragmentCache;
+import uga.menik.cs4370.components.StreamingPageRenderer;
 import uga.menik.cs4370.models.Post;
 import uga.menik.cs4370.services.HashtagService;
+import uga.menik.cs4370.utility.LogSampler;
 
 import java.util.List;
 
@@ -27,12 +37,36 @@ import java.util.List;
 @Controller
 @RequestMapping("/hashtagsearch")
 public class HashtagSearchController {
+    private static final Logger log = LoggerFactory.getLogger(HashtagSearchController.class);
+    private static final LogSampler searchLog = LogSampler.limitPerSecond(10);
 
     private final HashtagService hashtagService;
+    // PostFragmentCache renders posts from pre-rendered fragments.
+    private final PostFragmentCache postFragmentCache;
+    // StreamingPageRenderer writes the page while posts are being read.
+    private final StreamingPageRenderer streamingPageRenderer;
+    // HashtagAutocomplete suggests hashtags while the user types.
+    private final HashtagAutocomplete hashtagAutocomplete;
 
     @Autowired
-    public HashtagSearchController(HashtagService hashtagService) {
+    public HashtagSearchController(HashtagService hashtagService, PostFragmentCache postFragmentCache,
+            StreamingPageRenderer streamingPageRenderer, HashtagAutocomplete hashtagAutocomplete) {
         this.hashtagService = hashtagService;
+        this.postFragmentCache = postFragmentCache;
+        this.streamingPageRenderer = streamingPageRenderer;
+        this.hashtagAutocomplete = hashtagAutocomplete;
+    }
+
+    /**
+     * Handles /hashtagsearch/autocomplete?prefix=%23jav and returns the most
+     * used hashtags starting with the prefix as a JSON array.
+     * Used by the hashtag inputs, see main.js.
+     */
+    @GetMapping("/autocomplete")
+    @ResponseBody
+    public List<String> autocomplete(@RequestParam(name = "prefix") String prefix,
+            @RequestParam(name = "limit", defaultValue = "10") int limit) {
+        return hashtagAutocomplete.complete(prefix, limit);
     }
 
     /**
@@ -41,22 +75,39 @@ public class HashtagSearchController {
      * In the browser the URL will look something like below:
      * http://localhost:8081/hashtagsearch?hashtags=%23amazing+%23fireworks
      * Note: the value of the hashtags is URL encoded.
+     * When streaming is enabled the page is written to the response directly
+     * and null is returned. See notes in HomeController.java.
      *
      * @param hashtags The hashtags to search for.
      * @return ModelAndView The ModelAndView object for rendering the view.
      */
     @GetMapping
-    public ModelAndView webpage(@RequestParam(name = "hashtags") String[] hashtagsArray) {
+    public ModelAndView webpage(@RequestParam(name = "hashtags") String[] hashtagsArray,
+            HttpServletResponse response) throws IOException {
         // Concatenate hashtags into a single string
         String hashtags = String.join(" ", hashtagsArray);
 
-        System.out.println("User is searching: " + hashtags);
+        if (log.isDebugEnabled() && searchLog.sample()) {
+            log.atDebug().addKeyValue("hashtags", hashtags)
+                    .addKeyValue("suppressed", searchLog.drainSuppressed())
+                    .log("Searching hashtags");
+        }
 
         ModelAndView mv = new ModelAndView("posts_page");
 
+        if (streamingPageRenderer.isEnabled()) {
+            // The page gets the same model, the posts are written as they are read.
+            try (StreamingPageRenderer.PostWriter writer =
+                    streamingPageRenderer.start(mv.getViewName(), mv.getModel(), response)) {
+                hashtagService.forEachPostByHashtag(hashtags, writer);
+            }
+            return null;
+        }
+
         // Retrieve posts based on hashtags from the database
         List<Post> posts = hashtagService.searchPostsByHashtag(hashtags);
         mv.addObject("posts", posts);
+        mv.addObject("postsHtml", postFragmentCache.renderPosts(posts));
        
         // If an error occured, you can set the following property with the
         // error message to show the error message to the user.
@@ -0,0 +1,52 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.LivenessState;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Handles /health/live and /health/ready for load balancers and
+ * orchestrators. Ready means the app should get traffic. That is only the
+ * case once startup, including the JIT warm-up, is done. See JitWarmup.java.
+ * They are not behind the login. See WebConfig.java.
+ */
+@RestController
+@RequestMapping("/health")
+public class HealthController {
+
+    private final ApplicationAvailability availability;
+
+    /**
+     * See AuthInterceptor notes regarding dependency injection and
+     * inversion of control.
+     */
+    @Autowired
+    public HealthController(ApplicationAvailability availability) {
+        this.availability = availability;
+    }
+
+    @GetMapping("/live")
+    public ResponseEntity<String> live() {
+        boolean live = availability.getLivenessState() == LivenessState.CORRECT;
+        return ResponseEntity.status(live ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE)
+                .body(live ? "live" : "broken");
+    }
+
+    @GetMapping("/ready")
+    public ResponseEntity<String> ready() {
+        boolean ready = availability.getReadinessState() == ReadinessState.ACCEPTING_TRAFFIC;
+        return ResponseEntity.status(ready ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE)
+                .body(ready ? "ready" : "not ready");
+    }
+}
@@ -5,10 +5,13 @@ This is a project developed by Dr. Menik to give the students an opportunity to
 */
 package uga.menik.cs4370.controllers;
 
+import java.io.IOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -16,7 +19,11 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.ModelAndView;
 
+import jakarta.servlet.http.HttpServletResponse;
+import uga.menik.cs4370.components.PostFragmentCache;
+import uga.menik.cs4370.components.StreamingPageRenderer;
 import uga.menik.cs4370.models.Post;
+import uga.menik.cs4370.utility.LogSampler;
 import uga.menik.cs4370.utility.Utility;
 
 import uga.menik.cs4370.services.UserService;
@@ -29,19 +36,28 @@ import org.springframework.beans.factory.annotation.Autowired;
 @Controller
 @RequestMapping
 public class HomeController {
+    private static final Logger log = LoggerFactory.getLogger(HomeController.class);
+    private static final LogSampler createLog = LogSampler.limitPerSecond(50);
 
     // UserService and PostService has user webpage related functions.
     private final UserService userService;
     private final PostService postService;
+    // PostFragmentCache renders posts from pre-rendered fragments.
+    private final PostFragmentCache postFragmentCache;
+    // StreamingPageRenderer writes the page while posts are being read.
+    private final StreamingPageRenderer streamingPageRenderer;
     
     /**
      * See notes in AuthInterceptor.java regarding how this works 
      * through dependency injection and inversion of control.
      */
     @Autowired
-    public HomeController(UserService userService, PostService postService) {
+    public HomeController(UserService userService, PostService postService,
+            PostFragmentCache postFragmentCache, StreamingPageRenderer streamingPageRenderer) {
         this.userService = userService;
         this.postService = postService;
+        this.postFragmentCache = postFragmentCache;
+        this.streamingPageRenderer = streamingPageRenderer;
     }
     /**
      * This is the specific function that handles the root URL itself.
@@ -49,24 +65,38 @@ public class HomeController {
      * Note that this accepts a URL parameter called error.
      * The value to this parameter can be shown to the user as an error message.
      * See notes in HashtagSearchController.java regarding URL parameters.
+     * 
+     * When streaming is enabled the page is written to the response directly
+     * and null is returned to tell Spring the request has been handled.
      */
     @GetMapping
-    public ModelAndView webpage(@RequestParam(name = "error", required = false) String error) {
+    public ModelAndView webpage(@RequestParam(name = "error", required = false) String error,
+            HttpServletResponse response) throws IOException {
         // See notes on ModelAndView in BookmarksController.java.
         ModelAndView mv = new ModelAndView("home_page");
 
+        // If an error occured, you can set the following property with the
+        // error message to show the error message to the user.
+        // An error message can be optionally specified with a url query parameter too.
+        String errorMessage = error;
+        mv.addObject("errorMessage", errorMessage);
+
+        if (streamingPageRenderer.isEnabled()) {
+            // The page gets the same model, the posts are written as they are read.
+            try (StreamingPageRenderer.PostWriter writer =
+                    streamingPageRenderer.start(mv.getViewName(), mv.getModel(), response)) {
+                postService.forEachFollowingPost(userService.getLoggedInUser(), userService, writer);
+            }
+            return null;
+        }
+
         // Following line populates sample data.
         // You should replace it with actual data from the database.
         //List<Post> posts = Utility.createSamplePostsListWithoutComments();
 
         List<Post> posts = postService.getFollowingPosts(userService.getLoggedInUser(), userService);
         mv.addObject("posts", posts);
-        
-        // If an error occured, you can set the following property with the
-        // error message to show the error message to the user.
-        // An error message can be optionally specified with a url query parameter too.
-        String errorMessage = error;
-        mv.addObject("errorMessage", errorMessage);
+        mv.addObject("postsHtml", postFragmentCache.renderPosts(posts));
 
         // Enable the following line if you want to show no content message.
         // Do that if your content list is empty.
@@ -87,8 +117,11 @@ public class HomeController {
      */
     @PostMapping("/createpost")
     public String createPost(@RequestParam(name = "posttext") String postText) {
-        System.out.println("User is creating post: " + postText);
-        
+        if (log.isInfoEnabled() && createLog.sample()) {
+            log.atInfo().addKeyValue("length", postText.length())
+                    .addKeyValue("suppressed", createLog.drainSuppressed())
+                    .log("Creating post");
+        }
 
         if (postText.isBlank()) {
             // If the post text is empty or contains only whitespace, return an error message.
@@ -0,0 +1,75 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.controllers;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import jakarta.servlet.http.HttpServletRequest;
+import uga.menik.cs4370.components.MetricsRegistry;
+
+/**
+ * Handles /metrics. Returns the query and request metrics in the
+ * Prometheus text format so a Prometheus server can scrape them.
+ * It is not behind the login. See WebConfig.java. Instead it only answers
+ * requests from app.metrics.allowed-addresses, by default this machine,
+ * and requests with the header "Authorization: Bearer <app.metrics.token>".
+ * Other requests get 403.
+ */
+@RestController
+@RequestMapping("/metrics")
+public class MetricsController {
+
+    private final MetricsRegistry metrics;
+    // Remote addresses that may scrape without a token.
+    private final List<String> allowedAddresses;
+    // The expected Authorization header, or null without a token.
+    private final byte[] expectedAuthorization;
+
+    /**
+     * See AuthInterceptor notes regarding dependency injection and
+     * inversion of control.
+     */
+    @Autowired
+    public MetricsController(MetricsRegistry metrics,
+            @Value("${app.metrics.allowed-addresses:127.0.0.1,0:0:0:0:0:0:0:1}") List<String> allowedAddresses,
+            @Value("${app.metrics.token:}") String token) {
+        this.metrics = metrics;
+        this.allowedAddresses = allowedAddresses.stream().map(String::trim).toList();
+        this.expectedAuthorization = token.isBlank() ? null
+                : ("Bearer " + token.trim()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @GetMapping
+    public ResponseEntity<String> scrape(HttpServletRequest request) {
+        if (!isAllowed(request)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("text/plain; version=0.0.4; charset=utf-8"))
+                .body(metrics.scrape());
+    }
+
+    private boolean isAllowed(HttpServletRequest request) {
+        if (allowedAddresses.contains(request.getRemoteAddr())) {
+            return true;
+        }
+        String authorization = request.getHeader("Authorization");
+        // Compared in constant time so the token cannot be guessed byte by byte.
+        return expectedAuthorization != null && authorization != null
+                && MessageDigest.isEqual(expectedAuthorization, authorization.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -9,6 +9,8 @@ import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -20,6 +22,7 @@ import org.springframework.web.servlet.ModelAndView;
 import uga.menik.cs4370.models.FollowableUser;
 import uga.menik.cs4370.services.PeopleService;
 import uga.menik.cs4370.services.UserService;
+import uga.menik.cs4370.utility.LogSampler;
 import uga.menik.cs4370.utility.Utility;
 import uga.menik.cs4370.models.User;
 
@@ -32,6 +35,8 @@ import org.springframework.web.bind.annotation.PostMapping;
 @Controller
 @RequestMapping("/people")
 public class PeopleController {
+    private static final Logger log = LoggerFactory.getLogger(PeopleController.class);
+    private static final LogSampler followLog = LogSampler.limitPerSecond(50);
 
     // Inject UserService and PeopleService instances.
     // See LoginController.java to see how to do this.
@@ -58,12 +63,18 @@ public class PeopleController {
      * Note that this accepts a URL parameter called error.
      * The value to this parameter can be shown to the user as an error message.
      * See notes in HashtagSearchController.java regarding URL parameters.
+     * With a q parameter the page shows the people matching it instead of
+     * everyone, a page of results at a time. See PeopleSearchIndex.java.
      *
      * @param error An optional error message to display to the user (query parameter).
+     * @param query An optional search by name or username (query parameter).
+     * @param page The page of search results to show, 0 for the first.
      * @return ModelAndView object representing the people_page template with followable users and error message if present.
      */
     @GetMapping
-    public ModelAndView webpage(@RequestParam(name = "error", required = false) String error) {
+    public ModelAndView webpage(@RequestParam(name = "error", required = false) String error,
+            @RequestParam(name = "q", required = false) String query,
+            @RequestParam(name = "page", defaultValue = "0") int page) {
         // See notes on ModelAndView in BookmarksController.java.
         ModelAndView mv = new ModelAndView("people_page");
 
@@ -74,6 +85,26 @@ public class PeopleController {
         
         String userIdToExclude = userService.getLoggedInUser().getUserId();
 
+        // The search box shows what was searched for.
+        mv.addObject("query", query == null ? "" : query);
+        if (query != null && !query.isBlank()) {
+            int pageSize = peopleService.getSearchPageSize();
+            int offset = Math.max(0, page) * pageSize;
+            // One more than a page tells if there is a next page.
+            List<FollowableUser> found = peopleService.searchFollowableUsers(userIdToExclude, query,
+                    offset, pageSize + 1);
+            mv.addObject("users", found.subList(0, Math.min(found.size(), pageSize)));
+            if (found.size() > pageSize) {
+                mv.addObject("nextPageUrl", "/people?q=" + URLEncoder.encode(query, StandardCharsets.UTF_8)
+                        + "&page=" + (Math.max(0, page) + 1));
+            }
+            if (found.isEmpty()) {
+                mv.addObject("isNoContent", true);
+            }
+            mv.addObject("errorMessage", error);
+            return mv;
+        }
+
         List<FollowableUser> followableUsers = peopleService.getFollowableUsers(userIdToExclude);
         mv.addObject("users", followableUsers);
 
@@ -108,9 +139,12 @@ public class PeopleController {
     @GetMapping("{userId}/follow/{isFollow}")
     public String followUnfollowUser(@PathVariable("userId") String userId,
             @PathVariable("isFollow") Boolean isFollow) {
-        System.out.println("User is attempting to follow/unfollow a user:");
-        System.out.println("\tuserId: " + userId);
-        System.out.println("\tisFollow: " + isFollow);
+        if (log.isInfoEnabled() && followLog.sample()) {
+            log.atInfo().addKeyValue("userId", userId)
+                    .addKeyValue("isFollow", isFollow)
+                    .addKeyValue("suppressed", followLog.drainSuppressed())
+                    .log("Changing follow");
+        }
 
         //gets the current session user
         String userIdToExclude = userService.getLoggedInUser().getUserId();
@@ -121,7 +155,6 @@ public class PeopleController {
 
         if (isFollow) {
             // user clicked on the "follow button"
-            System.out.println("User clicked on the Follow button.");
             //calls followUser() from PeopleService to handle the follow action
             peopleService.followUser(userIdToExclude, userId);
 
@@ -130,7 +163,6 @@ public class PeopleController {
 
         } else if (isFollow == false) {
             // user clicked on the "unfollow button"
-            System.out.println("User clicked on the Unfollow button.");
             // calls unfollowUser() from PeopleService to handle the unfollow action
             peopleService.unfollowUser(userIdToExclude, userId);
             
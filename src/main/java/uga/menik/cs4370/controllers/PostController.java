@@ -9,6 +9,9 @@ import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -22,6 +25,7 @@ import uga.menik.cs4370.models.Comment;
 import uga.menik.cs4370.models.ExpandedPost;
 import uga.menik.cs4370.services.PostService;
 import uga.menik.cs4370.services.UserService;
+import uga.menik.cs4370.utility.LogSampler;
 import uga.menik.cs4370.utility.Utility;
 
 /**
@@ -30,6 +34,12 @@ import uga.menik.cs4370.utility.Utility;
 @Controller
 @RequestMapping("/post")
 public class PostController {
+    private static final Logger log = LoggerFactory.getLogger(PostController.class);
+    // Each log statement is rate limited on its own. See LogSampler.java.
+    private static final LogSampler viewLog = LogSampler.limitPerSecond(10);
+    private static final LogSampler commentLog = LogSampler.limitPerSecond(50);
+    private static final LogSampler heartLog = LogSampler.limitPerSecond(50);
+    private static final LogSampler bookmarkLog = LogSampler.limitPerSecond(50);
 
     // UserService and PostService has user webpage related functions.
     private final UserService userService;
@@ -62,10 +72,22 @@ public class PostController {
     @GetMapping("/{postId}")
     public ModelAndView webpage(@PathVariable("postId") String postId,
             @RequestParam(name = "error", required = false) String error) {
-        System.out.println("The user is attempting to view post with id: " + postId);
+        if (log.isDebugEnabled() && viewLog.sample()) {
+            log.atDebug().addKeyValue("postId", postId)
+                    .addKeyValue("suppressed", viewLog.drainSuppressed())
+                    .log("Viewing post");
+        }
         // See notes on ModelAndView in BookmarksController.java.
         ModelAndView mv = new ModelAndView("posts_page");
 
+        // IDs of posts that do not exist, e.g. from crawlers, are answered
+        // without a query.
+        if (postService.isPostMissing(postId)) {
+            mv.addObject("posts", List.of());
+            mv.addObject("isNoContent", true);
+            return mv;
+        }
+
         // Following line populates sample data.
         // You should replace it with actual data from the database.
         //List<ExpandedPost> posts = Utility.createSampleExpandedPostWithComments();
@@ -101,9 +123,12 @@ public class PostController {
     @PostMapping("/{postId}/comment")
     public String postComment(@PathVariable("postId") String postId,
         @RequestParam(name = "comment") String comment) {
-    System.out.println("The user is attempting to add a comment:");
-    System.out.println("\tpostId: " + postId);
-    System.out.println("\tcomment: " + comment);
+    if (log.isInfoEnabled() && commentLog.sample()) {
+        log.atInfo().addKeyValue("postId", postId)
+                .addKeyValue("length", comment.length())
+                .addKeyValue("suppressed", commentLog.drainSuppressed())
+                .log("Adding comment");
+    }
 
     postService.addComment(postId, comment, userService.getLoggedInUser());
 
@@ -125,9 +150,12 @@ public class PostController {
     @GetMapping("/{postId}/heart/{isAdd}")
     public String addOrRemoveHeart(@PathVariable("postId") String postId,
             @PathVariable("isAdd") Boolean isAdd) {
-        System.out.println("The user is attempting add or remove a heart:");
-        System.out.println("\tpostId: " + postId);
-        System.out.println("\tisAdd: " + isAdd);
+        if (log.isInfoEnabled() && heartLog.sample()) {
+            log.atInfo().addKeyValue("postId", postId)
+                    .addKeyValue("isAdd", isAdd)
+                    .addKeyValue("suppressed", heartLog.drainSuppressed())
+                    .log("Changing heart");
+        }
 
         //adds or removes heart based on the status of isAdd
         if (isAdd) {
@@ -163,9 +191,12 @@ public class PostController {
     @GetMapping("/{postId}/bookmark/{isAdd}")
     public String addOrRemoveBookmark(@PathVariable("postId") String postId,
             @PathVariable("isAdd") Boolean isAdd) {
-        System.out.println("The user is attempting add or remove a bookmark:");
-        System.out.println("\tpostId: " + postId);
-        System.out.println("\tisAdd: " + isAdd);
+        if (log.isInfoEnabled() && bookmarkLog.sample()) {
+            log.atInfo().addKeyValue("postId", postId)
+                    .addKeyValue("isAdd", isAdd)
+                    .addKeyValue("suppressed", bookmarkLog.drainSuppressed())
+                    .log("Changing bookmark");
+        }
 
         //adds or removes bookmark depending on status of isAdd
         if (isAdd) {
@@ -5,8 +5,11 @@ This is a project developed by Dr. Menik to give the students an opportunity to
 */
 package uga.menik.cs4370.controllers;
 
+import java.io.IOException;
 import java.util.List;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -14,9 +17,13 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.servlet.ModelAndView;
 
+import jakarta.servlet.http.HttpServletResponse;
+import uga.menik.cs4370.components.PostFragmentCache;
+import uga.menik.cs4370.components.StreamingPageRenderer;
 import uga.menik.cs4370.models.Post;
 import uga.menik.cs4370.services.PostService;
 import uga.menik.cs4370.services.UserService;
+import uga.menik.cs4370.utility.LogSampler;
 import uga.menik.cs4370.utility.Utility;
 
 /**
@@ -25,19 +32,28 @@ import uga.menik.cs4370.utility.Utility;
 @Controller
 @RequestMapping("/profile")
 public class ProfileController {
+    private static final Logger log = LoggerFactory.getLogger(ProfileController.class);
+    private static final LogSampler viewLog = LogSampler.limitPerSecond(10);
 
     // UserService has user login and registration related functions.
     private final UserService userService;
     private final PostService postService;
+    // PostFragmentCache renders posts from pre-rendered fragments.
+    private final PostFragmentCache postFragmentCache;
+    // StreamingPageRenderer writes the page while posts are being read.
+    private final StreamingPageRenderer streamingPageRenderer;
 
     /**
      * See notes in AuthInterceptor.java regarding how this works 
      * through dependency injection and inversion of control.
      */
     @Autowired
-    public ProfileController(UserService userService, PostService postService) {
+    public ProfileController(UserService userService, PostService postService,
+            PostFragmentCache postFragmentCache, StreamingPageRenderer streamingPageRenderer) {
         this.userService = userService;
         this.postService = postService;
+        this.postFragmentCache = postFragmentCache;
+        this.streamingPageRenderer = streamingPageRenderer;
     }
 
     /**
@@ -47,9 +63,8 @@ public class ProfileController {
      * @return ModelAndView object representing the posts_page template with posts of the logged-in user
      */
     @GetMapping
-    public ModelAndView profileOfLoggedInUser() {
-        System.out.println("User is attempting to view profile of the logged in user.");
-        return profileOfSpecificUser(userService.getLoggedInUser().getUserId());
+    public ModelAndView profileOfLoggedInUser(HttpServletResponse response) throws IOException {
+        return profileOfSpecificUser(userService.getLoggedInUser().getUserId(), response);
     }
 
     /**
@@ -58,20 +73,43 @@ public class ProfileController {
      * See comments in PeopleController.java in followUnfollowUser function regarding 
      * how path variables work.
      *
+     * When streaming is enabled the page is written to the response directly
+     * and null is returned. See notes in HomeController.java.
+     *
      * @param userId The ID of the user whose profile is to be displayed.
      * @return ModelAndView object representing the posts_page template with posts of the specified user
      */
     @GetMapping("/{userId}")
-    public ModelAndView profileOfSpecificUser(@PathVariable("userId") String userId) {
-        System.out.println("User is attempting to view profile: " + userId);
-        
+    public ModelAndView profileOfSpecificUser(@PathVariable("userId") String userId,
+            HttpServletResponse response) throws IOException {
+        if (log.isDebugEnabled() && viewLog.sample()) {
+            log.atDebug().addKeyValue("userId", userId)
+                    .addKeyValue("suppressed", viewLog.drainSuppressed())
+                    .log("Viewing profile");
+        }
+
         // See notes on ModelAndView in BookmarksController.java.
         ModelAndView mv = new ModelAndView("posts_page");
 
-        List<Post> posts = postService.getUserIdPosts(userId, userService);
-        System.out.println("Printing posts in ProfileController");
-        System.out.println(posts);
+        if (streamingPageRenderer.isEnabled()) {
+            // The page gets the same model, the posts are written as they are read.
+            try (StreamingPageRenderer.PostWriter writer =
+                    streamingPageRenderer.start(mv.getViewName(), mv.getModel(), response)) {
+                // The page of a user that does not exist shows no posts.
+                if (!userService.isUserMissing(userId)) {
+                    postService.forEachUserIdPost(userId, userService, writer);
+                }
+            }
+            return null;
+        }
+
+        List<Post> posts = userService.isUserMissing(userId) ? List.of()
+                : postService.getUserIdPosts(userId, userService);
+        log.atDebug().addKeyValue("userId", userId)
+                .addKeyValue("posts", posts.size())
+                .log("Loaded profile posts");
         mv.addObject("posts", posts);
+        mv.addObject("postsHtml", postFragmentCache.renderPosts(posts));
 
         // If an error occured, you can set the following property with the
         // error message to show the error message to the user.
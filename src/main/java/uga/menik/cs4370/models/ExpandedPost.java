@@ -32,7 +32,14 @@ public class ExpandedPost extends Post {
      * @param comments      the list of comments made on the post
      */
     public ExpandedPost(String postId, String content, String postDate, User user, int heartsCount, int commentsCount, boolean isHearted, boolean isBookmarked, List<Comment> comments) {
-        super(postId, content, postDate, user, heartsCount, commentsCount, isHearted, isBookmarked);
+        this(postId, content, postDate, user, heartsCount, commentsCount, isHearted, isBookmarked, false, false, comments);
+    }
+
+    /**
+     * Constructs an ExpandedPost whose viewer flags may be unknown. See Post.
+     */
+    public ExpandedPost(String postId, String content, String postDate, User user, int heartsCount, int commentsCount, boolean isHearted, boolean isBookmarked, boolean isHeartedUnknown, boolean isBookmarkedUnknown, List<Comment> comments) {
+        super(postId, content, postDate, user, heartsCount, commentsCount, isHearted, isBookmarked, isHeartedUnknown, isBookmarkedUnknown);
         this.comments = comments;
         this.isShowComents = true;
     }
@@ -10,6 +10,11 @@ package uga.menik.cs4370.models;
  * extending the BasicPost with additional features.
  */
 public class Post extends BasicPost {
+
+    /**
+     * Count used when the number of hearts or comments could not be looked up in time.
+     */
+    public static final int UNKNOWN_COUNT = -1;
     
     /**
      * The number of hearts (likes) the post has received.
@@ -31,6 +36,17 @@ public class Post extends BasicPost {
      */
     private final boolean isBookmarked;
 
+    /**
+     * Flag indicating whether isHearted could not be looked up in time.
+     * The heart toggle is shown disabled then, so it cannot send the wrong action.
+     */
+    private final boolean isHeartedUnknown;
+
+    /**
+     * Flag indicating whether isBookmarked could not be looked up in time.
+     */
+    private final boolean isBookmarkedUnknown;
+
     /**
      * Flag to specify whether to show comments or not.
      */
@@ -49,11 +65,23 @@ public class Post extends BasicPost {
      * @param isBookmarked   whether the post is bookmarked by the current user
      */
     public Post(String postId, String content, String postDate, User user, int heartsCount, int commentsCount, boolean isHearted, boolean isBookmarked) {
+        this(postId, content, postDate, user, heartsCount, commentsCount, isHearted, isBookmarked, false, false);
+    }
+
+    /**
+     * Constructs a Post whose viewer flags may be unknown.
+     *
+     * @param isHeartedUnknown    whether isHearted could not be looked up in time
+     * @param isBookmarkedUnknown whether isBookmarked could not be looked up in time
+     */
+    public Post(String postId, String content, String postDate, User user, int heartsCount, int commentsCount, boolean isHearted, boolean isBookmarked, boolean isHeartedUnknown, boolean isBookmarkedUnknown) {
         super(postId, content, postDate, user);
         this.heartsCount = heartsCount;
         this.commentsCount = commentsCount;
         this.isHearted = isHearted;
         this.isBookmarked = isBookmarked;
+        this.isHeartedUnknown = isHeartedUnknown;
+        this.isBookmarkedUnknown = isBookmarkedUnknown;
         this.isShowComents = false;
     }
 
@@ -75,6 +103,34 @@ public class Post extends BasicPost {
         return commentsCount;
     }
 
+    /**
+     * Returns the number of hearts as shown on the page.
+     *
+     * @return the number of hearts or ? if it is unknown
+     */
+    public String getHeartsCountText() {
+        return countText(heartsCount);
+    }
+
+    /**
+     * Returns the number of comments as shown on the page.
+     *
+     * @return the number of comments or ? if it is unknown
+     */
+    public String getCommentsCountText() {
+        return countText(commentsCount);
+    }
+
+    /**
+     * Turns a count into the text shown on the page.
+     *
+     * @param count the count, possibly UNKNOWN_COUNT
+     * @return the count or ? if it is unknown
+     */
+    public static String countText(int count) {
+        return count == UNKNOWN_COUNT ? "?" : String.valueOf(count);
+    }
+
     /**
      * Returns whether the post is hearted by the current user.
      *
@@ -92,4 +148,22 @@ public class Post extends BasicPost {
     public boolean isBookmarked() {
         return isBookmarked;
     }
+
+    /**
+     * Returns whether it is unknown if the current user hearted the post.
+     *
+     * @return true if the heart lookup failed or was late
+     */
+    public boolean isHeartedUnknown() {
+        return isHeartedUnknown;
+    }
+
+    /**
+     * Returns whether it is unknown if the current user bookmarked the post.
+     *
+     * @return true if the bookmark lookup failed or was late
+     */
+    public boolean isBookmarkedUnknown() {
+        return isBookmarkedUnknown;
+    }
 }
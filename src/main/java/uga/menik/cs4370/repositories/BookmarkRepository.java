@@ -0,0 +1,36 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.repositories;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Stores bookmarks. See UserRepository.java for how the engine is chosen.
+ */
+public interface BookmarkRepository {
+
+    /**
+     * @return true if the bookmark was added.
+     */
+    boolean add(String postId, String userId) throws SQLException;
+
+    /**
+     * @return true if the bookmark existed and was removed.
+     */
+    boolean remove(String postId, String userId) throws SQLException;
+
+    /**
+     * Returns true if the user bookmarked the post.
+     */
+    boolean exists(String postId, String userId) throws SQLException;
+
+    /**
+     * Returns which of the given posts the user bookmarked.
+     */
+    Set<String> findBookmarkedBy(String userId, Collection<String> postIds) throws SQLException;
+}
@@ -0,0 +1,46 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.repositories;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores comments. See UserRepository.java for how the engine is chosen.
+ */
+public interface CommentRepository {
+
+    /**
+     * Adds a comment dated now.
+     *
+     * @return true if the comment was added.
+     */
+    boolean insert(String postId, String userId, String commentText) throws SQLException;
+
+    /**
+     * Returns the number of comments on the post.
+     */
+    int countByPost(String postId) throws SQLException;
+
+    /**
+     * Returns the number of comments of each of the given posts.
+     * Posts without comments are left out.
+     */
+    Map<String, Integer> countByPosts(Collection<String> postIds) throws SQLException;
+
+    /**
+     * Returns the comments on the post, oldest first.
+     */
+    List<CommentRow> findByPost(String postId) throws SQLException;
+
+    /**
+     * Returns the comments on each of the given posts, oldest first.
+     * Posts without comments are left out.
+     */
+    Map<String, List<CommentRow>> findByPosts(Collection<String> postIds) throws SQLException;
+}
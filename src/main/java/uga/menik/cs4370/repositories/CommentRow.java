@@ -0,0 +1,55 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.repositories;
+
+/**
+ * A row of the comment table. The date is kept as stored, yyyy-MM-dd HH:mm:ss.
+ */
+public class CommentRow {
+    private final String commentId;
+    private final String postId;
+    private final String userId;
+    private final String commentDate;
+    private final String commentText;
+
+    /**
+     * @param commentId   the unique identifier of the comment
+     * @param postId      the post the comment is on
+     * @param userId      the ID of the commenter
+     * @param commentDate the creation date as stored
+     * @param commentText the text content of the comment
+     */
+    public CommentRow(String commentId, String postId, String userId, String commentDate, String commentText) {
+        this.commentId = commentId;
+        this.postId = postId;
+        this.userId = userId;
+        this.commentDate = commentDate;
+        this.commentText = commentText;
+    }
+
+    public String getCommentId() {
+        return commentId;
+    }
+
+    public String getPostId() {
+        return postId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    /**
+     * Returns the date as stored, yyyy-MM-dd HH:mm:ss.
+     */
+    public String getCommentDate() {
+        return commentDate;
+    }
+
+    public String getCommentText() {
+        return commentText;
+    }
+}
@@ -0,0 +1,44 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.repositories;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Stores who follows whom. See UserRepository.java for how the engine is chosen.
+ */
+public interface FollowRepository {
+
+    /**
+     * Makes the follower follow the followee.
+     *
+     * @return true if the follow was added.
+     */
+    boolean add(String followerUserId, String followeeUserId) throws SQLException;
+
+    /**
+     * @return true if the follow existed and was removed.
+     */
+    boolean remove(String followerUserId, String followeeUserId) throws SQLException;
+
+    /**
+     * Returns true if the follower follows the followee.
+     */
+    boolean exists(String followerUserId, String followeeUserId) throws SQLException;
+
+    /**
+     * Returns the IDs of the users the given user follows.
+     */
+    List<String> findFollowees(String followerUserId) throws SQLException;
+
+    /**
+     * Hands the ID of every followed user and their number of followers
+     * to the consumer. Users without followers are left out.
+     */
+    void forEachFollowerCount(BiConsumer<String, Integer> consumer) throws SQLException;
+}
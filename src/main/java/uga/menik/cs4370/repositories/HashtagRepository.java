@@ -0,0 +1,38 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.repositories;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Stores the hashtags of posts. See UserRepository.java for how the engine is chosen.
+ */
+public interface HashtagRepository {
+
+    /**
+     * Tags a post with a hashtag, # included.
+     */
+    void insert(String postId, String hashtag) throws SQLException;
+
+    /**
+     * Hands every post tagged with one of the hashtags to the consumer, once
+     * per matching hashtag, in no particular order.
+     */
+    void forEachPostWithAny(Collection<String> hashtags, Consumer<PostRow> consumer) throws SQLException;
+
+    /**
+     * Hands every hashtag to the consumer with the number of its posts made
+     * at or after the given date, 0 if there are none. The same hashtag may
+     * be handed over more than once, e.g. once per shard, with counts that
+     * add up.
+     *
+     * @param since A date as stored in post.postDate.
+     */
+    void forEachHashtagUsage(String since, BiConsumer<String, Integer> consumer) throws SQLException;
+}
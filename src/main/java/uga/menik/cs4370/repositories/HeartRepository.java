@@ -0,0 +1,48 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.repositories;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Stores hearts on posts. See UserRepository.java for how the engine is chosen.
+ */
+public interface HeartRepository {
+
+    /**
+     * @return true if the heart was added.
+     */
+    boolean add(String postId, String userId) throws SQLException;
+
+    /**
+     * @return true if the heart existed and was removed.
+     */
+    boolean remove(String postId, String userId) throws SQLException;
+
+    /**
+     * Returns true if the user hearted the post.
+     */
+    boolean exists(String postId, String userId) throws SQLException;
+
+    /**
+     * Returns the number of hearts on the post.
+     */
+    int countByPost(String postId) throws SQLException;
+
+    /**
+     * Returns the number of hearts of each of the given posts.
+     * Posts without hearts are left out.
+     */
+    Map<String, Integer> countByPosts(Collection<String> postIds) throws SQLException;
+
+    /**
+     * Returns which of the given posts the user hearted.
+     */
+    Set<String> findHeartedBy(String userId, Collection<String> postIds) throws SQLException;
+}
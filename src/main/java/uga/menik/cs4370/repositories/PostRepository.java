@@ -0,0 +1,92 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.repositories;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Stores posts. See UserRepository.java for how the engine is chosen.
+ * Methods with a consumer hand rows over as they are read instead of
+ * collecting them first.
+ */
+public interface PostRepository {
+
+    /**
+     * Adds a post dated now.
+     *
+     * @return The ID of the new post, or null if it was not added.
+     */
+    String insert(String userId, String postText) throws SQLException;
+
+    /**
+     * Returns true if the post exists. Reads the latest data.
+     */
+    boolean exists(String postId) throws SQLException;
+
+    /**
+     * Returns every post, newest first.
+     */
+    List<PostRow> findAllNewestFirst() throws SQLException;
+
+    /**
+     * Returns every post in no particular order.
+     */
+    List<PostRow> findAll() throws SQLException;
+
+    /**
+     * Returns the posts whose text contains the given text.
+     */
+    List<PostRow> findByTextContaining(String text) throws SQLException;
+
+    /**
+     * Hands the posts of a user to the consumer, newest first.
+     */
+    void forEachByUser(String userId, Consumer<PostRow> consumer) throws SQLException;
+
+    /**
+     * Hands the posts of the users the given user follows to the consumer, newest first.
+     */
+    void forEachFollowedBy(String followerUserId, Consumer<PostRow> consumer) throws SQLException;
+
+    /**
+     * Returns the date of the user's newest post as stored, or null if the user has not posted.
+     */
+    String findLastPostDate(String userId) throws SQLException;
+
+    /**
+     * Returns the date of the newest post of each of the given users as stored.
+     * Users who have not posted are left out.
+     */
+    Map<String, String> findLastPostDates(Collection<String> userIds) throws SQLException;
+
+    /**
+     * Hands the ID of every user who posted and the date of their newest
+     * post as stored to the consumer. Archived posts may be left out.
+     */
+    void forEachLastPostDate(BiConsumer<String, String> consumer) throws SQLException;
+
+    /**
+     * Hands the ID of every post, archived ones included, to the consumer
+     * in no particular order.
+     *
+     * @return A post ID such that every post with a lower or equal ID was
+     * handed over, or 0 if there is none. Posts added while the IDs were
+     * read may be left out either way.
+     */
+    long forEachPostId(Consumer<String> consumer) throws SQLException;
+
+    /**
+     * Splits posts into groups whose hearts, comments and bookmarks can each
+     * be read with one query. A group can fail without the others failing,
+     * e.g. when posts are spread over databases. See PostHydrator.java.
+     */
+    Collection<List<String>> partition(Collection<String> postIds);
+}
@@ -0,0 +1,55 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.repositories;
+
+import java.util.Comparator;
+
+/**
+ * A row of the post table. Dates are kept as stored, yyyy-MM-dd HH:mm:ss,
+ * so rows compare by date as strings.
+ */
+public class PostRow {
+    // Newest post first, the order of every post list in the app.
+    public static final Comparator<PostRow> NEWEST_FIRST =
+            Comparator.comparing((PostRow row) -> row.postDate).reversed();
+
+    private final String postId;
+    private final String userId;
+    private final String postDate;
+    private final String postText;
+
+    /**
+     * @param postId   the unique identifier of the post
+     * @param userId   the ID of the author
+     * @param postDate the creation date as stored
+     * @param postText the text content of the post
+     */
+    public PostRow(String postId, String userId, String postDate, String postText) {
+        this.postId = postId;
+        this.userId = userId;
+        this.postDate = postDate;
+        this.postText = postText;
+    }
+
+    public String getPostId() {
+        return postId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    /**
+     * Returns the date as stored, yyyy-MM-dd HH:mm:ss.
+     */
+    public String getPostDate() {
+        return postDate;
+    }
+
+    public String getPostText() {
+        return postText;
+    }
+}
@@ -0,0 +1,58 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.repositories;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import uga.menik.cs4370.models.User;
+
+/**
+ * Stores users. app.storage.engine picks the implementation:
+ * jdbc for the MySQL database (the default) or memory for InMemoryDatabase.
+ * Every repository throws SQLException when the storage fails, so
+ * services handle both engines the same way.
+ */
+public interface UserRepository {
+
+    /**
+     * Returns the user with the given username, or null if there is none.
+     * Reads the latest data so a user can log in right after registering.
+     */
+    UserRow findByUsername(String username) throws SQLException;
+
+    /**
+     * Adds a user. Throws an SQLException if the username is taken.
+     *
+     * @param password The BCrypt hash of the password.
+     * @return true if the user was added.
+     */
+    boolean insert(String username, String password, String firstName, String lastName) throws SQLException;
+
+    /**
+     * Returns the user with the given ID, or null if there is none.
+     */
+    User findById(String userId) throws SQLException;
+
+    /**
+     * Returns the users with the given IDs by ID. Unknown IDs are left out.
+     */
+    Map<String, User> findByIds(Collection<String> userIds) throws SQLException;
+
+    /**
+     * Returns every user except the given one.
+     */
+    List<User> findAllExcept(String userId) throws SQLException;
+
+    /**
+     * Hands every user to the consumer in no particular order.
+     * The rows have no password.
+     */
+    void forEachUser(Consumer<UserRow> consumer) throws SQLException;
+}
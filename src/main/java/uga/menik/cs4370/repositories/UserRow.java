@@ -0,0 +1,65 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.repositories;
+
+import uga.menik.cs4370.models.User;
+
+/**
+ * A row of the user table including the password hash.
+ * Only logging in needs the hash. Everything else works with User.
+ */
+public class UserRow {
+    private final String userId;
+    private final String username;
+    private final String password;
+    private final String firstName;
+    private final String lastName;
+
+    /**
+     * @param userId    the unique identifier of the user
+     * @param username  the unique login name
+     * @param password  the BCrypt hash of the password
+     * @param firstName the first name of the user
+     * @param lastName  the last name of the user
+     */
+    public UserRow(String userId, String username, String password, String firstName, String lastName) {
+        this.userId = userId;
+        this.username = username;
+        this.password = password;
+        this.firstName = firstName;
+        this.lastName = lastName;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * Returns the BCrypt hash of the password.
+     */
+    public String getPassword() {
+        return password;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    /**
+     * Returns the user without the password hash.
+     */
+    public User toUser() {
+        return new User(userId, firstName, lastName);
+    }
+}
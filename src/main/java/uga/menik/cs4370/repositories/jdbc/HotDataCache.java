@@ -0,0 +1,545 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.repositories.jdbc;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import uga.menik.cs4370.models.User;
+import uga.menik.cs4370.repositories.PostRow;
+import uga.menik.cs4370.utility.CompressedBitmap;
+
+/**
+ * This component keeps the data pages look up over and over in memory:
+ * users by ID, the date each user last posted, who each user follows,
+ * the posts of each hashtag, post rows and the posts each user hearted
+ * and bookmarked. The JDBC repositories check it before querying and fill
+ * it with what they read.
+ *
+ * Entries are dropped when their rows change. Repositories drop what they
+ * write themselves, and HotDataWarmup drops what the change_log table says
+ * other instances wrote. Rows are told apart by INSTANCE_ID. Post rows never change, so they are never dropped.
+ * Hearts and bookmarks a repository writes itself are applied to the
+ * user's bitmap in place instead, so the next page needs no query.
+ *
+ * A value read from the database is only added if its entry was not
+ * dropped while it was read, see stamp(). Otherwise a value read just
+ * before a change could be added just after it and stay.
+ *
+ * Each map holds at most app.cache.hot-data.max-entries entries. A full
+ * map drops a tenth of them, keeping entries read since the last sweep.
+ *
+ * HotDataWarmup also saves the entries to a snapshot file and loads them
+ * on startup, so a new instance does not start with an empty cache.
+ * Hearts and bookmarks are left out and loaded again on first use.
+ *
+ * Off unless app.cache.hot-data.enabled is true. See application.properties.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "jdbc", matchIfMissing = true)
+public class HotDataCache {
+
+    /**
+     * Identifies this app instance in the change_log table. DataSourceConfig
+     * puts it in the @app_instance_id session variable of every connection
+     * and the change_log triggers record it with each change.
+     */
+    public static final String INSTANCE_ID = UUID.randomUUID().toString();
+
+    // Tables named in the change_log table. See sql_files/change_log_setup.sql.
+    static final String USER = "user";
+    static final String FOLLOW = "follow";
+    static final String POST = "post";
+    static final String HASHTAG = "hashtag";
+    static final String HEART = "heart";
+    static final String BOOKMARK = "bookmark";
+
+    // Stored as the last post date of users who have not posted.
+    private static final String NEVER_POSTED = "";
+    // Entries share this many drop counters, see droppedAt. A power of two.
+    private static final int DROP_STRIPES = 4096;
+
+    private final Entries<User> users = new Entries<>();
+    private final Entries<String> lastPostDates = new Entries<>();
+    private final Entries<List<String>> followees = new Entries<>();
+    // Keyed by lower case hashtag, MySQL compares hashtags without regard to case.
+    private final Entries<List<String>> postings = new Entries<>();
+    private final Entries<PostRow> posts = new Entries<>();
+    // Keyed by user ID. Synchronize on a bitmap to read or change it.
+    private final Entries<CompressedBitmap> hearted = new Entries<>();
+    private final Entries<CompressedBitmap> bookmarked = new Entries<>();
+    // Bitmaps being read from the database, keyed by table and user ID.
+    private final Map<String, CompletableFuture<CompressedBitmap>> engagementReads = new ConcurrentHashMap<>();
+
+    // Counts dropped entries. See stamp().
+    private final AtomicLong drops = new AtomicLong();
+    // The count of the last drop of each table and key, hashed into
+    // stripes. A value is only thrown away if its own stripe was dropped
+    // while it was read, not whenever anything else changed.
+    private final AtomicLongArray droppedAt = new AtomicLongArray(DROP_STRIPES);
+    // The count of the last clear().
+    private final AtomicLong clearedAt = new AtomicLong();
+    private volatile boolean enabled;
+    // Upper bound on the entries of each map.
+    private final int maxEntries;
+    // Hashtags with more posts are not cached.
+    private final int maxPostings;
+
+    /**
+     * See AuthInterceptor notes regarding dependency injection and
+     * inversion of control.
+     */
+    @Autowired
+    public HotDataCache(@Value("${app.cache.hot-data.enabled:false}") boolean enabled,
+            @Value("${app.cache.hot-data.max-entries:100000}") int maxEntries,
+            @Value("${app.cache.hot-data.max-postings-per-hashtag:1000}") int maxPostings) {
+        this.enabled = enabled;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.maxPostings = maxPostings;
+    }
+
+    /**
+     * Returns true if repositories should use the cache.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turns the cache off, e.g. when the change log is missing and other
+     * instances' writes could not be seen.
+     */
+    void disable() {
+        enabled = false;
+        clear();
+    }
+
+    /**
+     * Returns a stamp to take before reading values from the database.
+     * Pass it to the put methods so a value is dropped if its entry was
+     * dropped in between. One stamp serves a batch of values.
+     */
+    long stamp() {
+        return drops.get();
+    }
+
+    User user(String userId) {
+        return users.get(userId);
+    }
+
+    void putUser(User user, long stamp) {
+        put(USER, users, user.getUserId(), user, stamp);
+    }
+
+    /**
+     * Returns the date the user last posted, "" if the user has not posted,
+     * or null if it is not cached.
+     */
+    String lastPostDate(String userId) {
+        return lastPostDates.get(userId);
+    }
+
+    /**
+     * @param postDate The date as stored, or null if the user has not posted.
+     */
+    void putLastPostDate(String userId, String postDate, long stamp) {
+        put(POST, lastPostDates, userId, postDate == null ? NEVER_POSTED : postDate, stamp);
+    }
+
+    List<String> followees(String followerUserId) {
+        return followees.get(followerUserId);
+    }
+
+    void putFollowees(String followerUserId, List<String> followeeIds, long stamp) {
+        put(FOLLOW, followees, followerUserId, List.copyOf(followeeIds), stamp);
+    }
+
+    List<String> postings(String hashtag) {
+        return postings.get(hashtag.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @return false if the hashtag has too many posts to cache.
+     */
+    boolean putPostings(String hashtag, List<String> postIds, long stamp) {
+        if (postIds.size() > maxPostings) {
+            return false;
+        }
+        put(HASHTAG, postings, hashtag.toLowerCase(Locale.ROOT), List.copyOf(postIds), stamp);
+        return true;
+    }
+
+    PostRow post(String postId) {
+        return posts.get(postId);
+    }
+
+    void putPost(PostRow row) {
+        // Post rows never change, so no stamp is needed.
+        if (enabled) {
+            posts.put(row.getPostId(), row);
+        }
+    }
+
+    /**
+     * Returns the IDs of the posts the user hearted or bookmarked, reading
+     * them with reader if they are not cached. Synchronize on the bitmap
+     * while reading it.
+     *
+     * A page checks its posts shard by shard in parallel, see PostHydrator.
+     * Calls made while the bitmap is read wait for that read instead of
+     * reading every shard again.
+     *
+     * @param table HEART or BOOKMARK.
+     * @param reader Reads every post the user hearted or bookmarked.
+     */
+    CompressedBitmap engagement(String table, String userId, EngagementReader reader) throws SQLException {
+        CompressedBitmap cached = engagements(table).get(userId);
+        if (cached != null) {
+            return cached;
+        }
+        String key = table + ':' + userId;
+        CompletableFuture<CompressedBitmap> read = new CompletableFuture<>();
+        CompletableFuture<CompressedBitmap> running = engagementReads.putIfAbsent(key, read);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof SQLException sqlException) {
+                    throw sqlException;
+                }
+                throw e;
+            }
+        }
+        try {
+            long stamp = stamp();
+            CompressedBitmap postIds = reader.read();
+            put(table, engagements(table), userId, postIds, stamp);
+            read.complete(postIds);
+            return postIds;
+        } catch (SQLException | RuntimeException e) {
+            read.completeExceptionally(e);
+            throw e;
+        } finally {
+            engagementReads.remove(key, read);
+        }
+    }
+
+    /**
+     * Applies a heart or bookmark the calling instance wrote to the user's
+     * bitmap, if it is cached.
+     *
+     * @param table HEART or BOOKMARK.
+     * @param added true if the row was inserted, false if it was deleted.
+     */
+    void updateEngagement(String table, String userId, String postId, boolean added) {
+        // A bitmap of this user being read right now may miss this change.
+        drop(table, userId);
+        CompressedBitmap postIds = engagements(table).get(userId);
+        int id = JdbcSupport.postIdNumber(postId);
+        if (postIds == null || id < 0) {
+            return;
+        }
+        synchronized (postIds) {
+            if (added) {
+                postIds.add(id);
+            } else {
+                postIds.remove(id);
+            }
+        }
+    }
+
+    private Entries<CompressedBitmap> engagements(String table) {
+        return HEART.equals(table) ? hearted : bookmarked;
+    }
+
+    /**
+     * Drops what depends on a changed row.
+     *
+     * @param table The table of the row, one of the constants above.
+     * @param key The user ID for user, follow, post, heart and bookmark rows,
+     *            the hashtag for hashtag rows.
+     */
+    void invalidate(String table, String key) {
+        if (HASHTAG.equals(table)) {
+            key = key.toLowerCase(Locale.ROOT);
+        }
+        drop(table, key);
+        switch (table) {
+            case USER -> users.remove(key);
+            case FOLLOW -> followees.remove(key);
+            case POST -> lastPostDates.remove(key);
+            case HASHTAG -> postings.remove(key);
+            case HEART -> hearted.remove(key);
+            case BOOKMARK -> bookmarked.remove(key);
+            default -> {
+                // Tables the cache knows nothing about.
+            }
+        }
+    }
+
+    /**
+     * Drops everything.
+     */
+    void clear() {
+        clearedAt.accumulateAndGet(drops.incrementAndGet(), Math::max);
+        users.clear();
+        lastPostDates.clear();
+        followees.clear();
+        postings.clear();
+        posts.clear();
+        hearted.clear();
+        bookmarked.clear();
+    }
+
+    /**
+     * Returns the number of cached entries.
+     */
+    int size() {
+        return users.size() + lastPostDates.size() + followees.size() + postings.size() + posts.size()
+                + hearted.size() + bookmarked.size();
+    }
+
+    /**
+     * Records that the entry of a table and key is dropped. Call it before
+     * removing the entry, put relies on the order.
+     */
+    private void drop(String table, String key) {
+        droppedAt.accumulateAndGet(stripe(table, key), drops.incrementAndGet(), Math::max);
+    }
+
+    private static int stripe(String table, String key) {
+        int hash = table.hashCode() * 31 + key.hashCode();
+        return (hash ^ (hash >>> 16)) & (DROP_STRIPES - 1);
+    }
+
+    private <T> void put(String table, Entries<T> map, String key, T value, long stamp) {
+        if (!enabled) {
+            return;
+        }
+        Slot<T> slot = map.put(key, value);
+        if (droppedAt.get(stripe(table, key)) > stamp || clearedAt.get() > stamp) {
+            // The entry was dropped while the value was read, so the value
+            // may be from before the change.
+            map.remove(key, slot);
+        }
+    }
+
+    /**
+     * Writes all entries. See HotDataWarmup for the file around them.
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(users.size());
+        for (User user : users.values()) {
+            writeString(out, user.getUserId());
+            writeString(out, user.getFirstName());
+            writeString(out, user.getLastName());
+        }
+        writeStrings(out, lastPostDates);
+        writeLists(out, followees);
+        writeLists(out, postings);
+        out.writeInt(posts.size());
+        for (PostRow row : posts.values()) {
+            writeString(out, row.getPostId());
+            writeString(out, row.getUserId());
+            writeString(out, row.getPostDate());
+            writeString(out, row.getPostText());
+        }
+    }
+
+    /**
+     * Replaces all entries with the ones written by writeTo.
+     */
+    void readFrom(DataInput in) throws IOException {
+        clear();
+        for (int i = in.readInt(); i > 0; i--) {
+            User user = new User(readString(in), readString(in), readString(in));
+            users.put(user.getUserId(), user);
+        }
+        readStrings(in, lastPostDates);
+        readLists(in, followees);
+        readLists(in, postings);
+        for (int i = in.readInt(); i > 0; i--) {
+            PostRow row = new PostRow(readString(in), readString(in), readString(in), readString(in));
+            posts.put(row.getPostId(), row);
+        }
+    }
+
+    private static void writeStrings(DataOutput out, Entries<String> map) throws IOException {
+        out.writeInt(map.size());
+        for (Map.Entry<String, Slot<String>> entry : map.slots.entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue().value);
+        }
+    }
+
+    private static void readStrings(DataInput in, Entries<String> map) throws IOException {
+        for (int i = in.readInt(); i > 0; i--) {
+            map.put(readString(in), readString(in));
+        }
+    }
+
+    private static void writeLists(DataOutput out, Entries<List<String>> map) throws IOException {
+        out.writeInt(map.size());
+        for (Map.Entry<String, Slot<List<String>>> entry : map.slots.entrySet()) {
+            writeString(out, entry.getKey());
+            out.writeInt(entry.getValue().value.size());
+            for (String value : entry.getValue().value) {
+                writeString(out, value);
+            }
+        }
+    }
+
+    private static void readLists(DataInput in, Entries<List<String>> map) throws IOException {
+        for (int i = in.readInt(); i > 0; i--) {
+            String key = readString(in);
+            int size = in.readInt();
+            List<String> values = new ArrayList<>(size);
+            for (int j = 0; j < size; j++) {
+                values.add(readString(in));
+            }
+            map.put(key, List.copyOf(values));
+        }
+    }
+
+    // writeUTF cannot hold the longest post texts, so strings are written
+    // as a length and UTF-8 bytes.
+    private static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > 16 * 1024 * 1024) {
+            throw new IOException("Damaged string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * One of the maps above, holding at most maxEntries entries. A full map
+     * makes room the way PostFragmentCache does: entries read since the last
+     * sweep get a second chance, so hot entries stay cached.
+     */
+    private final class Entries<T> {
+        private final Map<String, Slot<T>> slots = new ConcurrentHashMap<>();
+        // Held by the thread making room in slots.
+        private final ReentrantLock evictLock = new ReentrantLock();
+
+        T get(String key) {
+            Slot<T> slot = slots.get(key);
+            if (slot == null) {
+                return null;
+            }
+            if (!slot.used) {
+                slot.used = true;
+            }
+            return slot.value;
+        }
+
+        Slot<T> put(String key, T value) {
+            if (slots.size() >= maxEntries) {
+                evict();
+            }
+            Slot<T> slot = new Slot<>(value);
+            slots.put(key, slot);
+            return slot;
+        }
+
+        void remove(String key) {
+            slots.remove(key);
+        }
+
+        void remove(String key, Slot<T> slot) {
+            slots.remove(key, slot);
+        }
+
+        void clear() {
+            slots.clear();
+        }
+
+        int size() {
+            return slots.size();
+        }
+
+        Iterable<T> values() {
+            return () -> slots.values().stream().map(slot -> slot.value).iterator();
+        }
+
+        /**
+         * Makes room for a tenth of maxEntries. Threads that find another
+         * one sweeping just go on.
+         */
+        private void evict() {
+            if (!evictLock.tryLock()) {
+                return;
+            }
+            try {
+                int target = maxEntries - Math.max(1, maxEntries / 10);
+                Iterator<Slot<T>> sweep = slots.values().iterator();
+                while (slots.size() > target) {
+                    if (!sweep.hasNext()) {
+                        sweep = slots.values().iterator();
+                        if (!sweep.hasNext()) {
+                            return;
+                        }
+                    }
+                    Slot<T> slot = sweep.next();
+                    if (slot.used) {
+                        slot.used = false;
+                    } else {
+                        sweep.remove();
+                    }
+                }
+            } finally {
+                evictLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Reads a user's hearts or bookmarks from the database.
+     */
+    interface EngagementReader {
+        CompressedBitmap read() throws SQLException;
+    }
+
+    /**
+     * A cached value.
+     */
+    private static final class Slot<T> {
+        private final T value;
+        // Set when read, cleared by evict.
+        private volatile boolean used = false;
+
+        private Slot(T value) {
+            this.value = value;
+        }
+    }
+}
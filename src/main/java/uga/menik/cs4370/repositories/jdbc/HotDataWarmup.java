@@ -0,0 +1,355 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.repositories.jdbc;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import uga.menik.cs4370.config.ShardMap;
+import uga.menik.cs4370.utility.LogSampler;
+
+/**
+ * This component keeps the HotDataCache in line with the database and
+ * carries it over restarts.
+ *
+ * Every database with app tables has a change_log table that triggers fill
+ * with the user, follow, post and hashtag rows that changed. See
+ * sql_files/change_log_setup.sql. Every app.cache.hot-data.change-log-poll-ms
+ * the new entries are read and the cache entries they affect are dropped.
+ * Hearts and bookmarks this instance wrote are skipped, the repositories
+ * already applied them to the cached bitmaps. See HotDataCache.INSTANCE_ID.
+ * Entries of the last few seconds are read again each time, because a
+ * change can become visible after a change with a higher ID. Without a
+ * change_log table the cache is turned off.
+ *
+ * The cache is written to app.cache.hot-data.snapshot-file every
+ * app.cache.hot-data.snapshot-every-minutes and on shutdown, together with
+ * the last change read from each database. On startup the snapshot is
+ * loaded and the changes made since it was written are applied, all before
+ * the app accepts requests. A snapshot older than
+ * app.cache.hot-data.max-snapshot-age-minutes, from other databases, or
+ * from a database whose change log went backwards, e.g. after a restore,
+ * is ignored.
+ *
+ * Nothing depends on this component, so it is never lazy, see the
+ * fast-startup profile.
+ */
+@Component
+@Lazy(false)
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "jdbc", matchIfMissing = true)
+public class HotDataWarmup implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(HotDataWarmup.class);
+    // A database that is down fails every poll, so it is logged once a minute.
+    private static final LogSampler pollLog = LogSampler.limitPerSecond(1.0 / 60);
+
+    private static final int MAGIC = 0x484F5444;
+    private static final int VERSION = 1;
+    // Changes are read again for this long in case they became visible late.
+    private static final int LOOKBACK_SECONDS = 5;
+
+    private final HotDataCache cache;
+    // Where change logs are read, by name. The main database and every shard.
+    private final Map<String, DataSource> changeLogs = new LinkedHashMap<>();
+    // Highest change ID read from each change log. Guarded by this.
+    private final Map<String, Long> lastChangeIds = new LinkedHashMap<>();
+    // Where snapshots are kept, or null without snapshots.
+    private final Path snapshotFile;
+    private final long maxSnapshotAgeMillis;
+    private final long retentionHours;
+    // Polls the change logs and writes snapshots, or null if the cache is off.
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * See AuthInterceptor notes regarding dependency injection and
+     * inversion of control.
+     */
+    @Autowired
+    public HotDataWarmup(HotDataCache cache, DataSource dataSource, ShardRouter shardRouter,
+            @Value("${app.cache.hot-data.snapshot-file:}") String snapshotFile,
+            @Value("${app.cache.hot-data.snapshot-every-minutes:10}") long snapshotEveryMinutes,
+            @Value("${app.cache.hot-data.max-snapshot-age-minutes:60}") long maxSnapshotAgeMinutes,
+            @Value("${app.cache.hot-data.change-log-poll-ms:1000}") long pollMillis,
+            @Value("${app.cache.hot-data.change-log-retention-hours:24}") long retentionHours) {
+        this.cache = cache;
+        this.snapshotFile = snapshotFile.isBlank() ? null : Paths.get(snapshotFile);
+        this.maxSnapshotAgeMillis = TimeUnit.MINUTES.toMillis(maxSnapshotAgeMinutes);
+        this.retentionHours = Math.max(1, retentionHours);
+        changeLogs.put("main", dataSource);
+        if (shardRouter.isSharded()) {
+            for (ShardMap.Shard shard : shardRouter.all()) {
+                changeLogs.put(shard.getName(), shard.getDataSource());
+            }
+        }
+        if (!cache.isEnabled() || !startFollowing()) {
+            this.scheduler = null;
+            return;
+        }
+        if (this.snapshotFile != null) {
+            load();
+        }
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hot-data");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::poll, pollMillis, Math.max(100, pollMillis), TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::trim, 1, 1, TimeUnit.HOURS);
+        if (this.snapshotFile != null && snapshotEveryMinutes > 0) {
+            scheduler.scheduleWithFixedDelay(this::save, snapshotEveryMinutes, snapshotEveryMinutes,
+                    TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * Starts reading every change log at its current end.
+     * Turns the cache off if a change log cannot be read.
+     */
+    private synchronized boolean startFollowing() {
+        try {
+            for (Map.Entry<String, DataSource> changeLog : changeLogs.entrySet()) {
+                // Fails on a change_log table from before instanceId existed.
+                JdbcSupport.exists(changeLog.getValue(), "SELECT instanceId FROM change_log LIMIT 1");
+                lastChangeIds.put(changeLog.getKey(), lastChangeId(changeLog.getValue()));
+            }
+            return true;
+        } catch (SQLException e) {
+            log.atWarn().addKeyValue("error", e.getMessage())
+                    .log("Cannot read the change_log table, run sql_files/change_log_setup.sql. "
+                            + "The hot data cache is off.");
+            cache.disable();
+            return false;
+        }
+    }
+
+    /**
+     * Drops the cache entries of changes made since the last poll.
+     */
+    private synchronized void poll() {
+        for (Map.Entry<String, DataSource> changeLog : changeLogs.entrySet()) {
+            String name = changeLog.getKey();
+            try {
+                lastChangeIds.put(name, applyChanges(changeLog.getValue(), lastChangeIds.get(name),
+                        LOOKBACK_SECONDS));
+            } catch (SQLException e) {
+                // Entries of this database may be stale until it answers again.
+                cache.clear();
+                if (pollLog.sample()) {
+                    log.atWarn().setCause(e).addKeyValue("database", name)
+                            .addKeyValue("suppressed", pollLog.drainSuppressed())
+                            .log("Cannot read the change log, cleared the hot data cache");
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the cache entries of every change after the given one or made
+     * in the last lookbackSeconds.
+     *
+     * @return The highest change ID read.
+     */
+    private long applyChanges(DataSource dataSource, long afterChangeId, long lookbackSeconds)
+            throws SQLException {
+        String sql = "SELECT changeId, tableName, rowKey, instanceId FROM change_log "
+                + "WHERE changeId > ? OR changedAt > TIMESTAMPADD(SECOND, ?, NOW(3)) ORDER BY changeId";
+        long lastChangeId = afterChangeId;
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, afterChangeId);
+            pstmt.setLong(2, -lookbackSeconds);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String table = rs.getString("tableName");
+                    if (!isOwnEngagement(table, rs.getString("instanceId"))) {
+                        cache.invalidate(table, rs.getString("rowKey"));
+                    }
+                    lastChangeId = Math.max(lastChangeId, rs.getLong("changeId"));
+                }
+            }
+        }
+        return lastChangeId;
+    }
+
+    /**
+     * Returns true for a heart or bookmark this instance wrote. Dropping the
+     * bitmap would undo the update the repository made in place.
+     */
+    private static boolean isOwnEngagement(String table, String instanceId) {
+        return HotDataCache.INSTANCE_ID.equals(instanceId)
+                && (HotDataCache.HEART.equals(table) || HotDataCache.BOOKMARK.equals(table));
+    }
+
+    private static long lastChangeId(DataSource dataSource) throws SQLException {
+        String sql = "SELECT COALESCE(MAX(changeId), 0) FROM change_log";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    /**
+     * Deletes change log entries no instance needs anymore.
+     */
+    private void trim() {
+        String sql = "DELETE FROM change_log WHERE changedAt < TIMESTAMPADD(HOUR, ?, NOW())";
+        for (DataSource dataSource : changeLogs.values()) {
+            try {
+                JdbcSupport.update(dataSource, sql, Long.toString(-retentionHours));
+            } catch (SQLException e) {
+                log.atWarn().setCause(e).log("Cannot trim the change log");
+            }
+        }
+    }
+
+    /**
+     * Writes the cache and the change log positions to the snapshot file.
+     * The file is replaced at once, so a crash leaves the previous snapshot.
+     */
+    public synchronized void save() {
+        if (snapshotFile == null || !cache.isEnabled()) {
+            return;
+        }
+        // Positions are taken first. Changes after them are applied on load
+        // whether or not the entries below still show them.
+        long savedAt = System.currentTimeMillis();
+        Map<String, Long> positions = new LinkedHashMap<>(lastChangeIds);
+        Path tmp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try {
+            CRC32 crc = new CRC32();
+            try (OutputStream file = Files.newOutputStream(tmp)) {
+                DataOutputStream out = new DataOutputStream(
+                        new CheckedOutputStream(new BufferedOutputStream(file), crc));
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(savedAt);
+                out.writeInt(positions.size());
+                for (Map.Entry<String, Long> position : positions.entrySet()) {
+                    out.writeUTF(position.getKey());
+                    out.writeLong(position.getValue());
+                }
+                cache.writeTo(out);
+                // The checksum covers everything before it.
+                out.writeLong(crc.getValue());
+                out.flush();
+            }
+            Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.atInfo().addKeyValue("entries", cache.size()).log("Saved hot data snapshot");
+        } catch (IOException e) {
+            log.atWarn().setCause(e).addKeyValue("file", snapshotFile).log("Cannot save hot data snapshot");
+        }
+    }
+
+    /**
+     * Loads the snapshot file if it is usable and applies the changes made
+     * since it was saved.
+     */
+    private synchronized void load() {
+        long startedAt = System.currentTimeMillis();
+        CRC32 crc = new CRC32();
+        Map<String, Long> positions = new LinkedHashMap<>();
+        long savedAt;
+        try (InputStream file = Files.newInputStream(snapshotFile)) {
+            DataInputStream in = new DataInputStream(new CheckedInputStream(new BufferedInputStream(file), crc));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a hot data snapshot");
+            }
+            savedAt = in.readLong();
+            for (int i = in.readInt(); i > 0; i--) {
+                positions.put(in.readUTF(), in.readLong());
+            }
+            cache.readFrom(in);
+            long expected = crc.getValue();
+            if (in.readLong() != expected) {
+                throw new IOException("Checksum mismatch");
+            }
+        } catch (NoSuchFileException e) {
+            return;
+        } catch (IOException e) {
+            discard("unreadable: " + e.getMessage());
+            return;
+        }
+
+        long age = startedAt - savedAt;
+        if (age < 0 || age > maxSnapshotAgeMillis) {
+            discard("too old");
+            return;
+        }
+        if (!positions.keySet().equals(changeLogs.keySet())) {
+            discard("taken with other databases");
+            return;
+        }
+        try {
+            for (Map.Entry<String, DataSource> changeLog : changeLogs.entrySet()) {
+                long position = positions.get(changeLog.getKey());
+                if (lastChangeIds.get(changeLog.getKey()) < position) {
+                    discard("change log of " + changeLog.getKey() + " went backwards");
+                    return;
+                }
+                long lookbackSeconds = TimeUnit.MILLISECONDS.toSeconds(age) + LOOKBACK_SECONDS;
+                lastChangeIds.put(changeLog.getKey(),
+                        Math.max(lastChangeIds.get(changeLog.getKey()),
+                                applyChanges(changeLog.getValue(), position, lookbackSeconds)));
+            }
+        } catch (SQLException e) {
+            log.atWarn().setCause(e).log("Cannot read the change log since the snapshot");
+            discard("change log unreadable");
+            return;
+        }
+        log.atInfo().addKeyValue("entries", cache.size()).addKeyValue("ageSeconds", age / 1000)
+                .addKeyValue("loadMillis", System.currentTimeMillis() - startedAt)
+                .log("Loaded hot data snapshot");
+    }
+
+    private void discard(String reason) {
+        cache.clear();
+        log.atWarn().addKeyValue("file", snapshotFile).addKeyValue("reason", reason)
+                .log("Ignoring hot data snapshot");
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            save();
+        }
+    }
+}
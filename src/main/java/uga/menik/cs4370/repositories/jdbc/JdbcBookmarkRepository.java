@@ -0,0 +1,132 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.repositories.jdbc;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import uga.menik.cs4370.config.ShardMap;
+import uga.menik.cs4370.repositories.BookmarkRepository;
+import uga.menik.cs4370.utility.CompressedBitmap;
+
+/**
+ * Stores bookmarks in the bookmark table of the shard of their post.
+ * The posts each user bookmarked are kept in the HotDataCache as a bitmap, so
+ * checking a whole page of posts needs no query.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcBookmarkRepository implements BookmarkRepository {
+
+    // shardRouter finds the database of a post. See ShardMap.java.
+    private final ShardRouter shardRouter;
+    // cache holds the posts each user bookmarked. See HotDataCache.java.
+    private final HotDataCache cache;
+
+    /**
+     * See AuthInterceptor notes regarding dependency injection and
+     * inversion of control.
+     */
+    @Autowired
+    public JdbcBookmarkRepository(ShardRouter shardRouter, HotDataCache cache) {
+        this.shardRouter = shardRouter;
+        this.cache = cache;
+    }
+
+    @Override
+    public boolean add(String postId, String userId) throws SQLException {
+        String sql = "INSERT INTO bookmark (postId, userId) VALUES (?, ?)";
+        boolean changed = false;
+        try {
+            changed = JdbcSupport.update(shardRouter.forPost(postId).getDataSource(), sql, postId, userId);
+            return changed;
+        } finally {
+            if (changed) {
+                cache.updateEngagement(HotDataCache.BOOKMARK, userId, postId, true);
+            } else {
+                cache.invalidate(HotDataCache.BOOKMARK, userId);
+            }
+        }
+    }
+
+    @Override
+    public boolean remove(String postId, String userId) throws SQLException {
+        String sql = "DELETE FROM bookmark WHERE postId = ? AND userId = ?";
+        boolean changed = false;
+        try {
+            changed = JdbcSupport.update(shardRouter.forPost(postId).getDataSource(), sql, postId, userId);
+            return changed;
+        } finally {
+            if (changed) {
+                cache.updateEngagement(HotDataCache.BOOKMARK, userId, postId, false);
+            } else {
+                cache.invalidate(HotDataCache.BOOKMARK, userId);
+            }
+        }
+    }
+
+    @Override
+    public boolean exists(String postId, String userId) throws SQLException {
+        CompressedBitmap bookmarked = bookmarkedBy(userId);
+        if (bookmarked != null) {
+            synchronized (bookmarked) {
+                return bookmarked.contains(JdbcSupport.postIdNumber(postId));
+            }
+        }
+        String sql = "SELECT * FROM bookmark where postId = ? AND userId = ?";
+        return JdbcSupport.exists(shardRouter.forPost(postId).getReadDataSource(), sql, postId, userId);
+    }
+
+    @Override
+    public Set<String> findBookmarkedBy(String userId, Collection<String> postIds) throws SQLException {
+        CompressedBitmap bookmarkedIds = bookmarkedBy(userId);
+        if (bookmarkedIds != null) {
+            Set<String> found = new HashSet<>();
+            synchronized (bookmarkedIds) {
+                for (String postId : postIds) {
+                    if (bookmarkedIds.contains(JdbcSupport.postIdNumber(postId))) {
+                        found.add(postId);
+                    }
+                }
+            }
+            return found;
+        }
+        Set<String> bookmarked = new HashSet<>();
+        for (Map.Entry<ShardMap.Shard, List<String>> group : shardRouter.groupPosts(postIds).entrySet()) {
+            bookmarked.addAll(JdbcSupport.postsOfUser(group.getKey().getReadDataSource(),
+                    "SELECT postId FROM bookmark WHERE userId = ? AND postId IN ", userId, group.getValue()));
+        }
+        return bookmarked;
+    }
+
+    /**
+     * Returns the posts the user bookmarked from the cache, reading them from
+     * every shard first if needed, once for concurrent callers. Returns
+     * null if the cache is off.
+     */
+    private CompressedBitmap bookmarkedBy(String userId) throws SQLException {
+        if (!cache.isEnabled()) {
+            return null;
+        }
+        return cache.engagement(HotDataCache.BOOKMARK, userId, () -> {
+            CompressedBitmap postIds = new CompressedBitmap();
+            String sql = "SELECT postId FROM bookmark WHERE userId = ?";
+            // Reads the primaries, see JdbcUserRepository.cacheSource.
+            for (ShardMap.Shard shard : shardRouter.all()) {
+                JdbcSupport.addPostIdsOfUser(shard.getDataSource(), sql, userId, postIds);
+            }
+            return postIds;
+        });
+    }
+}
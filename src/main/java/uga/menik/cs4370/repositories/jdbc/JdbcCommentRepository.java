@@ -0,0 +1,109 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.repositories.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import uga.menik.cs4370.config.ShardMap;
+import uga.menik.cs4370.repositories.CommentRepository;
+import uga.menik.cs4370.repositories.CommentRow;
+
+/**
+ * Stores comments in the comment table of the shard of their post.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcCommentRepository implements CommentRepository {
+
+    // shardRouter finds the database of a post. See ShardMap.java.
+    private final ShardRouter shardRouter;
+
+    /**
+     * See AuthInterceptor notes regarding dependency injection and
+     * inversion of control.
+     */
+    @Autowired
+    public JdbcCommentRepository(ShardRouter shardRouter) {
+        this.shardRouter = shardRouter;
+    }
+
+    @Override
+    public boolean insert(String postId, String userId, String commentText) throws SQLException {
+        String sql = "INSERT INTO comment (postId, commentDate, commentText, userId) VALUES (?, CURRENT_TIMESTAMP, ?, ?)";
+        return JdbcSupport.update(shardRouter.forPost(postId).getDataSource(), sql, postId, commentText, userId);
+    }
+
+    @Override
+    public int countByPost(String postId) throws SQLException {
+        String sql = "SELECT COUNT(*) AS commentsCount FROM comment WHERE postId = ?";
+        return JdbcSupport.count(shardRouter.forPost(postId).getReadDataSource(), sql, postId);
+    }
+
+    @Override
+    public Map<String, Integer> countByPosts(Collection<String> postIds) throws SQLException {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Map.Entry<ShardMap.Shard, List<String>> group : shardRouter.groupPosts(postIds).entrySet()) {
+            counts.putAll(JdbcSupport.countByPost(group.getKey().getReadDataSource(),
+                    "SELECT postId, COUNT(*) AS count FROM comment WHERE postId IN ", group.getValue()));
+        }
+        return counts;
+    }
+
+    @Override
+    public List<CommentRow> findByPost(String postId) throws SQLException {
+        List<CommentRow> comments = new ArrayList<>();
+        // Comments are on the shard of their post and users are not, so
+        // commenters are looked up separately.
+        String sql = "SELECT commentId, commentText, commentDate, userId FROM comment " +
+                    "WHERE postId = ? ORDER BY commentDate ASC";
+        try (Connection conn = shardRouter.forPost(postId).getReadDataSource().getConnection();
+            PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, postId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    comments.add(new CommentRow(rs.getString("commentId"), postId, rs.getString("userId"),
+                            rs.getString("commentDate"), rs.getString("commentText")));
+                }
+            }
+        }
+        return comments;
+    }
+
+    @Override
+    public Map<String, List<CommentRow>> findByPosts(Collection<String> postIds) throws SQLException {
+        Map<String, List<CommentRow>> comments = new HashMap<>();
+        for (Map.Entry<ShardMap.Shard, List<String>> group : shardRouter.groupPosts(postIds).entrySet()) {
+            String sql = "SELECT commentId, postId, commentText, commentDate, userId FROM comment " +
+                        "WHERE postId IN " + JdbcSupport.placeholders(group.getValue().size()) +
+                        " ORDER BY commentDate ASC";
+            try (Connection conn = group.getKey().getReadDataSource().getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                JdbcSupport.setStrings(pstmt, 1, group.getValue());
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        String postId = rs.getString("postId");
+                        comments.computeIfAbsent(postId, id -> new ArrayList<>())
+                                .add(new CommentRow(rs.getString("commentId"), postId, rs.getString("userId"),
+                                        rs.getString("commentDate"), rs.getString("commentText")));
+                    }
+                }
+            }
+        }
+        return comments;
+    }
+}
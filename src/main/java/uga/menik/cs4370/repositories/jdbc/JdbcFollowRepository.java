@@ -0,0 +1,120 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.repositories.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import uga.menik.cs4370.repositories.FollowRepository;
+
+/**
+ * Stores follows in the follow table of the primary database.
+ * The users each user follows are kept in the HotDataCache.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcFollowRepository implements FollowRepository {
+
+    // dataSource is used for writes.
+    private final DataSource dataSource;
+    // readDataSource is used by methods that only read. See DataSourceConfig.java.
+    private final DataSource readDataSource;
+    // cache holds the users each user follows. See HotDataCache.java.
+    private final HotDataCache cache;
+
+    /**
+     * See AuthInterceptor notes regarding dependency injection and
+     * inversion of control.
+     */
+    @Autowired
+    public JdbcFollowRepository(DataSource dataSource, @Qualifier("readDataSource") DataSource readDataSource,
+            HotDataCache cache) {
+        this.dataSource = dataSource;
+        this.readDataSource = readDataSource;
+        this.cache = cache;
+    }
+
+    @Override
+    public boolean add(String followerUserId, String followeeUserId) throws SQLException {
+        String sql = "INSERT INTO follow (followerUserId, followeeUserId) VALUES (?, ?)";
+        try {
+            return JdbcSupport.update(dataSource, sql, followerUserId, followeeUserId);
+        } finally {
+            cache.invalidate(HotDataCache.FOLLOW, followerUserId);
+        }
+    }
+
+    @Override
+    public boolean remove(String followerUserId, String followeeUserId) throws SQLException {
+        String sql = "DELETE FROM follow WHERE followerUserId = ? AND followeeUserId = ?";
+        try {
+            return JdbcSupport.update(dataSource, sql, followerUserId, followeeUserId);
+        } finally {
+            cache.invalidate(HotDataCache.FOLLOW, followerUserId);
+        }
+    }
+
+    @Override
+    public boolean exists(String followerUserId, String followeeUserId) throws SQLException {
+        if (cache.isEnabled()) {
+            // One lookup answers this for every user on the people page.
+            return findFollowees(followerUserId).contains(followeeUserId);
+        }
+        String sql = "SELECT * FROM follow WHERE followerUserId = ? AND followeeUserId = ?";
+        return JdbcSupport.exists(readDataSource, sql, followerUserId, followeeUserId);
+    }
+
+    @Override
+    public List<String> findFollowees(String followerUserId) throws SQLException {
+        if (cache.isEnabled()) {
+            List<String> cached = cache.followees(followerUserId);
+            if (cached != null) {
+                return new ArrayList<>(cached);
+            }
+        }
+        long stamp = cache.stamp();
+        List<String> followeeIds = new ArrayList<>();
+        String sql = "SELECT followeeUserId FROM follow WHERE followerUserId = ?";
+        // With the cache on this reads the primary, see JdbcUserRepository.cacheSource.
+        try (Connection conn = (cache.isEnabled() ? dataSource : readDataSource).getConnection();
+            PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, followerUserId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    followeeIds.add(rs.getString("followeeUserId"));
+                }
+            }
+        }
+        cache.putFollowees(followerUserId, followeeIds, stamp);
+        return followeeIds;
+    }
+
+    @Override
+    public void forEachFollowerCount(BiConsumer<String, Integer> consumer) throws SQLException {
+        String sql = "SELECT followeeUserId, COUNT(*) AS followers FROM follow GROUP BY followeeUserId";
+        try (Connection conn = readDataSource.getConnection();
+            PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            JdbcSupport.streamResults(pstmt);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(rs.getString("followeeUserId"), rs.getInt("followers"));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.repositories.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import uga.menik.cs4370.config.ShardMap;
+import uga.menik.cs4370.repositories.HashtagRepository;
+import uga.menik.cs4370.repositories.PostRow;
+
+/**
+ * Stores hashtags in the hashtag table of the shard of their post.
+ * Hashtags of archived posts stay in the table. See PostArchive.java.
+ * The posts of each hashtag and the post rows are kept in the HotDataCache.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcHashtagRepository implements HashtagRepository {
+
+    // shardRouter finds the database of a post. See ShardMap.java.
+    private final ShardRouter shardRouter;
+    // postArchive holds the posts moved out of the post table.
+    private final PostArchive postArchive;
+    // cache holds the posts of each hashtag and post rows. See HotDataCache.java.
+    private final HotDataCache cache;
+
+    /**
+     * See AuthInterceptor notes regarding dependency injection and
+     * inversion of control.
+     */
+    @Autowired
+    public JdbcHashtagRepository(ShardRouter shardRouter, PostArchive postArchive, HotDataCache cache) {
+        this.shardRouter = shardRouter;
+        this.postArchive = postArchive;
+        this.cache = cache;
+    }
+
+    @Override
+    public void insert(String postId, String hashtag) throws SQLException {
+        String sql = "INSERT INTO hashtag (postId, hashTag) VALUES (?, ?)";
+        try {
+            JdbcSupport.update(shardRouter.forPost(postId).getDataSource(), sql, postId, hashtag);
+        } finally {
+            cache.invalidate(HotDataCache.HASHTAG, hashtag);
+        }
+    }
+
+    /**
+     * Without sharding rows are streamed to the consumer as they are read.
+     * With sharding every shard is searched at once and rows are handed
+     * over shard by shard once all shards answered.
+     */
+    @Override
+    public void forEachPostWithAny(Collection<String> hashtags, Consumer<PostRow> consumer) throws SQLException {
+        List<String> tags = new ArrayList<>(hashtags);
+        if (cache.isEnabled() && forEachCachedPostWithAny(tags, consumer)) {
+            return;
+        }
+        // Archived posts have no row in the post table, they are found in the archive.
+        String sql = "SELECT h.postId AS hashtagPostId, p.postId, p.userId, p.postDate, p.postText "
+                + "FROM hashtag h LEFT JOIN post p ON p.postId = h.postId WHERE h.hashTag IN "
+                + JdbcSupport.placeholders(tags.size());
+
+        if (shardRouter.isSharded()) {
+            shardRouter.gather(shard -> {
+                List<PostRow> rows = new ArrayList<>();
+                forEachRow(shard.getReadDataSource(), sql, tags, rows::add);
+                return rows;
+            }).forEach(consumer);
+            return;
+        }
+        forEachRow(shardRouter.all().get(0).getReadDataSource(), sql, tags, consumer);
+    }
+
+    @Override
+    public void forEachHashtagUsage(String since, BiConsumer<String, Integer> consumer) throws SQLException {
+        // Archived posts are older than any sensible since, they count as 0.
+        String sql = "SELECT h.hashTag, COUNT(p.postId) AS uses FROM hashtag h "
+                + "LEFT JOIN post p ON p.postId = h.postId AND p.postDate >= ? GROUP BY h.hashTag";
+        // A hashtag's rows are on the shard of its post, so every shard is read.
+        for (ShardMap.Shard shard : shardRouter.all()) {
+            try (Connection conn = shard.getReadDataSource().getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, since);
+                JdbcSupport.streamResults(pstmt);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        consumer.accept(rs.getString("hashTag"), rs.getInt("uses"));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the posts through the cache. Returns false without handing over
+     * any post if a hashtag has too many posts to cache.
+     */
+    private boolean forEachCachedPostWithAny(List<String> tags, Consumer<PostRow> consumer) throws SQLException {
+        // Hashtags are matched without regard to case, like IN does.
+        Set<String> seenTags = new HashSet<>();
+        List<String> postIds = new ArrayList<>();
+        for (String tag : tags) {
+            if (!seenTags.add(tag.toLowerCase(Locale.ROOT))) {
+                continue;
+            }
+            List<String> tagPostIds = cache.postings(tag);
+            if (tagPostIds == null) {
+                long stamp = cache.stamp();
+                String sql = "SELECT postId FROM hashtag WHERE hashTag = ?";
+                // With the cache on this reads the primary, see JdbcUserRepository.cacheSource.
+                tagPostIds = shardRouter.gather(shard -> {
+                    List<String> ids = new ArrayList<>();
+                    try (Connection conn = shard.getDataSource().getConnection();
+                         PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                        pstmt.setString(1, tag);
+                        try (ResultSet rs = pstmt.executeQuery()) {
+                            while (rs.next()) {
+                                ids.add(rs.getString("postId"));
+                            }
+                        }
+                    }
+                    return ids;
+                });
+                if (!cache.putPostings(tag, tagPostIds, stamp)) {
+                    return false;
+                }
+            }
+            postIds.addAll(tagPostIds);
+        }
+
+        // Post rows never change, only the ones not cached yet are read.
+        Map<String, PostRow> rows = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String postId : postIds) {
+            PostRow row = cache.post(postId);
+            if (row != null) {
+                rows.put(postId, row);
+            } else {
+                missing.add(postId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<ShardMap.Shard, List<String>> missingByShard = shardRouter.groupPosts(missing);
+            for (List<PostRow> shardRows : shardRouter.scatter(missingByShard.keySet(), shard -> {
+                List<String> ids = missingByShard.get(shard);
+                String sql = "SELECT * FROM post WHERE postId IN " + JdbcSupport.placeholders(ids.size());
+                return JdbcSupport.readPostRows(shard.getReadDataSource(), sql, ids.toArray(new String[0]));
+            })) {
+                for (PostRow row : shardRows) {
+                    rows.put(row.getPostId(), row);
+                }
+            }
+            for (String postId : missing) {
+                PostRow row = rows.containsKey(postId) ? rows.get(postId) : postArchive.find(postId);
+                if (row != null) {
+                    rows.put(postId, row);
+                    cache.putPost(row);
+                }
+            }
+        }
+        for (String postId : postIds) {
+            PostRow row = rows.get(postId);
+            if (row != null) {
+                consumer.accept(row);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Streams the posts the hashtag query found to the consumer.
+     */
+    private void forEachRow(DataSource dataSource, String sql, List<String> tags, Consumer<PostRow> consumer)
+            throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            JdbcSupport.setStrings(pstmt, 1, tags);
+            JdbcSupport.streamResults(pstmt);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    PostRow row = rs.getString("postId") != null
+                            ? JdbcSupport.readPostRow(rs)
+                            : postArchive.find(rs.getString("hashtagPostId"));
+                    if (row != null) {
+                        consumer.accept(row);
+                    }
+                }
+            }
+        }
+    }
+}
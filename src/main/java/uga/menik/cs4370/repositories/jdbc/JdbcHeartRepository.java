@@ -0,0 +1,149 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.repositories.jdbc;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import uga.menik.cs4370.config.ShardMap;
+import uga.menik.cs4370.repositories.HeartRepository;
+import uga.menik.cs4370.utility.CompressedBitmap;
+
+/**
+ * Stores hearts in the heart table of the shard of their post.
+ * The posts each user hearted are kept in the HotDataCache as a bitmap, so
+ * checking a whole page of posts needs no query.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcHeartRepository implements HeartRepository {
+
+    // shardRouter finds the database of a post. See ShardMap.java.
+    private final ShardRouter shardRouter;
+    // cache holds the posts each user hearted. See HotDataCache.java.
+    private final HotDataCache cache;
+
+    /**
+     * See AuthInterceptor notes regarding dependency injection and
+     * inversion of control.
+     */
+    @Autowired
+    public JdbcHeartRepository(ShardRouter shardRouter, HotDataCache cache) {
+        this.shardRouter = shardRouter;
+        this.cache = cache;
+    }
+
+    @Override
+    public boolean add(String postId, String userId) throws SQLException {
+        String sql = "INSERT INTO heart (postId, userId) VALUES (?, ?)";
+        boolean changed = false;
+        try {
+            changed = JdbcSupport.update(shardRouter.forPost(postId).getDataSource(), sql, postId, userId);
+            return changed;
+        } finally {
+            if (changed) {
+                cache.updateEngagement(HotDataCache.HEART, userId, postId, true);
+            } else {
+                cache.invalidate(HotDataCache.HEART, userId);
+            }
+        }
+    }
+
+    @Override
+    public boolean remove(String postId, String userId) throws SQLException {
+        String sql = "DELETE FROM heart WHERE postId = ? AND userId = ?";
+        boolean changed = false;
+        try {
+            changed = JdbcSupport.update(shardRouter.forPost(postId).getDataSource(), sql, postId, userId);
+            return changed;
+        } finally {
+            if (changed) {
+                cache.updateEngagement(HotDataCache.HEART, userId, postId, false);
+            } else {
+                cache.invalidate(HotDataCache.HEART, userId);
+            }
+        }
+    }
+
+    @Override
+    public boolean exists(String postId, String userId) throws SQLException {
+        CompressedBitmap hearted = heartedBy(userId);
+        if (hearted != null) {
+            synchronized (hearted) {
+                return hearted.contains(JdbcSupport.postIdNumber(postId));
+            }
+        }
+        String sql = "SELECT * FROM heart where postId = ? AND userId = ?";
+        return JdbcSupport.exists(shardRouter.forPost(postId).getReadDataSource(), sql, postId, userId);
+    }
+
+    @Override
+    public int countByPost(String postId) throws SQLException {
+        String sql = "SELECT COUNT(*) AS heartsCount FROM heart WHERE postId = ?";
+        return JdbcSupport.count(shardRouter.forPost(postId).getReadDataSource(), sql, postId);
+    }
+
+    @Override
+    public Map<String, Integer> countByPosts(Collection<String> postIds) throws SQLException {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Map.Entry<ShardMap.Shard, List<String>> group : shardRouter.groupPosts(postIds).entrySet()) {
+            counts.putAll(JdbcSupport.countByPost(group.getKey().getReadDataSource(),
+                    "SELECT postId, COUNT(*) AS count FROM heart WHERE postId IN ", group.getValue()));
+        }
+        return counts;
+    }
+
+    @Override
+    public Set<String> findHeartedBy(String userId, Collection<String> postIds) throws SQLException {
+        CompressedBitmap heartedIds = heartedBy(userId);
+        if (heartedIds != null) {
+            Set<String> found = new HashSet<>();
+            synchronized (heartedIds) {
+                for (String postId : postIds) {
+                    if (heartedIds.contains(JdbcSupport.postIdNumber(postId))) {
+                        found.add(postId);
+                    }
+                }
+            }
+            return found;
+        }
+        Set<String> hearted = new HashSet<>();
+        for (Map.Entry<ShardMap.Shard, List<String>> group : shardRouter.groupPosts(postIds).entrySet()) {
+            hearted.addAll(JdbcSupport.postsOfUser(group.getKey().getReadDataSource(),
+                    "SELECT postId FROM heart WHERE userId = ? AND postId IN ", userId, group.getValue()));
+        }
+        return hearted;
+    }
+
+    /**
+     * Returns the posts the user hearted from the cache, reading them from
+     * every shard first if needed, once for concurrent callers. Returns
+     * null if the cache is off.
+     */
+    private CompressedBitmap heartedBy(String userId) throws SQLException {
+        if (!cache.isEnabled()) {
+            return null;
+        }
+        return cache.engagement(HotDataCache.HEART, userId, () -> {
+            CompressedBitmap postIds = new CompressedBitmap();
+            String sql = "SELECT postId FROM heart WHERE userId = ?";
+            // Reads the primaries, see JdbcUserRepository.cacheSource.
+            for (ShardMap.Shard shard : shardRouter.all()) {
+                JdbcSupport.addPostIdsOfUser(shard.getDataSource(), sql, userId, postIds);
+            }
+            return postIds;
+        });
+    }
+}
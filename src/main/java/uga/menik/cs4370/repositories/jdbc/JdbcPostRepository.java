@@ -0,0 +1,428 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.repositories.jdbc;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import uga.menik.cs4370.config.ShardMap;
+import uga.menik.cs4370.repositories.FollowRepository;
+import uga.menik.cs4370.repositories.PostRepository;
+import uga.menik.cs4370.repositories.PostRow;
+
+/**
+ * Stores posts in the post table of the shard of their author.
+ * See ShardMap.java. Old posts are read from the PostArchive once
+ * PostArchiveJob has moved them there.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcPostRepository implements PostRepository {
+
+    // Feed rows are read this many at a time. See forEachNewestFirst.
+    private static final int PAGE_ROWS = 500;
+
+    // readDataSource is used for the follow feed when posts are not sharded,
+    // so the feed is a single join. See DataSourceConfig.java.
+    private final DataSource readDataSource;
+    // shardRouter finds the database of a post. See ShardMap.java.
+    private final ShardRouter shardRouter;
+    // followRepository lists followees when the follow feed spans shards
+    // or includes archived posts.
+    private final FollowRepository followRepository;
+    // postArchive holds the posts moved out of the post table.
+    private final PostArchive postArchive;
+    // cache holds the date each user last posted. See HotDataCache.java.
+    private final HotDataCache cache;
+
+    /**
+     * See AuthInterceptor notes regarding dependency injection and
+     * inversion of control.
+     */
+    @Autowired
+    public JdbcPostRepository(@Qualifier("readDataSource") DataSource readDataSource, ShardRouter shardRouter,
+            FollowRepository followRepository, PostArchive postArchive, HotDataCache cache) {
+        this.readDataSource = readDataSource;
+        this.shardRouter = shardRouter;
+        this.followRepository = followRepository;
+        this.postArchive = postArchive;
+        this.cache = cache;
+    }
+
+    @Override
+    public String insert(String userId, String postText) throws SQLException {
+        String sql = "INSERT INTO post (userId, postDate, postText) VALUES (?, CURRENT_TIMESTAMP, ?)";
+
+        // Posts are stored on their author's shard.
+        DataSource shardDataSource = shardRouter.forUser(userId).getDataSource();
+        try (Connection conn = shardDataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setString(1, userId);
+            pstmt.setString(2, postText);
+
+            if (pstmt.executeUpdate() > 0) {
+                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        return generatedKeys.getString(1);
+                    }
+                }
+            }
+        } finally {
+            cache.invalidate(HotDataCache.POST, userId);
+        }
+        return null;
+    }
+
+    @Override
+    public boolean exists(String postId) throws SQLException {
+        String sql = "SELECT COUNT(*) AS count FROM post WHERE postId = ?";
+        return JdbcSupport.count(shardRouter.forPost(postId).getDataSource(), sql, postId) > 0
+                || postArchive.contains(postId);
+    }
+
+    @Override
+    public List<PostRow> findAllNewestFirst() throws SQLException {
+        String sql = "SELECT * FROM post ORDER BY postDate DESC";
+        // Every shard sorts its own posts, the sorted lists are then merged.
+        List<List<PostRow>> sortedRows = shardRouter.scatter(shardRouter.all(),
+                shard -> JdbcSupport.readPostRows(shard.getReadDataSource(), sql));
+        if (postArchive.isEmpty()) {
+            return ShardRouter.merge(sortedRows, PostRow.NEWEST_FIRST);
+        }
+        List<PostRow> archived = postArchive.findAll();
+        archived.sort(PostRow.NEWEST_FIRST);
+        sortedRows = new ArrayList<>(sortedRows);
+        sortedRows.add(archived);
+        return distinct(ShardRouter.merge(sortedRows, PostRow.NEWEST_FIRST));
+    }
+
+    @Override
+    public List<PostRow> findAll() throws SQLException {
+        String sql = "SELECT * FROM post";
+        List<PostRow> rows = shardRouter.gather(shard -> JdbcSupport.readPostRows(shard.getReadDataSource(), sql));
+        if (postArchive.isEmpty()) {
+            return rows;
+        }
+        rows.addAll(postArchive.findAll());
+        return distinct(rows);
+    }
+
+    @Override
+    public List<PostRow> findByTextContaining(String text) throws SQLException {
+        String sql = "SELECT * FROM post WHERE postText LIKE ?";
+        List<PostRow> rows = shardRouter.gather(
+                shard -> JdbcSupport.readPostRows(shard.getReadDataSource(), sql, "%" + text + "%"));
+        if (postArchive.isEmpty()) {
+            return rows;
+        }
+        rows.addAll(postArchive.findByTextContaining(text));
+        return distinct(rows);
+    }
+
+    @Override
+    public void forEachByUser(String userId, Consumer<PostRow> consumer) throws SQLException {
+        if (!postArchive.isEmpty()) {
+            ArchiveMerge merge = new ArchiveMerge(postArchive.findByUsers(List.of(userId)), consumer);
+            forEachByUserInTable(userId, merge);
+            merge.finish();
+            return;
+        }
+        forEachByUserInTable(userId, consumer);
+    }
+
+    /**
+     * Hands the posts of a user from the post table to the consumer, newest first.
+     */
+    private void forEachByUserInTable(String userId, Consumer<PostRow> consumer) throws SQLException {
+        // All posts of a user are on the user's shard.
+        DataSource shardDataSource = shardRouter.forUser(userId).getReadDataSource();
+        forEachNewestFirst(shardDataSource, "SELECT * FROM post", "userId = ?", "", userId, consumer);
+    }
+
+    @Override
+    public void forEachFollowedBy(String followerUserId, Consumer<PostRow> consumer) throws SQLException {
+        if (!postArchive.isEmpty()) {
+            ArchiveMerge merge = new ArchiveMerge(
+                    postArchive.findByUsers(followRepository.findFollowees(followerUserId)), consumer);
+            forEachFollowedByInTable(followerUserId, merge);
+            merge.finish();
+            return;
+        }
+        forEachFollowedByInTable(followerUserId, consumer);
+    }
+
+    /**
+     * Hands the posts of followed users from the post table to the consumer, newest first.
+     */
+    private void forEachFollowedByInTable(String followerUserId, Consumer<PostRow> consumer)
+            throws SQLException {
+        if (shardRouter.isSharded()) {
+            forEachFollowedByOnShards(followerUserId, consumer);
+            return;
+        }
+        String select = "SELECT p.postId, p.userId, p.postDate, p.postText FROM post p " +
+                    "JOIN follow f ON p.userId = f.followeeUserId";
+        forEachNewestFirst(readDataSource, select, "f.followerUserId = ?", "p.", followerUserId, consumer);
+    }
+
+    /**
+     * Hands the rows of a query to the consumer newest first, PAGE_ROWS at
+     * a time. Each page is read and its connection given back before the
+     * consumer sees its rows. Consumers look up authors and counts with
+     * connections of their own, and would wait on the pool forever if a
+     * streaming result held one per feed while they do. The next page
+     * starts after the last row of the previous one.
+     *
+     * @param select The query up to its WHERE clause.
+     * @param where The condition, with one parameter.
+     * @param alias The prefix of the post columns, e.g. "p.".
+     */
+    private static void forEachNewestFirst(DataSource dataSource, String select, String where, String alias,
+            String param, Consumer<PostRow> consumer) throws SQLException {
+        String order = " ORDER BY " + alias + "postDate DESC, " + alias + "postId DESC LIMIT " + PAGE_ROWS;
+        String firstPage = select + " WHERE " + where + order;
+        String nextPage = select + " WHERE " + where + " AND (" + alias + "postDate < ? OR (" + alias
+                + "postDate = ? AND " + alias + "postId < ?))" + order;
+        List<PostRow> page = JdbcSupport.readPostRows(dataSource, firstPage, param);
+        while (true) {
+            page.forEach(consumer);
+            if (page.size() < PAGE_ROWS) {
+                return;
+            }
+            PostRow last = page.get(page.size() - 1);
+            page = JdbcSupport.readPostRows(dataSource, nextPage, param,
+                    last.getPostDate(), last.getPostDate(), last.getPostId());
+        }
+    }
+
+    /**
+     * The follow feed when posts are sharded. The follow table is on the
+     * primary, so the followed users are read first. Then the posts of the
+     * followed users on each shard are read in parallel and merged by date.
+     */
+    private void forEachFollowedByOnShards(String followerUserId, Consumer<PostRow> consumer)
+            throws SQLException {
+        List<String> followeeIds = followRepository.findFollowees(followerUserId);
+        if (followeeIds.isEmpty()) {
+            return;
+        }
+        Map<ShardMap.Shard, List<String>> followeesByShard = shardRouter.groupUsers(followeeIds);
+        List<PostRow> rows = ShardRouter.merge(shardRouter.scatter(followeesByShard.keySet(), shard -> {
+            List<String> userIds = followeesByShard.get(shard);
+            String sql = "SELECT postId, userId, postDate, postText FROM post WHERE userId IN "
+                    + JdbcSupport.placeholders(userIds.size()) + " ORDER BY postDate DESC";
+            return JdbcSupport.readPostRows(shard.getReadDataSource(), sql, userIds.toArray(new String[0]));
+        }), PostRow.NEWEST_FIRST);
+        rows.forEach(consumer);
+    }
+
+    @Override
+    public String findLastPostDate(String userId) throws SQLException {
+        if (cache.isEnabled()) {
+            String cached = cache.lastPostDate(userId);
+            if (cached != null) {
+                return cached.isEmpty() ? null : cached;
+            }
+        }
+        long stamp = cache.stamp();
+        String sql = "SELECT * FROM post WHERE userId = ? ORDER BY postDate DESC LIMIT 1";
+        // With the cache on this reads the primary, see JdbcUserRepository.cacheSource.
+        ShardMap.Shard shard = shardRouter.forUser(userId);
+        List<PostRow> rows = JdbcSupport.readPostRows(
+                cache.isEnabled() ? shard.getDataSource() : shard.getReadDataSource(), sql, userId);
+        if (!postArchive.isEmpty()) {
+            rows.addAll(postArchive.findByUsers(List.of(userId)));
+            rows.sort(PostRow.NEWEST_FIRST);
+        }
+        String lastPostDate = rows.isEmpty() ? null : rows.get(0).getPostDate();
+        cache.putLastPostDate(userId, lastPostDate, stamp);
+        return lastPostDate;
+    }
+
+    @Override
+    public Map<String, String> findLastPostDates(Collection<String> userIds) throws SQLException {
+        Map<String, String> lastPostDates = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String userId : userIds) {
+            String cached = cache.isEnabled() ? cache.lastPostDate(userId) : null;
+            if (cached == null) {
+                missing.add(userId);
+            } else if (!cached.isEmpty()) {
+                lastPostDates.put(userId, cached);
+            }
+        }
+        if (missing.isEmpty()) {
+            return lastPostDates;
+        }
+        long stamp = cache.stamp();
+        Map<String, String> found = new HashMap<>();
+        for (Map.Entry<ShardMap.Shard, List<String>> group : shardRouter.groupUsers(missing).entrySet()) {
+            String sql = "SELECT userId, MAX(postDate) AS lastPostDate FROM post WHERE userId IN "
+                    + JdbcSupport.placeholders(group.getValue().size()) + " GROUP BY userId";
+            // With the cache on this reads the primary, see JdbcUserRepository.cacheSource.
+            ShardMap.Shard shard = group.getKey();
+            try (Connection conn = (cache.isEnabled() ? shard.getDataSource() : shard.getReadDataSource())
+                        .getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                JdbcSupport.setStrings(pstmt, 1, group.getValue());
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        found.put(rs.getString("userId"), rs.getString("lastPostDate"));
+                    }
+                }
+            }
+        }
+        if (!postArchive.isEmpty()) {
+            for (PostRow row : postArchive.findByUsers(missing)) {
+                String newest = found.get(row.getUserId());
+                if (newest == null || row.getPostDate().compareTo(newest) > 0) {
+                    found.put(row.getUserId(), row.getPostDate());
+                }
+            }
+        }
+        for (String userId : missing) {
+            String lastPostDate = found.get(userId);
+            if (lastPostDate != null) {
+                lastPostDates.put(userId, lastPostDate);
+            }
+            cache.putLastPostDate(userId, lastPostDate, stamp);
+        }
+        return lastPostDates;
+    }
+
+    @Override
+    public void forEachLastPostDate(BiConsumer<String, String> consumer) throws SQLException {
+        // Archived posts are older than app.archive.after-days, too old to count as recent.
+        String sql = "SELECT userId, MAX(postDate) AS lastPostDate FROM post GROUP BY userId";
+        // All posts of a user are on the user's shard, so every user comes once.
+        for (ShardMap.Shard shard : shardRouter.all()) {
+            try (Connection conn = shard.getReadDataSource().getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                JdbcSupport.streamResults(pstmt);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        consumer.accept(rs.getString("userId"), rs.getString("lastPostDate"));
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public long forEachPostId(Consumer<String> consumer) throws SQLException {
+        String sql = "SELECT postId FROM post";
+        long complete = Long.MAX_VALUE;
+        for (ShardMap.Shard shard : shardRouter.all()) {
+            long maxPostId = 0;
+            try (Connection conn = shard.getReadDataSource().getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                JdbcSupport.streamResults(pstmt);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        long postId = rs.getLong(1);
+                        maxPostId = Math.max(maxPostId, postId);
+                        consumer.accept(Long.toString(postId));
+                    }
+                }
+            }
+            // Every shard hands out its own IDs, so past the newest post of
+            // one shard another shard may still be missing some.
+            complete = Math.min(complete, maxPostId);
+        }
+        // A post PostArchiveJob moved while the table was read is in a
+        // segment that may not be mapped here yet.
+        try {
+            postArchive.refresh();
+        } catch (IOException e) {
+            throw new SQLException("Could not map new post archive segments.", e);
+        }
+        postArchive.forEachPostId(consumer);
+        return complete;
+    }
+
+    @Override
+    public Collection<List<String>> partition(Collection<String> postIds) {
+        // Hearts, comments and bookmarks are on the shard of their post.
+        return shardRouter.groupPosts(postIds).values();
+    }
+
+    /**
+     * Drops repeated posts, keeping the first. While PostArchiveJob moves a
+     * post it is briefly both in the post table and in the archive.
+     */
+    private static List<PostRow> distinct(List<PostRow> rows) {
+        Set<String> seen = new HashSet<>();
+        List<PostRow> distinctRows = new ArrayList<>(rows.size());
+        for (PostRow row : rows) {
+            if (seen.add(row.getPostId())) {
+                distinctRows.add(row);
+            }
+        }
+        return distinctRows;
+    }
+
+    /**
+     * Hands posts streamed from the post table to a consumer with the
+     * archived posts put in between, so the consumer still gets them newest
+     * first. Call finish after the last post of the table.
+     */
+    private static class ArchiveMerge implements Consumer<PostRow> {
+        private final List<PostRow> archived;
+        private final Set<String> archivedIds = new HashSet<>();
+        private final Consumer<PostRow> consumer;
+        private int next;
+
+        /**
+         * @param archived The archived posts, newest first.
+         * @param consumer Receives all posts.
+         */
+        ArchiveMerge(List<PostRow> archived, Consumer<PostRow> consumer) {
+            this.archived = archived;
+            this.consumer = consumer;
+            for (PostRow row : archived) {
+                archivedIds.add(row.getPostId());
+            }
+        }
+
+        @Override
+        public void accept(PostRow row) {
+            if (archivedIds.contains(row.getPostId())) {
+                // Being moved. The archived copy is handed over in its place.
+                return;
+            }
+            while (next < archived.size() && PostRow.NEWEST_FIRST.compare(archived.get(next), row) < 0) {
+                consumer.accept(archived.get(next++));
+            }
+            consumer.accept(row);
+        }
+
+        void finish() {
+            while (next < archived.size()) {
+                consumer.accept(archived.get(next++));
+            }
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.repositories.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import uga.menik.cs4370.repositories.PostRow;
+import uga.menik.cs4370.utility.CompressedBitmap;
+
+/**
+ * Query helpers shared by the JDBC repositories.
+ */
+final class JdbcSupport {
+
+    private JdbcSupport() {
+    }
+
+    /**
+     * Reads the current row of a result with postId, userId, postDate and postText.
+     */
+    static PostRow readPostRow(ResultSet rs) throws SQLException {
+        return new PostRow(rs.getString("postId"), rs.getString("userId"),
+                rs.getString("postDate"), rs.getString("postText"));
+    }
+
+    /**
+     * Reads post rows with the given query and parameters from one database.
+     */
+    static List<PostRow> readPostRows(DataSource dataSource, String sql, String... params) throws SQLException {
+        List<PostRow> rows = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                pstmt.setString(i + 1, params[i]);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(readPostRow(rs));
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Runs a query with the given parameters and returns true if it found a row.
+     */
+    static boolean exists(DataSource dataSource, String sql, String... params) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                pstmt.setString(i + 1, params[i]);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /**
+     * Runs an insert, update or delete and returns true if it changed a row.
+     */
+    static boolean update(DataSource dataSource, String sql, String... params) throws SQLException {
+        return updateCount(dataSource, sql, params) > 0;
+    }
+
+    /**
+     * Runs an insert, update or delete and returns the number of rows it changed.
+     */
+    static int updateCount(DataSource dataSource, String sql, String... params) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                pstmt.setString(i + 1, params[i]);
+            }
+            return pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Runs a count query with the given parameters.
+     */
+    static int count(DataSource dataSource, String sql, String... params) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                pstmt.setString(i + 1, params[i]);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Runs a grouped count query over the given posts.
+     * Posts without rows are left out of the result.
+     */
+    static Map<String, Integer> countByPost(DataSource dataSource, String sqlPrefix, Collection<String> postIds)
+            throws SQLException {
+        Map<String, Integer> counts = new HashMap<>();
+        String sql = sqlPrefix + placeholders(postIds.size()) + " GROUP BY postId";
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            setStrings(pstmt, 1, postIds);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    counts.put(rs.getString("postId"), rs.getInt("count"));
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Returns which of the given posts have a row for the user in the queried table.
+     */
+    static Set<String> postsOfUser(DataSource dataSource, String sqlPrefix, String userId,
+            Collection<String> postIds) throws SQLException {
+        Set<String> found = new HashSet<>();
+        String sql = sqlPrefix + placeholders(postIds.size());
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, userId);
+            setStrings(pstmt, 2, postIds);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    found.add(rs.getString("postId"));
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Adds the postId of every row the query returns for the user to the bitmap.
+     */
+    static void addPostIdsOfUser(DataSource dataSource, String sql, String userId, CompressedBitmap postIds)
+            throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, userId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    postIds.add(rs.getInt("postId"));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the post ID as a number, or -1 if it is not one.
+     * Such posts cannot exist, postId is an INT column.
+     */
+    static int postIdNumber(String postId) {
+        try {
+            int id = Integer.parseInt(postId);
+            return id < 0 ? -1 : id;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Asks the driver to stream rows instead of buffering the whole result.
+     * Integer.MIN_VALUE is how MySQL Connector/J is asked. Other drivers,
+     * e.g. H2 in the tests, reject it, so they keep their own fetch size.
+     */
+    static void streamResults(PreparedStatement pstmt) throws SQLException {
+        String url = pstmt.getConnection().getMetaData().getURL();
+        if (url != null && url.startsWith("jdbc:mysql:")) {
+            pstmt.setFetchSize(Integer.MIN_VALUE);
+        }
+    }
+
+    /**
+     * Returns (?, ?, ...) with the given number of placeholders.
+     */
+    static String placeholders(int count) {
+        StringBuilder sql = new StringBuilder("(");
+        for (int i = 0; i < count; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        return sql.append(")").toString();
+    }
+
+    static void setStrings(PreparedStatement pstmt, int firstIndex, Collection<String> values)
+            throws SQLException {
+        int index = firstIndex;
+        for (String value : values) {
+            pstmt.setString(index++, value);
+        }
+    }
+}
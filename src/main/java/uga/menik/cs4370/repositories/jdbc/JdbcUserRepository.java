@@ -0,0 +1,180 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.repositories.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import uga.menik.cs4370.models.User;
+import uga.menik.cs4370.repositories.UserRepository;
+import uga.menik.cs4370.repositories.UserRow;
+
+/**
+ * Stores users in the user table of the primary database.
+ * Users looked up by ID are kept in the HotDataCache.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcUserRepository implements UserRepository {
+
+    // dataSource is used for writes and for logging in,
+    // so a user can log in right after registering.
+    private final DataSource dataSource;
+    // readDataSource is used by methods that only read. See DataSourceConfig.java.
+    private final DataSource readDataSource;
+    // cache holds users by ID. See HotDataCache.java.
+    private final HotDataCache cache;
+
+    /**
+     * See AuthInterceptor notes regarding dependency injection and
+     * inversion of control.
+     */
+    @Autowired
+    public JdbcUserRepository(DataSource dataSource, @Qualifier("readDataSource") DataSource readDataSource,
+            HotDataCache cache) {
+        this.dataSource = dataSource;
+        this.readDataSource = readDataSource;
+        this.cache = cache;
+    }
+
+    @Override
+    public UserRow findByUsername(String username) throws SQLException {
+        final String sql = "select * from user where username = ?";
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, username);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return new UserRow(rs.getString("userId"), rs.getString("username"),
+                            rs.getString("password"), rs.getString("firstName"), rs.getString("lastName"));
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean insert(String username, String password, String firstName, String lastName)
+            throws SQLException {
+        final String sql = "insert into user (username, password, firstName, lastName) values (?, ?, ?, ?)";
+        return JdbcSupport.update(dataSource, sql, username, password, firstName, lastName);
+    }
+
+    @Override
+    public User findById(String userId) throws SQLException {
+        if (cache.isEnabled()) {
+            User user = cache.user(userId);
+            if (user != null) {
+                return user;
+            }
+        }
+        long stamp = cache.stamp();
+        String sql = "SELECT * FROM user WHERE userId = ?";
+        try (Connection conn = cacheSource().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, userId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    User user = readUser(rs);
+                    cache.putUser(user, stamp);
+                    return user;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Map<String, User> findByIds(Collection<String> userIds) throws SQLException {
+        Map<String, User> users = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String userId : userIds) {
+            User user = cache.isEnabled() ? cache.user(userId) : null;
+            if (user != null) {
+                users.put(userId, user);
+            } else {
+                missing.add(userId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return users;
+        }
+        long stamp = cache.stamp();
+        String sql = "SELECT userId, firstName, lastName FROM user WHERE userId IN "
+                + JdbcSupport.placeholders(missing.size());
+        try (Connection conn = cacheSource().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            JdbcSupport.setStrings(pstmt, 1, missing);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    User user = readUser(rs);
+                    users.put(user.getUserId(), user);
+                    cache.putUser(user, stamp);
+                }
+            }
+        }
+        return users;
+    }
+
+    @Override
+    public List<User> findAllExcept(String userId) throws SQLException {
+        List<User> users = new ArrayList<>();
+        String sql = "SELECT * FROM user where userId <> ?";
+        try (Connection conn = readDataSource.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, userId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    users.add(readUser(rs));
+                }
+            }
+        }
+        return users;
+    }
+
+    @Override
+    public void forEachUser(Consumer<UserRow> consumer) throws SQLException {
+        String sql = "SELECT userId, username, firstName, lastName FROM user";
+        try (Connection conn = readDataSource.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            JdbcSupport.streamResults(pstmt);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(new UserRow(rs.getString("userId"), rs.getString("username"), null,
+                            rs.getString("firstName"), rs.getString("lastName")));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns where lookups by ID read. With the cache on they read the
+     * primary, since a lagging replica could fill the cache with a row
+     * that already changed.
+     */
+    private DataSource cacheSource() {
+        return cache.isEnabled() ? dataSource : readDataSource;
+    }
+
+    private static User readUser(ResultSet rs) throws SQLException {
+        return new User(rs.getString("userId"), rs.getString("firstName"), rs.getString("lastName"));
+    }
+}
@@ -0,0 +1,455 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.repositories.jdbc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import uga.menik.cs4370.repositories.PostRow;
+
+/**
+ * This component keeps old posts out of the post table. PostArchiveJob moves
+ * posts older than app.archive.after-days into segment files in
+ * app.archive.dir and JdbcPostRepository reads them from there, so the post
+ * table and its indexes only hold the posts feeds read most.
+ *
+ * A segment is written once and never changed. The archive grows by adding
+ * segments. Each segment is mapped into memory and read in place, without
+ * file reads or heap buffers. Records are sorted by post ID. A sparse index
+ * holds the offset of every INDEX_INTERVAL-th record, so finding a post is a
+ * binary search of the index and a scan of at most INDEX_INTERVAL records.
+ * A second index lists the records of each author for profiles and feeds.
+ *
+ * Segment layout, big endian:
+ * header: magic, version, record count, sparse index entries (ints),
+ *         lowest and highest post ID (longs), sparse index offset and
+ *         author index offset (ints)
+ * record: post ID, user ID (longs), date (short length, UTF-8),
+ *         text (int length, UTF-8)
+ * sparse index entry: post ID (long), record offset (int)
+ * author index entry: user ID (long), record offset (int), sorted by user ID
+ *
+ * Without app.archive.dir the archive is disabled and always empty.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "jdbc", matchIfMissing = true)
+public class PostArchive {
+    private static final Logger log = LoggerFactory.getLogger(PostArchive.class);
+
+    private static final int MAGIC = 0x50415243;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 40;
+    private static final int INDEX_ENTRY_BYTES = 12;
+    private static final int INDEX_INTERVAL = 64;
+    private static final String SEGMENT_PREFIX = "posts-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    // Where segments are kept, or null if the archive is disabled.
+    private final Path dir;
+    // Mapped segments in the order they were written. Replaced, never changed,
+    // so readers can use it without locking.
+    private volatile List<Segment> segments = List.of();
+
+    /**
+     * See AuthInterceptor notes regarding dependency injection and
+     * inversion of control.
+     */
+    @Autowired
+    public PostArchive(@Value("${app.archive.dir:}") String dir) throws IOException {
+        if (dir.isBlank()) {
+            this.dir = null;
+            return;
+        }
+        this.dir = Paths.get(dir);
+        Files.createDirectories(this.dir);
+        // Left over from a segment that was being written during a crash.
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(this.dir, "*.tmp")) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        refresh();
+    }
+
+    /**
+     * Returns true if app.archive.dir is set.
+     */
+    public boolean isEnabled() {
+        return dir != null;
+    }
+
+    /**
+     * Returns true if no post has been archived. Repositories skip the
+     * archive entirely then.
+     */
+    public boolean isEmpty() {
+        return segments.isEmpty();
+    }
+
+    /**
+     * Maps segments other app instances added to a shared archive directory.
+     */
+    public synchronized void refresh() throws IOException {
+        if (dir == null) {
+            return;
+        }
+        Set<Path> mapped = new HashSet<>();
+        for (Segment segment : segments) {
+            mapped.add(segment.file);
+        }
+        List<Path> added = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                if (!mapped.contains(file)) {
+                    added.add(file);
+                }
+            }
+        }
+        if (added.isEmpty()) {
+            return;
+        }
+        added.sort(Comparator.naturalOrder());
+        List<Segment> updated = new ArrayList<>(segments);
+        for (Path file : added) {
+            updated.add(Segment.map(file));
+        }
+        segments = List.copyOf(updated);
+        log.atInfo().addKeyValue("segments", updated.size()).addKeyValue("added", added.size())
+                .log("Mapped post archive segments");
+    }
+
+    /**
+     * Returns the archived post with the given ID, or null.
+     */
+    public PostRow find(String postId) {
+        long id = parseId(postId);
+        for (Segment segment : segments) {
+            if (id >= segment.minId && id <= segment.maxId) {
+                int offset = segment.offsetOf(id);
+                if (offset >= 0) {
+                    return segment.readRow(offset);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if the post with the given ID is archived.
+     */
+    public boolean contains(String postId) {
+        long id = parseId(postId);
+        for (Segment segment : segments) {
+            if (id >= segment.minId && id <= segment.maxId && segment.offsetOf(id) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the archived posts of the given users, newest first.
+     */
+    public List<PostRow> findByUsers(Collection<String> userIds) {
+        List<PostRow> rows = new ArrayList<>();
+        for (Segment segment : segments) {
+            for (String userId : userIds) {
+                segment.readRowsOf(parseId(userId), rows);
+            }
+        }
+        rows.sort(PostRow.NEWEST_FIRST);
+        return rows;
+    }
+
+    /**
+     * Returns every archived post in the order they were archived.
+     */
+    public List<PostRow> findAll() {
+        List<PostRow> rows = new ArrayList<>();
+        for (Segment segment : segments) {
+            for (int offset = HEADER_BYTES; offset < segment.idIndexOffset; offset = segment.nextOffset(offset)) {
+                rows.add(segment.readRow(offset));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Hands the ID of every archived post to the consumer.
+     */
+    public void forEachPostId(Consumer<String> consumer) {
+        for (Segment segment : segments) {
+            for (int offset = HEADER_BYTES; offset < segment.idIndexOffset; offset = segment.nextOffset(offset)) {
+                consumer.accept(Long.toString(segment.buffer.getLong(offset)));
+            }
+        }
+    }
+
+    /**
+     * Returns the archived posts whose text contains the given text,
+     * ignoring case like MySQL's LIKE does.
+     */
+    public List<PostRow> findByTextContaining(String text) {
+        String lowerText = text.toLowerCase(Locale.ROOT);
+        List<PostRow> rows = new ArrayList<>();
+        for (PostRow row : findAll()) {
+            if (row.getPostText().toLowerCase(Locale.ROOT).contains(lowerText)) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Writes the given posts to a new segment. Posts that are archived
+     * already are skipped, so a migration that was cut off can simply run
+     * again. Returns once the segment is on disk and mapped.
+     *
+     * @return The number of posts added.
+     */
+    public synchronized int append(List<PostRow> rows) throws IOException {
+        if (dir == null) {
+            throw new IllegalStateException("The post archive is disabled. Set app.archive.dir.");
+        }
+        List<PostRow> added = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (PostRow row : rows) {
+            if (seen.add(row.getPostId()) && !contains(row.getPostId())) {
+                added.add(row);
+            }
+        }
+        if (added.isEmpty()) {
+            return 0;
+        }
+        added.sort(Comparator.comparingLong(row -> parseId(row.getPostId())));
+
+        String name = String.format("%s%010d%s", SEGMENT_PREFIX, nextSequence(), SEGMENT_SUFFIX);
+        Path file = dir.resolve(name);
+        Path tmp = dir.resolve(name + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            channel.write(Segment.encode(added));
+            channel.force(true);
+        }
+        // The segment appears complete or not at all.
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+        try (FileChannel directory = FileChannel.open(dir, StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            // Not every platform can sync a directory.
+        }
+        refresh();
+        return added.size();
+    }
+
+    /**
+     * Returns the sequence number after the highest one in use.
+     */
+    private long nextSequence() {
+        long last = 0;
+        for (Segment segment : segments) {
+            String name = segment.file.getFileName().toString();
+            last = Math.max(last, Long.parseLong(
+                    name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+        }
+        return last + 1;
+    }
+
+    /**
+     * Returns the ID as a number, or -1 if it is not one, which matches no post.
+     */
+    private static long parseId(String id) {
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * One mapped segment file. See the class notes for the layout.
+     * Only absolute reads are used, so threads can share the buffer.
+     */
+    private static class Segment {
+        private final Path file;
+        private final MappedByteBuffer buffer;
+        private final int count;
+        private final int indexEntries;
+        private final long minId;
+        private final long maxId;
+        private final int idIndexOffset;
+        private final int userIndexOffset;
+
+        private Segment(Path file, MappedByteBuffer buffer) throws IOException {
+            this.file = file;
+            this.buffer = buffer;
+            if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Not a post archive segment: " + file);
+            }
+            this.count = buffer.getInt(8);
+            this.indexEntries = buffer.getInt(12);
+            this.minId = buffer.getLong(16);
+            this.maxId = buffer.getLong(24);
+            this.idIndexOffset = buffer.getInt(32);
+            this.userIndexOffset = buffer.getInt(36);
+            if ((long) userIndexOffset + (long) count * INDEX_ENTRY_BYTES != buffer.capacity()) {
+                throw new IOException("Damaged post archive segment: " + file);
+            }
+        }
+
+        static Segment map(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                // The mapping stays valid after the channel is closed.
+                return new Segment(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            }
+        }
+
+        /**
+         * Returns the offset of the record with the given post ID, or -1.
+         */
+        int offsetOf(long postId) {
+            // Last sparse index entry at or before the post.
+            int low = 0;
+            int high = indexEntries - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (buffer.getLong(idIndexOffset + mid * INDEX_ENTRY_BYTES) <= postId) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            int offset = buffer.getInt(idIndexOffset + low * INDEX_ENTRY_BYTES + 8);
+            for (int i = 0; i < INDEX_INTERVAL && offset < idIndexOffset; i++) {
+                long id = buffer.getLong(offset);
+                if (id == postId) {
+                    return offset;
+                }
+                if (id > postId) {
+                    break;
+                }
+                offset = nextOffset(offset);
+            }
+            return -1;
+        }
+
+        /**
+         * Adds the records of the given author to rows.
+         */
+        void readRowsOf(long userId, List<PostRow> rows) {
+            // First author index entry of the user.
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (buffer.getLong(userIndexOffset + mid * INDEX_ENTRY_BYTES) < userId) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            for (int i = low; i < count; i++) {
+                int entry = userIndexOffset + i * INDEX_ENTRY_BYTES;
+                if (buffer.getLong(entry) != userId) {
+                    break;
+                }
+                rows.add(readRow(buffer.getInt(entry + 8)));
+            }
+        }
+
+        int nextOffset(int offset) {
+            int dateLength = buffer.getShort(offset + 16);
+            int textOffset = offset + 18 + dateLength;
+            return textOffset + 4 + buffer.getInt(textOffset);
+        }
+
+        PostRow readRow(int offset) {
+            int dateLength = buffer.getShort(offset + 16);
+            int textOffset = offset + 18 + dateLength;
+            return new PostRow(Long.toString(buffer.getLong(offset)), Long.toString(buffer.getLong(offset + 8)),
+                    decode(offset + 18, dateLength), decode(textOffset + 4, buffer.getInt(textOffset)));
+        }
+
+        /**
+         * Decodes text straight from the mapping.
+         */
+        private String decode(int offset, int length) {
+            return StandardCharsets.UTF_8.decode(buffer.slice(offset, length)).toString();
+        }
+
+        /**
+         * Lays out a segment of rows sorted by post ID.
+         */
+        static ByteBuffer encode(List<PostRow> rows) {
+            List<byte[]> dates = new ArrayList<>(rows.size());
+            List<byte[]> texts = new ArrayList<>(rows.size());
+            long recordBytes = 0;
+            for (PostRow row : rows) {
+                byte[] date = row.getPostDate().getBytes(StandardCharsets.UTF_8);
+                byte[] text = row.getPostText().getBytes(StandardCharsets.UTF_8);
+                dates.add(date);
+                texts.add(text);
+                recordBytes += 22 + date.length + text.length;
+            }
+            int indexEntries = (rows.size() + INDEX_INTERVAL - 1) / INDEX_INTERVAL;
+            long size = HEADER_BYTES + recordBytes + (long) (indexEntries + rows.size()) * INDEX_ENTRY_BYTES;
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Too many posts for one segment.");
+            }
+            int idIndexOffset = (int) (HEADER_BYTES + recordBytes);
+            int userIndexOffset = idIndexOffset + indexEntries * INDEX_ENTRY_BYTES;
+
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(rows.size()).putInt(indexEntries)
+                    .putLong(parseId(rows.get(0).getPostId()))
+                    .putLong(parseId(rows.get(rows.size() - 1).getPostId()))
+                    .putInt(idIndexOffset).putInt(userIndexOffset);
+            int[] offsets = new int[rows.size()];
+            for (int i = 0; i < rows.size(); i++) {
+                PostRow row = rows.get(i);
+                offsets[i] = buffer.position();
+                buffer.putLong(parseId(row.getPostId())).putLong(parseId(row.getUserId()))
+                        .putShort((short) dates.get(i).length).put(dates.get(i))
+                        .putInt(texts.get(i).length).put(texts.get(i));
+            }
+            for (int i = 0; i < rows.size(); i += INDEX_INTERVAL) {
+                buffer.putLong(parseId(rows.get(i).getPostId())).putInt(offsets[i]);
+            }
+            List<Integer> byUser = new ArrayList<>(rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                byUser.add(i);
+            }
+            byUser.sort(Comparator.comparingLong(i -> parseId(rows.get(i).getUserId())));
+            for (int i : byUser) {
+                buffer.putLong(parseId(rows.get(i).getUserId())).putInt(offsets[i]);
+            }
+            return buffer.flip();
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.repositories.jdbc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import uga.menik.cs4370.config.ShardMap;
+import uga.menik.cs4370.repositories.PostRow;
+
+/**
+ * This component moves posts older than app.archive.after-days from the
+ * post table of every shard into the PostArchive, every
+ * app.archive.migrate-every-minutes. See PostArchive.java.
+ *
+ * Posts are read in batches of app.archive.batch-size until a segment of
+ * app.archive.segment-posts posts is full. The segment is written and
+ * mapped first, and only then are its posts deleted from the table, again
+ * batch by batch. The job pauses app.archive.batch-pause-ms after every
+ * batch so it never keeps the database busy for long.
+ *
+ * A run that is cut off can simply run again. Posts that were archived but
+ * not yet deleted are found in the archive, skipped and then deleted.
+ *
+ * With several app instances sharing the archive directory, run the job on
+ * one of them and set app.archive.migrate-every-minutes=0 on the others.
+ * The job waits app.archive.refresh-seconds after writing a segment before
+ * deleting its posts, so the other instances have mapped it by then.
+ *
+ * Nothing depends on the job, so it is never lazy, see the fast-startup profile.
+ */
+@Component
+@Lazy(false)
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "jdbc", matchIfMissing = true)
+public class PostArchiveJob implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(PostArchiveJob.class);
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final PostArchive postArchive;
+    // shardRouter lists the post tables to migrate. See ShardMap.java.
+    private final ShardRouter shardRouter;
+    private final long afterDays;
+    private final int batchSize;
+    private final int segmentPosts;
+    private final long batchPauseMillis;
+    private final long refreshMillis;
+    // Runs the migration and refreshes the archive, or null if the archive is disabled.
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * See AuthInterceptor notes regarding dependency injection and
+     * inversion of control.
+     */
+    @Autowired
+    public PostArchiveJob(PostArchive postArchive, ShardRouter shardRouter,
+            @Value("${app.archive.after-days:365}") long afterDays,
+            @Value("${app.archive.migrate-every-minutes:60}") long migrateEveryMinutes,
+            @Value("${app.archive.batch-size:500}") int batchSize,
+            @Value("${app.archive.segment-posts:10000}") int segmentPosts,
+            @Value("${app.archive.batch-pause-ms:100}") long batchPauseMillis,
+            @Value("${app.archive.refresh-seconds:30}") long refreshSeconds) {
+        this.postArchive = postArchive;
+        this.shardRouter = shardRouter;
+        this.afterDays = afterDays;
+        this.batchSize = Math.max(1, batchSize);
+        this.segmentPosts = Math.max(this.batchSize, segmentPosts);
+        this.batchPauseMillis = batchPauseMillis;
+        this.refreshMillis = TimeUnit.SECONDS.toMillis(Math.max(1, refreshSeconds));
+        if (!postArchive.isEnabled()) {
+            this.scheduler = null;
+            return;
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "post-archive");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refresh, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+        if (migrateEveryMinutes > 0) {
+            scheduler.scheduleWithFixedDelay(this::migrate, migrateEveryMinutes, migrateEveryMinutes,
+                    TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * Maps segments another instance added.
+     */
+    private void refresh() {
+        try {
+            postArchive.refresh();
+        } catch (IOException e) {
+            log.atWarn().setCause(e).log("Could not map new post archive segments");
+        }
+    }
+
+    /**
+     * Archives every post older than app.archive.after-days.
+     * Shards are migrated one after another.
+     */
+    public void migrate() {
+        String cutoff = LocalDateTime.now().minusDays(afterDays).format(DATE_FORMAT);
+        for (ShardMap.Shard shard : shardRouter.all()) {
+            try {
+                int archived = migrate(shard.getDataSource(), cutoff);
+                if (archived > 0) {
+                    log.atInfo().addKeyValue("shard", shard.getName()).addKeyValue("posts", archived)
+                            .addKeyValue("before", cutoff).log("Archived old posts");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (SQLException | IOException e) {
+                // The next run starts over where this one stopped.
+                log.atWarn().setCause(e).addKeyValue("shard", shard.getName())
+                        .log("Post archive migration failed");
+            }
+        }
+    }
+
+    /**
+     * Archives the posts of one post table dated before the cutoff.
+     *
+     * @return The number of posts deleted from the table.
+     */
+    private int migrate(DataSource dataSource, String cutoff)
+            throws SQLException, IOException, InterruptedException {
+        String selectSql = "SELECT * FROM post WHERE postDate < ? AND postId > ? ORDER BY postId LIMIT " + batchSize;
+        int deleted = 0;
+        String lastPostId = "0";
+        while (true) {
+            List<PostRow> rows = new ArrayList<>();
+            while (rows.size() < segmentPosts) {
+                List<PostRow> batch = JdbcSupport.readPostRows(dataSource, selectSql, cutoff, lastPostId);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                rows.addAll(batch);
+                lastPostId = batch.get(batch.size() - 1).getPostId();
+                Thread.sleep(batchPauseMillis);
+            }
+            if (rows.isEmpty()) {
+                return deleted;
+            }
+            if (postArchive.append(rows) > 0) {
+                // Lets other instances map the segment before the posts leave the table.
+                Thread.sleep(refreshMillis);
+            }
+            for (int from = 0; from < rows.size(); from += batchSize) {
+                List<PostRow> batch = rows.subList(from, Math.min(rows.size(), from + batchSize));
+                String[] postIds = new String[batch.size()];
+                for (int i = 0; i < postIds.length; i++) {
+                    postIds[i] = batch.get(i).getPostId();
+                }
+                String deleteSql = "DELETE FROM post WHERE postId IN " + JdbcSupport.placeholders(postIds.length);
+                deleted += JdbcSupport.updateCount(dataSource, deleteSql, postIds);
+                Thread.sleep(batchPauseMillis);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
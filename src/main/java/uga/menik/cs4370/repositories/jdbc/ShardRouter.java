@@ -0,0 +1,245 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.repositories.jdbc;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import uga.menik.cs4370.components.MetricsRegistry;
+import uga.menik.cs4370.config.ReadReplicaDataSource;
+import uga.menik.cs4370.config.ShardMap;
+import uga.menik.cs4370.utility.LogSampler;
+
+/**
+ * This component sends post queries of the JDBC repositories to the right
+ * shard and runs queries that need every shard, e.g. hashtag search, on all
+ * of them at once.
+ * See ShardMap.java for how posts are spread over shards.
+ *
+ * Shard queries run on the service executor so a page waits for the slowest
+ * shard instead of the sum of all of them. Each shard's results are merged
+ * afterwards on the calling thread. With a single shard the query runs on
+ * the calling thread.
+ *
+ * A shard that fails or misses app.sharding.query-deadline-ms adds no
+ * results. Such failures are counted per shard in /metrics.
+ */
+@Component
+public class ShardRouter {
+    private static final Logger log = LoggerFactory.getLogger(ShardRouter.class);
+    // Every page touching a failing shard fails the same way.
+    private static final LogSampler failureLog = LogSampler.limitPerSecond(1);
+
+    private final ShardMap shardMap;
+    // serviceExecutor runs the shard queries. See ThreadingConfig.java.
+    private final ExecutorService serviceExecutor;
+    // metrics counts shard queries for the request they run for.
+    private final MetricsRegistry metrics;
+    // How long scatter waits for the shards.
+    private final long deadlineMillis;
+
+    /**
+     * See AuthInterceptor notes regarding dependency injection and
+     * inversion of control.
+     */
+    @Autowired
+    public ShardRouter(ShardMap shardMap,
+            @Qualifier("serviceExecutor") ExecutorService serviceExecutor,
+            MetricsRegistry metrics,
+            @Value("${app.sharding.query-deadline-ms:2000}") long deadlineMillis) {
+        this.shardMap = shardMap;
+        this.serviceExecutor = serviceExecutor;
+        this.metrics = metrics;
+        this.deadlineMillis = deadlineMillis;
+    }
+
+    /**
+     * Returns true if posts are spread over more than one database.
+     */
+    public boolean isSharded() {
+        return shardMap.isSharded();
+    }
+
+    /**
+     * Returns the shard holding the posts of the given user.
+     */
+    public ShardMap.Shard forUser(String userId) {
+        return shardMap.forUser(userId);
+    }
+
+    /**
+     * Returns the shard holding the given post.
+     */
+    public ShardMap.Shard forPost(String postId) {
+        return shardMap.forPost(postId);
+    }
+
+    /**
+     * Returns all shards in index order.
+     */
+    public List<ShardMap.Shard> all() {
+        return shardMap.getShards();
+    }
+
+    /**
+     * Groups users by the shard holding their posts.
+     */
+    public Map<ShardMap.Shard, List<String>> groupUsers(Collection<String> userIds) {
+        Map<ShardMap.Shard, List<String>> groups = new LinkedHashMap<>();
+        for (String userId : userIds) {
+            groups.computeIfAbsent(shardMap.forUser(userId), shard -> new ArrayList<>()).add(userId);
+        }
+        return groups;
+    }
+
+    /**
+     * Groups posts by the shard holding them.
+     */
+    public Map<ShardMap.Shard, List<String>> groupPosts(Collection<String> postIds) {
+        Map<ShardMap.Shard, List<String>> groups = new LinkedHashMap<>();
+        for (String postId : postIds) {
+            groups.computeIfAbsent(shardMap.forPost(postId), shard -> new ArrayList<>()).add(postId);
+        }
+        return groups;
+    }
+
+    /**
+     * Runs a query on the given shards in parallel and returns the results
+     * of each shard in the order of the shards. A shard that fails or does
+     * not answer within the deadline adds no results, so one unavailable
+     * shard does not take the page down.
+     */
+    public <T> List<List<T>> scatter(Collection<ShardMap.Shard> shards, ShardQuery<T> query) {
+        List<List<T>> results = new ArrayList<>();
+        if (shards.size() == 1) {
+            results.add(runOn(shards.iterator().next(), query));
+            return results;
+        }
+        MetricsRegistry.RequestQueries request = metrics.currentRequest();
+        ReadReplicaDataSource.Routing routing = ReadReplicaDataSource.currentRouting();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+        List<CompletableFuture<List<T>>> futures = new ArrayList<>();
+        for (ShardMap.Shard shard : shards) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                metrics.attach(request);
+                ReadReplicaDataSource.attach(routing);
+                try {
+                    return runOn(shard, query);
+                } finally {
+                    metrics.endRequest();
+                    ReadReplicaDataSource.endRequest();
+                }
+            }, serviceExecutor));
+        }
+        int index = 0;
+        for (ShardMap.Shard shard : shards) {
+            CompletableFuture<List<T>> future = futures.get(index++);
+            try {
+                results.add(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                // The query keeps running on the executor, its results are dropped.
+                fail(shard, "timeout", e);
+                results.add(new ArrayList<>());
+            } catch (ExecutionException e) {
+                fail(shard, "error", e.getCause());
+                results.add(new ArrayList<>());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                results.add(new ArrayList<>());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Runs a query on every shard and returns all results, shard by shard.
+     */
+    public <T> List<T> gather(ShardQuery<T> query) {
+        List<T> all = new ArrayList<>();
+        for (List<T> results : scatter(shardMap.getShards(), query)) {
+            all.addAll(results);
+        }
+        return all;
+    }
+
+    /**
+     * Merges results that each shard returned sorted by the given order into
+     * one list sorted by that order.
+     */
+    public static <T> List<T> merge(List<List<T>> sortedResults, Comparator<T> order) {
+        List<T> merged = new ArrayList<>();
+        if (sortedResults.size() == 1) {
+            merged.addAll(sortedResults.get(0));
+            return merged;
+        }
+        // Holds the next result of each shard as {shard, position}.
+        PriorityQueue<int[]> heads = new PriorityQueue<>((a, b) -> order.compare(
+                sortedResults.get(a[0]).get(a[1]), sortedResults.get(b[0]).get(b[1])));
+        for (int i = 0; i < sortedResults.size(); i++) {
+            if (!sortedResults.get(i).isEmpty()) {
+                heads.add(new int[] { i, 0 });
+            }
+        }
+        while (!heads.isEmpty()) {
+            int[] head = heads.poll();
+            List<T> results = sortedResults.get(head[0]);
+            merged.add(results.get(head[1]));
+            if (head[1] + 1 < results.size()) {
+                heads.add(new int[] { head[0], head[1] + 1 });
+            }
+        }
+        return merged;
+    }
+
+    private <T> List<T> runOn(ShardMap.Shard shard, ShardQuery<T> query) {
+        try {
+            return query.run(shard);
+        } catch (SQLException e) {
+            fail(shard, "error", e);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Counts and logs a shard whose results are left out.
+     *
+     * @param reason error or timeout.
+     */
+    private void fail(ShardMap.Shard shard, String reason, Throwable cause) {
+        metrics.recordShardFailure(shard.getName(), reason);
+        if (failureLog.sample()) {
+            log.atWarn().setCause(cause).addKeyValue("shard", shard.getName())
+                    .addKeyValue("reason", reason)
+                    .addKeyValue("suppressed", failureLog.drainSuppressed())
+                    .log("Shard query failed, its posts are left out");
+        }
+    }
+
+    /**
+     * A query run on one shard.
+     */
+    public interface ShardQuery<T> {
+        List<T> run(ShardMap.Shard shard) throws SQLException;
+    }
+}
@@ -0,0 +1,78 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.repositories.memory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import uga.menik.cs4370.repositories.CommentRepository;
+import uga.menik.cs4370.repositories.CommentRow;
+
+/**
+ * Stores comments in the InMemoryDatabase.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "memory")
+public class InMemoryCommentRepository implements CommentRepository {
+
+    private final InMemoryDatabase database;
+
+    /**
+     * See AuthInterceptor notes regarding dependency injection and
+     * inversion of control.
+     */
+    @Autowired
+    public InMemoryCommentRepository(InMemoryDatabase database) {
+        this.database = database;
+    }
+
+    @Override
+    public boolean insert(String postId, String userId, String commentText) throws SQLException {
+        return database.addComment(postId, userId, commentText);
+    }
+
+    @Override
+    public int countByPost(String postId) {
+        return database.commentsByPost.getOrDefault(postId, List.of()).size();
+    }
+
+    @Override
+    public Map<String, Integer> countByPosts(Collection<String> postIds) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String postId : postIds) {
+            int count = countByPost(postId);
+            if (count > 0) {
+                counts.put(postId, count);
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public List<CommentRow> findByPost(String postId) {
+        return new ArrayList<>(database.commentsByPost.getOrDefault(postId, List.of()));
+    }
+
+    @Override
+    public Map<String, List<CommentRow>> findByPosts(Collection<String> postIds) {
+        Map<String, List<CommentRow>> comments = new HashMap<>();
+        for (String postId : postIds) {
+            List<CommentRow> found = findByPost(postId);
+            if (!found.isEmpty()) {
+                comments.put(postId, found);
+            }
+        }
+        return comments;
+    }
+}
@@ -0,0 +1,540 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.repositories.memory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import uga.menik.cs4370.repositories.CommentRow;
+import uga.menik.cs4370.repositories.PostRow;
+import uga.menik.cs4370.repositories.UserRow;
+
+/**
+ * This component keeps all tables in memory for app.storage.engine=memory.
+ * The in-memory repositories in this package read and write through it.
+ *
+ * Every table is kept with the indexes the app's queries need, e.g. posts
+ * newest first overall and per author, so reads are lookups in concurrent
+ * maps and sets and never lock. Writes are serialized on this object, which
+ * keeps the ID counters and the write-ahead log in order.
+ *
+ * Text is matched without regard to case, like the MySQL collation does,
+ * so usernames, hashtags and post searches behave the same on both engines.
+ *
+ * Durability is optional. Without app.storage.memory.data-dir everything is
+ * lost on shutdown, which suits tests and demos. With it, every write is
+ * appended to wal.log before it is applied, and the whole database is
+ * written to snapshot.log every app.storage.memory.snapshot-after-writes
+ * writes and on shutdown, after which the log starts over. Startup loads
+ * the snapshot and replays the log. A record cut off by a crash is dropped.
+ * Both files hold the same CRC checked records, and applying a record twice
+ * changes nothing, so a crash between writing a snapshot and clearing the
+ * log loses nothing.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "memory")
+public class InMemoryDatabase implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(InMemoryDatabase.class);
+
+    // Dates are stored the way MySQL returns DATETIME columns.
+    static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    // Newest first like PostRow.NEWEST_FIRST. The ID breaks ties so no two posts are equal.
+    static final Comparator<PostRow> POST_ORDER = PostRow.NEWEST_FIRST
+            .thenComparing(row -> Long.parseLong(row.getPostId()), Comparator.reverseOrder());
+
+    // Record types of the write-ahead log and the snapshot.
+    private static final byte ADD_USER = 1;
+    private static final byte ADD_POST = 2;
+    private static final byte ADD_COMMENT = 3;
+    private static final byte ADD_HEART = 4;
+    private static final byte REMOVE_HEART = 5;
+    private static final byte ADD_BOOKMARK = 6;
+    private static final byte REMOVE_BOOKMARK = 7;
+    private static final byte ADD_FOLLOW = 8;
+    private static final byte REMOVE_FOLLOW = 9;
+    private static final byte ADD_HASHTAG = 10;
+    // Larger records can only come from a damaged file.
+    private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+
+    // Tables and their indexes. The repositories in this package read them directly.
+    final Map<String, UserRow> users = new ConcurrentHashMap<>();
+    // Keyed by lower case username.
+    final Map<String, UserRow> usersByUsername = new ConcurrentHashMap<>();
+    final Map<String, PostRow> posts = new ConcurrentHashMap<>();
+    final NavigableSet<PostRow> postsNewestFirst = new ConcurrentSkipListSet<>(POST_ORDER);
+    final Map<String, NavigableSet<PostRow>> postsByUser = new ConcurrentHashMap<>();
+    // Comments of a post in the order they were written.
+    final Map<String, List<CommentRow>> commentsByPost = new ConcurrentHashMap<>();
+    // User IDs by post ID.
+    final Map<String, Set<String>> heartsByPost = new ConcurrentHashMap<>();
+    final Map<String, Set<String>> bookmarksByPost = new ConcurrentHashMap<>();
+    // Followee IDs by follower ID.
+    final Map<String, Set<String>> followeesByUser = new ConcurrentHashMap<>();
+    // Post IDs by lower case hashtag.
+    final Map<String, Set<String>> postsByHashtag = new ConcurrentHashMap<>();
+
+    // Highest IDs handed out so far. Guarded by this.
+    private long lastUserId;
+    private long lastPostId;
+    private long lastCommentId;
+
+    // Where the snapshot and the log are kept, or null without durability.
+    private final Path dataDir;
+    private final boolean syncWrites;
+    private final long snapshotAfterWrites;
+    // Writes snapshots off the thread whose write filled the log.
+    private final ExecutorService snapshotExecutor;
+    // The rest is guarded by this.
+    private FileChannel wal;
+    private long walRecords;
+    private boolean snapshotPending;
+    private boolean closed;
+
+    /**
+     * See AuthInterceptor notes regarding dependency injection and
+     * inversion of control.
+     */
+    @Autowired
+    public InMemoryDatabase(@Value("${app.storage.memory.data-dir:}") String dataDir,
+            @Value("${app.storage.memory.sync-writes:true}") boolean syncWrites,
+            @Value("${app.storage.memory.snapshot-after-writes:10000}") long snapshotAfterWrites) {
+        this.dataDir = dataDir.isBlank() ? null : Paths.get(dataDir.trim());
+        this.syncWrites = syncWrites;
+        this.snapshotAfterWrites = snapshotAfterWrites;
+        this.snapshotExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "memory-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (this.dataDir != null) {
+            try {
+                load();
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not load the in-memory database from " + this.dataDir, e);
+            }
+        }
+    }
+
+    /**
+     * Returns the current time the way dates are stored.
+     */
+    static String now() {
+        return LocalDateTime.now().format(DATE_FORMAT);
+    }
+
+    /**
+     * Returns text the way it is compared, without regard to case.
+     */
+    static String key(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Adds a user. Throws like MySQL does if the username is taken.
+     */
+    synchronized UserRow addUser(String username, String password, String firstName, String lastName)
+            throws SQLException {
+        if (usersByUsername.containsKey(key(username))) {
+            throw new SQLIntegrityConstraintViolationException(
+                    "Duplicate entry '" + username + "' for key 'user.username'");
+        }
+        String userId = Long.toString(lastUserId + 1);
+        write(ADD_USER, userId, username, password, firstName, lastName);
+        return users.get(userId);
+    }
+
+    /**
+     * Adds a post dated now and returns its ID, or null if the author does not exist.
+     */
+    synchronized String addPost(String userId, String postText) throws SQLException {
+        if (!users.containsKey(userId)) {
+            return null;
+        }
+        String postId = Long.toString(lastPostId + 1);
+        write(ADD_POST, postId, userId, now(), postText);
+        return postId;
+    }
+
+    /**
+     * Adds a comment dated now. Returns false if the post or the user does not exist.
+     */
+    synchronized boolean addComment(String postId, String userId, String commentText) throws SQLException {
+        if (!posts.containsKey(postId) || !users.containsKey(userId)) {
+            return false;
+        }
+        write(ADD_COMMENT, Long.toString(lastCommentId + 1), postId, userId, now(), commentText);
+        return true;
+    }
+
+    synchronized boolean addHeart(String postId, String userId) throws SQLException {
+        return addPair(ADD_HEART, heartsByPost, postId, userId);
+    }
+
+    synchronized boolean removeHeart(String postId, String userId) throws SQLException {
+        return removePair(REMOVE_HEART, heartsByPost, postId, userId);
+    }
+
+    synchronized boolean addBookmark(String postId, String userId) throws SQLException {
+        return addPair(ADD_BOOKMARK, bookmarksByPost, postId, userId);
+    }
+
+    synchronized boolean removeBookmark(String postId, String userId) throws SQLException {
+        return removePair(REMOVE_BOOKMARK, bookmarksByPost, postId, userId);
+    }
+
+    synchronized boolean addFollow(String followerUserId, String followeeUserId) throws SQLException {
+        if (!users.containsKey(followerUserId) || !users.containsKey(followeeUserId)
+                || contains(followeesByUser, followerUserId, followeeUserId)) {
+            return false;
+        }
+        write(ADD_FOLLOW, followerUserId, followeeUserId);
+        return true;
+    }
+
+    synchronized boolean removeFollow(String followerUserId, String followeeUserId) throws SQLException {
+        if (!contains(followeesByUser, followerUserId, followeeUserId)) {
+            return false;
+        }
+        write(REMOVE_FOLLOW, followerUserId, followeeUserId);
+        return true;
+    }
+
+    synchronized boolean addHashtag(String postId, String hashtag) throws SQLException {
+        if (!posts.containsKey(postId) || contains(postsByHashtag, key(hashtag), postId)) {
+            return false;
+        }
+        write(ADD_HASHTAG, postId, hashtag);
+        return true;
+    }
+
+    /**
+     * Adds a heart or bookmark of an existing post and user.
+     */
+    private boolean addPair(byte type, Map<String, Set<String>> table, String postId, String userId)
+            throws SQLException {
+        if (!posts.containsKey(postId) || !users.containsKey(userId) || contains(table, postId, userId)) {
+            return false;
+        }
+        write(type, postId, userId);
+        return true;
+    }
+
+    private boolean removePair(byte type, Map<String, Set<String>> table, String postId, String userId)
+            throws SQLException {
+        if (!contains(table, postId, userId)) {
+            return false;
+        }
+        write(type, postId, userId);
+        return true;
+    }
+
+    static boolean contains(Map<String, Set<String>> table, String key, String value) {
+        Set<String> values = table.get(key);
+        return values != null && values.contains(value);
+    }
+
+    /**
+     * Logs a record if durability is on, then applies it.
+     * Nothing is applied if the record could not be logged.
+     */
+    private void write(byte type, String... fields) throws SQLException {
+        if (wal != null) {
+            try {
+                ByteBuffer record = ByteBuffer.wrap(encode(type, fields));
+                while (record.hasRemaining()) {
+                    wal.write(record);
+                }
+                if (syncWrites) {
+                    wal.force(false);
+                }
+            } catch (IOException e) {
+                throw new SQLException("Could not write to the write-ahead log.", e);
+            }
+            walRecords++;
+            if (snapshotAfterWrites > 0 && walRecords >= snapshotAfterWrites && !snapshotPending) {
+                snapshotPending = true;
+                snapshotExecutor.execute(this::snapshotInBackground);
+            }
+        }
+        apply(type, fields);
+    }
+
+    /**
+     * Applies a record to the tables. Applying a record that is already
+     * applied changes nothing, which makes replaying the log safe.
+     */
+    private void apply(byte type, String[] fields) {
+        switch (type) {
+            case ADD_USER -> {
+                UserRow user = new UserRow(fields[0], fields[1], fields[2], fields[3], fields[4]);
+                users.put(user.getUserId(), user);
+                usersByUsername.put(key(user.getUsername()), user);
+                lastUserId = Math.max(lastUserId, Long.parseLong(user.getUserId()));
+            }
+            case ADD_POST -> {
+                PostRow post = new PostRow(fields[0], fields[1], fields[2], fields[3]);
+                if (posts.putIfAbsent(post.getPostId(), post) == null) {
+                    postsNewestFirst.add(post);
+                    postsByUser.computeIfAbsent(post.getUserId(), userId -> new ConcurrentSkipListSet<>(POST_ORDER))
+                            .add(post);
+                }
+                lastPostId = Math.max(lastPostId, Long.parseLong(post.getPostId()));
+            }
+            case ADD_COMMENT -> {
+                CommentRow comment = new CommentRow(fields[0], fields[1], fields[2], fields[3], fields[4]);
+                List<CommentRow> comments = commentsByPost.computeIfAbsent(comment.getPostId(),
+                        postId -> new CopyOnWriteArrayList<>());
+                if (comments.stream().noneMatch(c -> c.getCommentId().equals(comment.getCommentId()))) {
+                    comments.add(comment);
+                }
+                lastCommentId = Math.max(lastCommentId, Long.parseLong(comment.getCommentId()));
+            }
+            case ADD_HEART -> add(heartsByPost, fields[0], fields[1]);
+            case REMOVE_HEART -> remove(heartsByPost, fields[0], fields[1]);
+            case ADD_BOOKMARK -> add(bookmarksByPost, fields[0], fields[1]);
+            case REMOVE_BOOKMARK -> remove(bookmarksByPost, fields[0], fields[1]);
+            case ADD_FOLLOW -> add(followeesByUser, fields[0], fields[1]);
+            case REMOVE_FOLLOW -> remove(followeesByUser, fields[0], fields[1]);
+            case ADD_HASHTAG -> add(postsByHashtag, key(fields[1]), fields[0]);
+            default -> throw new IllegalStateException("Unknown record type " + type + ".");
+        }
+    }
+
+    private static void add(Map<String, Set<String>> table, String key, String value) {
+        table.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(value);
+    }
+
+    private static void remove(Map<String, Set<String>> table, String key, String value) {
+        Set<String> values = table.get(key);
+        if (values != null) {
+            values.remove(value);
+        }
+    }
+
+    /**
+     * Writes the whole database to the snapshot and starts a new log.
+     * Writes wait until it is done, reads do not.
+     */
+    public synchronized void snapshot() throws IOException {
+        snapshotPending = false;
+        if (dataDir == null || closed) {
+            return;
+        }
+        long start = System.nanoTime();
+        Path tmp = dataDir.resolve("snapshot.tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16))) {
+            for (UserRow user : users.values()) {
+                out.write(encode(ADD_USER, user.getUserId(), user.getUsername(), user.getPassword(),
+                        user.getFirstName(), user.getLastName()));
+            }
+            for (PostRow post : posts.values()) {
+                out.write(encode(ADD_POST, post.getPostId(), post.getUserId(), post.getPostDate(),
+                        post.getPostText()));
+            }
+            for (List<CommentRow> comments : commentsByPost.values()) {
+                for (CommentRow comment : comments) {
+                    out.write(encode(ADD_COMMENT, comment.getCommentId(), comment.getPostId(),
+                            comment.getUserId(), comment.getCommentDate(), comment.getCommentText()));
+                }
+            }
+            writePairs(out, ADD_HEART, heartsByPost);
+            writePairs(out, ADD_BOOKMARK, bookmarksByPost);
+            writePairs(out, ADD_FOLLOW, followeesByUser);
+            for (Map.Entry<String, Set<String>> tag : postsByHashtag.entrySet()) {
+                for (String postId : tag.getValue()) {
+                    out.write(encode(ADD_HASHTAG, postId, tag.getKey()));
+                }
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(tmp, dataDir.resolve("snapshot.log"),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        wal.truncate(0);
+        wal.force(true);
+        walRecords = 0;
+        log.atInfo().addKeyValue("users", users.size())
+                .addKeyValue("posts", posts.size())
+                .addKeyValue("ms", (System.nanoTime() - start) / 1_000_000)
+                .log("Wrote in-memory database snapshot");
+    }
+
+    private static void writePairs(DataOutputStream out, byte type, Map<String, Set<String>> table)
+            throws IOException {
+        for (Map.Entry<String, Set<String>> entry : table.entrySet()) {
+            for (String value : entry.getValue()) {
+                out.write(encode(type, entry.getKey(), value));
+            }
+        }
+    }
+
+    private void snapshotInBackground() {
+        try {
+            snapshot();
+        } catch (IOException e) {
+            // The log keeps every write, the next snapshot tries again.
+            log.atWarn().setCause(e).log("Cannot write in-memory database snapshot");
+        }
+    }
+
+    /**
+     * Loads the snapshot, replays the log on top and opens the log for writing.
+     */
+    private void load() throws IOException {
+        long start = System.nanoTime();
+        Files.createDirectories(dataDir);
+        Path snapshot = dataDir.resolve("snapshot.log");
+        if (Files.exists(snapshot)) {
+            long valid = replay(snapshot, false);
+            if (valid != Files.size(snapshot)) {
+                throw new IOException("The snapshot " + snapshot + " is damaged.");
+            }
+        }
+        Path walPath = dataDir.resolve("wal.log");
+        wal = FileChannel.open(walPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long valid = replay(walPath, true);
+        if (valid != wal.size()) {
+            log.atWarn().addKeyValue("droppedBytes", wal.size() - valid)
+                    .log("Dropping the incomplete end of the write-ahead log");
+            wal.truncate(valid);
+        }
+        wal.position(valid);
+        log.atInfo().addKeyValue("users", users.size())
+                .addKeyValue("posts", posts.size())
+                .addKeyValue("walRecords", walRecords)
+                .addKeyValue("ms", (System.nanoTime() - start) / 1_000_000)
+                .log("Loaded in-memory database");
+    }
+
+    /**
+     * Applies the records of a file until its end or the first damaged record.
+     *
+     * @param isWal Whether the records count towards the next snapshot.
+     * @return The number of bytes holding complete records.
+     */
+    private long replay(Path file, boolean isWal) throws IOException {
+        long valid = 0;
+        try (InputStream stream = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 1 << 16))) {
+            while (true) {
+                int length;
+                int checksum;
+                byte[] payload;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    if (length < 2 || length > MAX_RECORD_BYTES) {
+                        return valid;
+                    }
+                    payload = in.readNBytes(length);
+                } catch (EOFException e) {
+                    return valid;
+                }
+                if (payload.length != length || checksum != checksum(payload)) {
+                    return valid;
+                }
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                byte type = record.readByte();
+                String[] fields = new String[record.readUnsignedByte()];
+                for (int i = 0; i < fields.length; i++) {
+                    fields[i] = new String(record.readNBytes(record.readInt()), StandardCharsets.UTF_8);
+                }
+                apply(type, fields);
+                valid += 8 + length;
+                if (isWal) {
+                    walRecords++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Encodes a record as its length, a CRC32 of the rest, its type and its fields.
+     */
+    private static byte[] encode(byte type, String... fields) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(payload);
+        out.writeByte(type);
+        out.writeByte(fields.length);
+        for (String field : fields) {
+            byte[] bytes = field.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        byte[] body = payload.toByteArray();
+        ByteBuffer record = ByteBuffer.allocate(8 + body.length);
+        record.putInt(body.length).putInt(checksum(body)).put(body);
+        return record.array();
+    }
+
+    private static int checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Writes a final snapshot so the next start does not replay the log.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        snapshotExecutor.shutdown();
+        if (wal == null || closed) {
+            closed = true;
+            return;
+        }
+        try {
+            snapshot();
+        } finally {
+            closed = true;
+            wal.close();
+        }
+    }
+}
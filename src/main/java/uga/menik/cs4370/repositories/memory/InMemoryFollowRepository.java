@@ -0,0 +1,71 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.repositories.memory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import uga.menik.cs4370.repositories.FollowRepository;
+
+/**
+ * Stores follows in the InMemoryDatabase.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "memory")
+public class InMemoryFollowRepository implements FollowRepository {
+
+    private final InMemoryDatabase database;
+
+    /**
+     * See AuthInterceptor notes regarding dependency injection and
+     * inversion of control.
+     */
+    @Autowired
+    public InMemoryFollowRepository(InMemoryDatabase database) {
+        this.database = database;
+    }
+
+    @Override
+    public boolean add(String followerUserId, String followeeUserId) throws SQLException {
+        return database.addFollow(followerUserId, followeeUserId);
+    }
+
+    @Override
+    public boolean remove(String followerUserId, String followeeUserId) throws SQLException {
+        return database.removeFollow(followerUserId, followeeUserId);
+    }
+
+    @Override
+    public boolean exists(String followerUserId, String followeeUserId) {
+        return InMemoryDatabase.contains(database.followeesByUser, followerUserId, followeeUserId);
+    }
+
+    @Override
+    public List<String> findFollowees(String followerUserId) {
+        return new ArrayList<>(database.followeesByUser.getOrDefault(followerUserId, Set.of()));
+    }
+
+    @Override
+    public void forEachFollowerCount(BiConsumer<String, Integer> consumer) {
+        // Follows are kept by follower, so they are counted here.
+        Map<String, Integer> followers = new HashMap<>();
+        for (Set<String> followees : database.followeesByUser.values()) {
+            for (String followeeUserId : followees) {
+                followers.merge(followeeUserId, 1, Integer::sum);
+            }
+        }
+        followers.forEach(consumer);
+    }
+}
@@ -0,0 +1,75 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.repositories.memory;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import uga.menik.cs4370.repositories.HashtagRepository;
+import uga.menik.cs4370.repositories.PostRow;
+
+/**
+ * Stores hashtags in the InMemoryDatabase.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "memory")
+public class InMemoryHashtagRepository implements HashtagRepository {
+
+    private final InMemoryDatabase database;
+
+    /**
+     * See AuthInterceptor notes regarding dependency injection and
+     * inversion of control.
+     */
+    @Autowired
+    public InMemoryHashtagRepository(InMemoryDatabase database) {
+        this.database = database;
+    }
+
+    @Override
+    public void insert(String postId, String hashtag) throws SQLException {
+        database.addHashtag(postId, hashtag);
+    }
+
+    @Override
+    public void forEachPostWithAny(Collection<String> hashtags, Consumer<PostRow> consumer) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (String hashtag : hashtags) {
+            keys.add(InMemoryDatabase.key(hashtag));
+        }
+        for (String key : keys) {
+            for (String postId : database.postsByHashtag.getOrDefault(key, Set.of())) {
+                PostRow post = database.posts.get(postId);
+                if (post != null) {
+                    consumer.accept(post);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void forEachHashtagUsage(String since, BiConsumer<String, Integer> consumer) {
+        for (Map.Entry<String, Set<String>> hashtag : database.postsByHashtag.entrySet()) {
+            int uses = 0;
+            for (String postId : hashtag.getValue()) {
+                PostRow post = database.posts.get(postId);
+                if (post != null && post.getPostDate().compareTo(since) >= 0) {
+                    uses++;
+                }
+            }
+            consumer.accept(hashtag.getKey(), uses);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.repositories.memory;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import uga.menik.cs4370.repositories.HeartRepository;
+
+/**
+ * Stores hearts in the InMemoryDatabase.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "memory")
+public class InMemoryHeartRepository implements HeartRepository {
+
+    private final InMemoryDatabase database;
+
+    /**
+     * See AuthInterceptor notes regarding dependency injection and
+     * inversion of control.
+     */
+    @Autowired
+    public InMemoryHeartRepository(InMemoryDatabase database) {
+        this.database = database;
+    }
+
+    @Override
+    public boolean add(String postId, String userId) throws SQLException {
+        return database.addHeart(postId, userId);
+    }
+
+    @Override
+    public boolean remove(String postId, String userId) throws SQLException {
+        return database.removeHeart(postId, userId);
+    }
+
+    @Override
+    public boolean exists(String postId, String userId) {
+        return InMemoryDatabase.contains(database.heartsByPost, postId, userId);
+    }
+
+    @Override
+    public int countByPost(String postId) {
+        return database.heartsByPost.getOrDefault(postId, Set.of()).size();
+    }
+
+    @Override
+    public Map<String, Integer> countByPosts(Collection<String> postIds) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String postId : postIds) {
+            int count = countByPost(postId);
+            if (count > 0) {
+                counts.put(postId, count);
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public Set<String> findHeartedBy(String userId, Collection<String> postIds) {
+        Set<String> hearted = new HashSet<>();
+        for (String postId : postIds) {
+            if (exists(postId, userId)) {
+                hearted.add(postId);
+            }
+        }
+        return hearted;
+    }
+}
@@ -0,0 +1,179 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.repositories.memory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import uga.menik.cs4370.repositories.PostRepository;
+import uga.menik.cs4370.repositories.PostRow;
+
+/**
+ * Stores posts in the InMemoryDatabase.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "memory")
+public class InMemoryPostRepository implements PostRepository {
+
+    private final InMemoryDatabase database;
+
+    /**
+     * See AuthInterceptor notes regarding dependency injection and
+     * inversion of control.
+     */
+    @Autowired
+    public InMemoryPostRepository(InMemoryDatabase database) {
+        this.database = database;
+    }
+
+    @Override
+    public String insert(String userId, String postText) throws SQLException {
+        return database.addPost(userId, postText);
+    }
+
+    @Override
+    public boolean exists(String postId) {
+        return database.posts.containsKey(postId);
+    }
+
+    @Override
+    public List<PostRow> findAllNewestFirst() {
+        return new ArrayList<>(database.postsNewestFirst);
+    }
+
+    @Override
+    public List<PostRow> findAll() {
+        return new ArrayList<>(database.posts.values());
+    }
+
+    /**
+     * Matches without regard to case like LIKE does in MySQL.
+     */
+    @Override
+    public List<PostRow> findByTextContaining(String text) {
+        String key = InMemoryDatabase.key(text);
+        List<PostRow> found = new ArrayList<>();
+        for (PostRow post : database.postsNewestFirst) {
+            if (InMemoryDatabase.key(post.getPostText()).contains(key)) {
+                found.add(post);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public void forEachByUser(String userId, Consumer<PostRow> consumer) {
+        database.postsByUser.getOrDefault(userId, emptyPosts()).forEach(consumer);
+    }
+
+    /**
+     * Merges the already sorted posts of each followee, so the feed costs
+     * log(followees) per post and nothing is sorted.
+     */
+    @Override
+    public void forEachFollowedBy(String followerUserId, Consumer<PostRow> consumer) {
+        // Holds the next post of each followee with the rest of the followee's posts.
+        PriorityQueue<Head> heads = new PriorityQueue<>();
+        for (String followeeId : database.followeesByUser.getOrDefault(followerUserId, Set.of())) {
+            Iterator<PostRow> posts = database.postsByUser.getOrDefault(followeeId, emptyPosts()).iterator();
+            if (posts.hasNext()) {
+                heads.add(new Head(posts.next(), posts));
+            }
+        }
+        while (!heads.isEmpty()) {
+            Head head = heads.poll();
+            consumer.accept(head.post);
+            if (head.rest.hasNext()) {
+                heads.add(new Head(head.rest.next(), head.rest));
+            }
+        }
+    }
+
+    @Override
+    public String findLastPostDate(String userId) {
+        NavigableSet<PostRow> posts = database.postsByUser.get(userId);
+        if (posts == null || posts.isEmpty()) {
+            return null;
+        }
+        return posts.first().getPostDate();
+    }
+
+    @Override
+    public Map<String, String> findLastPostDates(Collection<String> userIds) {
+        Map<String, String> lastPostDates = new HashMap<>();
+        for (String userId : userIds) {
+            String lastPostDate = findLastPostDate(userId);
+            if (lastPostDate != null) {
+                lastPostDates.put(userId, lastPostDate);
+            }
+        }
+        return lastPostDates;
+    }
+
+    @Override
+    public void forEachLastPostDate(BiConsumer<String, String> consumer) {
+        for (Map.Entry<String, NavigableSet<PostRow>> posts : database.postsByUser.entrySet()) {
+            if (!posts.getValue().isEmpty()) {
+                consumer.accept(posts.getKey(), posts.getValue().first().getPostDate());
+            }
+        }
+    }
+
+    /**
+     * Every lookup is in memory, so there is a single group.
+     */
+    @Override
+    public long forEachPostId(Consumer<String> consumer) {
+        long maxPostId = 0;
+        for (String postId : database.posts.keySet()) {
+            maxPostId = Math.max(maxPostId, Long.parseLong(postId));
+            consumer.accept(postId);
+        }
+        return maxPostId;
+    }
+
+    @Override
+    public Collection<List<String>> partition(Collection<String> postIds) {
+        return List.of(new ArrayList<>(postIds));
+    }
+
+    private static NavigableSet<PostRow> emptyPosts() {
+        return Collections.emptyNavigableSet();
+    }
+
+    /**
+     * The next post of a followee and the followee's older posts.
+     */
+    private static class Head implements Comparable<Head> {
+        private final PostRow post;
+        private final Iterator<PostRow> rest;
+
+        Head(PostRow post, Iterator<PostRow> rest) {
+            this.post = post;
+            this.rest = rest;
+        }
+
+        @Override
+        public int compareTo(Head other) {
+            return InMemoryDatabase.POST_ORDER.compare(post, other.post);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.repositories.memory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import uga.menik.cs4370.models.User;
+import uga.menik.cs4370.repositories.UserRepository;
+import uga.menik.cs4370.repositories.UserRow;
+
+/**
+ * Stores users in the InMemoryDatabase.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "memory")
+public class InMemoryUserRepository implements UserRepository {
+
+    private final InMemoryDatabase database;
+
+    /**
+     * See AuthInterceptor notes regarding dependency injection and
+     * inversion of control.
+     */
+    @Autowired
+    public InMemoryUserRepository(InMemoryDatabase database) {
+        this.database = database;
+    }
+
+    @Override
+    public UserRow findByUsername(String username) {
+        return database.usersByUsername.get(InMemoryDatabase.key(username));
+    }
+
+    @Override
+    public boolean insert(String username, String password, String firstName, String lastName)
+            throws SQLException {
+        return database.addUser(username, password, firstName, lastName) != null;
+    }
+
+    @Override
+    public User findById(String userId) {
+        UserRow user = database.users.get(userId);
+        return user == null ? null : user.toUser();
+    }
+
+    @Override
+    public Map<String, User> findByIds(Collection<String> userIds) {
+        Map<String, User> users = new HashMap<>();
+        for (String userId : userIds) {
+            UserRow user = database.users.get(userId);
+            if (user != null) {
+                users.put(userId, user.toUser());
+            }
+        }
+        return users;
+    }
+
+    /**
+     * Users are listed by ID like the primary key order MySQL returns them in.
+     */
+    @Override
+    public List<User> findAllExcept(String userId) {
+        List<UserRow> rows = new ArrayList<>(database.users.values());
+        rows.sort(Comparator.comparingLong(row -> Long.parseLong(row.getUserId())));
+        List<User> users = new ArrayList<>();
+        for (UserRow row : rows) {
+            if (!row.getUserId().equals(userId)) {
+                users.add(row.toUser());
+            }
+        }
+        return users;
+    }
+
+    @Override
+    public void forEachUser(Consumer<UserRow> consumer) {
+        for (UserRow row : database.users.values()) {
+            consumer.accept(new UserRow(row.getUserId(), row.getUsername(), null,
+                    row.getFirstName(), row.getLastName()));
+        }
+    }
+}
@@ -7,17 +7,17 @@
  */
 package uga.menik.cs4370.services;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
-
-import javax.sql.DataSource;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -25,6 +25,8 @@ import org.springframework.stereotype.Service;
 
 import uga.menik.cs4370.models.Post;
 import uga.menik.cs4370.models.User;
+import uga.menik.cs4370.repositories.HashtagRepository;
+import uga.menik.cs4370.repositories.PostRow;
 
 /**
  * This service contains methods related to searching posts by hashtags.
@@ -32,12 +34,16 @@ import uga.menik.cs4370.models.User;
 @Service
 public class HashtagService {
 
-   private final DataSource dataSource;
+   // Number of search results whose authors are looked up with one query.
+   private static final int BATCH_SIZE = 50;
+
+   // hashtagRepository stores hashtags. See UserRepository.java.
+   private final HashtagRepository hashtagRepository;
    private final UserService userService;
 
    @Autowired
-   public HashtagService(DataSource dataSource, UserService userService) {
-       this.dataSource = dataSource;
+   public HashtagService(HashtagRepository hashtagRepository, UserService userService) {
+       this.hashtagRepository = hashtagRepository;
        this.userService = userService;
    }
 
@@ -49,50 +55,63 @@ public class HashtagService {
  */
 public List<Post> searchPostsByHashtag(String hashtags) {
        List<Post> posts = new ArrayList<>();
+       forEachPostByHashtag(hashtags, posts::add);
+       return posts;
+   }
 
+/**
+ * Hands posts containing one or more specified hashtags to the given consumer
+ * as they are read from the database. The authors of BATCH_SIZE posts are
+ * looked up together, so posts are handed over batch by batch.
+ *
+ * @param hashtags The hashtags to search for (separated by spaces).
+ * @param consumer Receives each post as soon as its batch is complete.
+ */
+public void forEachPostByHashtag(String hashtags, Consumer<Post> consumer) {
        // Splits the input string containing hashtags by space
        String[] hashtagArray = hashtags.split("\\s+");
        
-       // Writes an SQL query to retrieve posts containing the given hashtags
-       String sql = "SELECT p.* FROM post p INNER JOIN hashtag h ON p.postId = h.postId WHERE h.hashTag IN (";
-       
-       // Appends placeholders for each hashtag
-       for (int i = 0; i < hashtagArray.length; i++) {
-           sql += "?";
-           if (i < hashtagArray.length - 1) {
-               sql += ",";
-           }
-       }
-       sql += ")";
-       
-       try (Connection conn = dataSource.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(sql)) {
-           
-           // Sets the hashtags as parameters in the SQL query
-           for (int i = 0; i < hashtagArray.length; i++) {
-               pstmt.setString(i + 1, hashtagArray[i]);
-           }
-           
-           try (ResultSet rs = pstmt.executeQuery()) {
-               while (rs.next()) {
-                   String postId = rs.getString("postId");
-                   String userId = rs.getString("userId");
-                   String postDateStr = rs.getString("postDate");
-                   String postText = rs.getString("postText");
-                   User postUser = userService.getUser(userId);
-                   
-                   SimpleDateFormat inputFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                   SimpleDateFormat outputFormat = new SimpleDateFormat("MMM dd, yyyy, hh:mm a");
-                   Date postDate = inputFormat.parse(postDateStr);
-                   String formattedPostDate = outputFormat.format(postDate);
-                   
-                   posts.add(new Post(postId, postText, formattedPostDate, postUser, 0, 0, false, false));
+       List<PostRow> batch = new ArrayList<>();
+       try {
+           hashtagRepository.forEachPostWithAny(Arrays.asList(hashtagArray), row -> {
+               batch.add(row);
+               if (batch.size() == BATCH_SIZE) {
+                   toPosts(batch).forEach(consumer);
+                   batch.clear();
                }
-           }
-       } catch (SQLException | ParseException e) {
+           });
+       } catch (SQLException e) {
            e.printStackTrace();
        }
+       toPosts(batch).forEach(consumer);
+   }
+
+/**
+ * Builds search results from post rows, looking up all authors at once.
+ */
+private List<Post> toPosts(List<PostRow> rows) {
+       List<Post> posts = new ArrayList<>();
+       if (rows.isEmpty()) {
+           return posts;
+       }
+       Set<String> userIds = new HashSet<>();
+       for (PostRow row : rows) {
+           userIds.add(row.getUserId());
+       }
+       Map<String, User> postUsers = userService.getUsers(userIds);
        
+       SimpleDateFormat inputFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+       SimpleDateFormat outputFormat = new SimpleDateFormat("MMM dd, yyyy, hh:mm a");
+       for (PostRow row : rows) {
+           try {
+               Date postDate = inputFormat.parse(row.getPostDate());
+               String formattedPostDate = outputFormat.format(postDate);
+               posts.add(new Post(row.getPostId(), row.getPostText(), formattedPostDate,
+                       postUsers.get(row.getUserId()), 0, 0, false, false));
+           } catch (ParseException e) {
+               e.printStackTrace();
+           }
+       }
        return posts;
    }
 }
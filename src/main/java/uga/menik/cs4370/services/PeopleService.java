@@ -5,21 +5,30 @@ This is a project developed by Dr. Menik to give the students an opportunity to
 */
 package uga.menik.cs4370.services;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
-import javax.sql.DataSource;
-
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import uga.menik.cs4370.components.PeopleSearchIndex;
 import uga.menik.cs4370.models.FollowableUser;
 import uga.menik.cs4370.models.User;
+import uga.menik.cs4370.repositories.FollowRepository;
+import uga.menik.cs4370.repositories.PostRepository;
+import uga.menik.cs4370.repositories.UserRepository;
 import uga.menik.cs4370.utility.Utility;
 
 /**
@@ -27,20 +36,31 @@ import uga.menik.cs4370.utility.Utility;
  */
 @Service
 public class PeopleService {
-    // dataSource enables talking to the database.
-    private final DataSource dataSource;
+    private static final Logger log = LoggerFactory.getLogger(PeopleService.class);
+
+    // Repositories store the data. See UserRepository.java.
+    private final UserRepository userRepository;
+    private final FollowRepository followRepository;
+    private final PostRepository postRepository;
+    // peopleSearchIndex finds users by name. See PeopleSearchIndex.java.
+    private final PeopleSearchIndex peopleSearchIndex;
    
     /**
      * See AuthInterceptor notes regarding dependency injection and
      * inversion of control.
      */
     @Autowired
-    public PeopleService(DataSource dataSource) {
-        this.dataSource = dataSource;
+    public PeopleService(UserRepository userRepository, FollowRepository followRepository,
+            PostRepository postRepository, PeopleSearchIndex peopleSearchIndex) {
+        this.userRepository = userRepository;
+        this.followRepository = followRepository;
+        this.postRepository = postRepository;
+        this.peopleSearchIndex = peopleSearchIndex;
     }
 
     /**
      * Queries the database to retrieve a list of users that can be followed.
+     * Who is followed and the last active dates are read for all users at once.
      * 
      * @param userIdToExclude The ID of the user that should be excluded from the list.
      * @return A list of FollowableUser objects representing users that can be followed.
@@ -48,33 +68,19 @@ public class PeopleService {
     public List<FollowableUser> getFollowableUsers(String userIdToExclude) {
         List<FollowableUser> followableUsers = new ArrayList<>();
 
-        // Write an SQL query to find the users that are not the current user.
-            String sql = "SELECT * FROM user where userId <> ?";
-        
-        // Run the query with a datasource.
-        // See UserService.java to see how to inject DataSource instance and
-        // use it to run a query.
-        try (Connection conn = dataSource.getConnection();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            // Following line replaces the first place holder with userIdToExclude.
-            pstmt.setString(1, userIdToExclude);
-
-            try (ResultSet rs = pstmt.executeQuery()) {
-               // System.out.println("hello");
-                // Traverse the result rows one at a time.
-                // Note: This specific while loop will only run at most once 
-                // since username is unique.
-                while (rs.next()) {
-                    // Note: rs.get.. functions access attributes of the current row.
-                    String userId = rs.getString("userId");
-                    String firstName = rs.getString("firstName");
-                    String lastName = rs.getString("lastName");
-                    Boolean isFollowed = isUserFollowed(userIdToExclude, userId);
-                    String lastActiveDate = getLastActiveDate(userId);
-
-                    followableUsers.add(new FollowableUser(userId, firstName, lastName, isFollowed, lastActiveDate));
-                }
+        try {
+            List<User> users = userRepository.findAllExcept(userIdToExclude);
+            List<String> userIds = new ArrayList<>();
+            for (User user : users) {
+                userIds.add(user.getUserId());
+            }
+            Set<String> followees = new HashSet<>(followRepository.findFollowees(userIdToExclude));
+            Map<String, String> lastActiveDates = getLastActiveDates(userIds);
+
+            for (User user : users) {
+                String userId = user.getUserId();
+                followableUsers.add(new FollowableUser(userId, user.getFirstName(), user.getLastName(),
+                        followees.contains(userId), lastActiveDates.get(userId)));
             }
         } catch (SQLException e) {
             // Handle SQL exception
@@ -83,6 +89,46 @@ public class PeopleService {
             return followableUsers;
     }
 
+    /**
+     * Returns the number of people shown per page of search results.
+     */
+    public int getSearchPageSize() {
+        return peopleSearchIndex.getPageSize();
+    }
+
+    /**
+     * Finds users that can be followed by first name, last name or username.
+     * See PeopleSearchIndex.search for how the search is matched and ranked.
+     *
+     * @param userIdToExclude The ID of the user searching, left out of the results.
+     * @param query What the user searched for.
+     * @param offset How many matches to skip.
+     * @param limit The most users to return.
+     * @return The matching users, best first.
+     */
+    public List<FollowableUser> searchFollowableUsers(String userIdToExclude, String query, int offset, int limit) {
+        List<FollowableUser> followableUsers = new ArrayList<>();
+        List<String> userIds = peopleSearchIndex.search(query, userIdToExclude, offset, limit);
+        if (userIds.isEmpty()) {
+            return followableUsers;
+        }
+        try {
+            Map<String, User> users = userRepository.findByIds(userIds);
+            Set<String> followees = new HashSet<>(followRepository.findFollowees(userIdToExclude));
+            Map<String, String> lastActiveDates = getLastActiveDates(userIds);
+            for (String userId : userIds) {
+                User user = users.get(userId);
+                if (user != null) {
+                    followableUsers.add(new FollowableUser(userId, user.getFirstName(), user.getLastName(),
+                            followees.contains(userId), lastActiveDates.get(userId)));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return followableUsers;
+    }
+
     /**
      * Checks if a user is followed by another user.
      * 
@@ -91,24 +137,12 @@ public class PeopleService {
      * @return true if the user with userIdToCheck is followed by the user with currentSessionUserId, false otherwise.
      */ 
     public boolean isUserFollowed(String currentSessionUserId, String userIdToCheck) {
-        try (Connection conn = dataSource.getConnection();
-                PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM follow WHERE followerUserId = ? AND followeeUserId = ?")) {
-            
-                pstmt.setString(1, currentSessionUserId);
-                pstmt.setString(2, userIdToCheck);
-
-            try (ResultSet rs = pstmt.executeQuery()) {
-            
-                if (rs.next()) {
-                    System.out.println("user" + userIdToCheck + " is  followed");
-                    return true; // if there exists is one row of the result table, the user is followed; otherwise, not followed.
-                }
-            }
+        try {
+            return followRepository.exists(currentSessionUserId, userIdToCheck);
         } catch (SQLException e) {
             e.printStackTrace();
         }
         // returns false if an exception occurs or if the query doesn't return any result.
-        System.out.println("user" + userIdToCheck + " is NOT followed");
         return false;
     }
 
@@ -120,21 +154,8 @@ public class PeopleService {
      * @return true if the follow operation was successful, false otherwise.
      */
     public boolean followUser(String currentSessionUserId, String userIdToFollow) {
-        // SQL query to insert a new row into the follow table
-        String sql = "INSERT INTO follow (followerUserId, followeeUserId) VALUES (?, ?)";
-    
-        try (Connection conn = dataSource.getConnection();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            // Set the values for the parameters in the SQL query
-            pstmt.setString(1, currentSessionUserId);
-            pstmt.setString(2, userIdToFollow);
-    
-            // Execute the SQL query to insert the new follow relationship
-            int rowsAffected = pstmt.executeUpdate();
-    
-            // If at least one row is affected, the follow operation was successful
-            return rowsAffected > 0;
-
+        try {
+            return followRepository.add(currentSessionUserId, userIdToFollow);
         } catch (SQLException e) {
             // Handle any SQL exceptions
             e.printStackTrace();
@@ -152,61 +173,17 @@ public class PeopleService {
      * @return true if the unfollow operation was successful, false otherwise.
      */
     public boolean unfollowUser(String currentSessionUserId, String userIdToUnfollow) {
-        // SQL query to insert a new row into the follow table
-        String sql = "DELETE FROM follow WHERE followerUserId = ? AND followeeUserId = ?";
-    
-        try (Connection conn = dataSource.getConnection();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            // Set the values for the parameters in the SQL query
-            pstmt.setString(1, currentSessionUserId);
-            pstmt.setString(2, userIdToUnfollow);
-    
-            // Execute the SQL query to delete the follow relationship
-            int rowsAffected = pstmt.executeUpdate();
-    
-            // If at least one row is affected, the follow operation was successful
-            return rowsAffected > 0;
-
+        try {
+            return followRepository.remove(currentSessionUserId, userIdToUnfollow);
         } catch (SQLException e) {
             // Handle any SQL exceptions
             e.printStackTrace();
 
-            return false; // Return false to indicate that the follow operation failed
+            return false; // Return false to indicate that the unfollow operation failed
         }
     }
 
 
-    /**
-     * Removes the follow relationship between two users, effectively unfollowing a user.
-     * 
-     * @param currentSessionUserId The ID of the user initiating the unfollow.
-     * @param userIdToUnfollow The ID of the user to be unfollowed.
-     * @return true if the unfollow operation was successful, false otherwise.
-     */
-    public boolean unfollowUser(String currentSessionUserId, String userIdToUnfollow) {
-        // SQL query to insert a new row into the follow table
-        String sql = "DELETE FROM follow WHERE followerUserId = ? AND followeeUserId = ?";
-    
-        try (Connection conn = dataSource.getConnection();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            // Set the values for the parameters in the SQL query
-            pstmt.setString(1, currentSessionUserId);
-            pstmt.setString(2, userIdToUnfollow);
-    
-            // Execute the SQL query to delete the follow relationship
-            int rowsAffected = pstmt.executeUpdate();
-    
-            // If at least one row is affected, the follow operation was successful
-            return rowsAffected > 0;
-
-        } catch (SQLException e) {
-            // Handle any SQL exceptions
-            e.printStackTrace();
-
-            return false; // Return false to indicate that the follow operation failed
-        }
-    }
-
     /**
      * Retreives last active date of a user based on their last post date.
      * 
@@ -214,34 +191,38 @@ public class PeopleService {
      * @return String of the last active date of user.
      */ 
     public String getLastActiveDate (String userId) {
-       String lastActiveDate = "this user has not made a post yet..."; 
-        
-       // SQL query to get a row from the post table
-        String sql = "SELECT * FROM post WHERE userId = ? ORDER BY postDate DESC LIMIT 1";
-
-        try (Connection conn = dataSource.getConnection();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            // Set the values for the parameters in the SQL query
-            pstmt.setString(1, userId);
-
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    lastActiveDate = rs.getString("postDate");
-
-                    SimpleDateFormat inputFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                    SimpleDateFormat outputFormat = new SimpleDateFormat("MMM dd, yyyy, hh:mm a");
-                    Date postDate = inputFormat.parse(lastActiveDate); 
-                    String formattedPostDate = outputFormat.format(postDate);
-
-                    lastActiveDate = formattedPostDate;                    
-                }
-            }            
+        return getLastActiveDates(List.of(userId)).get(userId);
+    }
+
+    /**
+     * Retreives the last active dates of several users with a single lookup.
+     * 
+     * @param  userIds The IDs of the users.
+     * @return The last active date of each user, or a message for users who have not posted.
+     */ 
+    public Map<String, String> getLastActiveDates(Collection<String> userIds) {
+        Map<String, String> lastActiveDates = new HashMap<>();
+        for (String userId : userIds) {
+            lastActiveDates.put(userId, "this user has not made a post yet...");
+        }
+        if (userIds.isEmpty()) {
+            return lastActiveDates;
+        }
+
+        try {
+            SimpleDateFormat inputFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+            SimpleDateFormat outputFormat = new SimpleDateFormat("MMM dd, yyyy, hh:mm a");
+            for (Map.Entry<String, String> lastPostDate : postRepository.findLastPostDates(userIds).entrySet()) {
+                Date postDate = inputFormat.parse(lastPostDate.getValue());
+                lastActiveDates.put(lastPostDate.getKey(), outputFormat.format(postDate));
+            }
         } catch (SQLException | ParseException e) {
             // Handle any SQL exceptions
             e.printStackTrace();
         }
 
-        return lastActiveDate; // Returns default string that says the user has not posted yet
+        // Users who have not posted keep the default string
+        return lastActiveDates;
     }
  
     
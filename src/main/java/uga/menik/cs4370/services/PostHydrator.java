@@ -0,0 +1,321 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.services;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import uga.menik.cs4370.components.MetricsRegistry;
+import uga.menik.cs4370.config.ReadReplicaDataSource;
+import uga.menik.cs4370.models.Post;
+import uga.menik.cs4370.models.User;
+import uga.menik.cs4370.repositories.BookmarkRepository;
+import uga.menik.cs4370.repositories.CommentRepository;
+import uga.menik.cs4370.repositories.HeartRepository;
+import uga.menik.cs4370.repositories.PostRepository;
+import uga.menik.cs4370.repositories.UserRepository;
+import uga.menik.cs4370.utility.LogSampler;
+
+/**
+ * This service turns plain post rows into Post objects for a viewer.
+ * Instead of looking up the author, counts and viewer flags post by post,
+ * it runs one query per kind of lookup for the whole batch.
+ *
+ * With app.hydration.parallel.enabled the lookups, which do not depend on
+ * each other, run at the same time on the service executor. Hydrating a
+ * page then takes about as long as the slowest lookup instead of the sum
+ * of all of them. Every batch has a deadline. Lookups that miss it are
+ * replaced with fallbacks: unknown counts, unknown flags, which show the
+ * toggles disabled, and placeholder authors. At most
+ * app.hydration.max-concurrent-lookups lookups run at once, the others get
+ * their fallbacks right away. Otherwise the lookups run one after the
+ * other on the calling thread, without a deadline.
+ *
+ * Comments are not looked up here. Feed pages only show their count, and
+ * the post page reads the comments of all its posts with one
+ * CommentRepository.findByPosts call. See PostService.getExpandedPosts.
+ */
+@Service
+public class PostHydrator {
+    private static final Logger log = LoggerFactory.getLogger(PostHydrator.class);
+    // A slow database makes every lookup late at once.
+    private static final LogSampler deadlineLog = LogSampler.limitPerSecond(1);
+
+    // Repositories answer the batched lookups. See UserRepository.java.
+    private final UserRepository userRepository;
+    private final PostRepository postRepository;
+    private final HeartRepository heartRepository;
+    private final CommentRepository commentRepository;
+    private final BookmarkRepository bookmarkRepository;
+    // serviceExecutor runs the lookups. See ThreadingConfig.java.
+    private final ExecutorService serviceExecutor;
+    // metrics counts the lookups for the request they run for.
+    private final MetricsRegistry metrics;
+    // Bounds the number of lookups running at once across all requests.
+    private final Semaphore lookupPermits;
+    private final boolean enabled;
+    private final long deadlineMillis;
+    private final int batchSize;
+
+    /**
+     * See AuthInterceptor notes regarding dependency injection and
+     * inversion of control.
+     */
+    @Autowired
+    public PostHydrator(UserRepository userRepository, PostRepository postRepository,
+            HeartRepository heartRepository, CommentRepository commentRepository,
+            BookmarkRepository bookmarkRepository,
+            @Qualifier("serviceExecutor") ExecutorService serviceExecutor,
+            MetricsRegistry metrics,
+            @Value("${app.hydration.parallel.enabled:false}") boolean enabled,
+            @Value("${app.hydration.deadline-ms:250}") long deadlineMillis,
+            @Value("${app.hydration.batch-size:50}") int batchSize,
+            @Value("${app.hydration.max-concurrent-lookups:32}") int maxConcurrentLookups) {
+        this.userRepository = userRepository;
+        this.postRepository = postRepository;
+        this.heartRepository = heartRepository;
+        this.commentRepository = commentRepository;
+        this.bookmarkRepository = bookmarkRepository;
+        this.serviceExecutor = serviceExecutor;
+        this.metrics = metrics;
+        this.enabled = enabled;
+        this.deadlineMillis = deadlineMillis;
+        this.batchSize = Math.max(1, batchSize);
+        this.lookupPermits = new Semaphore(Math.max(1, maxConcurrentLookups));
+    }
+
+    /**
+     * Returns true if the batched lookups run in parallel.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the number of rows that should be hydrated together.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Hydrates a batch of post rows for the given viewer.
+     *
+     * @param rows The rows read from the post table, in display order.
+     * @param viewer The user the posts are shown to.
+     * @return Posts in the same order as the rows.
+     */
+    public List<Post> hydrate(List<Row> rows, User viewer) {
+        if (rows.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Set<String> postIds = new LinkedHashSet<>();
+        Set<String> userIds = new LinkedHashSet<>();
+        for (Row row : rows) {
+            postIds.add(row.postId);
+            userIds.add(row.userId);
+        }
+        String viewerId = viewer.getUserId();
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+        CompletableFuture<Map<String, User>> authors = submit(() -> userRepository.findByIds(userIds));
+        // The post lookups run once per group of posts the repository can
+        // read together, e.g. once per shard. See PostRepository.partition.
+        Collection<List<String>> postIdGroups = postRepository.partition(postIds);
+        List<CompletableFuture<Map<String, Integer>>> hearts = new ArrayList<>();
+        List<CompletableFuture<Map<String, Integer>>> comments = new ArrayList<>();
+        List<CompletableFuture<Set<String>>> hearted = new ArrayList<>();
+        List<CompletableFuture<Set<String>>> bookmarked = new ArrayList<>();
+        for (List<String> group : postIdGroups) {
+            hearts.add(submit(() -> heartRepository.countByPosts(group)));
+            comments.add(submit(() -> commentRepository.countByPosts(group)));
+            hearted.add(submit(() -> heartRepository.findHeartedBy(viewerId, group)));
+            bookmarked.add(submit(() -> bookmarkRepository.findBookmarkedBy(viewerId, group)));
+        }
+
+        Map<String, User> authorsById = await(authors, deadline, Map.of());
+        Map<String, Integer> heartCounts = awaitCounts(hearts, postIdGroups, deadline);
+        Map<String, Integer> commentCounts = awaitCounts(comments, postIdGroups, deadline);
+        Set<String> heartedIds = new HashSet<>();
+        Set<String> heartedUnknown = new HashSet<>();
+        awaitFlags(hearted, postIdGroups, deadline, heartedIds, heartedUnknown);
+        Set<String> bookmarkedIds = new HashSet<>();
+        Set<String> bookmarkedUnknown = new HashSet<>();
+        awaitFlags(bookmarked, postIdGroups, deadline, bookmarkedIds, bookmarkedUnknown);
+
+        List<Post> posts = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            User author = authorsById.get(row.userId);
+            if (author == null) {
+                // Same placeholder PostService uses for comments.
+                author = new User(row.userId, "Unknown", "User");
+            }
+            int heartsCount = heartCounts.getOrDefault(row.postId, 0);
+            int commentsCount = commentCounts.getOrDefault(row.postId, 0);
+            posts.add(new Post(row.postId, row.postText, row.postDate, author, heartsCount, commentsCount,
+                    heartedIds.contains(row.postId), bookmarkedIds.contains(row.postId),
+                    heartedUnknown.contains(row.postId), bookmarkedUnknown.contains(row.postId)));
+        }
+        return posts;
+    }
+
+    /**
+     * Runs a lookup on the service executor if a permit is free. The permit
+     * is taken on the calling thread, so lookups never wait for one on an
+     * executor thread that ShardRouter.scatter could use. A lookup without
+     * a permit is not run and gets its fallback.
+     * Without parallel hydration the lookup runs right away on the calling thread.
+     */
+    private <T> CompletableFuture<T> submit(Lookup<T> lookup) {
+        if (!enabled) {
+            try {
+                return CompletableFuture.completedFuture(lookup.run());
+            } catch (SQLException e) {
+                return CompletableFuture.failedFuture(new IllegalStateException(e));
+            }
+        }
+        if (!lookupPermits.tryAcquire()) {
+            return CompletableFuture.failedFuture(new IllegalStateException("No lookup permit free."));
+        }
+        MetricsRegistry.RequestQueries request = metrics.currentRequest();
+        ReadReplicaDataSource.Routing routing = ReadReplicaDataSource.currentRouting();
+        return CompletableFuture.supplyAsync(() -> {
+            metrics.attach(request);
+            ReadReplicaDataSource.attach(routing);
+            try {
+                return lookup.run();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                lookupPermits.release();
+                metrics.endRequest();
+                ReadReplicaDataSource.endRequest();
+            }
+        }, serviceExecutor);
+    }
+
+    /**
+     * Waits for a lookup until the deadline.
+     * Returns the fallback if the lookup failed or is late.
+     */
+    private static <T> T await(CompletableFuture<T> future, long deadline, T fallback) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            if (deadlineLog.sample()) {
+                log.atWarn().addKeyValue("suppressed", deadlineLog.drainSuppressed())
+                        .log("Post hydration lookup missed its deadline. Using fallback.");
+            }
+        } catch (ExecutionException e) {
+            // Includes lookups that got no permit, which happens to every
+            // request at once under load.
+            if (deadlineLog.sample()) {
+                log.atWarn().setCause(e.getCause()).addKeyValue("suppressed", deadlineLog.drainSuppressed())
+                        .log("Post hydration lookup failed. Using fallback.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return fallback;
+    }
+
+    /**
+     * Waits for the counts of every group. Posts of a group whose lookup
+     * failed or is late get Post.UNKNOWN_COUNT.
+     *
+     * @param groupCounts The count lookups, one per group.
+     * @param groupPostIds The posts of each lookup, in the same order.
+     */
+    private static Map<String, Integer> awaitCounts(List<CompletableFuture<Map<String, Integer>>> groupCounts,
+            Collection<List<String>> groupPostIds, long deadline) {
+        Map<String, Integer> counts = new HashMap<>();
+        int group = 0;
+        for (List<String> postIds : groupPostIds) {
+            Map<String, Integer> found = await(groupCounts.get(group++), deadline, null);
+            if (found == null) {
+                for (String postId : postIds) {
+                    counts.put(postId, Post.UNKNOWN_COUNT);
+                }
+            } else {
+                counts.putAll(found);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Waits for the viewer flags of every group. Posts of a group whose
+     * lookup failed or is late are added to unknown instead.
+     *
+     * @param groupFlags The flag lookups, one per group.
+     * @param groupPostIds The posts of each lookup, in the same order.
+     * @param flagged Receives the posts the lookups found.
+     * @param unknown Receives the posts of failed or late lookups.
+     */
+    private static void awaitFlags(List<CompletableFuture<Set<String>>> groupFlags,
+            Collection<List<String>> groupPostIds, long deadline, Set<String> flagged, Set<String> unknown) {
+        int group = 0;
+        for (List<String> postIds : groupPostIds) {
+            Set<String> found = await(groupFlags.get(group++), deadline, null);
+            if (found == null) {
+                unknown.addAll(postIds);
+            } else {
+                flagged.addAll(found);
+            }
+        }
+    }
+
+    /**
+     * A repository lookup run on the service executor.
+     */
+    private interface Lookup<T> {
+        T run() throws SQLException;
+    }
+
+    /**
+     * A post as read from the post table, before hydration.
+     */
+    public static class Row {
+        private final String postId;
+        private final String userId;
+        private final String postDate;
+        private final String postText;
+
+        /**
+         * @param postId   the unique identifier of the post
+         * @param userId   the ID of the author
+         * @param postDate the formatted creation date of the post
+         * @param postText the text content of the post
+         */
+        public Row(String postId, String userId, String postDate, String postText) {
+            this.postId = postId;
+            this.userId = userId;
+            this.postDate = postDate;
+            this.postText = postText;
+        }
+    }
+}
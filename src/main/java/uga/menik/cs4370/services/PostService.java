@@ -5,47 +5,79 @@ This is a project developed by Dr. Menik to give the students an opportunity to
 */
 package uga.menik.cs4370.services;
 
-import java.sql.Connection;
-import java.util.Date;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.text.SimpleDateFormat;
-
-import javax.sql.DataSource;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 
-import uga.menik.cs4370.models.FollowableUser;
+import uga.menik.cs4370.components.ExistenceFilters;
+import uga.menik.cs4370.components.HashtagAutocomplete;
+import uga.menik.cs4370.components.PostFragmentCache;
 import uga.menik.cs4370.models.Post;
 import uga.menik.cs4370.models.Comment;
 import uga.menik.cs4370.models.ExpandedPost;
 import uga.menik.cs4370.models.User;
-import uga.menik.cs4370.utility.Utility;
-
-import java.sql.Statement;
+import uga.menik.cs4370.repositories.BookmarkRepository;
+import uga.menik.cs4370.repositories.CommentRepository;
+import uga.menik.cs4370.repositories.CommentRow;
+import uga.menik.cs4370.repositories.HashtagRepository;
+import uga.menik.cs4370.repositories.HeartRepository;
+import uga.menik.cs4370.repositories.PostRepository;
+import uga.menik.cs4370.repositories.PostRow;
 
 /**
  * This service contains people related functions.
  */
 @Service
 public class PostService {
-    // dataSource enables talking to the database.
-    private final DataSource dataSource;
+    private static final Logger log = LoggerFactory.getLogger(PostService.class);
+
+    // Repositories store the data. See UserRepository.java.
+    private final PostRepository postRepository;
+    private final CommentRepository commentRepository;
+    private final HeartRepository heartRepository;
+    private final BookmarkRepository bookmarkRepository;
+    private final HashtagRepository hashtagRepository;
+    // postFragmentCache holds rendered posts that have to be dropped on engagement changes.
+    private final PostFragmentCache postFragmentCache;
+    // postHydrator looks up authors, counts and flags for batches of feed posts.
+    private final PostHydrator postHydrator;
+    // hashtagAutocomplete suggests hashtags and learns from new posts.
+    private final HashtagAutocomplete hashtagAutocomplete;
+    // existenceFilters knows posts that certainly do not exist. See ExistenceFilters.java.
+    private final ExistenceFilters existenceFilters;
 
     /**
      * See AuthInterceptor notes regarding dependency injection and
      * inversion of control.
      */
     @Autowired
-    public PostService(DataSource dataSource) {
-        this.dataSource = dataSource;
+    public PostService(PostRepository postRepository, CommentRepository commentRepository,
+            HeartRepository heartRepository, BookmarkRepository bookmarkRepository,
+            HashtagRepository hashtagRepository, PostFragmentCache postFragmentCache,
+            PostHydrator postHydrator, HashtagAutocomplete hashtagAutocomplete,
+            ExistenceFilters existenceFilters) {
+        this.postRepository = postRepository;
+        this.commentRepository = commentRepository;
+        this.heartRepository = heartRepository;
+        this.bookmarkRepository = bookmarkRepository;
+        this.hashtagRepository = hashtagRepository;
+        this.postFragmentCache = postFragmentCache;
+        this.postHydrator = postHydrator;
+        this.hashtagAutocomplete = hashtagAutocomplete;
+        this.existenceFilters = existenceFilters;
     }
 
 
@@ -60,34 +92,12 @@ public class PostService {
     public List<Post> addPost(User currentSessionUser, String postText) {
         List<Post> posts = new ArrayList<>();
     
-        // Writes an SQL query to add a new post.
-        String insertPostSql = "INSERT INTO post (userId, postDate, postText) VALUES (?, CURRENT_TIMESTAMP, ?)";
-    
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(insertPostSql, Statement.RETURN_GENERATED_KEYS)) {
-    
-            // Sets parameters for the post insertion query
-            pstmt.setString(1, currentSessionUser.getUserId());
-            pstmt.setString(2, postText);
-    
-            int rowsAffected = pstmt.executeUpdate();
-    
-            // Checks if the post insertion was successful
-            if (rowsAffected > 0) {
-                // Retrieves the generated postId and postDate
-                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
-                    if (generatedKeys.next()) {
-                        String postId = generatedKeys.getString(1);  // Assuming postId is of type String
-                        // Parses postText to find hashtags and insert into hashtag table
-                        String[] words = postText.split("\\s+");
-                        for (String word : words) {
-                            if (word.startsWith("#")) {
-                                // Inserts the hashtag into the hashtag table
-                                String hashTagText = word; // Keeps '#' with the word
-                                insertHashtag(postId, hashTagText);
-                            }
-                        }
-                    }
+        try {
+            String postId = postRepository.insert(currentSessionUser.getUserId(), postText);
+            if (postId != null) {
+                // Inserts each hashtag of the post into the hashtag table
+                for (String hashTagText : extractHashtags(postText)) {
+                    insertHashtag(postId, hashTagText);
                 }
             }
         } catch (SQLException e) {
@@ -97,54 +107,35 @@ public class PostService {
         return posts;
     }
     
+    /**
+     * Finds the hashtags in a post's text.
+     * A hashtag is any whitespace separated word starting with #.
+     * The # is kept with the word.
+     *
+     * @param postText The text content of the post.
+     * @return The hashtags in the order they appear.
+     */
+    public static List<String> extractHashtags(String postText) {
+        List<String> hashtags = new ArrayList<>();
+        for (String word : postText.split("\\s+")) {
+            if (word.startsWith("#")) {
+                hashtags.add(word);
+            }
+        }
+        return hashtags;
+    }
+
     /** 
      * Retrieves a list of posts from the database.
+     * The posts are hydrated together, with one query per kind of lookup. See PostHydrator.java.
      * @param currentSessionUser The user currently logged in, for whom the posts are being retrieved.
      * @param userService An instance of the UserService class, used to fetch user details.
      * @return A list of Post objects representing the posts retrieved from the database.
      */ 
     public List<Post> getPosts(User currentSessionUser, UserService userService) {
         List<Post> posts = new ArrayList<>();
-
-            // Write an SQL query to add new post to list.
-            String sql = "SELECT * FROM post ORDER BY postDate DESC";
-
-            try (Connection conn = dataSource.getConnection();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {       
-
-            try (ResultSet rs = pstmt.executeQuery()) {
-                // System.out.println("hello");
-                // Traverse the result rows one at a time.
-  
-                while (rs.next()) {
-                    // Note: rs.get.. functions access attributes of the current row.
-                    String postId = rs.getString("postId");
-                    String userId =  rs.getString("userId");
-                    
-                    // Assuming you have a method to get user details from the userId
-                    User postUser = userService.getUser(userId);
-                    String postDateStr = rs.getString("postDate");
-                    
-                    String postText = rs.getString("postText");
-                    Boolean isBookmarked = isBookmarked(postId, currentSessionUser);
-                    Boolean isHearted = isHearted(postId, currentSessionUser);
-                    int heartsCount = getHeartsCount(postId);
-                    int commentsCount = getCommentsCount(postId);
-
-                    SimpleDateFormat inputFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                    SimpleDateFormat outputFormat = new SimpleDateFormat("MMM dd, yyyy, hh:mm a");
-                    Date postDate = inputFormat.parse(postDateStr); //change to stirng?
-                    String formattedPostDate = outputFormat.format(postDate);
-
-                    //change currentSessionUser to user associated with each post; find/make a method getUser?
-                    posts.add(new Post(postId, postText, formattedPostDate, postUser, heartsCount, commentsCount, isHearted, isBookmarked));
-                }
-            }
-        } catch (SQLException | ParseException e) {
-            // Handle SQL exception
-            e.printStackTrace();
-        }
-
+        forEachHydratedPost(consumer -> postRepository.findAllNewestFirst().forEach(consumer),
+                currentSessionUser, Integer.MAX_VALUE, posts::add);
         return posts;
     }
 
@@ -157,78 +148,51 @@ public class PostService {
      */
     public List<Post> getUserIdPosts(String userId, UserService userService) {
         List<Post> posts = new ArrayList<>();
-
-        String sql = "SELECT * FROM post WHERE userId = ? ORDER BY postDate DESC";
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, userId);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    String postId = rs.getString("postId");
-                    String postDateStr = rs.getString("postDate");
-                    String postText = rs.getString("postText");
-                    User postUser = userService.getUser(userId);
-                    Boolean isBookmarked = isBookmarked(postId, userService.getLoggedInUser());
-                    Boolean isHearted = isHearted(postId, userService.getLoggedInUser());
-                    int heartsCount = getHeartsCount(postId);
-                    int commentsCount = getCommentsCount(postId);
-
-                    SimpleDateFormat inputFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                    SimpleDateFormat outputFormat = new SimpleDateFormat("MMM dd, yyyy, hh:mm a");
-                    Date postDate = inputFormat.parse(postDateStr); 
-                    String formattedPostDate = outputFormat.format(postDate);
-                    
-                    posts.add(new Post(postId, postText, formattedPostDate, postUser, heartsCount, commentsCount, isHearted, isBookmarked));
-                }
-            }
-        } catch (SQLException | ParseException e) {
-            e.printStackTrace();
-        }
+        forEachUserIdPost(userId, userService, posts::add);
         return posts;
     }
+
+    /**
+     * Hands the posts of a user to the given consumer one at a time as they are read.
+     * Rows are read from the database a page at a time, so only one page is held in memory.
+     * Rows are hydrated a batch at a time and handed over batch by batch.
+     *
+     * @param userId The user ID of the user whose posts are being retrieved.
+     * @param userService An instance of the UserService class, used to fetch user details.
+     * @param consumer Receives each post as soon as it is read.
+     */
+    public void forEachUserIdPost(String userId, UserService userService, Consumer<Post> consumer) {
+        forEachHydratedPost(rows -> postRepository.forEachByUser(userId, rows),
+                userService.getLoggedInUser(), postHydrator.getBatchSize(), consumer);
+    }
     
     /**
      * Retrieves an expanded version of posts, including associated comments for each post.
+     * The posts are hydrated together and the comments of all posts are read at once,
+     * so the number of queries does not grow with the number of posts.
      * 
      * @param currentSessionUser The user currently logged in, for whom the posts are being retrieved.
      * @param userService An instance of the UserService class, used to fetch user details and comments.
      * @return A list of ExpandedPost objects representing the posts, each containing associated comments.
      */ 
     public List<ExpandedPost> getExpandedPosts(User currentSessionUser, UserService userService) {
+        List<Post> posts = new ArrayList<>();
+        forEachHydratedPost(consumer -> postRepository.findAll().forEach(consumer),
+                currentSessionUser, Integer.MAX_VALUE, posts::add);
+
+        List<String> postIds = new ArrayList<>();
+        for (Post post : posts) {
+            postIds.add(post.getPostId());
+        }
+        Map<String, List<Comment>> comments = getComments(postIds, userService);
+
         List<ExpandedPost> expandedPosts = new ArrayList<>();
-    
-        String sql = "SELECT * FROM post";
-    
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-    
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    String postId = rs.getString("postId");
-                    String postDateStr = rs.getString("postDate");
-                    String postText = rs.getString("postText");
-                    Boolean isBookmarked = isBookmarked(postId, currentSessionUser);
-                    Boolean isHearted = isHearted(postId, currentSessionUser);
-                    int heartsCount = getHeartsCount(postId);
-                    List<Comment> comments = getComments(postId, userService);
-                    int commentsCount = getCommentsCount(postId);
-    
-                    SimpleDateFormat inputFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                    SimpleDateFormat outputFormat = new SimpleDateFormat("MMM dd, yyyy, hh:mm a");
-                    Date postDate = inputFormat.parse(postDateStr);
-                    String formattedPostDate = outputFormat.format(postDate);
-    
-                    // Fetch user details from UserService
-                    User postUser = userService.getUser(rs.getString("userId"));
-    
-                    expandedPosts.add(new ExpandedPost(postId, postText, formattedPostDate, postUser, heartsCount, commentsCount, isHearted, isBookmarked, comments));
-                }
-            }
-        } catch (SQLException | ParseException e) {
-            e.printStackTrace();
+        for (Post post : posts) {
+            expandedPosts.add(new ExpandedPost(post.getPostId(), post.getContent(), post.getPostDate(),
+                    post.getUser(), post.getHeartsCount(), post.getCommentsCount(), post.getHearted(),
+                    post.isBookmarked(), post.isHeartedUnknown(), post.isBookmarkedUnknown(),
+                    comments.getOrDefault(post.getPostId(), new ArrayList<>())));
         }
-    
         return expandedPosts;
     }
 
@@ -241,17 +205,9 @@ public class PostService {
      * @return true if the comment is successfully added, false otherwise.
      */
     public boolean addComment(String postId, String commentText, User currentUser) {
-        String sql = "INSERT INTO comment (postId, commentDate, commentText, userId) VALUES (?, CURRENT_TIMESTAMP, ?, ?)";
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-    
-            pstmt.setString(1, postId);
-            pstmt.setString(2, commentText);
-            pstmt.setString(3, currentUser.getUserId());
-    
-            int rowsAffected = pstmt.executeUpdate();
-    
-            if (rowsAffected > 0) {
+        try {
+            if (commentRepository.insert(postId, currentUser.getUserId(), commentText)) {
+                postFragmentCache.invalidate(postId);
                 return true;
             }
         } catch (SQLException e) {
@@ -268,17 +224,9 @@ public class PostService {
      */
     public int getCommentsCount(String postId) {
         int commentsCount = 0;
-        String sql = "SELECT COUNT(*) AS commentsCount FROM comment WHERE postId = ?";
     
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, postId);
-    
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    commentsCount = rs.getInt("commentsCount");
-                }
-            }
+        try {
+            commentsCount = commentRepository.countByPost(postId);
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -294,41 +242,46 @@ public class PostService {
      * @return A list of comments associated with the specified post.
      */
     public List<Comment> getComments(String postId, UserService userService) {
-        List<Comment> comments = new ArrayList<>();
-        String sql = "SELECT c.commentId, c.commentText, c.commentDate, c.userId, u.username " +
-                    "FROM comment c JOIN user u ON c.userId = u.userId " +
-                    "WHERE c.postId = ? ORDER BY c.commentDate ASC";
-
-        try (Connection conn = dataSource.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setString(1, postId);
-
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    String commentId = rs.getString("commentId");
-                    String commentText = rs.getString("commentText");
-                    String commentDateStr = rs.getString("commentDate");
-                    String userId = rs.getString("userId");
-                    String username = rs.getString("username");
-
-                    // Fetch user details from UserService
-                    User commentUser = userService.getUser(userId);
+        return getComments(List.of(postId), userService).getOrDefault(postId, new ArrayList<>());
+    }
 
+    /**
+     * Retrieves the comments of several posts with one query for the comments
+     * and one for their authors.
+     * 
+     * @param postIds The IDs of the posts for which to retrieve comments.
+     * @param userService An instance of the UserService to fetch user details.
+     * @return The comments of each post, oldest first. Posts without comments are left out.
+     */
+    public Map<String, List<Comment>> getComments(Collection<String> postIds, UserService userService) {
+        Map<String, List<Comment>> comments = new HashMap<>();
+
+        try {
+            Map<String, List<CommentRow>> rowsByPost = commentRepository.findByPosts(postIds);
+            Set<String> userIds = new HashSet<>();
+            for (List<CommentRow> rows : rowsByPost.values()) {
+                for (CommentRow row : rows) {
+                    userIds.add(row.getUserId());
+                }
+            }
+            // Fetch user details of all commenters from UserService
+            Map<String, User> users = userService.getUsers(userIds);
+
+            SimpleDateFormat inputFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+            SimpleDateFormat outputFormat = new SimpleDateFormat("MMM dd, yyyy, hh:mm a");
+            for (Map.Entry<String, List<CommentRow>> post : rowsByPost.entrySet()) {
+                List<Comment> postComments = new ArrayList<>();
+                for (CommentRow row : post.getValue()) {
                     // If user details are not found, create a placeholder user
+                    User commentUser = users.get(row.getUserId());
                     if (commentUser == null) {
-                        commentUser = new User(userId, "Unknown", "User");
+                        commentUser = new User(row.getUserId(), "Unknown", "User");
                     }
 
-                    // Parse comment date
-                    SimpleDateFormat inputFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                    SimpleDateFormat outputFormat = new SimpleDateFormat("MMM dd, yyyy, hh:mm a");
-                    Date commentDate = inputFormat.parse(commentDateStr);
-                    String formattedCommentDate = outputFormat.format(commentDate);
-
-                    // Create a Comment object and add it to the list
-                    comments.add(new Comment(commentId, commentText, formattedCommentDate, commentUser));
+                    String formattedCommentDate = outputFormat.format(inputFormat.parse(row.getCommentDate()));
+                    postComments.add(new Comment(row.getCommentId(), row.getCommentText(), formattedCommentDate, commentUser));
                 }
+                comments.put(post.getKey(), postComments);
             }
         } catch (SQLException | ParseException e) {
             e.printStackTrace();
@@ -357,44 +310,61 @@ public class PostService {
      */
     public List<Post> getFollowingPosts(User currentSessionUser, UserService userService) {
         List<Post> posts = new ArrayList<>();
+        forEachFollowingPost(currentSessionUser, userService, posts::add);
+        return posts;
+    }
+
+    /**
+     * Hands posts from users that the current logged-in user follows to the given consumer
+     * one at a time as they are read, sorted by post date from most recent to oldest.
+     * Rows are read from the database a page at a time, so only one page is held in memory.
+     * Rows are collected into batches that are hydrated together and handed over batch by batch.
+     * 
+     * @param currentSessionUser The user currently logged in, whose followed users' posts are being retrieved.
+     * @param userService An instance of the UserService class, used to fetch user details.
+     * @param consumer Receives each post as soon as it is read.
+     */
+    public void forEachFollowingPost(User currentSessionUser, UserService userService, Consumer<Post> consumer) {
+        forEachHydratedPost(rows -> postRepository.forEachFollowedBy(currentSessionUser.getUserId(), rows),
+                currentSessionUser, postHydrator.getBatchSize(), consumer);
+    } 
 
-        // SQL query to retrieve posts from users followed by the current user, ordered by post date
-        String sql = "SELECT p.postId, p.userId, p.postDate, p.postText FROM post p " +
-                    "JOIN follow f ON p.userId = f.followeeUserId " +
-                    "WHERE f.followerUserId = ? " +
-                    "ORDER BY p.postDate DESC";
-
-        try (Connection conn = dataSource.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setString(1, currentSessionUser.getUserId());
-
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    String postId = rs.getString("postId");
-                    String postDateStr = rs.getString("postDate");
-                    String postText = rs.getString("postText");
-                    String userId = rs.getString("userId");
-                    Boolean isBookmarked = isBookmarked(postId, currentSessionUser);
-                    Boolean isHearted = isHearted(postId, currentSessionUser);
-                    int heartsCount = getHeartsCount(postId);
-                    int commentsCount = getCommentsCount(postId);
-                    User postUser = userService.getUser(userId);
-
-                    SimpleDateFormat inputFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                    SimpleDateFormat outputFormat = new SimpleDateFormat("MMM dd, yyyy, hh:mm a");
-                    Date postDate = inputFormat.parse(postDateStr);
-                    String formattedPostDate = outputFormat.format(postDate);
-
-                    posts.add(new Post(postId, postText, formattedPostDate, postUser, heartsCount, commentsCount, isHearted, isBookmarked));
+    /**
+     * Hands the posts read from the given source to the consumer, hydrated
+     * batchSize rows at a time with one query per kind of lookup.
+     * See PostHydrator.java.
+     */
+    private void forEachHydratedPost(PostRows source, User currentSessionUser, int batchSize,
+            Consumer<Post> consumer) {
+        SimpleDateFormat inputFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        SimpleDateFormat outputFormat = new SimpleDateFormat("MMM dd, yyyy, hh:mm a");
+        List<PostHydrator.Row> batch = new ArrayList<>();
+        try {
+            source.forEach(row -> {
+                try {
+                    String formattedPostDate = outputFormat.format(inputFormat.parse(row.getPostDate()));
+                    batch.add(new PostHydrator.Row(row.getPostId(), row.getUserId(), formattedPostDate,
+                            row.getPostText()));
+                    if (batch.size() == batchSize) {
+                        postHydrator.hydrate(batch, currentSessionUser).forEach(consumer);
+                        batch.clear();
+                    }
+                } catch (ParseException e) {
+                    e.printStackTrace();
                 }
-            }
-        } catch (SQLException | ParseException e) {
+            });
+        } catch (SQLException e) {
             e.printStackTrace();
         }
+        postHydrator.hydrate(batch, currentSessionUser).forEach(consumer);
+    }
 
-        return posts;
-    } 
+    /**
+     * Hands post rows to a consumer, e.g. one of the PostRepository forEach methods.
+     */
+    private interface PostRows {
+        void forEach(Consumer<PostRow> consumer) throws SQLException;
+    }
 
     
     /**
@@ -419,22 +389,8 @@ public class PostService {
      * checks if a post is bookmarked by currentSessionUser
      */
     public boolean isBookmarked(String postId, User currentSessionUser) {
-        // Write an SQL query to add new post to list.
-        String sql = "SELECT * FROM bookmark where postId = ? AND userId = ?";
-        
-        try (Connection conn = dataSource.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(sql)) {       
-                // Set the values for the parameters in the SQL query
-                pstmt.setString(1, postId);
-                pstmt.setString(2, currentSessionUser.getUserId());
-
-            try (ResultSet rs = pstmt.executeQuery()) {
-                // Traverse the result rows one at a time.
-                // if a result exists this mean th euser bookmarked the post
-                while (rs.next()) {
-                  return true;
-                }
-            }
+        try {
+            return bookmarkRepository.exists(postId, currentSessionUser.getUserId());
         } catch (SQLException e) {
             // Handle SQL exception
             e.printStackTrace();
@@ -451,23 +407,9 @@ public class PostService {
      * @return true if the post is bookmarked by the user, false otherwise.
      */
     public boolean addBookmark(String postId, User currentSessionUser) {
-        // Write an SQL query to add new post to list.
-        String sql = "INSERT INTO bookmark (postId, userId) VALUES (?, ?)";
-        
-        try (Connection conn = dataSource.getConnection();
-        PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            // Following line replaces the first place holder with userIdToExclude.
-            pstmt.setString(1, postId);
-            pstmt.setString(2, currentSessionUser.getUserId());        
-
-            // Execute the SQL query to insert the new post
-            int rowsAffected = pstmt.executeUpdate();
-            
+        try {
             //if at least one row was affected, operation was sucessful
-            if (rowsAffected > 0) {
-                return true;
-            }
+            return bookmarkRepository.add(postId, currentSessionUser.getUserId());
         } catch (SQLException e) {
             // Handle SQL exception
             e.printStackTrace();
@@ -484,23 +426,9 @@ public class PostService {
      * @return true if the bookmark was successfully removed, false otherwise.
      */ 
     public boolean removeBookmark(String postId, User currentSessionUser) {
-        // Write an SQL query to add new post to list.
-        String sql = "DELETE FROM bookmark WHERE postId = ? AND userId = ?";
-
-        try (Connection conn = dataSource.getConnection();
-        PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            // Following line replaces the first place holder with userIdToExclude.
-            pstmt.setString(1, postId);
-            pstmt.setString(2, currentSessionUser.getUserId());        
-
-            // Execute the SQL query to insert the new post
-            int rowsAffected = pstmt.executeUpdate();
-            
+        try {
             //if at least one row was affected, operation was sucessful
-            if (rowsAffected > 0) {
-                return true;
-            }
+            return bookmarkRepository.remove(postId, currentSessionUser.getUserId());
         } catch (SQLException e) {
             // Handle SQL exception
             e.printStackTrace();
@@ -517,22 +445,8 @@ public class PostService {
      * @return true if the post is hearted by the user, false otherwise.
      */
     public boolean isHearted(String postId, User currentSessionUser) {
-        // Write an SQL query to add new post to list.
-        String sql = "SELECT * FROM heart where postId = ? AND userId = ?";
-        
-        try (Connection conn = dataSource.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(sql)) {       
-                // Set the values for the parameters in the SQL query
-                pstmt.setString(1, postId);
-                pstmt.setString(2, currentSessionUser.getUserId());
-
-            try (ResultSet rs = pstmt.executeQuery()) {
-                // Traverse the result rows one at a time.
-                // if a result exists this mean the user hearted the post
-                while (rs.next()) {
-                  return true;
-                }
-            }
+        try {
+            return heartRepository.exists(postId, currentSessionUser.getUserId());
         } catch (SQLException e) {
             // Handle SQL exception
             e.printStackTrace();
@@ -547,22 +461,11 @@ public class PostService {
      * returns true if heart was added/post was liked, else returns false
      */ 
     public boolean addHeart(String postId, User currentSessionUser) {
-        // Write an SQL query to add new post to list.
-        String sql = "INSERT INTO heart (postId, userId) VALUES (?, ?)";
-        
-        try (Connection conn = dataSource.getConnection();
-        PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            // Following line replaces the first place holder with userIdToExclude.
-            pstmt.setString(1, postId);
-            pstmt.setString(2, currentSessionUser.getUserId());        
-
-            // Execute the SQL query to insert the new post
-            int rowsAffected = pstmt.executeUpdate();
-            
+        try {
             //if at least one row was affected, operation was sucessful
-            if (rowsAffected > 0) {
+            if (heartRepository.add(postId, currentSessionUser.getUserId())) {
                 setHeartsCount(getHeartsCount(postId), 1);
+                postFragmentCache.invalidate(postId);
                 return true;
             }
         } catch (SQLException e) {
@@ -581,22 +484,11 @@ public class PostService {
      * @return true if the heart was successfully added (post was liked), false otherwise.
      */
     public boolean removeHeart(String postId, User currentSessionUser) {
-        // Write an SQL query to add new post to list.
-        String sql = "DELETE FROM heart WHERE postId = ? AND userId = ?";
-
-        try (Connection conn = dataSource.getConnection();
-        PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            // Following line replaces the first place holder with userIdToExclude.
-            pstmt.setString(1, postId);
-            pstmt.setString(2, currentSessionUser.getUserId());        
-
-            // Execute the SQL query to insert the new post
-            int rowsAffected = pstmt.executeUpdate();
-            
+        try {
             //if at least one row was affected, operation was sucessful
-            if (rowsAffected > 0) {
+            if (heartRepository.remove(postId, currentSessionUser.getUserId())) {
                 setHeartsCount(getHeartsCount(postId), -1);
+                postFragmentCache.invalidate(postId);
                 return true;
             }
         } catch (SQLException e) {
@@ -626,21 +518,8 @@ public class PostService {
     public int getHeartsCount(String postId) {
         int heartsCount = 0;
 
-        // Write an SQL query to add new post to list.
-        String sql = "SELECT COUNT(*) AS heartsCount FROM heart WHERE postId = ?";
-        
-        try (Connection conn = dataSource.getConnection();
-        PreparedStatement pstmt = conn.prepareStatement(sql)) {       
-        // Following line replaces the first place holder with userIdToExclude.
-        pstmt.setString(1, postId);
-
-            try (ResultSet rs = pstmt.executeQuery()) {
-            // Traverse the result rows one at a time.
-                if (rs.next()) {
-                    // Note: rs.get.. functions access attributes of the current row.
-                    return heartsCount = rs.getInt("heartsCount");
-                }
-            }
+        try {
+            heartsCount = heartRepository.countByPost(postId);
         } catch (SQLException e) {
             // Handle SQL exception
             e.printStackTrace();
@@ -653,27 +532,19 @@ public class PostService {
 
     /**
     * Inserts a hashtag associated with a specific post into the hashtag table.
+    * The post must exist, e.g. because its ID was just returned by the insert.
     * 
     * @param postId The ID of the post.
     * @param hashTagText The text of the hashtag to be inserted.
     */
     private void insertHashtag(String postId, String hashTagText) {
-        // Checks if the post exists in the post table
-        if (!postExists(postId)) {
-            System.err.println("Error: Post with postId " + postId + " does not exist.");
-            return;
-        }
-        
         // Inserts the hashtag into the hashtag table
-        String sql = "INSERT INTO hashtag (postId, hashTag) VALUES (?, ?)";
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, postId);
-            pstmt.setString(2, hashTagText);
-            
-            pstmt.executeUpdate();
-            System.out.println("Hashtag '" + hashTagText + "' inserted successfully for postId " + postId);
+        try {
+            hashtagRepository.insert(postId, hashTagText);
+            hashtagAutocomplete.record(List.of(hashTagText));
+            log.atDebug().addKeyValue("postId", postId)
+                    .addKeyValue("hashtag", hashTagText)
+                    .log("Inserted hashtag");
             
         } catch (SQLException e) {
             e.printStackTrace();
@@ -681,28 +552,14 @@ public class PostService {
     }
     
     /**
-    * Checks if a post with the specified postId exists in the database.
+    * Checks if no post with the specified postId exists. Needs no query,
+    * but returns false for some posts that do not exist either.
     * 
     * @param postId The ID of the post to check.
-    * @return true if the post exists, false otherwise.
+    * @return true if the post certainly does not exist, false otherwise.
     */
-    private boolean postExists(String postId) {
-        String sql = "SELECT COUNT(*) AS count FROM post WHERE postId = ?";
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, postId);
-            
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    int count = rs.getInt("count");
-                    return count > 0;
-                }
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return false;
+    public boolean isPostMissing(String postId) {
+        return existenceFilters.isPostMissing(postId);
     }
 
 
@@ -713,41 +570,8 @@ public class PostService {
      */
     public List<Post> searchPostsByHashtag(String hashtag, UserService userService) {
         List<Post> posts = new ArrayList<>();
-        
-        // SQL query to retrieve posts containing the given hashtag.
-        String sql = "SELECT * FROM post WHERE postText LIKE ?";
-
-        
-        try (Connection conn = dataSource.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            // Sets the parameter in the SQL query to search for the hashtag
-            pstmt.setString(1, "%" + hashtag + "%");
-            
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    // Populate post details from the result set
-                    String postId = rs.getString("postId");
-                    String postText = rs.getString("postText");
-                    String postDateStr = rs.getString("postDate");
-                    User postUser = userService.getUser(rs.getString("userId")); 
-                    Boolean isBookmarked = isBookmarked(postId, userService.getLoggedInUser()); 
-                    Boolean isHearted = isHearted(postId, userService.getLoggedInUser());
-                    int heartsCount = getHeartsCount(postId);
-
-                    SimpleDateFormat inputFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                    SimpleDateFormat outputFormat = new SimpleDateFormat("MMM dd, yyyy, hh:mm a");
-                    Date postDate = inputFormat.parse(postDateStr);
-                    String formattedPostDate = outputFormat.format(postDate);
-                    
-                    // Creates a Post object and add it to the list
-                    posts.add(new Post(postId, postText, formattedPostDate, postUser, heartsCount, 0, isHearted, isBookmarked));
-                }
-            }
-        } catch (SQLException | ParseException e) {
-            e.printStackTrace();
-        }
-        
+        forEachHydratedPost(consumer -> postRepository.findByTextContaining(hashtag).forEach(consumer),
+                userService.getLoggedInUser(), Integer.MAX_VALUE, posts::add);
         return posts;
     }
 
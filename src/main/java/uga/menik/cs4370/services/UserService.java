@@ -5,23 +5,26 @@ This is a project developed by Dr. Menik to give the students an opportunity to
 */
 package uga.menik.cs4370.services;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
-
-import javax.sql.DataSource;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.context.annotation.SessionScope;
 
+import uga.menik.cs4370.components.ExistenceFilters;
+import uga.menik.cs4370.components.PeopleSearchIndex;
 import uga.menik.cs4370.models.User;
+import uga.menik.cs4370.repositories.UserRepository;
+import uga.menik.cs4370.repositories.UserRow;
 
 /**
  * This is a service class that enables user related functions.
- * The class interacts with the database through a dataSource instance.
+ * The class stores users through a UserRepository.
  * See authenticate and registerUser functions for examples.
  * This service object is spcial. It's lifetime is limited to a user session.
  * Usual services generally have application lifetime.
@@ -30,10 +33,14 @@ import uga.menik.cs4370.models.User;
 @SessionScope
 public class UserService {
 
-    // dataSource enables talking to the database.
-    private final DataSource dataSource;
+    // userRepository stores users. See UserRepository.java.
+    private final UserRepository userRepository;
     // passwordEncoder is used for password security.
     private final BCryptPasswordEncoder passwordEncoder;
+    // peopleSearchIndex finds users by name. See PeopleSearchIndex.java.
+    private final PeopleSearchIndex peopleSearchIndex;
+    // existenceFilters knows users that certainly do not exist. See ExistenceFilters.java.
+    private final ExistenceFilters existenceFilters;
     // This holds user of the current session user. 
     private User loggedInUser = null;
 
@@ -42,8 +49,11 @@ public class UserService {
      * inversion of control.
      */
     @Autowired
-    public UserService(DataSource dataSource) {
-        this.dataSource = dataSource;
+    public UserService(UserRepository userRepository, PeopleSearchIndex peopleSearchIndex,
+            ExistenceFilters existenceFilters) {
+        this.userRepository = userRepository;
+        this.peopleSearchIndex = peopleSearchIndex;
+        this.existenceFilters = existenceFilters;
         this.passwordEncoder = new BCryptPasswordEncoder();
     }
 
@@ -59,36 +69,16 @@ public class UserService {
      * @throws SQLException If an SQL exception occurs during the authentication process.
      */
     public boolean authenticate(String username, String password) throws SQLException {
-        // Note the ? mark in the query. It is a place holder that we will later replace.
-        final String sql = "select * from user where username = ?";
-        try (Connection conn = dataSource.getConnection();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            // Following line replaces the first place holder with username.
-            pstmt.setString(1, username);
-
-            try (ResultSet rs = pstmt.executeQuery()) {
-                // Traverse the result rows one at a time.
-                // Note: This specific while loop will only run at most once 
-                // since username is unique.
-                while (rs.next()) {
-                    // Note: rs.get.. functions access attributes of the current row.
-                    String storedPasswordHash = rs.getString("password");
-                    boolean isPassMatch = passwordEncoder.matches(password, storedPasswordHash);
-                    // Note: 
-                    if (isPassMatch) {
-                        String userId = rs.getString("userId");
-                        String firstName = rs.getString("firstName");
-                        String lastName = rs.getString("lastName");
-
-                        // Initialize and retain the logged in user.
-                        loggedInUser = new User(userId, firstName, lastName);
-                    }
-                    return isPassMatch;
-                }
-            }
+        UserRow user = userRepository.findByUsername(username);
+        if (user == null) {
+            return false;
+        }
+        boolean isPassMatch = passwordEncoder.matches(password, user.getPassword());
+        if (isPassMatch) {
+            // Initialize and retain the logged in user.
+            loggedInUser = user.toUser();
         }
-        return false;
+        return isPassMatch;
     }
 
     /**
@@ -131,21 +121,23 @@ public class UserService {
      */
     public boolean registerUser(String username, String password, String firstName, String lastName)
             throws SQLException {
-        // Note the ? marks in the SQL statement. They are placeholders like mentioned above.
-        final String registerSql = "insert into user (username, password, firstName, lastName) values (?, ?, ?, ?)";
-
-        try (Connection conn = dataSource.getConnection();
-                PreparedStatement registerStmt = conn.prepareStatement(registerSql)) {
-            // Following lines replace the placeholders 1-4 with values.
-            registerStmt.setString(1, username);
-            registerStmt.setString(2, passwordEncoder.encode(password));
-            registerStmt.setString(3, firstName);
-            registerStmt.setString(4, lastName);
-
-            // Execute the statement and check if rows are affected.
-            int rowsAffected = registerStmt.executeUpdate();
-            return rowsAffected > 0;
+        // A taken username is found before hashing the password and running
+        // an insert that fails. The filter only knows some of them, the
+        // unique key catches the rest.
+        if (existenceFilters.mightHaveUsername(username) && userRepository.findByUsername(username) != null) {
+            throw new SQLIntegrityConstraintViolationException(
+                    "Duplicate entry '" + username + "' for key 'user.username'");
+        }
+        boolean registered = userRepository.insert(username, passwordEncoder.encode(password), firstName, lastName);
+        if (registered) {
+            // The index needs the new user's ID.
+            UserRow user = userRepository.findByUsername(username);
+            if (user != null) {
+                peopleSearchIndex.add(user);
+            }
+            existenceFilters.addUsername(username);
         }
+        return registered;
     }
 
     /**
@@ -156,26 +148,41 @@ public class UserService {
      */
     public User getUser(String userId) {
         User user = null;
-        String sql = "SELECT * FROM user WHERE userId = ?";
-
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, userId);
-
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    String id = rs.getString("userId");
-                    String firstName = rs.getString("firstName");
-                    String lastName = rs.getString("lastName");
-                    user = new User(id, firstName, lastName);
-                }
-            }
+        try {
+            user = userRepository.findById(userId);
         } catch (SQLException e) {
             e.printStackTrace();
         }
         return user;
     }
 
+    /**
+     * Retrieves the users with the given userIds with a single lookup.
+     *
+     * @param userIds The unique identifiers of the users to retrieve.
+     * @return The users found, keyed by userId. Users that do not exist are left out.
+     */
+    public Map<String, User> getUsers(Collection<String> userIds) {
+        Map<String, User> users = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return users;
+        }
+        try {
+            users = userRepository.findByIds(userIds);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return users;
+    }
+
+    /**
+     * Returns true if no user has the given userId. Needs no query, but
+     * returns false for some users that do not exist either.
+     *
+     * @param userId The unique identifier of the user to check.
+     */
+    public boolean isUserMissing(String userId) {
+        return existenceFilters.isUserMissing(userId);
+    }
 
 }
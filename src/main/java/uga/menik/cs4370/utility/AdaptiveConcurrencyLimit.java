@@ -0,0 +1,136 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.utility;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decides how many requests may run at once from how long they take.
+ *
+ * Requests are timed in windows of at least WINDOW_NANOS and
+ * MIN_WINDOW_SAMPLES requests. A slow moving average of the window
+ * averages is the latency the app has when it is not overloaded. When a
+ * window is slower than that by more than the tolerance, requests are
+ * queueing somewhere, e.g. for database connections, and the limit shrinks
+ * in proportion. Otherwise it grows by about its square root a window.
+ * This is the gradient algorithm of Netflix's concurrency-limits library.
+ *
+ * Starting a request is lock free. Only the end of a window takes a lock.
+ */
+public final class AdaptiveConcurrencyLimit {
+
+    private static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int MIN_WINDOW_SAMPLES = 10;
+    // Number of windows the baseline latency averages over.
+    private static final double BASELINE_WINDOWS = 600;
+    // How much of each new limit is taken, to smooth out noise.
+    private static final double SMOOTHING = 0.2;
+    // Window latency up to this multiple of the baseline does not shrink the limit.
+    private static final double TOLERANCE = 1.5;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private volatile double limit;
+
+    // Guarded by this.
+    private long windowStart = System.nanoTime();
+    private long windowSumNanos;
+    private int windowSamples;
+    private int windowMaxInflight;
+    private double baselineNanos;
+
+    /**
+     * @param initialLimit The limit before any request was timed.
+     * @param minLimit The limit never goes below this.
+     * @param maxLimit The limit never goes above this.
+     */
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+    }
+
+    /**
+     * Starts a request if fewer than share times the limit are running.
+     * Callers that get true must call release once the request is done.
+     *
+     * @param share The part of the limit this request may use, at most 1.
+     *              Less important requests use less, so they are turned
+     *              away first.
+     */
+    public boolean tryAcquire(double share) {
+        int running = inflight.incrementAndGet();
+        if (running > Math.max(1, (int) (limit * share))) {
+            inflight.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Ends a request started with tryAcquire.
+     *
+     * @param nanos How long the request took, or a negative number to
+     *              leave it out of the latency, e.g. for static files.
+     */
+    public void release(long nanos) {
+        int running = inflight.getAndDecrement();
+        if (nanos >= 0) {
+            onSample(nanos, running);
+        }
+    }
+
+    /**
+     * Returns the number of requests that may run at once.
+     */
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Returns the number of requests running.
+     */
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    private synchronized void onSample(long nanos, int running) {
+        windowSumNanos += nanos;
+        windowSamples++;
+        windowMaxInflight = Math.max(windowMaxInflight, running);
+        long now = System.nanoTime();
+        if (windowSamples < MIN_WINDOW_SAMPLES || now - windowStart < WINDOW_NANOS) {
+            return;
+        }
+        double windowNanos = (double) windowSumNanos / windowSamples;
+        if (baselineNanos == 0) {
+            baselineNanos = windowNanos;
+        } else {
+            baselineNanos += (windowNanos - baselineNanos) / BASELINE_WINDOWS;
+            if (baselineNanos > 2 * windowNanos) {
+                // Latency dropped for good, e.g. after a slow start. Follow faster.
+                baselineNanos *= 0.95;
+            }
+        }
+
+        double current = limit;
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * baselineNanos / windowNanos));
+        double next = current * gradient + Math.sqrt(current);
+        // A limit that was not reached says nothing about a higher one.
+        if (next > current && windowMaxInflight < current / 2) {
+            next = current;
+        }
+        next = current * (1 - SMOOTHING) + next * SMOOTHING;
+        limit = Math.min(maxLimit, Math.max(minLimit, next));
+
+        windowStart = now;
+        windowSumNanos = 0;
+        windowSamples = 0;
+        windowMaxInflight = 0;
+    }
+}
@@ -0,0 +1,130 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.utility;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Build time asset pipeline. Maven runs this after the classes are compiled.
+ * See the exec-maven-plugin section in pom.xml.
+ *
+ * Every file under static/css, static/js and static/avatars is copied to
+ * static/assets with a content hash in its file name, e.g.
+ * /css/styles.css becomes /assets/css/styles-1a2b3c4d5e.css.
+ * Text assets also get a gzip compressed .gz copy next to them.
+ * The mapping from the original path to the hashed path is written to
+ * asset-manifest.properties, which AssetManifest reads at startup.
+ */
+public class AssetPipeline {
+
+    // Folders under static that go through the pipeline.
+    private static final List<String> ASSET_FOLDERS = List.of("css", "js", "avatars");
+
+    // File extensions worth compressing. Images are already compressed.
+    private static final List<String> COMPRESSIBLE = List.of(".css", ".js", ".svg", ".html");
+
+    // Number of hex characters of the hash that go into the file name.
+    private static final int HASH_LENGTH = 10;
+
+    /**
+     * Runs the pipeline.
+     *
+     * @param args The output folder of the build, target/classes by default.
+     */
+    public static void main(String[] args) throws IOException {
+        Path outputDir = Paths.get(args.length > 0 ? args[0] : "target/classes");
+        Path staticDir = outputDir.resolve("static");
+        Path assetsDir = staticDir.resolve("assets");
+        Map<String, String> manifest = new TreeMap<>();
+
+        for (String folder : ASSET_FOLDERS) {
+            Path source = staticDir.resolve(folder);
+            if (!Files.isDirectory(source)) {
+                continue;
+            }
+            List<Path> files;
+            try (Stream<Path> walk = Files.walk(source)) {
+                files = walk.filter(Files::isRegularFile).collect(Collectors.toList());
+            }
+            for (Path file : files) {
+                String relative = staticDir.relativize(file).toString().replace('\\', '/');
+                String hashed = hashedName(relative, Files.readAllBytes(file));
+                Path target = assetsDir.resolve(hashed);
+                Files.createDirectories(target.getParent());
+                Files.copy(file, target, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+                if (isCompressible(relative)) {
+                    gzip(target);
+                }
+                manifest.put("/" + relative, "/assets/" + hashed);
+            }
+        }
+
+        try (Writer out = Files.newBufferedWriter(outputDir.resolve("asset-manifest.properties"),
+                StandardCharsets.ISO_8859_1)) {
+            out.write("# Generated by AssetPipeline. Do not edit.\n");
+            for (Map.Entry<String, String> entry : manifest.entrySet()) {
+                out.write(entry.getKey() + "=" + entry.getValue() + "\n");
+            }
+        }
+        System.out.println("AssetPipeline: fingerprinted " + manifest.size() + " assets.");
+    }
+
+    /**
+     * Inserts a hash of the content in front of the file extension.
+     */
+    private static String hashedName(String relative, byte[] content) {
+        String hash;
+        try {
+            hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content))
+                    .substring(0, HASH_LENGTH);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        int dot = relative.lastIndexOf('.');
+        if (dot <= relative.lastIndexOf('/')) {
+            return relative + "-" + hash;
+        }
+        return relative.substring(0, dot) + "-" + hash + relative.substring(dot);
+    }
+
+    private static boolean isCompressible(String name) {
+        return COMPRESSIBLE.stream().anyMatch(name::endsWith);
+    }
+
+    /**
+     * Writes a .gz copy of the given file at the highest compression level.
+     * The copy is dropped again if it does not save anything.
+     */
+    private static void gzip(Path file) throws IOException {
+        Path gz = file.resolveSibling(file.getFileName() + ".gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gz)) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            Files.copy(file, out);
+        }
+        if (Files.size(gz) >= Files.size(file)) {
+            Files.delete(gz);
+        }
+    }
+}
@@ -0,0 +1,617 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.utility;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Exports the tables of the app to CSV files and imports them back.
+ * Memory use does not grow with the size of the tables.
+ *
+ * Files are written in the format of the exports in sql_files: one row a line,
+ * every value in double quotes, quotes inside a value doubled and NULL as \N.
+ * They can also be loaded with LOAD DATA ... ESCAPED BY ''.
+ *
+ * Export reads every table in primary key order from a streamed result set,
+ * so rows flow from the driver to the file as they arrive. Rows are written
+ * to a direct buffer that goes to a FileChannel whenever it fills. Import
+ * reads the files through a FileChannel the same way. It inserts rows in
+ * batches, one transaction a batch. Rows already in a table are skipped.
+ *
+ * Both save a checkpoint to DIR every checkpoint-rows rows: how far each
+ * file is written or read, and for export the key of the last row written.
+ * Rerunning the same command after an interruption continues from the last
+ * checkpoint instead of starting over. Export reads all tables in one
+ * transaction, so an export that is not interrupted is a consistent
+ * snapshot. A resumed export is not, unless writes were stopped.
+ *
+ * Posts moved to archive segments (see PostArchive.java) are not in the post
+ * table. Copy the archive folder along with the files. With shards, run the
+ * tool once per shard URL, each with its own dir.
+ *
+ * Run it with exec:java, all arguments are key=value pairs:
+ *
+ *   mvn -q exec:java -Dexec.mainClass=uga.menik.cs4370.utility.BulkTransfer \
+ *       -Dexec.args="mode=export url=jdbc:mysql://localhost:33306/cs4370_mb_platform dir=target/export"
+ *
+ * mode=MODE             export or import. (export)
+ * url=JDBC_URL          The database. Use db-user=... and db-password=... for credentials.
+ * dir=DIR               Where the files and checkpoints are. (target/export)
+ * tables=A,B            Only these tables. (all, in the order rows reference each other)
+ * batch=N               Rows per insert batch and transaction on import. (5000)
+ * checkpoint-rows=N     Rows between checkpoints. (100000)
+ * fresh=true            Ignores the checkpoint and starts over.
+ */
+public class BulkTransfer {
+
+    /**
+     * Tables in the order they are imported. Rows of a later table only
+     * reference rows of earlier tables.
+     */
+    enum Table {
+        USER("user", "userId, username, password, firstName, lastName", "userId"),
+        FOLLOW("follow", "followerUserId, followeeUserId", "followerUserId, followeeUserId"),
+        POST("post", "postId, userId, postDate, postText", "postId"),
+        HASHTAG("hashtag", "hashTag, postId", "hashTag, postId"),
+        HEART("heart", "postId, userId", "postId, userId"),
+        BOOKMARK("bookmark", "postId, userId", "postId, userId"),
+        COMMENT("comment", "commentId, postId, userId, commentDate, commentText", "commentId");
+
+        final String name;
+        final String[] columns;
+        final String[] keys;
+
+        Table(String name, String columns, String keys) {
+            this.name = name;
+            this.columns = columns.split(",\\s*");
+            this.keys = keys.split(",\\s*");
+        }
+
+        /**
+         * Returns the position of each key column among the columns.
+         */
+        int[] keyIndexes() {
+            int[] indexes = new int[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                indexes[i] = Arrays.asList(columns).indexOf(keys[i]);
+            }
+            return indexes;
+        }
+
+        static Table byName(String name) {
+            for (Table table : values()) {
+                if (table.name.equalsIgnoreCase(name.trim())) {
+                    return table;
+                }
+            }
+            throw new IllegalArgumentException("Unknown table: " + name);
+        }
+    }
+
+    // How often progress is printed while a table is copied.
+    private static final long PROGRESS_NANOS = 5_000_000_000L;
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final byte QUOTE = '"';
+    private static final byte COMMA = ',';
+    private static final byte NEWLINE = '\n';
+    private static final byte[] NULL = { '\\', 'N' };
+
+    private final String url;
+    private final String dbUser;
+    private final String dbPassword;
+    private final Path dir;
+    private final List<Table> tables = new ArrayList<>();
+    private final int batchSize;
+    private final long checkpointRows;
+    private final boolean mySql;
+
+    BulkTransfer(Map<String, String> options) {
+        this.url = options.get("url");
+        this.dbUser = options.getOrDefault("db-user", "root");
+        this.dbPassword = options.getOrDefault("db-password", "");
+        this.dir = Paths.get(options.getOrDefault("dir", "target/export"));
+        String names = options.getOrDefault("tables", "");
+        for (Table table : Table.values()) {
+            if (names.isBlank() || Arrays.stream(names.split(",")).map(Table::byName).anyMatch(table::equals)) {
+                tables.add(table);
+            }
+        }
+        this.batchSize = Integer.parseInt(options.getOrDefault("batch", "5000"));
+        this.checkpointRows = Long.parseLong(options.getOrDefault("checkpoint-rows", "100000"));
+        this.mySql = url != null && url.startsWith("jdbc:mysql:");
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                System.err.println("Arguments are key=value pairs, see BulkTransfer.java. Got: " + arg);
+                System.exit(1);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        if (!options.containsKey("url")) {
+            System.err.println("url=JDBC_URL is required, see BulkTransfer.java.");
+            System.exit(1);
+        }
+
+        BulkTransfer transfer = new BulkTransfer(options);
+        boolean fresh = Boolean.parseBoolean(options.getOrDefault("fresh", "false"));
+        long start = System.nanoTime();
+        long rows;
+        String mode = options.getOrDefault("mode", "export");
+        if (mode.equals("export")) {
+            rows = transfer.export(fresh);
+        } else if (mode.equals("import")) {
+            rows = transfer.load(fresh);
+        } else {
+            System.err.println("mode must be export or import. Got: " + mode);
+            System.exit(1);
+            return;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Copied %,d rows in %.1f s (%,.0f rows/s).%n", rows, seconds, rows / seconds);
+    }
+
+    /**
+     * Writes every table to DIR/table_export.csv.
+     *
+     * @param fresh Starts over instead of continuing from the checkpoint.
+     * @return The number of rows written by this run.
+     */
+    long export(boolean fresh) throws IOException, SQLException {
+        Files.createDirectories(dir);
+        Checkpoint checkpoint = Checkpoint.load(dir.resolve("export.progress"), fresh);
+        long rows = 0;
+        try (Connection conn = connect()) {
+            // One transaction over all tables reads them as of the same moment.
+            conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            conn.setAutoCommit(false);
+            for (Table table : tables) {
+                if (!checkpoint.isDone(table)) {
+                    rows += export(conn, table, checkpoint);
+                }
+            }
+            conn.commit();
+        }
+        return rows;
+    }
+
+    private long export(Connection conn, Table table, Checkpoint checkpoint) throws IOException, SQLException {
+        String[] lastKey = checkpoint.lastKey(table);
+        StringBuilder sql = new StringBuilder("SELECT ").append(String.join(", ", table.columns))
+                .append(" FROM ").append(table.name);
+        if (lastKey != null) {
+            sql.append(" WHERE ").append(after(table.keys));
+        }
+        sql.append(" ORDER BY ").append(String.join(", ", table.keys));
+
+        Path file = dir.resolve(table.name + "_export.csv");
+        Progress progress = new Progress(table, "Exported", checkpoint.rows(table));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            // Drops what was written after the checkpoint.
+            channel.truncate(checkpoint.bytes(table));
+            channel.position(checkpoint.bytes(table));
+            if (lastKey != null) {
+                setAfter(pstmt, lastKey);
+            }
+            // Asks the driver to stream rows instead of buffering the whole result.
+            pstmt.setFetchSize(mySql ? Integer.MIN_VALUE : batchSize);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+            int[] keyIndexes = table.keyIndexes();
+            String[] values = new String[table.columns.length];
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = rs.getString(i + 1);
+                    }
+                    writeRow(channel, buffer, values);
+                    if (progress.row() % checkpointRows == 0) {
+                        flush(channel, buffer);
+                        channel.force(false);
+                        String[] key = new String[keyIndexes.length];
+                        for (int i = 0; i < key.length; i++) {
+                            key[i] = values[keyIndexes[i]];
+                        }
+                        checkpoint.save(table, channel.position(), progress.rows, key, false);
+                    }
+                }
+            }
+            flush(channel, buffer);
+            channel.force(false);
+            checkpoint.save(table, channel.position(), progress.rows, null, true);
+        }
+        return progress.finish();
+    }
+
+    /**
+     * Returns the condition for rows after the given key in key order,
+     * written so the primary key index can find the first row.
+     */
+    private static String after(String[] keys) {
+        // a > ? OR (a = ? AND b > ?) for a key of (a, b).
+        List<String> terms = new ArrayList<>();
+        for (int i = 0; i < keys.length; i++) {
+            StringBuilder term = new StringBuilder("(");
+            for (int j = 0; j < i; j++) {
+                term.append(keys[j]).append(" = ? AND ");
+            }
+            terms.add(term.append(keys[i]).append(" > ?)").toString());
+        }
+        return "(" + String.join(" OR ", terms) + ")";
+    }
+
+    private static void setAfter(PreparedStatement pstmt, String[] lastKey) throws SQLException {
+        int index = 1;
+        for (int i = 0; i < lastKey.length; i++) {
+            for (int j = 0; j <= i; j++) {
+                pstmt.setString(index++, lastKey[j]);
+            }
+        }
+    }
+
+    private static void writeRow(FileChannel channel, ByteBuffer buffer, String[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                put(channel, buffer, COMMA);
+            }
+            if (values[i] == null) {
+                for (byte b : NULL) {
+                    put(channel, buffer, b);
+                }
+                continue;
+            }
+            put(channel, buffer, QUOTE);
+            for (byte b : values[i].getBytes(StandardCharsets.UTF_8)) {
+                if (b == QUOTE) {
+                    // A doubled quote is read back as one quote.
+                    put(channel, buffer, QUOTE);
+                }
+                put(channel, buffer, b);
+            }
+            put(channel, buffer, QUOTE);
+        }
+        put(channel, buffer, NEWLINE);
+    }
+
+    private static void put(FileChannel channel, ByteBuffer buffer, byte b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            flush(channel, buffer);
+        }
+        buffer.put(b);
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Inserts the rows of every DIR/table_export.csv into its table.
+     *
+     * @param fresh Starts over instead of continuing from the checkpoint.
+     * @return The number of rows read by this run.
+     */
+    long load(boolean fresh) throws IOException, SQLException {
+        Checkpoint checkpoint = Checkpoint.load(dir.resolve("import.progress"), fresh);
+        long rows = 0;
+        try (Connection conn = connect()) {
+            if (mySql) {
+                try (Statement stmt = conn.createStatement()) {
+                    // The rows were consistent when exported, skip checking them row by row.
+                    stmt.execute("SET foreign_key_checks = 0");
+                    stmt.execute("SET unique_checks = 0");
+                }
+            }
+            conn.setAutoCommit(false);
+            for (Table table : tables) {
+                if (!checkpoint.isDone(table)) {
+                    rows += load(conn, table, checkpoint);
+                }
+            }
+            if (mySql) {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("SET unique_checks = 1");
+                    stmt.execute("SET foreign_key_checks = 1");
+                }
+            }
+        }
+        return rows;
+    }
+
+    private long load(Connection conn, Table table, Checkpoint checkpoint) throws IOException, SQLException {
+        Path file = dir.resolve(table.name + "_export.csv");
+        if (!Files.exists(file)) {
+            System.out.println(table.name + ": no " + file + ", skipped");
+            return 0;
+        }
+        String placeholders = "?" + ", ?".repeat(table.columns.length - 1);
+        // Updating a key column to itself skips rows that are already there,
+        // e.g. the last batch before an interruption.
+        String sql = "INSERT INTO " + table.name + " (" + String.join(", ", table.columns) + ") VALUES ("
+                + placeholders + ") ON DUPLICATE KEY UPDATE " + table.keys[0] + " = " + table.keys[0];
+        Progress progress = new Progress(table, "Imported", checkpoint.rows(table));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            CsvReader reader = new CsvReader(channel, checkpoint.bytes(table));
+            String[] values = new String[table.columns.length];
+            int pending = 0;
+            while (reader.next(values)) {
+                for (int i = 0; i < values.length; i++) {
+                    pstmt.setString(i + 1, values[i]);
+                }
+                pstmt.addBatch();
+                progress.row();
+                if (++pending >= batchSize) {
+                    pstmt.executeBatch();
+                    conn.commit();
+                    pending = 0;
+                    if (progress.rows % checkpointRows < batchSize) {
+                        checkpoint.save(table, reader.position(), progress.rows, null, false);
+                    }
+                }
+            }
+            pstmt.executeBatch();
+            conn.commit();
+            checkpoint.save(table, reader.position(), progress.rows, null, true);
+        }
+        return progress.finish();
+    }
+
+    private Connection connect() throws SQLException {
+        String connectUrl = url;
+        if (mySql) {
+            // The driver then sends each batch as one multi-row insert.
+            connectUrl += url.contains("?") ? "&rewriteBatchedStatements=true" : "?rewriteBatchedStatements=true";
+        }
+        return DriverManager.getConnection(connectUrl, dbUser, dbPassword);
+    }
+
+    /**
+     * Reads rows from a CSV file through a FileChannel, parsing the bytes
+     * directly. Quotes, commas and newlines are single bytes in UTF-8 and
+     * never part of a longer character, so values are decoded once complete.
+     */
+    static class CsvReader {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        // Bytes of the value being read, grown for long values.
+        private byte[] value = new byte[256];
+        // File position of buffer position 0.
+        private long bufferStart;
+        private long rowEnd;
+
+        CsvReader(FileChannel channel, long start) throws IOException {
+            this.channel = channel;
+            channel.position(start);
+            this.bufferStart = start;
+            this.rowEnd = start;
+            buffer.limit(0);
+        }
+
+        /**
+         * Returns the file position after the last row read.
+         */
+        long position() {
+            return rowEnd;
+        }
+
+        /**
+         * Reads the next row into values. Returns false at the end of the file.
+         */
+        boolean next(String[] values) throws IOException {
+            int b = read();
+            while (b == '\r' || b == NEWLINE) {
+                b = read();
+            }
+            if (b < 0) {
+                return false;
+            }
+            for (int column = 0; column < values.length; column++) {
+                int length = 0;
+                if (b == QUOTE) {
+                    while (true) {
+                        b = read();
+                        if (b < 0) {
+                            throw new IOException("Unterminated quote near byte " + (bufferStart + buffer.position()));
+                        }
+                        if (b == QUOTE) {
+                            b = read();
+                            if (b != QUOTE) {
+                                break;
+                            }
+                        }
+                        length = append(length, b);
+                    }
+                    values[column] = new String(value, 0, length, StandardCharsets.UTF_8);
+                } else {
+                    while (b >= 0 && b != COMMA && b != NEWLINE && b != '\r') {
+                        length = append(length, b);
+                        b = read();
+                    }
+                    String text = new String(value, 0, length, StandardCharsets.UTF_8);
+                    values[column] = text.equals("\\N") ? null : text;
+                }
+                if (column < values.length - 1) {
+                    if (b != COMMA) {
+                        throw new IOException("Expected " + values.length + " values in the row ending near byte "
+                                + (bufferStart + buffer.position()));
+                    }
+                    b = read();
+                }
+            }
+            while (b == '\r') {
+                b = read();
+            }
+            if (b >= 0 && b != NEWLINE) {
+                throw new IOException("Expected the end of the row near byte " + (bufferStart + buffer.position()));
+            }
+            rowEnd = bufferStart + buffer.position();
+            return true;
+        }
+
+        private int append(int length, int b) {
+            if (length == value.length) {
+                value = Arrays.copyOf(value, length * 2);
+            }
+            value[length] = (byte) b;
+            return length + 1;
+        }
+
+        private int read() throws IOException {
+            if (!buffer.hasRemaining()) {
+                bufferStart += buffer.limit();
+                buffer.clear();
+                if (channel.read(buffer) < 0) {
+                    buffer.limit(0);
+                    return -1;
+                }
+                buffer.flip();
+                if (!buffer.hasRemaining()) {
+                    return -1;
+                }
+            }
+            return buffer.get() & 0xff;
+        }
+    }
+
+    /**
+     * How far each table was copied, saved to a properties file.
+     */
+    static class Checkpoint {
+        private final Path file;
+        private final Properties properties = new Properties();
+
+        private Checkpoint(Path file) {
+            this.file = file;
+        }
+
+        static Checkpoint load(Path file, boolean fresh) throws IOException {
+            Checkpoint checkpoint = new Checkpoint(file);
+            if (!fresh && Files.exists(file)) {
+                try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    checkpoint.properties.load(in);
+                }
+                System.out.println("Resuming from " + file);
+            }
+            return checkpoint;
+        }
+
+        boolean isDone(Table table) {
+            return Boolean.parseBoolean(properties.getProperty(table.name + ".done"));
+        }
+
+        long bytes(Table table) {
+            return Long.parseLong(properties.getProperty(table.name + ".bytes", "0"));
+        }
+
+        long rows(Table table) {
+            return Long.parseLong(properties.getProperty(table.name + ".rows", "0"));
+        }
+
+        String[] lastKey(Table table) {
+            if (properties.getProperty(table.name + ".key.0") == null) {
+                return null;
+            }
+            String[] key = new String[table.keys.length];
+            for (int i = 0; i < key.length; i++) {
+                key[i] = properties.getProperty(table.name + ".key." + i);
+            }
+            return key;
+        }
+
+        /**
+         * Saves the progress of a table. The file is replaced in one move,
+         * so an interruption leaves the old or the new checkpoint.
+         */
+        void save(Table table, long bytes, long rows, String[] lastKey, boolean done) throws IOException {
+            properties.setProperty(table.name + ".bytes", Long.toString(bytes));
+            properties.setProperty(table.name + ".rows", Long.toString(rows));
+            for (int i = 0; i < table.keys.length; i++) {
+                if (lastKey == null) {
+                    properties.remove(table.name + ".key." + i);
+                } else {
+                    properties.setProperty(table.name + ".key." + i, lastKey[i]);
+                }
+            }
+            properties.setProperty(table.name + ".done", Boolean.toString(done));
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                properties.store(out, "BulkTransfer checkpoint");
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Counts the rows of a table and prints the rate every few seconds.
+     */
+    static class Progress {
+        private final Table table;
+        private final String verb;
+        private final long start = System.nanoTime();
+        private final long resumedRows;
+        private long lastPrint = start;
+        long rows;
+
+        Progress(Table table, String verb, long resumedRows) {
+            this.table = table;
+            this.verb = verb;
+            this.resumedRows = resumedRows;
+            this.rows = resumedRows;
+        }
+
+        /**
+         * Counts a row and returns the rows so far, resumed rows included.
+         */
+        long row() {
+            rows++;
+            long now = System.nanoTime();
+            if (now - lastPrint >= PROGRESS_NANOS) {
+                lastPrint = now;
+                System.out.printf("%s: %,d rows (%,.0f rows/s)%n", table.name, rows,
+                        (rows - resumedRows) / ((now - start) / 1e9));
+            }
+            return rows;
+        }
+
+        /**
+         * Prints the total and returns the rows copied by this run.
+         */
+        long finish() {
+            System.out.printf("%s: %s %,d rows%s%n", table.name, verb, rows,
+                    resumedRows > 0 ? String.format(" (%,d before resuming)", resumedRows) : "");
+            return rows - resumedRows;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.utility;
+
+import java.util.Arrays;
+
+/**
+ * A set of non-negative ints, e.g. the IDs of the posts a user hearted,
+ * laid out like a Roaring bitmap. Values are grouped by their upper 16 bits.
+ * Each group keeps its lower 16 bits in a sorted char array while it has
+ * at most 4096 values and in a 65536 bit bitset once it has more, so a set
+ * takes about two bytes a value when sparse and one bit a value when dense.
+ * Membership is a binary search over the groups and then a binary search
+ * or a bit test.
+ *
+ * Not thread safe. Callers sharing a bitmap must synchronize on it.
+ */
+public final class CompressedBitmap {
+
+    // Groups with more values than this use a bitset.
+    private static final int MAX_ARRAY_SIZE = 4096;
+
+    // Upper 16 bits of each group, sorted.
+    private char[] keys = new char[4];
+    private Container[] containers = new Container[4];
+    private int size;
+    private int cardinality;
+
+    /**
+     * Adds a value.
+     *
+     * @return true if it was not in the set.
+     */
+    public boolean add(int value) {
+        char key = (char) (value >>> 16);
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index < 0) {
+            index = -index - 1;
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                containers = Arrays.copyOf(containers, size * 2);
+            }
+            System.arraycopy(keys, index, keys, index + 1, size - index);
+            System.arraycopy(containers, index, containers, index + 1, size - index);
+            keys[index] = key;
+            containers[index] = new Container();
+            size++;
+        }
+        if (containers[index].add((char) value)) {
+            cardinality++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Removes a value.
+     *
+     * @return true if it was in the set.
+     */
+    public boolean remove(int value) {
+        int index = Arrays.binarySearch(keys, 0, size, (char) (value >>> 16));
+        if (index < 0 || !containers[index].remove((char) value)) {
+            return false;
+        }
+        cardinality--;
+        if (containers[index].cardinality == 0) {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+            size--;
+            containers[size] = null;
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the value is in the set.
+     */
+    public boolean contains(int value) {
+        int index = Arrays.binarySearch(keys, 0, size, (char) (value >>> 16));
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    /**
+     * Returns the number of values in the set.
+     */
+    public int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * The values of one group. Either array or bits is set.
+     */
+    private static final class Container {
+        private char[] array = new char[4];
+        private long[] bits;
+        private int cardinality;
+
+        private boolean contains(char low) {
+            if (bits != null) {
+                return (bits[low >>> 6] & (1L << low)) != 0;
+            }
+            return Arrays.binarySearch(array, 0, cardinality, low) >= 0;
+        }
+
+        private boolean add(char low) {
+            if (bits != null) {
+                long before = bits[low >>> 6];
+                bits[low >>> 6] = before | (1L << low);
+                if (before == bits[low >>> 6]) {
+                    return false;
+                }
+                cardinality++;
+                return true;
+            }
+            int index = Arrays.binarySearch(array, 0, cardinality, low);
+            if (index >= 0) {
+                return false;
+            }
+            if (cardinality == MAX_ARRAY_SIZE) {
+                toBits();
+                return add(low);
+            }
+            index = -index - 1;
+            if (cardinality == array.length) {
+                array = Arrays.copyOf(array, Math.min(MAX_ARRAY_SIZE, cardinality * 2));
+            }
+            System.arraycopy(array, index, array, index + 1, cardinality - index);
+            array[index] = low;
+            cardinality++;
+            return true;
+        }
+
+        private boolean remove(char low) {
+            if (bits != null) {
+                long before = bits[low >>> 6];
+                bits[low >>> 6] = before & ~(1L << low);
+                if (before == bits[low >>> 6]) {
+                    return false;
+                }
+                cardinality--;
+                if (cardinality <= MAX_ARRAY_SIZE / 2) {
+                    // Half the threshold so a group at the edge does not flip back and forth.
+                    toArray();
+                }
+                return true;
+            }
+            int index = Arrays.binarySearch(array, 0, cardinality, low);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(array, index + 1, array, index, cardinality - index - 1);
+            cardinality--;
+            return true;
+        }
+
+        private void toBits() {
+            bits = new long[1024];
+            for (int i = 0; i < cardinality; i++) {
+                bits[array[i] >>> 6] |= 1L << array[i];
+            }
+            array = null;
+        }
+
+        private void toArray() {
+            array = new char[Math.max(4, cardinality)];
+            int count = 0;
+            for (int word = 0; word < bits.length; word++) {
+                long remaining = bits[word];
+                while (remaining != 0) {
+                    array[count++] = (char) (word * 64 + Long.numberOfTrailingZeros(remaining));
+                    remaining &= remaining - 1;
+                }
+            }
+            bits = null;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.utility;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides which calls of one log statement are actually logged.
+ * Keep one sampler per call site in a static field and check it only after
+ * the level check, so a disabled log statement costs a single branch:
+ *
+ *   private static final LogSampler followLog = LogSampler.limitPerSecond(5);
+ *   ...
+ *   if (log.isDebugEnabled() && followLog.sample()) {
+ *       log.atDebug().addKeyValue("suppressed", followLog.drainSuppressed())...
+ *   }
+ *
+ * A sampler can keep one in every n calls, let at most a given number of
+ * calls per second through, or both. Skipped calls are counted so the next
+ * logged line can say how many were left out.
+ */
+public final class LogSampler {
+
+    // Keep one in this many calls.
+    private final long oneIn;
+    // Minimum time between logged calls on average, 0 for no limit.
+    private final long intervalNanos;
+    // How far ahead of the average rate a burst may go.
+    private final long burstNanos;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong suppressed = new AtomicLong();
+    // The earliest time the rate limit lets the next call through.
+    private final AtomicLong nextAllowedNanos = new AtomicLong(System.nanoTime());
+
+    private LogSampler(long oneIn, double perSecond) {
+        this.oneIn = Math.max(1, oneIn);
+        this.intervalNanos = perSecond > 0 ? (long) (1e9 / perSecond) : 0;
+        this.burstNanos = perSecond > 0 ? (long) (Math.max(1, perSecond) * intervalNanos) : 0;
+    }
+
+    /**
+     * Keeps one in every n calls.
+     */
+    public static LogSampler sampleOneIn(long n) {
+        return new LogSampler(n, 0);
+    }
+
+    /**
+     * Keeps at most the given number of calls per second, allowing short bursts.
+     */
+    public static LogSampler limitPerSecond(double perSecond) {
+        return new LogSampler(1, perSecond);
+    }
+
+    /**
+     * Keeps one in every n calls, and of those at most the given number per second.
+     */
+    public static LogSampler of(long oneIn, double perSecond) {
+        return new LogSampler(oneIn, perSecond);
+    }
+
+    /**
+     * Returns true if this call should be logged.
+     */
+    public boolean sample() {
+        if (oneIn > 1 && calls.getAndIncrement() % oneIn != 0) {
+            suppressed.incrementAndGet();
+            return false;
+        }
+        if (intervalNanos == 0) {
+            return true;
+        }
+        long now = System.nanoTime();
+        while (true) {
+            long next = nextAllowedNanos.get();
+            if (next - now > burstNanos) {
+                suppressed.incrementAndGet();
+                return false;
+            }
+            if (nextAllowedNanos.compareAndSet(next, Math.max(next, now) + intervalNanos)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns how many calls were skipped since the last time this was called.
+     */
+    public long drainSuppressed() {
+        return suppressed.getAndSet(0);
+    }
+}
@@ -0,0 +1,146 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.utility;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket per key, e.g. one per user or per IP address.
+ * Each bucket holds up to burst tokens and earns perSecond tokens a second.
+ * A call takes one token and is allowed if there was one.
+ *
+ * A bucket is a single AtomicLong: the time at which it would be full
+ * again, updated with compareAndSet like LogSampler. Buckets are spread
+ * over stripes so threads working on different keys rarely touch the same
+ * map. A bucket that is full again behaves like a missing one, so idle
+ * buckets are dropped whenever a stripe runs out of room. If a stripe is
+ * full of active buckets, new keys of that stripe share one bucket until
+ * room frees up, so memory stays bounded even when keys are made up.
+ */
+public final class RateLimiter {
+
+    // How often a full stripe looks for idle buckets.
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    // Time to earn one token.
+    private final long intervalNanos;
+    // Time to earn a full bucket.
+    private final long burstNanos;
+    private final Stripe[] stripes;
+    private final int stripeMask;
+
+    /**
+     * @param perSecond Tokens earned per second.
+     * @param burst Most tokens a bucket holds, the longest allowed burst.
+     * @param maxKeys Most buckets kept at once.
+     */
+    public RateLimiter(double perSecond, int burst, int maxKeys) {
+        this.intervalNanos = Math.max(1, (long) (1e9 / perSecond));
+        this.burstNanos = Math.max(1, burst) * intervalNanos;
+        int stripeCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 4);
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(Math.max(1, maxKeys / stripeCount));
+        }
+        this.stripeMask = stripeCount - 1;
+    }
+
+    /**
+     * Takes a token from the bucket of the key.
+     *
+     * @return 0 if the call is allowed, otherwise how many nanoseconds
+     *         until the bucket has a token again.
+     */
+    public long tryAcquire(String key) {
+        long now = System.nanoTime();
+        int hash = key.hashCode();
+        Stripe stripe = stripes[(hash ^ (hash >>> 16)) & stripeMask];
+        AtomicLong bucket = stripe.buckets.get(key);
+        if (bucket == null) {
+            bucket = stripe.add(key, now);
+        }
+        while (true) {
+            long full = bucket.get();
+            long next = Math.max(full, now) + intervalNanos;
+            if (next - now > burstNanos) {
+                return next - now - burstNanos;
+            }
+            if (bucket.compareAndSet(full, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Gives back a token taken by tryAcquire, e.g. when the call was
+     * turned away by another limit after all.
+     */
+    public void refund(String key) {
+        int hash = key.hashCode();
+        Stripe stripe = stripes[(hash ^ (hash >>> 16)) & stripeMask];
+        AtomicLong bucket = stripe.buckets.get(key);
+        if (bucket == null) {
+            // The key shared the overflow bucket, or its bucket was dropped.
+            bucket = stripe.overflow;
+        }
+        // Moves the time the bucket is full back by one token. A time in the
+        // past just means full, see tryAcquire.
+        bucket.addAndGet(-intervalNanos);
+    }
+
+    /**
+     * Returns the number of buckets kept.
+     */
+    public long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.buckets.mappingCount();
+        }
+        return size;
+    }
+
+    /**
+     * The buckets of the keys that hash to one stripe.
+     */
+    private static class Stripe {
+        private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+        // Shared by new keys while the stripe is full.
+        private final AtomicLong overflow = new AtomicLong(System.nanoTime());
+        private final AtomicLong nextSweepNanos = new AtomicLong(System.nanoTime());
+        private final int capacity;
+
+        private Stripe(int capacity) {
+            this.capacity = capacity;
+        }
+
+        private AtomicLong add(String key, long now) {
+            if (buckets.mappingCount() >= capacity) {
+                sweep(now);
+                if (buckets.mappingCount() >= capacity) {
+                    return overflow;
+                }
+            }
+            // A new bucket is full.
+            AtomicLong bucket = new AtomicLong(now);
+            AtomicLong existing = buckets.putIfAbsent(key, bucket);
+            return existing == null ? bucket : existing;
+        }
+
+        /**
+         * Drops buckets that are full again. Only one thread sweeps a
+         * stripe at a time and at most once per SWEEP_INTERVAL_NANOS.
+         */
+        private void sweep(long now) {
+            long next = nextSweepNanos.get();
+            if (now - next < 0 || !nextSweepNanos.compareAndSet(next, now + SWEEP_INTERVAL_NANOS)) {
+                return;
+            }
+            buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+        }
+    }
+}
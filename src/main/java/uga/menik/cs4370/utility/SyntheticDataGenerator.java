@@ -0,0 +1,438 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.utility;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * Generates a synthetic data set with the shape of a real social network
+ * and writes it as CSV files or loads it straight into MySQL.
+ *
+ * The data follows a few well known patterns of social networks:
+ * - Follower counts follow a power law. A few users are followed by many,
+ *   most users by a handful. Followees are picked with Zipf popularity.
+ * - Posting is bursty. Most users post a little, a few post a lot, and
+ *   posts come in sessions of several posts minutes apart.
+ * - Hashtag use is Zipfian. A few hashtags are in most posts that have any.
+ * - Hearts and comments are skewed. Most posts get few, some get many,
+ *   and posts of popular users get more.
+ *
+ * Rows are generated and written one at a time, so memory use does not
+ * grow with the size of the data set.
+ *
+ * Run it with exec:java, all arguments are optional key=value pairs:
+ *
+ *   mvn -q exec:java -Dexec.mainClass=uga.menik.cs4370.utility.SyntheticDataGenerator \
+ *       -Dexec.args="users=100000 out=target/synthetic"
+ *
+ * out=DIR         Writes DIR/table_export.csv in the format of the files in
+ *                 sql_files and DIR/load_data.sql to load them with LOAD DATA.
+ * url=JDBC_URL    Inserts the rows with batched multi-row inserts instead.
+ *                 Use db-user=... and db-password=... for credentials.
+ *                 The tables must exist and be empty.
+ * users=N         Number of users. Everything else scales with it. (1000)
+ * follows=N       Average number of users each user follows. (50)
+ * posts=N         Average number of posts per user. (20)
+ * hearts=N        Average number of hearts per post. (5)
+ * comments=N      Average number of comments per post. (1)
+ * hashtags=N      Number of distinct hashtags. (5000)
+ * days=N          Posts are spread over this many days before now. (365)
+ * password=TEXT   Password of every generated user, to log in with. (password)
+ * seed=N          Seed of the random generator. (4370)
+ */
+public class SyntheticDataGenerator {
+
+    /**
+     * Tables in the order they are written. Rows of a later table only
+     * reference rows of earlier tables.
+     */
+    enum Table {
+        USER("user", "userId, username, password, firstName, lastName"),
+        FOLLOW("follow", "followerUserId, followeeUserId"),
+        POST("post", "postId, userId, postDate, postText"),
+        HASHTAG("hashtag", "hashTag, postId"),
+        HEART("heart", "postId, userId"),
+        BOOKMARK("bookmark", "postId, userId"),
+        COMMENT("comment", "commentId, postId, userId, commentDate, commentText");
+
+        final String name;
+        final String columns;
+
+        Table(String name, String columns) {
+            this.name = name;
+            this.columns = columns;
+        }
+
+        int columnCount() {
+            return columns.split(",").length;
+        }
+    }
+
+    private static final String[] FIRST_NAMES = {
+        "Diya", "Tia", "Chirag", "Alex", "Sam", "Jordan", "Taylor", "Morgan", "Casey", "Riley",
+        "Avery", "Quinn", "Jamie", "Drew", "Priya", "Wei", "Omar", "Elena", "Kofi", "Yuki"
+    };
+    private static final String[] LAST_NAMES = {
+        "Anand", "Kungwani", "Smith", "Johnson", "Lee", "Garcia", "Brown", "Nguyen", "Patel", "Kim",
+        "Lopez", "Walker", "Young", "Khan", "Chen", "Silva", "Okafor", "Rossi", "Sato", "Novak"
+    };
+    private static final String[] WORDS = {
+        "today", "just", "finished", "my", "the", "a", "new", "project", "coffee", "class",
+        "database", "exam", "weekend", "game", "music", "love", "this", "why", "is", "so",
+        "good", "bad", "tired", "happy", "lunch", "campus", "study", "with", "friends", "finally"
+    };
+
+    private final Random random;
+    private final int users;
+    private final double follows;
+    private final double posts;
+    private final double hearts;
+    private final double comments;
+    private final int hashtags;
+    private final long windowSeconds;
+    private final String passwordHash;
+
+    // userByRank[r] is the user with the r-th highest popularity.
+    private final int[] userByRank;
+    // rankOfUser[u] is the popularity rank of user u.
+    private final int[] rankOfUser;
+
+    private final Map<Table, Long> counts = new EnumMap<>(Table.class);
+
+    SyntheticDataGenerator(Map<String, String> options) {
+        this.random = new Random(Long.parseLong(options.getOrDefault("seed", "4370")));
+        this.users = Integer.parseInt(options.getOrDefault("users", "1000"));
+        this.follows = Double.parseDouble(options.getOrDefault("follows", "50"));
+        this.posts = Double.parseDouble(options.getOrDefault("posts", "20"));
+        this.hearts = Double.parseDouble(options.getOrDefault("hearts", "5"));
+        this.comments = Double.parseDouble(options.getOrDefault("comments", "1"));
+        this.hashtags = Integer.parseInt(options.getOrDefault("hashtags", "5000"));
+        this.windowSeconds = Long.parseLong(options.getOrDefault("days", "365")) * 24 * 3600;
+        this.passwordHash = new BCryptPasswordEncoder().encode(options.getOrDefault("password", "password"));
+
+        // Popularity is independent of user ID, shuffle the ranks.
+        this.userByRank = new int[users + 1];
+        this.rankOfUser = new int[users + 1];
+        for (int rank = 1; rank <= users; rank++) {
+            userByRank[rank] = rank;
+        }
+        for (int i = users; i > 1; i--) {
+            int j = 1 + random.nextInt(i);
+            int swap = userByRank[i];
+            userByRank[i] = userByRank[j];
+            userByRank[j] = swap;
+        }
+        for (int rank = 1; rank <= users; rank++) {
+            rankOfUser[userByRank[rank]] = rank;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                System.err.println("Arguments are key=value pairs, see SyntheticDataGenerator.java. Got: " + arg);
+                System.exit(1);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        if (!options.containsKey("out") && !options.containsKey("url")) {
+            options.put("out", "target/synthetic");
+        }
+
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(options);
+        long start = System.nanoTime();
+        try (RowSink sink = options.containsKey("url")
+                ? new JdbcSink(options.get("url"), options.getOrDefault("db-user", "root"),
+                        options.getOrDefault("db-password", ""))
+                : new CsvSink(Paths.get(options.get("out")))) {
+            generator.generate(sink);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long total = 0;
+        for (Map.Entry<Table, Long> count : generator.counts.entrySet()) {
+            System.out.printf("%-9s %,d rows%n", count.getKey().name, count.getValue());
+            total += count.getValue();
+        }
+        System.out.printf("Wrote %,d rows in %.1f s (%,.0f rows/min).%n", total, seconds, total / seconds * 60);
+    }
+
+    /**
+     * Generates all rows and hands them to the sink.
+     */
+    void generate(RowSink sink) throws IOException, SQLException {
+        for (int userId = 1; userId <= users; userId++) {
+            String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+            String lastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            emit(sink, Table.USER, userId, "user" + userId, passwordHash, firstName, lastName);
+        }
+
+        Set<Integer> picked = new HashSet<>();
+        for (int userId = 1; userId <= users; userId++) {
+            int count = Math.min(powerLaw(follows, 2.2), users - 1);
+            picked.clear();
+            for (int attempt = 0; picked.size() < count; attempt++) {
+                // Unpopular users are rarely drawn, fall back to uniform for very active followers.
+                int followee = attempt < 20 * count ? userByRank[zipf(users, 1.0)] : 1 + random.nextInt(users);
+                if (followee != userId && picked.add(followee)) {
+                    emit(sink, Table.FOLLOW, userId, followee);
+                }
+            }
+        }
+
+        long now = System.currentTimeMillis() / 1000;
+        long postId = 0;
+        long commentId = 0;
+        Set<Integer> tags = new HashSet<>();
+        for (int userId = 1; userId <= users; userId++) {
+            int count = powerLaw(posts, 1.8);
+            long time = now - (long) (random.nextDouble() * windowSeconds);
+            // Popular users get more engagement.
+            double boost = Math.max(1.0, Math.sqrt(users / (100.0 * rankOfUser[userId])));
+            for (int i = 0; i < count; i++) {
+                if (i > 0) {
+                    // Mostly minutes after the previous post, sometimes a new session.
+                    time = random.nextInt(10) < 7
+                            ? Math.min(now, time + (long) exponential(600))
+                            : now - (long) (random.nextDouble() * windowSeconds);
+                }
+                postId++;
+
+                tags.clear();
+                int tagCount = random.nextInt(10) < 6 ? 0 : 1 + random.nextInt(3);
+                while (tags.size() < tagCount) {
+                    tags.add(zipf(hashtags, 1.1));
+                }
+                StringBuilder text = new StringBuilder();
+                int words = 3 + random.nextInt(15);
+                for (int w = 0; w < words; w++) {
+                    text.append(w == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+                }
+                for (int tag : tags) {
+                    text.append(" #tag").append(tag);
+                }
+                emit(sink, Table.POST, postId, userId, dateTime(time), text.toString());
+                for (int tag : tags) {
+                    emit(sink, Table.HASHTAG, "#tag" + tag, postId);
+                }
+
+                int heartCount = Math.min(powerLaw(hearts * boost, 1.7), users);
+                picked.clear();
+                while (picked.size() < heartCount) {
+                    int heartUser = 1 + random.nextInt(users);
+                    if (picked.add(heartUser)) {
+                        emit(sink, Table.HEART, postId, heartUser);
+                        if (random.nextInt(20) == 0) {
+                            emit(sink, Table.BOOKMARK, postId, heartUser);
+                        }
+                    }
+                }
+
+                int commentCount = powerLaw(comments * boost, 1.7);
+                long commentTime = time;
+                for (int c = 0; c < commentCount; c++) {
+                    commentTime = Math.min(now, commentTime + (long) exponential(1800));
+                    emit(sink, Table.COMMENT, ++commentId, postId, 1 + random.nextInt(users),
+                            dateTime(commentTime), WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]);
+                }
+            }
+        }
+    }
+
+    private void emit(RowSink sink, Table table, Object... values) throws IOException, SQLException {
+        sink.row(table, values);
+        long count = counts.merge(table, 1L, Long::sum);
+        if (count % 1_000_000 == 0) {
+            System.out.printf("%s: %,d rows%n", table.name, count);
+        }
+    }
+
+    /**
+     * Returns a rank in [1, n] where rank r has probability proportional to 1 / r^s.
+     * Uses the inverse of the continuous approximation of the distribution.
+     */
+    private int zipf(int n, double s) {
+        double u = random.nextDouble();
+        double rank = s == 1.0
+                ? Math.pow(n + 1, u)
+                : Math.pow((Math.pow(n + 1, 1 - s) - 1) * u + 1, 1 / (1 - s));
+        return Math.max(1, Math.min(n, (int) rank));
+    }
+
+    /**
+     * Returns a count from a Pareto distribution with the given mean and tail exponent.
+     * Smaller exponents give heavier tails.
+     */
+    private int powerLaw(double mean, double alpha) {
+        if (mean <= 0) {
+            return 0;
+        }
+        double min = mean * (alpha - 1) / alpha;
+        double value = min / Math.pow(1 - random.nextDouble(), 1 / alpha);
+        return (int) Math.min(Integer.MAX_VALUE, Math.round(value));
+    }
+
+    private double exponential(double mean) {
+        return -mean * Math.log(1 - random.nextDouble());
+    }
+
+    /**
+     * Formats epoch seconds as a MySQL DATETIME in UTC.
+     */
+    private static String dateTime(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC)
+                .toString().replace('T', ' ');
+    }
+
+    /**
+     * Receives the generated rows.
+     */
+    interface RowSink extends AutoCloseable {
+        void row(Table table, Object[] values) throws IOException, SQLException;
+
+        @Override
+        void close() throws IOException, SQLException;
+    }
+
+    /**
+     * Writes one CSV file per table in the format of the exports in sql_files,
+     * plus a LOAD DATA script that loads them.
+     */
+    static class CsvSink implements RowSink {
+
+        private final Path folder;
+        private final Map<Table, Writer> writers = new EnumMap<>(Table.class);
+
+        CsvSink(Path folder) throws IOException {
+            this.folder = folder;
+            Files.createDirectories(folder);
+            for (Table table : Table.values()) {
+                Path file = folder.resolve(table.name + "_export.csv");
+                writers.put(table, new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), 1 << 16));
+            }
+        }
+
+        @Override
+        public void row(Table table, Object[] values) throws IOException {
+            Writer out = writers.get(table);
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.write('"');
+                // A doubled quote is read back as one quote by LOAD DATA.
+                out.write(String.valueOf(values[i]).replace("\"", "\"\""));
+                out.write('"');
+            }
+            out.write('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (Writer out : writers.values()) {
+                out.close();
+            }
+            StringBuilder script = new StringBuilder();
+            script.append("-- Loads the generated CSV files. Run with: mysql --local-infile=1 cs4370_mb_platform < load_data.sql\n");
+            script.append("SET foreign_key_checks = 0;\nSET unique_checks = 0;\n");
+            for (Table table : Table.values()) {
+                script.append("LOAD DATA LOCAL INFILE '")
+                      .append(folder.toAbsolutePath().resolve(table.name + "_export.csv").toString().replace("\\", "/"))
+                      .append("' INTO TABLE ").append(table.name)
+                      .append(" FIELDS TERMINATED BY ',' ENCLOSED BY '\"' LINES TERMINATED BY '\\n' (")
+                      .append(table.columns).append(");\n");
+            }
+            script.append("SET unique_checks = 1;\nSET foreign_key_checks = 1;\n");
+            Files.writeString(folder.resolve("load_data.sql"), script.toString());
+            System.out.println("Wrote CSV files and load_data.sql to " + folder.toAbsolutePath());
+        }
+    }
+
+    /**
+     * Inserts rows with batched multi-row inserts.
+     * The driver rewrites each batch into INSERT ... VALUES (...), (...), ...
+     */
+    static class JdbcSink implements RowSink {
+
+        private static final int BATCH_SIZE = 5000;
+
+        private final Connection conn;
+        private final Map<Table, PreparedStatement> statements = new EnumMap<>(Table.class);
+        private final Map<Table, Integer> pending = new EnumMap<>(Table.class);
+
+        JdbcSink(String url, String user, String password) throws SQLException {
+            String rewrite = url.contains("?") ? "&rewriteBatchedStatements=true" : "?rewriteBatchedStatements=true";
+            this.conn = DriverManager.getConnection(url + rewrite, user, password);
+            try (Statement stmt = conn.createStatement()) {
+                // Rows are generated consistent, skip checking them row by row.
+                stmt.execute("SET foreign_key_checks = 0");
+                stmt.execute("SET unique_checks = 0");
+            }
+            conn.setAutoCommit(false);
+            for (Table table : Table.values()) {
+                String placeholders = "?" + ", ?".repeat(table.columnCount() - 1);
+                statements.put(table, conn.prepareStatement(
+                        "INSERT INTO " + table.name + " (" + table.columns + ") VALUES (" + placeholders + ")"));
+                pending.put(table, 0);
+            }
+        }
+
+        @Override
+        public void row(Table table, Object[] values) throws SQLException {
+            PreparedStatement pstmt = statements.get(table);
+            for (int i = 0; i < values.length; i++) {
+                pstmt.setObject(i + 1, values[i]);
+            }
+            pstmt.addBatch();
+            int count = pending.merge(table, 1, Integer::sum);
+            if (count >= BATCH_SIZE) {
+                pstmt.executeBatch();
+                conn.commit();
+                pending.put(table, 0);
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                for (Table table : Table.values()) {
+                    statements.get(table).executeBatch();
+                    statements.get(table).close();
+                }
+                conn.commit();
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("SET unique_checks = 1");
+                    stmt.execute("SET foreign_key_checks = 1");
+                }
+            } finally {
+                conn.close();
+            }
+        }
+    }
+}
@@ -20,4 +20,101 @@ document.addEventListener('DOMContentLoaded', function () {
             }
         });
     }
+
+    // Suggests hashtags for the word being typed in the hashtag inputs.
+    // See HashtagSearchController.autocomplete.
+    var autocompleteForms = document.getElementsByClassName('hashtag-autocomplete');
+
+    for (var form of autocompleteForms) {
+        addHashtagAutocomplete(form.querySelector('input[type=text], textarea'));
+    }
 });
+
+function addHashtagAutocomplete(field) {
+    var list = document.createElement('ul');
+    list.className = 'hashtag-suggestions';
+    list.hidden = true;
+    field.insertAdjacentElement('afterend', list);
+    var selected = -1;
+    // Answers to older requests are ignored.
+    var latest = 0;
+
+    // Returns the start of the word the cursor is in.
+    function wordStart() {
+        var before = field.value.slice(0, field.selectionStart);
+        return Math.max(before.lastIndexOf(' '), before.lastIndexOf('\n')) + 1;
+    }
+
+    function hide() {
+        list.hidden = true;
+        selected = -1;
+    }
+
+    function choose(hashtag) {
+        var start = wordStart();
+        var rest = field.value.slice(field.selectionStart);
+        field.value = field.value.slice(0, start) + hashtag + ' ' + rest.replace(/^\S*\s?/, '');
+        var cursor = start + hashtag.length + 1;
+        field.setSelectionRange(cursor, cursor);
+        field.focus();
+        hide();
+    }
+
+    function select(index) {
+        var items = list.children;
+        if (selected >= 0) {
+            items[selected].classList.remove('selected');
+        }
+        selected = (index + items.length) % items.length;
+        items[selected].classList.add('selected');
+    }
+
+    field.addEventListener('input', function () {
+        var word = field.value.slice(wordStart(), field.selectionStart);
+        if (word.length < 2 || word[0] !== '#') {
+            hide();
+            return;
+        }
+        var request = ++latest;
+        fetch('/hashtagsearch/autocomplete?prefix=' + encodeURIComponent(word))
+            .then(function (response) { return response.ok ? response.json() : []; })
+            .then(function (hashtags) {
+                if (request !== latest) {
+                    return;
+                }
+                list.innerHTML = '';
+                for (var hashtag of hashtags) {
+                    var item = document.createElement('li');
+                    item.textContent = hashtag;
+                    // mousedown runs before the field loses focus.
+                    item.addEventListener('mousedown', function (e) {
+                        e.preventDefault();
+                        choose(this.textContent);
+                    });
+                    list.appendChild(item);
+                }
+                selected = -1;
+                list.hidden = hashtags.length === 0;
+            })
+            .catch(hide);
+    });
+
+    // Arrow keys move through the suggestions. Enter or Tab takes the
+    // selected one instead of submitting the form or leaving the field.
+    field.addEventListener('keydown', function (e) {
+        if (list.hidden) {
+            return;
+        }
+        if (e.key === 'ArrowDown' || e.key === 'ArrowUp') {
+            e.preventDefault();
+            select(selected + (e.key === 'ArrowDown' ? 1 : -1));
+        } else if ((e.key === 'Enter' || e.key === 'Tab') && selected >= 0) {
+            e.preventDefault();
+            e.stopImmediatePropagation();
+            choose(list.children[selected].textContent);
+        } else if (e.key === 'Escape') {
+            hide();
+        }
+    });
+    field.addEventListener('blur', hide);
+}
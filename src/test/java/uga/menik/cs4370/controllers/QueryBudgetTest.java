@@ -0,0 +1,183 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.cs4370.controllers;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import uga.menik.cs4370.components.QueryBudgetInterceptor;
+
+/**
+ * Renders the main pages over the jdbc storage engine and checks how many
+ * SQL statements each of them runs. See QueryBudgetInterceptor.java.
+ *
+ * Requests over their budget in application.properties fail with a 500
+ * error. The exact counts are checked as well, so a page that starts looking
+ * something up per listed post fails here even while it stays in budget.
+ * Every page lists several posts, comments and authors for that reason.
+ *
+ * The database is H2 in MySQL mode with the tables of
+ * sql_files/database_setup.sql, created before the app starts.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + QueryBudgetTest.DATABASE_URL,
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "app.storage.engine=jdbc",
+        "app.query-budget.enabled=true",
+        "app.query-budget.fail-on-violation=true"
+})
+@AutoConfigureMockMvc
+class QueryBudgetTest {
+
+    // USER is a keyword in H2, MySQL lets the app use it as a table name.
+    static final String DATABASE_URL = "jdbc:h2:mem:query-budget;MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+            + "NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1";
+
+    private static final String PASSWORD = "password";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private MockHttpSession session;
+
+    /**
+     * Creates the tables and rows before the app starts, so the app's
+     * background jobs, e.g. ExistenceFilters, see them on their first run.
+     */
+    @BeforeAll
+    static void createDatabase() throws SQLException, IOException {
+        String script;
+        try (InputStream in = QueryBudgetTest.class.getResourceAsStream("/database_setup.sql")) {
+            script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        try (Connection conn = DriverManager.getConnection(DATABASE_URL, "sa", "");
+             Statement stmt = conn.createStatement()) {
+            // The sample rows and the MySQL only statements are skipped.
+            for (String sql : script.split(";")) {
+                String statement = sql.replaceAll("(?m)^\\s*--.*$", "").trim();
+                if (statement.startsWith("CREATE TABLE")) {
+                    stmt.execute(statement);
+                }
+            }
+            if (countRows(stmt, "user") > 0) {
+                return;
+            }
+
+            String hash = new BCryptPasswordEncoder().encode(PASSWORD);
+            String[] users = { "alice", "bob", "carol" };
+            for (int i = 0; i < users.length; i++) {
+                stmt.execute("INSERT INTO user (userId, username, password, firstName, lastName) VALUES ("
+                        + (i + 1) + ", '" + users[i] + "', '" + hash + "', 'First" + users[i] + "', 'Last"
+                        + users[i] + "')");
+            }
+            // alice follows bob and carol.
+            stmt.execute("INSERT INTO follow (followerUserId, followeeUserId) VALUES (1, 2), (1, 3), (2, 1)");
+            // Posts 1 to 9, three by each user, every other one with #budget.
+            for (int postId = 1; postId <= 9; postId++) {
+                stmt.execute("INSERT INTO post (postId, userId, postDate, postText) VALUES (" + postId + ", "
+                        + ((postId - 1) / 3 + 1) + ", '2024-03-20 19:40:" + (10 + postId) + "', 'post " + postId
+                        + (postId % 2 == 1 ? " #budget" : "") + "')");
+                if (postId % 2 == 1) {
+                    stmt.execute("INSERT INTO hashtag (hashTag, postId) VALUES ('#budget', " + postId + ")");
+                }
+            }
+            stmt.execute("INSERT INTO heart (postId, userId) VALUES (1, 2), (4, 1), (5, 1), (7, 1), (7, 2)");
+            stmt.execute("INSERT INTO bookmark (postId, userId) VALUES (4, 1), (6, 1), (8, 1)");
+            stmt.execute("INSERT INTO comment (commentId, postId, userId, commentDate, commentText) VALUES "
+                    + "(1, 1, 2, '2024-03-20 19:41:00', 'comment 1'), "
+                    + "(2, 1, 3, '2024-03-20 19:42:00', 'comment 2'), "
+                    + "(3, 4, 1, '2024-03-20 19:43:00', 'comment 3'), "
+                    + "(4, 7, 3, '2024-03-20 19:44:00', 'comment 4')");
+        }
+    }
+
+    private static int countRows(Statement stmt, String table) throws SQLException {
+        try (var rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    @BeforeEach
+    void logIn() throws Exception {
+        session = new MockHttpSession();
+        mockMvc.perform(post("/login").session(session)
+                .param("username", "alice")
+                .param("password", PASSWORD))
+                .andExpect(redirectedUrl("/"));
+    }
+
+    @Test
+    void homePage() throws Exception {
+        render("/", 6).andExpect(content().string(containsString("post 9")))
+                .andExpect(content().string(containsString("post 4")));
+    }
+
+    @Test
+    void bookmarksPage() throws Exception {
+        render("/bookmarks", 6).andExpect(content().string(containsString("post 8")))
+                .andExpect(content().string(containsString("post 4")));
+    }
+
+    @Test
+    void peoplePage() throws Exception {
+        render("/people", 3).andExpect(content().string(containsString("Firstcarol")));
+    }
+
+    @Test
+    void profilePage() throws Exception {
+        render("/profile/2", 6).andExpect(content().string(containsString("post 6")));
+    }
+
+    @Test
+    void postPage() throws Exception {
+        render("/post/1", 8).andExpect(content().string(containsString("comment 2")))
+                .andExpect(content().string(containsString("Firstcarol")));
+    }
+
+    @Test
+    void hashtagSearchPage() throws Exception {
+        render("/hashtagsearch?hashtags={hashtags}", 2, "#budget")
+                .andExpect(content().string(containsString("post 7")));
+    }
+
+    /**
+     * Renders a page as alice and checks the number of statements it ran.
+     */
+    private ResultActions render(String urlTemplate, int expectedQueries, Object... uriVariables)
+            throws Exception {
+        return mockMvc.perform(get(urlTemplate, uriVariables).session(session))
+                .andExpect(status().isOk())
+                .andExpect(header().string(QueryBudgetInterceptor.QUERY_COUNT_HEADER,
+                        String.valueOf(expectedQueries)));
+    }
+}